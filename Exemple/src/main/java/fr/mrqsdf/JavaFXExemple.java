@@ -27,9 +27,9 @@ public class JavaFXExemple extends Application {
         HephaestusData data = Hephaestus.getData();
 
 
-        AutoRegistrar.register(RegisterType.MATERIAL, "fr.mrqsdf.material");
-        AutoRegistrar.register(RegisterType.FACTORY, "fr.mrqsdf.factory");
-        AutoRegistrar.register(RegisterType.RECIPE, "fr.mrqsdf.recipe");
+        // index généré à la compilation : ni scan du classpath ni réflexion
+        AutoRegistrar.registerIndexed(RegisterType.ALL, "fr.mrqsdf.material", "fr.mrqsdf.factory", "fr.mrqsdf.recipe");
+        data.freeze();
 
         MaterialInventory inventory = new MaterialInventory();
 
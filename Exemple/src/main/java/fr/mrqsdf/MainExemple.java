@@ -5,7 +5,6 @@ import fr.mrqsdf.planner.SimplePlanner;
 import fr.mrqsdf.ui.CraftLanternaViewer;
 import fr.olympus.hephaestus.Hephaestus;
 import fr.olympus.hephaestus.factory.Factory;
-import fr.olympus.hephaestus.processing.ProcessRecipe;
 import fr.olympus.hephaestus.register.*;
 import fr.olympus.hephaestus.resources.HephaestusData;
 
@@ -20,9 +19,9 @@ public final class MainExemple {
         Hephaestus.init();
         HephaestusData data = Hephaestus.getData();
 
-        AutoRegistrar.register(RegisterType.MATERIAL, "fr.mrqsdf.material");
-        AutoRegistrar.register(RegisterType.FACTORY, "fr.mrqsdf.factory");
-        AutoRegistrar.register(RegisterType.RECIPE, "fr.mrqsdf.recipe");
+        // index généré à la compilation : ni scan du classpath ni réflexion
+        AutoRegistrar.registerIndexed(RegisterType.ALL, "fr.mrqsdf.material", "fr.mrqsdf.factory", "fr.mrqsdf.recipe");
+        data.freeze();
 
         Factory f1 = data.createFactory(FURNACE_STONE);
         Factory f2 = data.createFactory(FURNACE_BLAST);
@@ -32,12 +31,7 @@ public final class MainExemple {
 
         Set<String> available = Set.of(WATER, LOG_OAK, IRON_ORE, COAL, BARLEY, YEAST);
 
-        List<ProcessRecipe> allRecipes = new ArrayList<>();
-        for (ProcessRecipeRegistryEntry e : data.getProcessRecipeEntriesSnapshot()) {
-            allRecipes.add(e.recipe());
-        }
-
-        SimplePlanner planner = new SimplePlanner(allRecipes, data);
+        SimplePlanner planner = new SimplePlanner(data);
 
         // ======= BEST ONLY : display Lanterna =======
         Plan bestSword = planner.bestOnly(STEEL_SWORD, available, 20, 5000);
@@ -0,0 +1,122 @@
+package fr.mrqsdf.bench;
+
+import fr.mrqsdf.material.BarleyMaterial;
+import fr.mrqsdf.material.BeerMaterial;
+import fr.mrqsdf.material.WaterMaterial;
+import fr.mrqsdf.material.WortMaterial;
+import fr.mrqsdf.material.YeastMaterial;
+import fr.mrqsdf.recipe.MakeWort;
+import fr.mrqsdf.utils.RegistryUtils;
+import fr.olympus.hephaestus.materials.MaterialInstance;
+import fr.olympus.hephaestus.processing.ContentStore;
+import fr.olympus.hephaestus.processing.MaterialMatcher;
+import fr.olympus.hephaestus.processing.ProcessContext;
+import fr.olympus.hephaestus.resources.HephaestusData;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static fr.mrqsdf.resources.Data.*;
+
+/**
+ * Recipe matching cost against the factory contents: nested scan over an ArrayList
+ * against counted queries on a ContentStore, then removal of every instance by matcher.
+ * <p>
+ * Usage: ContentMatchBench [contents] [iterations]
+ */
+public final class ContentMatchBench {
+
+    private static volatile int sink;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        HephaestusData data = new HephaestusData();
+        RegistryUtils.registerMaterials(data, new WaterMaterial(), new BarleyMaterial(), new YeastMaterial(),
+                new WortMaterial(), new BeerMaterial());
+
+        // les ingrédients de MakeWort sont au fond du baril
+        int[] filler = {data.materialHandle(YEAST), data.materialHandle(WORT), data.materialHandle(BEER)};
+        List<MaterialInstance> list = new ArrayList<>();
+        ContentStore store = new ContentStore();
+        for (int i = 0; i < size; i++) {
+            MaterialInstance m = data.newMaterialInstance(filler[i % filler.length], new byte[1][1][1]);
+            list.add(m);
+            store.add(m);
+        }
+        for (String id : new String[]{WATER, BARLEY}) {
+            MaterialInstance m = data.newMaterialInstance(data.materialHandle(id), new byte[1][1][1]);
+            list.add(m);
+            store.add(m);
+        }
+
+        MakeWort recipe = new MakeWort();
+        ProcessContext scan = new ProcessContext(list, new ArrayList<>());
+        ProcessContext counted = new ProcessContext(store, new ArrayList<>());
+        if (!recipe.canStart(scan, data) || !recipe.canStart(counted, data)) {
+            throw new IllegalStateException("MakeWort should be startable");
+        }
+        if (store.count(MaterialMatcher.id(YEAST), data) != (size + 2) / 3) {
+            throw new IllegalStateException("Wrong yeast count: " + store.count(MaterialMatcher.id(YEAST), data));
+        }
+
+        for (int round = 0; round < 2; round++) {
+            report("list scan", recipe, scan, data, iterations, round == 1);
+            report("content store", recipe, counted, data, iterations, round == 1);
+        }
+
+        // retrait de tout le contenu, matériau par matériau (les deux listes sont remplies à l'identique)
+        List<MaterialInstance> initial = List.copyOf(list);
+        int rounds = Math.max(1, iterations / Math.max(1, size));
+        for (int round = 0; round < 2; round++) {
+            long listNanos = 0;
+            long storeNanos = 0;
+            for (int r = 0; r < rounds; r++) {
+                listNanos += empty(scan, data);
+                storeNanos += empty(counted, data);
+                list.addAll(initial);
+                store.addAll(initial);
+            }
+            if (round == 1) {
+                System.out.printf("empty by matcher: list %8.1f us  store %8.1f us%n",
+                        listNanos / 1e3 / rounds, storeNanos / 1e3 / rounds);
+            }
+        }
+    }
+
+    private static long empty(ProcessContext ctx, HephaestusData data) {
+        long t0 = System.nanoTime();
+        ContentStore store = ctx.contentStoreOrNull();
+        for (String id : new String[]{WATER, BARLEY, YEAST, WORT, BEER}) {
+            MaterialMatcher m = MaterialMatcher.id(id);
+            if (store != null) {
+                while (store.take(m, data) != null) ;
+            } else {
+                List<MaterialInstance> contents = ctx.contents();
+                for (int i = 0; i < contents.size(); ) {
+                    if (m.matches(data.materialHandle(contents.get(i)), data)) ctx.removeContentAt(i);
+                    else i++;
+                }
+            }
+        }
+        if (!ctx.contents().isEmpty()) throw new IllegalStateException("Contents not emptied");
+        return System.nanoTime() - t0;
+    }
+
+    private static void report(String name, MakeWort recipe, ProcessContext ctx, HephaestusData data, int iterations, boolean print) {
+        long t0 = System.nanoTime();
+        int ok = 0;
+        for (int i = 0; i < iterations; i++) {
+            if (recipe.canStart(ctx, data)) ok++;
+        }
+        long nanos = System.nanoTime() - t0;
+        sink = ok;
+        if (print) {
+            System.out.printf("%-14s %8.1f ns/canStart  (%d contents)%n", name, (double) nanos / iterations, ctx.contents().size());
+        }
+    }
+
+    private ContentMatchBench() {
+    }
+}
@@ -0,0 +1,130 @@
+package fr.mrqsdf.bench;
+
+import fr.mrqsdf.factory.BarrelFactory;
+import fr.mrqsdf.material.WortMaterial;
+import fr.mrqsdf.recipe.SimpleProcessRecipe;
+import fr.mrqsdf.utils.RegistryUtils;
+import fr.olympus.hephaestus.factory.EventInbox;
+import fr.olympus.hephaestus.factory.Factory;
+import fr.olympus.hephaestus.factory.InboxOverflowPolicy;
+import fr.olympus.hephaestus.processing.FactoryEvent;
+import fr.olympus.hephaestus.processing.MaterialMatcher;
+import fr.olympus.hephaestus.processing.ProcessContext;
+import fr.olympus.hephaestus.processing.ProcessingPhase;
+import fr.olympus.hephaestus.processing.TimeWindow;
+import fr.olympus.hephaestus.resources.HephaestusData;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static fr.mrqsdf.resources.Data.*;
+import static fr.mrqsdf.utils.GroupsUtils.selectorIds;
+
+/**
+ * Event inbox throughput: producer threads post actions to one factory while the main thread updates it,
+ * then checks that every queued event reached the recipe once, in posting order per producer,
+ * and that queued + dropped events account for every post.
+ * <p>
+ * Usage: EventInboxBench [producers] [events per producer] [capacity] [policy]
+ */
+public final class EventInboxBench {
+
+    public static void main(String[] args) throws InterruptedException {
+        int producers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int perProducer = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+        InboxOverflowPolicy policy = args.length > 3 ? InboxOverflowPolicy.valueOf(args[3]) : InboxOverflowPolicy.DROP_NEWEST;
+
+        HephaestusData data = new HephaestusData();
+        RegistryUtils.registerMaterials(data, new WortMaterial());
+        Listen listen = new Listen(producers);
+        RegistryUtils.registerProcessRecipes(data, listen);
+        RegistryUtils.registerFactories(data, RegistryUtils.entry(BARREL, Set.of(GROUP_BARREL), 0, BarrelFactory::new));
+        data.freeze();
+
+        Factory barrel = data.createFactory(data.factoryHandle(BARREL));
+        barrel.insert(data.newMaterialInstance(data.materialHandle(WORT), new byte[1][1][1]));
+        barrel.openInbox(capacity, policy);
+        barrel.startFactory();
+        EventInbox inbox = barrel.getInbox();
+
+        // événements préconstruits : les producteurs ne mesurent que l'envoi
+        FactoryEvent[][] events = new FactoryEvent[producers][perProducer];
+        for (int p = 0; p < producers; p++) {
+            for (int i = 0; i < perProducer; i++) events[p][i] = new FactoryEvent.Action(Integer.toString(p), i);
+        }
+
+        AtomicLong accepted = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(producers);
+        long t0 = System.nanoTime();
+        for (int p = 0; p < producers; p++) {
+            FactoryEvent[] mine = events[p];
+            Thread t = new Thread(() -> {
+                long ok = 0;
+                for (FactoryEvent e : mine) {
+                    try {
+                        if (barrel.post(e)) ok++;
+                    } catch (IllegalStateException full) {
+                        // REJECT : l'événement est compté comme perdu par l'inbox
+                    }
+                }
+                accepted.addAndGet(ok);
+                done.countDown();
+            }, "producer-" + p);
+            t.start();
+        }
+
+        long updates = 0;
+        int maxDepth = 0;
+        while (done.getCount() > 0 || !inbox.isEmpty()) {
+            maxDepth = Math.max(maxDepth, inbox.depth());
+            barrel.update(0.001f, data);
+            updates++;
+        }
+        long nanos = System.nanoTime() - t0;
+
+        long posted = (long) producers * perProducer;
+        long dropped = inbox.dropped();
+        if (policy != InboxOverflowPolicy.DROP_OLDEST && accepted.get() + dropped != posted) {
+            throw new IllegalStateException("accepted " + accepted.get() + " + dropped " + dropped + " != posted " + posted);
+        }
+        if (listen.received + dropped != posted) {
+            throw new IllegalStateException("received " + listen.received + " + dropped " + dropped + " != posted " + posted);
+        }
+        if (listen.outOfOrder != 0) throw new IllegalStateException(listen.outOfOrder + " events out of order");
+
+        System.out.printf("%d producers, %d events: %.1f ns/event, %d received, %d dropped, max depth %d/%d, %d updates%n",
+                producers, posted, (double) nanos / posted, listen.received, dropped, maxDepth, inbox.capacity(), updates);
+    }
+
+    private EventInboxBench() {
+    }
+
+    /**
+     * Long session recording the actions it receives (actionId = producer, amount = sequence number).
+     */
+    private static final class Listen extends SimpleProcessRecipe {
+        private final float[] last;
+        long received;
+        long outOfOrder;
+
+        Listen(int producers) {
+            super("ex:recipe/listen", selectorIds(BARREL), false, List.of(MaterialMatcher.id(WORT)),
+                    List.of(), 1, new TimeWindow(1e6f, 2e6f));
+            last = new float[producers];
+            Arrays.fill(last, -1f);
+        }
+
+        @Override
+        public void onEvent(ProcessContext ctx, HephaestusData data, FactoryEvent event, float elapsedSeconds, ProcessingPhase phase) {
+            FactoryEvent.Action a = (FactoryEvent.Action) event;
+            int p = Integer.parseInt(a.actionId());
+            if (a.amount() <= last[p]) outOfOrder++;
+            last[p] = a.amount();
+            received++;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package fr.mrqsdf.bench;
+
+import fr.mrqsdf.factory.BarrelFactory;
+import fr.mrqsdf.material.BarleyMaterial;
+import fr.mrqsdf.material.BeerMaterial;
+import fr.mrqsdf.material.WaterMaterial;
+import fr.mrqsdf.material.WortMaterial;
+import fr.mrqsdf.material.YeastMaterial;
+import fr.mrqsdf.recipe.FermentBeer;
+import fr.mrqsdf.recipe.MakeWort;
+import fr.mrqsdf.utils.RegistryUtils;
+import fr.olympus.hephaestus.factory.Factory;
+import fr.olympus.hephaestus.factory.FactoryJournal;
+import fr.olympus.hephaestus.factory.FactorySnapshotCodec;
+import fr.olympus.hephaestus.materials.MaterialInstance;
+import fr.olympus.hephaestus.resources.HephaestusData;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static fr.mrqsdf.resources.Data.*;
+
+/**
+ * Incremental autosave of a population of barrels with FactoryJournal: bytes and time of each flush against a full
+ * snapshot, then recovery checks: after a crash (journal left open), with a torn batch at the end of the journal,
+ * after compaction, and with a journal older than the base (crash during compaction).
+ * Exits with an exception if a recovered population differs from the live one.
+ * <p>
+ * Usage: FactoryJournalBench [factories] [autosaves]
+ */
+public final class FactoryJournalBench {
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int saves = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        HephaestusData data = new HephaestusData();
+        RegistryUtils.registerMaterials(data, new WaterMaterial(), new BarleyMaterial(), new YeastMaterial(),
+                new WortMaterial(), new BeerMaterial());
+        RegistryUtils.registerProcessRecipes(data, new MakeWort(), new FermentBeer());
+        RegistryUtils.registerFactories(data, RegistryUtils.entry(BARREL, Set.of(GROUP_BARREL), 0, BarrelFactory::new));
+        data.freeze();
+
+        Path dir = Files.createTempDirectory("hephaestus-journal");
+        Random random = new Random(7);
+        FactorySnapshotCodec codec = new FactorySnapshotCodec(data);
+        ByteBuffer full = null;
+        try {
+            FactoryJournal live = FactoryJournal.open(dir, data);
+            List<Long> keys = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) keys.add(live.add(barrel(data, i)));
+            long t0 = System.nanoTime();
+            live.flush();
+            System.out.printf("initial flush %8.3f ms  %10d bytes%n", (System.nanoTime() - t0) / 1e6, live.journalSize());
+
+            long journalBytes = 0;
+            long snapshotBytes = 0;
+            long flushNanos = 0;
+            long snapshotNanos = 0;
+            for (int s = 0; s < saves; s++) {
+                // une seconde de jeu entre deux sauvegardes
+                for (int t = 0; t < 20; t++) {
+                    for (Factory f : live.factories().values()) f.update(0.05f, data);
+                }
+                // quelques actions de joueurs
+                for (int k = 0; k < count / 1000 + 1; k++) {
+                    Factory f = live.get(keys.get(random.nextInt(keys.size())));
+                    if (f != null) f.insert(data.newMaterialInstance(data.materialHandle(YEAST), new byte[1][1][1]));
+                }
+                live.remove(keys.get(random.nextInt(keys.size())));
+                keys.add(live.add(barrel(data, s)));
+
+                long before = live.journalSize();
+                t0 = System.nanoTime();
+                int changes = live.flush();
+                long t1 = System.nanoTime();
+                full = codec.encode(live.factories().values(), full);
+                long t2 = System.nanoTime();
+                if (s >= saves / 4) {
+                    journalBytes += live.journalSize() - before;
+                    snapshotBytes += full.limit();
+                    flushNanos += t1 - t0;
+                    snapshotNanos += t2 - t1;
+                }
+                if (s == saves - 1) System.out.printf("last autosave: %d changes of %d factories%n", changes, live.factories().size());
+            }
+            int measured = saves - saves / 4;
+            System.out.printf("flush         %8.3f ms  %10d bytes/autosave%n", flushNanos / 1e6 / measured, journalBytes / measured);
+            System.out.printf("full snapshot %8.3f ms  %10d bytes/autosave%n", snapshotNanos / 1e6 / measured, snapshotBytes / measured);
+
+            // crash : le journal vivant n'est jamais fermé
+            check(live, dir, data, "after crash");
+
+            // trame déchirée : en-tête annonçant plus d'octets que le fichier n'en contient
+            Path journalFile = dir.resolve("factories.journal");
+            long size = Files.size(journalFile);
+            Files.write(journalFile, new byte[]{0, 0, 16, 0, 1, 2, 3, 4, 5, 6, 7}, StandardOpenOption.APPEND);
+            check(live, dir, data, "torn batch");
+            if (Files.size(journalFile) != size) throw new IllegalStateException("torn batch not cut off");
+
+            // compactage, puis journal d'avant le compactage remis en place
+            Path stale = dir.resolve("stale.journal");
+            Files.copy(journalFile, stale, StandardCopyOption.REPLACE_EXISTING);
+            t0 = System.nanoTime();
+            live.compact();
+            System.out.printf("compact       %8.3f ms  %10d bytes base, journal %d bytes%n", (System.nanoTime() - t0) / 1e6,
+                    Files.size(dir.resolve("factories.base")), live.journalSize());
+            check(live, dir, data, "after compaction");
+            live.close();
+            Files.move(stale, journalFile, StandardCopyOption.REPLACE_EXISTING);
+            check(live, dir, data, "stale journal");
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> {
+                    try {
+                        Files.delete(p);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        }
+    }
+
+    private static Factory barrel(HephaestusData data, int i) {
+        Factory f = data.createFactory(BARREL);
+        // un tiers des barils reste vide : rien ne change entre deux sauvegardes
+        if (i % 3 != 0) {
+            f.insert(data.newMaterialInstance(data.materialHandle(WATER), new byte[2][2][2]));
+            f.insert(data.newMaterialInstance(data.materialHandle(BARLEY), new byte[2][2][2]));
+        }
+        f.startFactory();
+        return f;
+    }
+
+    private static void check(FactoryJournal live, Path dir, HephaestusData data, String name) throws IOException {
+        try (FactoryJournal recovered = FactoryJournal.open(dir, data)) {
+            Map<Long, Factory> expected = live.factories();
+            Map<Long, Factory> actual = recovered.factories();
+            if (!expected.keySet().equals(actual.keySet())) throw new IllegalStateException(name + ": keys differ");
+            for (Map.Entry<Long, Factory> e : expected.entrySet()) {
+                Factory a = actual.get(e.getKey());
+                Factory x = e.getValue();
+                boolean same = x.getRegistryId().equals(a.getRegistryId())
+                        && x.isOperating() == a.isOperating()
+                        && x.hasOutputs() == a.hasOutputs()
+                        && Objects.equals(id(x), id(a))
+                        && same(x.getContents(), a.getContents());
+                if (!same) throw new IllegalStateException(name + ": factory " + e.getKey() + " differs after recovery");
+                if (a.getDirtyFlags() != 0) throw new IllegalStateException(name + ": recovered factory is dirty");
+            }
+            System.out.println(name + ": " + actual.size() + " factories recovered");
+        }
+    }
+
+    private static String id(Factory f) {
+        return f.getSessionRecipe() == null ? null : f.getSessionRecipe().id();
+    }
+
+    private static boolean same(List<MaterialInstance> expected, List<MaterialInstance> actual) {
+        if (expected.size() != actual.size()) return false;
+        for (int i = 0; i < expected.size(); i++) {
+            if (!expected.get(i).materialId().equals(actual.get(i).materialId())) return false;
+            if (!Arrays.deepEquals(expected.get(i).voxels(), actual.get(i).voxels())) return false;
+        }
+        return true;
+    }
+
+    private FactoryJournalBench() {
+    }
+}
@@ -0,0 +1,176 @@
+package fr.mrqsdf.bench;
+
+import fr.mrqsdf.factory.BarrelFactory;
+import fr.mrqsdf.material.BarleyMaterial;
+import fr.mrqsdf.material.BeerMaterial;
+import fr.mrqsdf.material.WaterMaterial;
+import fr.mrqsdf.material.WortMaterial;
+import fr.mrqsdf.material.YeastMaterial;
+import fr.mrqsdf.recipe.FermentBeer;
+import fr.mrqsdf.recipe.MakeWort;
+import fr.mrqsdf.utils.RegistryUtils;
+import fr.olympus.hephaestus.factory.Factory;
+import fr.olympus.hephaestus.factory.FactorySnapshotCodec;
+import fr.olympus.hephaestus.materials.Material;
+import fr.olympus.hephaestus.materials.MaterialInstance;
+import fr.olympus.hephaestus.resources.HephaestusData;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+import static fr.mrqsdf.resources.Data.*;
+
+/**
+ * Round-trip check and throughput of FactorySnapshotCodec on a population of barrels: running sessions, stopped
+ * factories, rectangular and jagged voxels, materials outside the registry. Decodes into the same registry
+ * and into one registering the materials in another order, and rejects a truncated snapshot.
+ * Exits with an exception if a factory does not come back identical.
+ * <p>
+ * Usage: FactorySnapshotBench [factories] [rounds]
+ */
+public final class FactorySnapshotBench {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        HephaestusData data = registry(new WaterMaterial(), new BarleyMaterial(), new YeastMaterial(),
+                new WortMaterial(), new BeerMaterial());
+        HephaestusData reordered = registry(new BeerMaterial(), new WortMaterial(), new YeastMaterial(),
+                new BarleyMaterial(), new WaterMaterial());
+
+        List<Factory> population = population(data, count);
+        FactorySnapshotCodec codec = new FactorySnapshotCodec(data);
+
+        // un tampon minuscule : l'encodeur doit passer à un tampon plus grand
+        ByteBuffer buffer = codec.encode(population, ByteBuffer.allocate(16));
+        check(population, codec.decode(buffer.duplicate()), "same registry");
+        check(population, new FactorySnapshotCodec(reordered).decode(buffer.duplicate()), "reordered registry");
+        truncated(codec, buffer);
+
+        long encode = 0;
+        long decode = 0;
+        for (int i = 0; i < rounds; i++) {
+            long t0 = System.nanoTime();
+            buffer = codec.encode(population, buffer);
+            long t1 = System.nanoTime();
+            codec.decode(buffer.duplicate());
+            long t2 = System.nanoTime();
+            // premier quart : chauffe
+            if (i >= rounds / 4) {
+                encode += t1 - t0;
+                decode += t2 - t1;
+            }
+        }
+        int measured = rounds - rounds / 4;
+        double mb = buffer.limit() / 1e6;
+        System.out.printf("%d factories, %.2f MB (%.1f bytes/factory)%n", count, mb, (double) buffer.limit() / count);
+        System.out.printf("encode %8.3f ms  %7.1f MB/s%n", encode / 1e6 / measured, mb * measured / (encode / 1e9));
+        System.out.printf("decode %8.3f ms  %7.1f MB/s%n", decode / 1e6 / measured, mb * measured / (decode / 1e9));
+    }
+
+    private static HephaestusData registry(Material... materials) {
+        HephaestusData data = new HephaestusData();
+        RegistryUtils.registerMaterials(data, materials);
+        RegistryUtils.registerProcessRecipes(data, new MakeWort(), new FermentBeer());
+        RegistryUtils.registerFactories(data, RegistryUtils.entry(BARREL, Set.of(GROUP_BARREL), 0, BarrelFactory::new));
+        data.freeze();
+        return data;
+    }
+
+    private static List<Factory> population(HephaestusData data, int count) {
+        Random random = new Random(42);
+        int[] handles = {data.materialHandle(WATER), data.materialHandle(BARLEY), data.materialHandle(YEAST),
+                data.materialHandle(WORT), data.materialHandle(BEER)};
+        List<Factory> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Factory f = data.createFactory(BARREL);
+            switch (i % 4) {
+                case 0 -> {
+                    // brassage en cours
+                    f.insert(data.newMaterialInstance(handles[0], voxels(random, false)));
+                    f.insert(data.newMaterialInstance(handles[1], voxels(random, false)));
+                    f.startFactory();
+                    f.update(0.05f * (1 + random.nextInt(60)), data);
+                }
+                case 1 -> {
+                    // arrêtée, avec une forme irrégulière
+                    f.insert(data.newMaterialInstance(handles[3], voxels(random, true)));
+                    f.insert(data.newMaterialInstance(handles[2], voxels(random, false)));
+                    f.startFactory();
+                    f.update(0.05f, data);
+                    f.stopFactory();
+                }
+                case 2 -> f.insert(new MaterialInstance("ex:bench/unregistered", voxels(random, false)));
+                default -> f.startFactory();
+            }
+            out.add(f);
+        }
+        return out;
+    }
+
+    private static byte[][][] voxels(Random random, boolean jagged) {
+        int s = 1 + random.nextInt(4);
+        byte[][][] v = new byte[s][][];
+        for (int x = 0; x < s; x++) {
+            v[x] = new byte[s][];
+            for (int y = 0; y < s; y++) {
+                v[x][y] = new byte[jagged ? 1 + random.nextInt(4) : s];
+                // des plages de valeurs égales, comme une vraie matière
+                Arrays.fill(v[x][y], (byte) random.nextInt(3));
+            }
+        }
+        return v;
+    }
+
+    private static void check(List<Factory> expected, List<Factory> actual, String name) {
+        if (expected.size() != actual.size()) throw new IllegalStateException(name + ": " + actual.size() + " factories");
+        int sessions = 0;
+        for (int i = 0; i < expected.size(); i++) {
+            Factory e = expected.get(i);
+            Factory a = actual.get(i);
+            boolean same = e.getRegistryId().equals(a.getRegistryId())
+                    && e.isOperating() == a.isOperating()
+                    && e.hasOutputs() == a.hasOutputs()
+                    && Objects.equals(id(e), id(a))
+                    && e.getElapsed() == a.getElapsed()
+                    && same(e.getContents(), a.getContents());
+            if (!same) throw new IllegalStateException(name + ": factory " + i + " differs after decoding");
+            if (a.getSession()) sessions++;
+        }
+        if (sessions == 0) throw new IllegalStateException(name + ": no session restored");
+        System.out.println(name + ": " + expected.size() + " factories identical (" + sessions + " sessions)");
+    }
+
+    private static String id(Factory f) {
+        return f.getSessionRecipe() == null ? null : f.getSessionRecipe().id();
+    }
+
+    private static boolean same(List<MaterialInstance> expected, List<MaterialInstance> actual) {
+        if (expected.size() != actual.size()) return false;
+        for (int i = 0; i < expected.size(); i++) {
+            if (!expected.get(i).materialId().equals(actual.get(i).materialId())) return false;
+            if (!Arrays.deepEquals(expected.get(i).voxels(), actual.get(i).voxels())) return false;
+        }
+        return true;
+    }
+
+    private static void truncated(FactorySnapshotCodec codec, ByteBuffer buffer) {
+        ByteBuffer cut = buffer.duplicate().limit(buffer.limit() / 2);
+        try {
+            codec.decode(cut);
+        } catch (IllegalArgumentException expected) {
+            System.out.println("truncated snapshot rejected: " + expected.getMessage());
+            return;
+        }
+        throw new IllegalStateException("truncated snapshot accepted");
+    }
+
+    private FactorySnapshotBench() {
+    }
+}
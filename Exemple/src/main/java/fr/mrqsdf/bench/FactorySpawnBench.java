@@ -0,0 +1,89 @@
+package fr.mrqsdf.bench;
+
+import fr.mrqsdf.factory.BarrelFactory;
+import fr.mrqsdf.material.BarleyMaterial;
+import fr.mrqsdf.material.BeerMaterial;
+import fr.mrqsdf.material.WaterMaterial;
+import fr.mrqsdf.material.WortMaterial;
+import fr.mrqsdf.material.YeastMaterial;
+import fr.mrqsdf.recipe.FermentBeer;
+import fr.mrqsdf.recipe.MakeWort;
+import fr.mrqsdf.utils.RegistryUtils;
+import fr.olympus.hephaestus.register.FactoryRegistryEntry;
+import fr.olympus.hephaestus.resources.HephaestusData;
+
+import java.lang.reflect.Constructor;
+import java.util.Set;
+
+import static fr.mrqsdf.resources.Data.BARREL;
+import static fr.mrqsdf.resources.Data.GROUP_BARREL;
+
+/**
+ * Spawn throughput of HephaestusData.createFactory depending on the factory supplier:
+ * reflective newInstance on each call (former AutoRegistrar), FactoryRegistryEntry.of (LambdaMetafactory)
+ * and a direct constructor reference.
+ * <p>
+ * Usage: FactorySpawnBench [iterations]
+ */
+public final class FactorySpawnBench {
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+
+        HephaestusData reflective = registry(new FactoryRegistryEntry(BARREL, Set.of(GROUP_BARREL), 0,
+                () -> reflectiveNewInstance(BarrelFactory.class)));
+        HephaestusData generated = registry(FactoryRegistryEntry.of(BARREL, Set.of(GROUP_BARREL), 0, BarrelFactory.class));
+        HephaestusData direct = registry(new FactoryRegistryEntry(BARREL, Set.of(GROUP_BARREL), 0, BarrelFactory::new));
+
+        // warmup
+        for (int round = 0; round < 3; round++) {
+            spawn(reflective, iterations / 10);
+            spawn(generated, iterations / 10);
+            spawn(direct, iterations / 10);
+        }
+
+        report("reflective newInstance", spawn(reflective, iterations), iterations);
+        report("LambdaMetafactory", spawn(generated, iterations), iterations);
+        report("direct new", spawn(direct, iterations), iterations);
+    }
+
+    private static HephaestusData registry(FactoryRegistryEntry entry) {
+        HephaestusData data = new HephaestusData();
+        RegistryUtils.registerMaterials(data, new WaterMaterial(), new BarleyMaterial(), new YeastMaterial(),
+                new WortMaterial(), new BeerMaterial());
+        RegistryUtils.registerProcessRecipes(data, new MakeWort(), new FermentBeer());
+        data.registerFactory(entry);
+        data.freeze();
+        return data;
+    }
+
+    private static long spawn(HephaestusData data, int iterations) {
+        int handle = data.factoryHandle(BARREL);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink = data.createFactory(handle);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String name, long nanos, int iterations) {
+        System.out.printf("%-24s %8.1f ns/spawn  %12.0f spawns/s%n",
+                name, (double) nanos / iterations, iterations * 1e9 / nanos);
+    }
+
+    // Ancienne implémentation d'AutoRegistrar : résolution du constructeur à chaque appel
+    private static <T> T reflectiveNewInstance(Class<T> clazz) {
+        try {
+            Constructor<T> c = clazz.getDeclaredConstructor();
+            c.setAccessible(true);
+            return c.newInstance();
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot instantiate: " + clazz.getName(), e);
+        }
+    }
+
+    private FactorySpawnBench() {
+    }
+}
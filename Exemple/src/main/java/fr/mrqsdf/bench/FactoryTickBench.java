@@ -0,0 +1,110 @@
+package fr.mrqsdf.bench;
+
+import fr.mrqsdf.factory.BarrelFactory;
+import fr.mrqsdf.material.BarleyMaterial;
+import fr.mrqsdf.material.BeerMaterial;
+import fr.mrqsdf.material.WaterMaterial;
+import fr.mrqsdf.material.WortMaterial;
+import fr.mrqsdf.material.YeastMaterial;
+import fr.mrqsdf.recipe.FermentBeer;
+import fr.mrqsdf.recipe.MakeWort;
+import fr.mrqsdf.utils.RegistryUtils;
+import fr.olympus.hephaestus.factory.Factory;
+import fr.olympus.hephaestus.factory.FactoryScheduler;
+import fr.olympus.hephaestus.resources.HephaestusData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static fr.mrqsdf.resources.Data.*;
+
+/**
+ * Tick throughput of FactoryScheduler on a population of running barrels: sequential (parallelism 1)
+ * against parallel deterministic, then checks that both populations end in the same state.
+ * A third population runs sequentially with the timer wheel (sessions only touched on transitions) and must
+ * end in the same state.
+ * <p>
+ * Usage: FactoryTickBench [factories] [ticks]
+ */
+public final class FactoryTickBench {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        HephaestusData data = new HephaestusData();
+        RegistryUtils.registerMaterials(data, new WaterMaterial(), new BarleyMaterial(), new YeastMaterial(),
+                new WortMaterial(), new BeerMaterial());
+        RegistryUtils.registerProcessRecipes(data, new MakeWort(), new FermentBeer());
+        RegistryUtils.registerFactories(data, RegistryUtils.entry(BARREL, Set.of(GROUP_BARREL), 0, BarrelFactory::new));
+        data.freeze();
+
+        List<Factory> sequential = population(data, count);
+        List<Factory> parallel = population(data, count);
+        List<Factory> timed = population(data, count);
+
+        try (FactoryScheduler seq = new FactoryScheduler(data, 1, FactoryScheduler.DEFAULT_CHUNK_SIZE, true);
+             FactoryScheduler par = new FactoryScheduler(data);
+             FactoryScheduler wheel = new FactoryScheduler(data, 1, FactoryScheduler.DEFAULT_CHUNK_SIZE, true, 0.05)) {
+            seq.addAll(sequential);
+            par.addAll(parallel);
+            wheel.addAll(timed);
+
+            // warmup
+            for (int i = 0; i < ticks / 4; i++) {
+                seq.tick(0.05f);
+                par.tick(0.05f);
+                wheel.tick(0.05f);
+            }
+
+            report("sequential", seq, ticks);
+            report("parallel", par, ticks);
+            report("timer wheel", wheel, ticks);
+        }
+
+        for (int i = 0; i < count; i++) {
+            Factory s = sequential.get(i);
+            if (s.getSession() != parallel.get(i).getSession() || s.getSession() != timed.get(i).getSession()
+                    || s.getContents().size() != timed.get(i).getContents().size()) {
+                throw new IllegalStateException("Populations diverged at factory " + i);
+            }
+        }
+        System.out.println("states identical for " + count + " factories (3 populations)");
+    }
+
+    private static List<Factory> population(HephaestusData data, int count) {
+        int barrel = data.factoryHandle(BARREL);
+        int wort = data.materialHandle(WORT);
+        int yeast = data.materialHandle(YEAST);
+        List<Factory> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Factory f = data.createFactory(barrel);
+            // un tiers des barils reste vide : rien ne peut démarrer
+            if (i % 3 != 0) {
+                f.insert(data.newMaterialInstance(wort, new byte[1][1][1]));
+                f.insert(data.newMaterialInstance(yeast, new byte[1][1][1]));
+            }
+            f.startFactory();
+            out.add(f);
+        }
+        return out;
+    }
+
+    private static void report(String name, FactoryScheduler scheduler, int ticks) {
+        long wall = 0;
+        long max = 0;
+        for (int i = 0; i < ticks; i++) {
+            FactoryScheduler.TickStats s = scheduler.tick(0.05f);
+            wall += s.wallNanos();
+            max = Math.max(max, s.wallNanos());
+        }
+        FactoryScheduler.TickStats last = scheduler.lastTick();
+        System.out.printf("%-12s %8.3f ms/tick (max %7.3f)  %6.1f ns/factory  %d chunks  %d dormant  %d parked%n",
+                name, wall / 1e6 / ticks, max / 1e6, (double) wall / ticks / last.factories(), last.chunks(),
+                last.dormant(), last.parked());
+    }
+
+    private FactoryTickBench() {
+    }
+}
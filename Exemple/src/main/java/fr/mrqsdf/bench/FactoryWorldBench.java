@@ -0,0 +1,133 @@
+package fr.mrqsdf.bench;
+
+import fr.mrqsdf.factory.BarrelFactory;
+import fr.mrqsdf.material.BarleyMaterial;
+import fr.mrqsdf.material.BeerMaterial;
+import fr.mrqsdf.material.WaterMaterial;
+import fr.mrqsdf.material.WortMaterial;
+import fr.mrqsdf.material.YeastMaterial;
+import fr.mrqsdf.recipe.FermentBeer;
+import fr.mrqsdf.recipe.MakeWort;
+import fr.mrqsdf.utils.RegistryUtils;
+import fr.olympus.hephaestus.factory.Factory;
+import fr.olympus.hephaestus.factory.FactoryScheduler;
+import fr.olympus.hephaestus.factory.FactoryWorld;
+import fr.olympus.hephaestus.resources.HephaestusData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static fr.mrqsdf.resources.Data.*;
+
+/**
+ * Factory objects ticked by a sequential FactoryScheduler against the same barrels in a FactoryWorld:
+ * retained heap per factory, tick cost, and session states compared after every tick.
+ * <p>
+ * Usage: FactoryWorldBench [factories] [ticks]
+ */
+public final class FactoryWorldBench {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+
+        HephaestusData data = new HephaestusData();
+        RegistryUtils.registerMaterials(data, new WaterMaterial(), new BarleyMaterial(), new YeastMaterial(),
+                new WortMaterial(), new BeerMaterial());
+        RegistryUtils.registerProcessRecipes(data, new MakeWort(), new FermentBeer());
+        RegistryUtils.registerFactories(data, RegistryUtils.entry(BARREL, Set.of(GROUP_BARREL), 0, BarrelFactory::new));
+        data.freeze();
+
+        // coût propre d'une fabrique vide, sans les matériaux
+        long base = usedHeap();
+        List<Factory> emptyObjects = objects(data, count, 0);
+        long emptyObjectBytes = usedHeap() - base;
+        base = usedHeap();
+        FactoryWorld emptyWorld = world(data, count, 0);
+        long emptyWorldBytes = usedHeap() - base;
+        System.out.printf("empty factories: objects %6.1f B/factory  world %6.1f B/factory  (%d/%d alive)%n",
+                (double) emptyObjectBytes / count, (double) emptyWorldBytes / count, emptyObjects.size(), emptyWorld.size());
+        emptyObjects = null;
+        emptyWorld = null;
+
+        base = usedHeap();
+        List<Factory> objects = objects(data, count, 3);
+        long objectBytes = usedHeap() - base;
+        base = usedHeap();
+        FactoryWorld world = world(data, count, 3);
+        long worldBytes = usedHeap() - base;
+        System.out.printf("with contents:   objects %6.1f B/factory  world %6.1f B/factory%n",
+                (double) objectBytes / count, (double) worldBytes / count);
+
+        long objectNanos = 0;
+        long worldNanos = 0;
+        try (FactoryScheduler scheduler = new FactoryScheduler(data, 1, FactoryScheduler.DEFAULT_CHUNK_SIZE, true)) {
+            scheduler.addAll(objects);
+            for (int t = 0; t < ticks; t++) {
+                long t0 = System.nanoTime();
+                scheduler.tick(0.05f);
+                long t1 = System.nanoTime();
+                world.tick(0.05f);
+                long t2 = System.nanoTime();
+                // premier quart : chauffe
+                if (t >= ticks / 4) {
+                    objectNanos += t1 - t0;
+                    worldNanos += t2 - t1;
+                }
+                for (int i = 0; i < count; i++) {
+                    if (objects.get(i).getSession() != world.hasSession(i)) {
+                        throw new IllegalStateException("World diverged at factory " + i + ", tick " + t);
+                    }
+                }
+            }
+        }
+        int measured = ticks - ticks / 4;
+        System.out.printf("objects %8.3f ms/tick  %6.1f ns/factory%n", objectNanos / 1e6 / measured, (double) objectNanos / measured / count);
+        System.out.printf("world   %8.3f ms/tick  %6.1f ns/factory%n", worldNanos / 1e6 / measured, (double) worldNanos / measured / count);
+        System.out.println("states identical for " + count + " factories over " + ticks + " ticks");
+    }
+
+    private static List<Factory> objects(HephaestusData data, int count, int emptyEvery) {
+        int barrel = data.factoryHandle(BARREL);
+        int wort = data.materialHandle(WORT);
+        int yeast = data.materialHandle(YEAST);
+        List<Factory> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Factory f = data.createFactory(barrel);
+            // un baril sur emptyEvery reste vide (0 : tous vides) : rien ne peut démarrer
+            if (emptyEvery != 0 && i % emptyEvery != 0) {
+                f.insert(data.newMaterialInstance(wort, new byte[1][1][1]));
+                f.insert(data.newMaterialInstance(yeast, new byte[1][1][1]));
+            }
+            f.startFactory();
+            out.add(f);
+        }
+        return out;
+    }
+
+    private static FactoryWorld world(HephaestusData data, int count, int emptyEvery) {
+        int barrel = data.factoryHandle(BARREL);
+        int wort = data.materialHandle(WORT);
+        int yeast = data.materialHandle(YEAST);
+        FactoryWorld world = new FactoryWorld(data);
+        for (int i = 0; i < count; i++) {
+            int f = world.spawn(barrel);
+            if (emptyEvery != 0 && i % emptyEvery != 0) {
+                world.insert(f, data.newMaterialInstance(wort, new byte[1][1][1]));
+                world.insert(f, data.newMaterialInstance(yeast, new byte[1][1][1]));
+            }
+            world.startFactory(f);
+        }
+        return world;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private FactoryWorldBench() {
+    }
+}
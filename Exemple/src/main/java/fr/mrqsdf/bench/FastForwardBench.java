@@ -0,0 +1,150 @@
+package fr.mrqsdf.bench;
+
+import fr.mrqsdf.material.BeerMaterial;
+import fr.mrqsdf.material.WortMaterial;
+import fr.mrqsdf.recipe.SimpleProcessRecipe;
+import fr.mrqsdf.utils.RegistryUtils;
+import fr.olympus.hephaestus.factory.Factory;
+import fr.olympus.hephaestus.processing.ContentStore;
+import fr.olympus.hephaestus.processing.MaterialMatcher;
+import fr.olympus.hephaestus.processing.ProcessContext;
+import fr.olympus.hephaestus.processing.ProcessingPhase;
+import fr.olympus.hephaestus.processing.TimeWindow;
+import fr.olympus.hephaestus.resources.HephaestusData;
+
+import java.util.List;
+import java.util.Set;
+
+import static fr.mrqsdf.resources.Data.BEER;
+import static fr.mrqsdf.resources.Data.WORT;
+import static fr.mrqsdf.utils.GroupsUtils.selectorIds;
+
+/**
+ * Offline catch-up of a vat brewing one wort into one beer every 6 seconds: Factory.fastForward against
+ * small updates and one huge update, when the contents or the time run out first, and for a recipe
+ * needing ticks (coarse stepping).
+ * <p>
+ * Usage: FastForwardBench [offline seconds]
+ */
+public final class FastForwardBench {
+
+    private static final String VAT = "ex:bench/vat";
+    private static final String STIRRED_VAT = "ex:bench/stirred_vat";
+
+    public static void main(String[] args) {
+        double offline = args.length > 0 ? Double.parseDouble(args[0]) : 3 * 3600;
+
+        HephaestusData data = new HephaestusData();
+        RegistryUtils.registerMaterials(data, new WortMaterial(), new BeerMaterial());
+        RegistryUtils.registerProcessRecipes(data, new Brew(VAT), new StirredBrew(STIRRED_VAT));
+        RegistryUtils.registerFactories(data,
+                RegistryUtils.entry(VAT, Set.of(VAT), 0, Vat::new),
+                RegistryUtils.entry(STIRRED_VAT, Set.of(STIRRED_VAT), 0, Vat::new));
+        data.freeze();
+
+        int byTime = (int) Math.floor(offline / 6.0);
+        for (int worts : new int[]{byTime / 2, byTime * 2}) {
+            System.out.printf("--- %d worts, %.0f s offline (%d sessions fit)%n", worts, offline, byTime);
+
+            Factory fast = vat(data, VAT, worts);
+            long t0 = System.nanoTime();
+            int n = fast.fastForward(offline, data);
+            report("fastForward", n, System.nanoTime() - t0);
+            if (n != Math.min(worts, byTime)) throw new IllegalStateException("fastForward completed " + n);
+
+            Factory stepped = vat(data, VAT, worts);
+            t0 = System.nanoTime();
+            int steps = (int) Math.round(offline / 0.05);
+            for (int i = 0; i < steps; i++) stepped.update(0.05f, data);
+            int brewed = beers(stepped);
+            report("update 0.05 s", brewed, System.nanoTime() - t0);
+            // à court de matière, les deux rattrapages doivent s'accorder exactement
+            if (worts < byTime && brewed != n) throw new IllegalStateException("stepping brewed " + brewed);
+
+            Factory huge = vat(data, VAT, worts);
+            t0 = System.nanoTime();
+            huge.update((float) offline, data);
+            report("one update", beers(huge), System.nanoTime() - t0);
+
+            Factory stirred = vat(data, STIRRED_VAT, worts);
+            t0 = System.nanoTime();
+            n = stirred.fastForward(offline, data);
+            report("ticked, 1 s steps", n, System.nanoTime() - t0);
+        }
+    }
+
+    private static Factory vat(HephaestusData data, String id, int worts) {
+        Factory f = data.createFactory(id);
+        int wort = data.materialHandle(WORT);
+        for (int i = 0; i < worts; i++) f.insert(data.newMaterialInstance(wort, new byte[1][1][1]));
+        f.startFactory();
+        return f;
+    }
+
+    private static int beers(Factory f) {
+        return f.hasOutputs() ? f.extractAllOutputs().size() : 0;
+    }
+
+    private static void report(String name, int sessions, long nanos) {
+        System.out.printf("%-18s %6d sessions  %10.3f ms%n", name, sessions, nanos / 1e6);
+    }
+
+    private FastForwardBench() {
+    }
+
+    /**
+     * Vat with counted contents.
+     */
+    private static final class Vat extends Factory {
+        Vat() {
+            super(true);
+        }
+    }
+
+    /**
+     * One wort into one beer, completed 6 seconds after the start.
+     */
+    private static class Brew extends SimpleProcessRecipe {
+        Brew(String factory) {
+            super("ex:recipe/brew@" + factory, selectorIds(factory), false, List.of(MaterialMatcher.id(WORT)),
+                    List.of(MaterialMatcher.id(BEER)), 1, new TimeWindow(6f, 12f));
+        }
+
+        @Override
+        public boolean tryComplete(ProcessContext ctx, HephaestusData data, float elapsedSeconds, ProcessingPhase phase) {
+            if (!super.tryComplete(ctx, data, elapsedSeconds, phase)) return false;
+            brew(ctx, data);
+            return true;
+        }
+
+        @Override
+        public int fastForward(ProcessContext ctx, HephaestusData data, int runs) {
+            ContentStore store = ctx.contentStoreOrNull();
+            if (store == null) return -1;
+            int n = Math.min(runs, store.count(inputs().get(0), data));
+            for (int i = 0; i < n; i++) brew(ctx, data);
+            return n;
+        }
+
+        private void brew(ProcessContext ctx, HephaestusData data) {
+            ctx.contentStoreOrNull().take(inputs().get(0), data);
+            ctx.pushOutput(data.newMaterialInstance(data.materialHandle(BEER), new byte[1][1][1]));
+        }
+    }
+
+    /**
+     * Same brew, stirred on every tick: no closed form.
+     */
+    private static final class StirredBrew extends Brew {
+        private long stirs;
+
+        StirredBrew(String factory) {
+            super(factory);
+        }
+
+        @Override
+        public void onTick(ProcessContext ctx, HephaestusData data, float elapsedSeconds, ProcessingPhase phase) {
+            stirs++;
+        }
+    }
+}
@@ -8,4 +8,8 @@ import static fr.mrqsdf.resources.Data.GROUP_FURNACE;
 
 @FactoryAnnotation(id = FURNACE_BLAST, groups = {GROUP_FURNACE}, level = 2)
 public final class BlastFurnaceFactory extends Factory {
+    public BlastFurnaceFactory() {
+        // contenus comptés : beaucoup de charges, appariement par compteurs
+        super(true);
+    }
 }
@@ -50,7 +50,7 @@ public final class GameContext {
         }
 
         for (String id : chosenIds) {
-            factory.insert(new MaterialInstance(id, dummyVoxels()));
+            factory.insert(data.newMaterialInstance(data.materialHandle(id), dummyVoxels()));
         }
 
         factory.setSession(recipe);
@@ -108,8 +108,7 @@ public final class GameContext {
                 yield (id != null && inventory.getAmount(id) > 0) ? id : null;
             }
             case ANY -> firstAnyAvailable();
-            case ANY_OF_CATEGORIES -> firstMatchingAnyOfAvailable(matcher.getCategoryKeys());
-            case ALL_OF_CATEGORIES -> firstMatchingAllOfAvailable(matcher.getCategoryKeys());
+            case ANY_OF_CATEGORIES, ALL_OF_CATEGORIES -> firstMatchingAvailable(matcher);
         };
     }
 
@@ -119,8 +118,7 @@ public final class GameContext {
         return switch (matcher.getKind()) {
             case ID -> matcher.getMaterialId();
             case ANY -> firstAnyRegistered();
-            case ANY_OF_CATEGORIES -> firstMatchingAnyOfRegistered(matcher.getCategoryKeys());
-            case ALL_OF_CATEGORIES -> firstMatchingAllOfRegistered(matcher.getCategoryKeys());
+            case ANY_OF_CATEGORIES, ALL_OF_CATEGORIES -> firstMatchingRegistered(matcher);
         };
     }
 
@@ -138,44 +136,17 @@ public final class GameContext {
         return null;
     }
 
-    private String firstMatchingAnyOfAvailable(Set<String> wanted) {
-        if (wanted == null || wanted.isEmpty()) return null;
+    private String firstMatchingAvailable(MaterialMatcher matcher) {
         for (String id : data.getAllMaterialIds()) {
             if (inventory.getAmount(id) <= 0) continue;
-            Set<String> keys = data.getMaterialCategoryKeys(id);
-            for (String w : wanted) {
-                if (keys.contains(w)) return id;
-            }
-        }
-        return null;
-    }
-
-    private String firstMatchingAllOfAvailable(Set<String> wanted) {
-        if (wanted == null || wanted.isEmpty()) return null;
-        for (String id : data.getAllMaterialIds()) {
-            if (inventory.getAmount(id) <= 0) continue;
-            Set<String> keys = data.getMaterialCategoryKeys(id);
-            if (keys.containsAll(wanted)) return id;
-        }
-        return null;
-    }
-
-    private String firstMatchingAnyOfRegistered(Set<String> wanted) {
-        if (wanted == null || wanted.isEmpty()) return null;
-        for (String id : data.getAllMaterialIds()) {
-            Set<String> keys = data.getMaterialCategoryKeys(id);
-            for (String w : wanted) {
-                if (keys.contains(w)) return id;
-            }
+            if (matcher.matches(data.materialHandle(id), data)) return id;
         }
         return null;
     }
 
-    private String firstMatchingAllOfRegistered(Set<String> wanted) {
-        if (wanted == null || wanted.isEmpty()) return null;
+    private String firstMatchingRegistered(MaterialMatcher matcher) {
         for (String id : data.getAllMaterialIds()) {
-            Set<String> keys = data.getMaterialCategoryKeys(id);
-            if (keys.containsAll(wanted)) return id;
+            if (matcher.matches(data.materialHandle(id), data)) return id;
         }
         return null;
     }
@@ -8,7 +8,7 @@ import java.util.List;
 
 import static fr.mrqsdf.resources.Data.STEEL_SWORD;
 
-@MaterialAnnotation(id = STEEL_SWORD)
+@MaterialAnnotation(id = STEEL_SWORD, lazy = true, type = "STEEL_SWORD", categories = {"METAL", "STEEL", "SWORD"})
 public final class SteelSwordMaterial extends SimpleMaterial {
     public SteelSwordMaterial() {
         super(ExampleType.STEEL_SWORD, List.of(ExampleCategory.METAL, ExampleCategory.STEEL, ExampleCategory.SWORD), "Steel Sword");
@@ -1,5 +1,6 @@
 package fr.mrqsdf.planner;
 
+import fr.olympus.hephaestus.planning.ProducerIndex;
 import fr.olympus.hephaestus.processing.MaterialMatcher;
 import fr.olympus.hephaestus.processing.ProcessRecipe;
 import fr.olympus.hephaestus.resources.HephaestusData;
@@ -8,11 +9,16 @@ import java.util.*;
 
 public final class SimplePlanner {
 
-    private final List<ProcessRecipe> recipes;
+    private final ProducerIndex producers;
     private final HephaestusData data;
 
     public SimplePlanner(List<ProcessRecipe> recipes, HephaestusData data) {
-        this.recipes = List.copyOf(recipes);
+        this.producers = ProducerIndex.of(List.copyOf(recipes));
+        this.data = data;
+    }
+
+    public SimplePlanner(HephaestusData data) {
+        this.producers = data.getProducerIndex();
         this.data = data;
     }
 
@@ -107,21 +113,7 @@ public final class SimplePlanner {
     }
 
     private List<ProcessRecipe> recipesThatProduce(MaterialMatcher target) {
-        List<ProcessRecipe> list = new ArrayList<>();
-        for (ProcessRecipe r : recipes) {
-            for (MaterialMatcher out : r.outputs()) {
-                if (covers(out, target)) {
-                    list.add(r);
-                    break;
-                }
-            }
-        }
-        return list;
-    }
-
-    private boolean covers(MaterialMatcher out, MaterialMatcher target) {
-        if (out.getKind() == MaterialMatcher.Kind.ANY) return true;
-        return out.key().equals(target.key());
+        return producers.producersOf(target);
     }
 
     private List<List<Plan>> crossProduct(List<List<Plan>> lists, Budget budget) {
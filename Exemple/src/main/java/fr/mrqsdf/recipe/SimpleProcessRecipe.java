@@ -1,13 +1,11 @@
 package fr.mrqsdf.recipe;
 
-import fr.olympus.hephaestus.materials.MaterialInstance;
 import fr.olympus.hephaestus.processing.*;
 import fr.olympus.hephaestus.register.RecipeSelector;
 import fr.olympus.hephaestus.resources.HephaestusData;
 
 import java.util.List;
 import java.util.Objects;
-import java.util.Set;
 
 
 public abstract class SimpleProcessRecipe implements ProcessRecipe {
@@ -99,22 +97,19 @@ public abstract class SimpleProcessRecipe implements ProcessRecipe {
     @Override
     public boolean canStart(ProcessContext ctx, HephaestusData data) {
         // Démo: si tous les inputs sont présents (unordered)
-        List<MaterialInstance> contents = ctx.contents();
-        boolean[] used = new boolean[contents.size()];
-
-        for (MaterialMatcher need : inputs) {
-            int found = -1;
-            for (int i = 0; i < contents.size(); i++) {
-                if (used[i]) continue;
-                if (matches(need, contents.get(i).materialId(), data)) {
-                    found = i;
-                    break;
-                }
-            }
-            if (found == -1) return false;
-            used[found] = true;
-        }
-        return true;
+        return ctx.containsAll(inputs, data);
+    }
+
+    @Override
+    public float autoCompleteSeconds() {
+        // terminé dès que min atteint (voir tryComplete) ; sans fenêtre, chaque update termine : pas de forme close
+        return window == null ? Float.NaN : window.minSeconds();
+    }
+
+    @Override
+    public int fastForward(ProcessContext ctx, HephaestusData data, int runs) {
+        // tryComplete ne consomme ni ne produit rien : toutes les sessions passent
+        return runs;
     }
 
     @Override
@@ -127,27 +122,5 @@ public abstract class SimpleProcessRecipe implements ProcessRecipe {
         return !window.beforeMin(elapsedSeconds);
     }
 
-    private boolean matches(MaterialMatcher matcher, String materialId, HephaestusData data) {
-        return switch (matcher.getKind()) {
-            case ANY -> true;
-            case ID -> matcher.getMaterialId().equals(materialId);
-            case ANY_OF_CATEGORIES -> {
-                Set<String> cats = data.getMaterialCategoryKeys(materialId);
-                boolean ok = false;
-                for (String w : matcher.getCategoryKeys()) {
-                    if (cats.contains(w)) {
-                        ok = true;
-                        break;
-                    }
-                }
-                yield ok;
-            }
-            case ALL_OF_CATEGORIES -> {
-                Set<String> cats = data.getMaterialCategoryKeys(materialId);
-                yield cats.containsAll(matcher.getCategoryKeys());
-            }
-        };
-    }
-
 
 }
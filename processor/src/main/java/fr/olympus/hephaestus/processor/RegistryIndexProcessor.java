@@ -0,0 +1,455 @@
+package fr.olympus.hephaestus.processor;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Annotation processor generating the registry index of a compilation unit.
+ * <p>
+ * Reads {@code @MaterialAnnotation}, {@code @FactoryAnnotation} and {@code @RecipeAnnotation} at compile time
+ * and generates an implementation of {@code fr.olympus.hephaestus.register.RegistryIndex} registering every
+ * annotated class with a direct constructor call, plus its {@code META-INF/services} entry. Lazy materials are
+ * registered as descriptors whose constructor reference only runs on first use. Classes the generated code cannot
+ * instantiate directly (not public, or without a public no-arg constructor) are instantiated by reflection, as the
+ * classpath scan does.
+ * <p>
+ * The generated class is {@code <common package>.HephaestusRegistryIndex} by default; the option
+ * {@code -Ahephaestus.index=<fully qualified name>} overrides it. It is generated in the round bringing the annotated
+ * classes, so that it is compiled like any other source; classes generated later by other processors get an
+ * index of their own, suffixed by its number. The service entry listing them is written in the last round.
+ */
+@SupportedAnnotationTypes({
+        RegistryIndexProcessor.MATERIAL_ANNOTATION,
+        RegistryIndexProcessor.FACTORY_ANNOTATION,
+        RegistryIndexProcessor.RECIPE_ANNOTATION
+})
+@SupportedOptions(RegistryIndexProcessor.INDEX_OPTION)
+public final class RegistryIndexProcessor extends AbstractProcessor {
+
+    /**
+     * Material annotation type.
+     */
+    static final String MATERIAL_ANNOTATION = "fr.olympus.hephaestus.materials.MaterialAnnotation";
+
+    /**
+     * Factory annotation type.
+     */
+    static final String FACTORY_ANNOTATION = "fr.olympus.hephaestus.factory.FactoryAnnotation";
+
+    /**
+     * Recipe annotation type.
+     */
+    static final String RECIPE_ANNOTATION = "fr.olympus.hephaestus.processing.RecipeAnnotation";
+
+    /**
+     * Base type of the annotated materials.
+     */
+    private static final String MATERIAL_TYPE = "fr.olympus.hephaestus.materials.Material";
+
+    /**
+     * Base type of the annotated factories.
+     */
+    private static final String FACTORY_TYPE = "fr.olympus.hephaestus.factory.Factory";
+
+    /**
+     * Base type of the annotated recipes.
+     */
+    private static final String RECIPE_TYPE = "fr.olympus.hephaestus.processing.ProcessRecipe";
+
+    /**
+     * Option overriding the fully qualified name of the generated index.
+     */
+    static final String INDEX_OPTION = "hephaestus.index";
+
+    /**
+     * Service interface implemented by the generated index.
+     */
+    private static final String INDEX_INTERFACE = "fr.olympus.hephaestus.register.RegistryIndex";
+
+    /**
+     * Simple name of the generated index when no option is given.
+     */
+    private static final String DEFAULT_INDEX_NAME = "HephaestusRegistryIndex";
+
+    /**
+     * Indexed materials, by class name (sorted for a stable output).
+     */
+    private final Map<String, Component> materials = new TreeMap<>();
+
+    /**
+     * Indexed factories, by class name.
+     */
+    private final Map<String, Component> factories = new TreeMap<>();
+
+    /**
+     * Indexed recipes, by class name.
+     */
+    private final Map<String, Component> recipes = new TreeMap<>();
+
+    /**
+     * Whether an error was reported (no index is generated then).
+     */
+    private boolean failed;
+
+    /**
+     * Fully qualified names of the indexes generated so far.
+     */
+    private final List<String> generated = new ArrayList<>();
+
+    /**
+     * Constructs the processor.
+     */
+    public RegistryIndexProcessor() {
+    }
+
+    /**
+     * Returns the latest supported source version.
+     *
+     * @return the source version
+     */
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /**
+     * Collects the annotated classes of the round and generates their index, then writes the service entry
+     * in the last round.
+     *
+     * @param annotations the annotation types of the round
+     * @param roundEnv    the round environment
+     * @return false, the annotations stay available to other processors
+     */
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        collect(roundEnv, MATERIAL_ANNOTATION, MATERIAL_TYPE, materials);
+        collect(roundEnv, FACTORY_ANNOTATION, FACTORY_TYPE, factories);
+        collect(roundEnv, RECIPE_ANNOTATION, RECIPE_TYPE, recipes);
+        if (failed) return false;
+
+        if (roundEnv.processingOver()) {
+            // Une source créée au dernier tour ne serait pas traitée : seule la ressource l'est ici
+            if (!generated.isEmpty()) writeServiceEntry();
+        } else if (!(materials.isEmpty() && factories.isEmpty() && recipes.isEmpty())) {
+            generate();
+        }
+        return false;
+    }
+
+    /**
+     * Collects and validates the classes carrying an annotation.
+     *
+     * @param roundEnv       the round environment
+     * @param annotationName the annotation type
+     * @param baseTypeName   the type the annotated classes must extend or implement
+     * @param out            the map to add the components to
+     */
+    private void collect(RoundEnvironment roundEnv, String annotationName, String baseTypeName, Map<String, Component> out) {
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(annotationName);
+        if (annotation == null) return;
+        TypeElement base = processingEnv.getElementUtils().getTypeElement(baseTypeName);
+
+        for (Element e : roundEnv.getElementsAnnotatedWith(annotation)) {
+            if (!(e instanceof TypeElement type) || e.getKind() != ElementKind.CLASS) {
+                error(e, "@" + annotation.getSimpleName() + " is only allowed on classes");
+                continue;
+            }
+            if (base != null && !processingEnv.getTypeUtils().isAssignable(
+                    processingEnv.getTypeUtils().erasure(type.asType()),
+                    processingEnv.getTypeUtils().erasure(base.asType()))) {
+                error(e, "@" + annotation.getSimpleName() + " on non-" + base.getSimpleName() + ": " + type.getQualifiedName());
+                continue;
+            }
+            if (!hasNoArgConstructor(type)) {
+                error(e, "Non-abstract top-level or static class with a no-arg constructor required for the registry index: "
+                        + type.getQualifiedName());
+                continue;
+            }
+
+            AnnotationMirror mirror = mirrorOf(type, annotation);
+            String pkg = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+            out.put(type.getQualifiedName().toString(),
+                    new Component(type.getQualifiedName().toString(),
+                            processingEnv.getElementUtils().getBinaryName(type).toString(),
+                            pkg, isDirectlyInstantiable(type), valuesOf(mirror)));
+        }
+    }
+
+    /**
+     * Checks that a class can be instantiated with a no-arg constructor, whatever its visibility.
+     */
+    private static boolean hasNoArgConstructor(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) return false;
+        if (type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC)) return false;
+        for (ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (c.getParameters().isEmpty()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks that generated code can call the no-arg constructor of a class (otherwise it uses reflection).
+     */
+    private static boolean isDirectlyInstantiable(TypeElement type) {
+        for (Element t = type; t instanceof TypeElement te; t = t.getEnclosingElement()) {
+            if (!te.getModifiers().contains(Modifier.PUBLIC)) return false;
+        }
+        for (ExecutableElement c : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (c.getParameters().isEmpty() && c.getModifiers().contains(Modifier.PUBLIC)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Finds the mirror of an annotation on a class.
+     */
+    private static AnnotationMirror mirrorOf(TypeElement type, TypeElement annotation) {
+        for (AnnotationMirror m : type.getAnnotationMirrors()) {
+            if (m.getAnnotationType().asElement().equals(annotation)) return m;
+        }
+        throw new IllegalStateException("Annotation not found on " + type);
+    }
+
+    /**
+     * Reads the values of an annotation, defaults included, by attribute name.
+     */
+    private Map<String, Object> valuesOf(AnnotationMirror mirror) {
+        Map<String, Object> values = new HashMap<>();
+        processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).forEach((k, v) -> {
+            Object raw = v.getValue();
+            if (raw instanceof List<?> list) {
+                List<String> strings = new ArrayList<>();
+                for (Object o : list) strings.add(String.valueOf(((AnnotationValue) o).getValue()));
+                values.put(k.getSimpleName().toString(), strings);
+            } else {
+                values.put(k.getSimpleName().toString(), raw);
+            }
+        });
+        return values;
+    }
+
+    /**
+     * Writes the index source of the classes collected since the last index.
+     */
+    private void generate() {
+        String fqn = processingEnv.getOptions().get(INDEX_OPTION);
+        if (fqn == null || fqn.isBlank()) {
+            String pkg = commonPackage();
+            fqn = pkg.isEmpty() ? DEFAULT_INDEX_NAME : pkg + "." + DEFAULT_INDEX_NAME;
+        }
+        // Classes générées par d'autres processeurs dans un tour suivant : un index de plus
+        if (!generated.isEmpty()) fqn = generated.get(0) + (generated.size() + 1);
+        int dot = fqn.lastIndexOf('.');
+        String pkg = dot < 0 ? "" : fqn.substring(0, dot);
+        String simpleName = fqn.substring(dot + 1);
+
+        try {
+            JavaFileObject source = processingEnv.getFiler().createSourceFile(fqn);
+            try (Writer w = source.openWriter()) {
+                w.write(source(pkg, simpleName));
+            }
+            generated.add(fqn);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write registry index " + fqn + ": " + e);
+        }
+        materials.clear();
+        factories.clear();
+        recipes.clear();
+    }
+
+    /**
+     * Writes the service entry listing the generated indexes.
+     */
+    private void writeServiceEntry() {
+        try {
+            FileObject service = processingEnv.getFiler().createResource(
+                    StandardLocation.CLASS_OUTPUT, "", "META-INF/services/" + INDEX_INTERFACE);
+            try (Writer w = service.openWriter()) {
+                for (String fqn : generated) w.write(fqn + "\n");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write registry index service entry: " + e);
+        }
+    }
+
+    /**
+     * Computes the longest package shared by every indexed class.
+     */
+    private String commonPackage() {
+        String common = null;
+        for (Map<String, Component> map : List.of(materials, factories, recipes)) {
+            for (Component c : map.values()) {
+                if (common == null) {
+                    common = c.packageName;
+                    continue;
+                }
+                while (!(c.packageName.equals(common) || c.packageName.startsWith(common + "."))) {
+                    int dot = common.lastIndexOf('.');
+                    common = dot < 0 ? "" : common.substring(0, dot);
+                    if (common.isEmpty()) return common;
+                }
+            }
+        }
+        return common == null ? "" : common;
+    }
+
+    /**
+     * Builds the source of the index.
+     */
+    private String source(String pkg, String simpleName) {
+        StringBuilder sb = new StringBuilder();
+        if (!pkg.isEmpty()) sb.append("package ").append(pkg).append(";\n\n");
+        sb.append("/**\n * Registry index generated by the Hephaestus annotation processor. Do not edit.\n */\n");
+        sb.append("@javax.annotation.processing.Generated(\"").append(RegistryIndexProcessor.class.getName()).append("\")\n");
+        sb.append("public final class ").append(simpleName).append(" implements ").append(INDEX_INTERFACE).append(" {\n\n");
+
+        sb.append("    /**\n     * Constructs the index (used by the ServiceLoader).\n     */\n");
+        sb.append("    public ").append(simpleName).append("() {\n    }\n\n");
+
+        header(sb, "registerMaterials");
+        for (Component c : materials.values()) {
+            if (Boolean.TRUE.equals(c.values.get("lazy"))) {
+                // Par réflexion, la classe n'est chargée qu'au premier usage elle aussi
+                filter(sb, c).append("data.registerMaterial(fr.olympus.hephaestus.materials.MaterialDescriptor.lazy(")
+                        .append(literal((String) c.values.get("id"))).append(", ")
+                        .append(literal((String) c.values.get("type"))).append(", ")
+                        .append(listOf(c.values.get("categories"))).append(", ")
+                        .append(c.direct ? c.className + "::new" : "() -> " + instance(c, MATERIAL_TYPE)).append("));\n");
+            } else {
+                filter(sb, c).append("data.registerMaterial(").append(literal((String) c.values.get("id")))
+                        .append(", ").append(instance(c, MATERIAL_TYPE)).append(");\n");
+            }
+        }
+        sb.append("    }\n\n");
+
+        header(sb, "registerFactories");
+        for (Component c : factories.values()) {
+            filter(sb, c).append("data.registerFactory(new fr.olympus.hephaestus.register.FactoryRegistryEntry(")
+                    .append(literal((String) c.values.get("id"))).append(", ")
+                    .append(setOf(c.values.get("groups"))).append(", ")
+                    .append(c.values.get("level")).append(", ")
+                    .append(supplier(c, FACTORY_TYPE)).append("));\n");
+        }
+        sb.append("    }\n\n");
+
+        header(sb, "registerRecipes");
+        sb.append("        java.util.List<fr.olympus.hephaestus.register.ProcessRecipeRegistryEntry> entries = new java.util.ArrayList<>();\n");
+        for (Component c : recipes.values()) {
+            filter(sb, c).append("entries.add(new fr.olympus.hephaestus.register.ProcessRecipeRegistryEntry(")
+                    .append(literal((String) c.values.get("id"))).append(", ")
+                    .append("new fr.olympus.hephaestus.register.RecipeSelector(")
+                    .append(setOf(c.values.get("factoryIds"))).append(", ")
+                    .append(setOf(c.values.get("factoryGroups"))).append(", ")
+                    .append(c.values.get("minFactoryLevel")).append("), ")
+                    .append(instance(c, RECIPE_TYPE)).append("));\n");
+        }
+        sb.append("        data.registerProcessRecipes(entries);\n");
+        sb.append("    }\n}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Builds an expression creating a supplier of new instances of a component.
+     */
+    private static String supplier(Component c, String type) {
+        if (c.direct) return c.className + "::new";
+        return INDEX_INTERFACE + ".reflectiveSupplier(this, " + literal(c.binaryName) + ", " + type + ".class)";
+    }
+
+    /**
+     * Builds an expression creating a new instance of a component.
+     */
+    private static String instance(Component c, String type) {
+        if (c.direct) return "new " + c.className + "()";
+        return supplier(c, type) + ".get()";
+    }
+
+    /**
+     * Appends the declaration of a registration method.
+     */
+    private static void header(StringBuilder sb, String method) {
+        sb.append("    @Override\n    public void ").append(method)
+                .append("(fr.olympus.hephaestus.resources.HephaestusData data, java.util.function.Predicate<String> packageFilter) {\n");
+    }
+
+    /**
+     * Appends the package filter test of a component.
+     */
+    private static StringBuilder filter(StringBuilder sb, Component c) {
+        return sb.append("        if (packageFilter.test(").append(literal(c.packageName)).append(")) ");
+    }
+
+    /**
+     * Builds a {@code java.util.Set.of(...)} expression from a string list.
+     */
+    private static String setOf(Object value) {
+        StringJoiner j = new StringJoiner(", ", "java.util.Set.of(", ")");
+        if (value instanceof List<?> list) {
+            for (Object o : list) j.add(literal((String) o));
+        }
+        return j.toString();
+    }
+
+    /**
+     * Builds a {@code java.util.List.of(...)} expression from a string list, keeping its order.
+     */
+    private static String listOf(Object value) {
+        StringJoiner j = new StringJoiner(", ", "java.util.List.of(", ")");
+        if (value instanceof List<?> list) {
+            for (Object o : list) j.add(literal((String) o));
+        }
+        return j.toString();
+    }
+
+    /**
+     * Builds a Java string literal.
+     */
+    private static String literal(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            switch (ch) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (ch < 0x20 || ch > 0x7e) sb.append(String.format("\\u%04x", (int) ch));
+                    else sb.append(ch);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Reports an error on an element.
+     */
+    private void error(Element e, String message) {
+        failed = true;
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, e);
+    }
+
+    /**
+     * An indexed annotated class.
+     *
+     * @param className   the canonical class name
+     * @param binaryName  the binary class name, to load it by reflection
+     * @param packageName the package of the class
+     * @param direct      whether generated code can call its no-arg constructor
+     * @param values      the annotation values, defaults included
+     */
+    private record Component(String className, String binaryName, String packageName, boolean direct,
+                             Map<String, Object> values) {
+    }
+}
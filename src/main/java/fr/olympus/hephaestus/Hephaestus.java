@@ -1,5 +1,8 @@
 package fr.olympus.hephaestus;
 
+import fr.olympus.hephaestus.factory.FactoryScheduler;
+import fr.olympus.hephaestus.planning.CraftPlanner;
+import fr.olympus.hephaestus.planning.PlannerFacade;
 import fr.olympus.hephaestus.register.AutoRegistrar;
 import fr.olympus.hephaestus.register.RegisterType;
 import fr.olympus.hephaestus.resources.HephaestusData;
@@ -8,11 +11,16 @@ import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Main class for the Hephaestus framework.
+ * <p>
+ * An instance is an independent engine context: it owns its registry and its planner cache.
+ * Several contexts can live in the same JVM (one per world, tenant or test) with {@link #create()}.
+ * The static API ({@link #init()}, {@link #getData()}, {@link #autoRegister(RegisterType, String...)})
+ * works on a default instance.
  */
 public final class Hephaestus {
 
     /**
-     * Singleton instance of Hephaestus
+     * Default instance, used by the static API.
      */
     private static final AtomicReference<Hephaestus> INSTANCE = new AtomicReference<>();
 
@@ -21,12 +29,17 @@ public final class Hephaestus {
      */
     private final HephaestusData data;
 
+    /**
+     * Planner built on the registry, with the epoch it was built at.
+     */
+    private volatile PlannerCache plannerCache;
+
     private Hephaestus() {
         this.data = new HephaestusData();
     }
 
     /**
-     * Initializes the Hephaestus framework.
+     * Initializes the default Hephaestus instance.
      *
      * @return The initialized Hephaestus instance.
      * @throws IllegalStateException if Hephaestus is already initialized.
@@ -40,22 +53,33 @@ public final class Hephaestus {
     }
 
     /**
-     * Automatically registers components based on the specified type and base packages.
+     * Creates an independent Hephaestus instance, with its own empty registry.
+     * The default instance is not affected.
+     *
+     * @return The new Hephaestus instance.
+     */
+    public static Hephaestus create() {
+        return new Hephaestus();
+    }
+
+    /**
+     * Automatically registers components in the default instance based on the specified type and base packages.
      *
      * @param type         The type of components to register. see {@link RegisterType}.
      * @param basePackages The base packages to scan for components.
+     * @throws IllegalStateException if Hephaestus is not initialized.
      */
     public static void autoRegister(RegisterType type, String... basePackages) {
-        AutoRegistrar.register(type, basePackages);
+        getInstance().register(type, basePackages);
     }
 
     /**
-     * Retrieves the singleton instance of Hephaestus.
+     * Retrieves the default instance of Hephaestus.
      *
      * @return The Hephaestus instance.
      * @throws IllegalStateException if Hephaestus is not initialized.
      */
-    private static Hephaestus getInstance() {
+    public static Hephaestus getInstance() {
         Hephaestus inst = INSTANCE.get();
         if (inst == null) {
             throw new IllegalStateException("Hephaestus is not initialized yet.");
@@ -64,13 +88,103 @@ public final class Hephaestus {
     }
 
     /**
-     * Retrieves the Hephaestus data storage.
+     * Retrieves the data storage of the default instance.
      *
      * @return The HephaestusData instance.
+     * @throws IllegalStateException if Hephaestus is not initialized.
      */
     public static HephaestusData getData() {
         return getInstance().data;
     }
 
+    /**
+     * Retrieves the data storage of this instance.
+     *
+     * @return The HephaestusData instance.
+     */
+    public HephaestusData data() {
+        return data;
+    }
 
+    /**
+     * Automatically registers components in this instance based on the specified type and base packages.
+     *
+     * @param type         The type of components to register. see {@link RegisterType}.
+     * @param basePackages The base packages to scan for components.
+     */
+    public void register(RegisterType type, String... basePackages) {
+        AutoRegistrar.register(data, type, basePackages);
+    }
+
+    /**
+     * Registers components in this instance from the compile-time registry indexes (no scan, no reflection).
+     *
+     * @param type         The type of components to register. see {@link RegisterType}.
+     * @param basePackages The base packages of the components to register (none means every indexed component).
+     * @throws IllegalStateException if no registry index is found.
+     */
+    public void registerIndexed(RegisterType type, String... basePackages) {
+        AutoRegistrar.registerIndexed(data, type, basePackages);
+    }
+
+    /**
+     * Returns a planner over the recipes registered in this instance.
+     * The planner is cached and rebuilt when the registry changes.
+     *
+     * @return The CraftPlanner instance.
+     */
+    public CraftPlanner planner() {
+        long epoch = data.epoch();
+        PlannerCache c = plannerCache;
+        if (c == null || c.epoch != epoch) {
+            // Course bénigne : deux threads peuvent construire le même planner
+            c = new PlannerCache(epoch, new CraftPlanner(data.getProducerIndex()));
+            plannerCache = c;
+        }
+        return c.planner;
+    }
+
+    /**
+     * Returns a planner facade over the registry of this instance.
+     *
+     * @return The PlannerFacade instance.
+     */
+    public PlannerFacade plannerFacade() {
+        return new PlannerFacade(planner(), data);
+    }
+
+    /**
+     * Creates a scheduler ticking factories against the registry of this instance, with one thread per available
+     * processor, the default chunk size, in deterministic mode.
+     * The caller owns the scheduler and must close it.
+     *
+     * @return The new FactoryScheduler.
+     */
+    public FactoryScheduler scheduler() {
+        return new FactoryScheduler(data);
+    }
+
+    /**
+     * Creates a scheduler ticking factories against the registry of this instance.
+     * The caller owns the scheduler and must close it.
+     *
+     * @param parallelism     The number of threads ticking chunks (1 ticks on the calling thread, without pool).
+     * @param chunkSize       The number of factories per chunk.
+     * @param deterministic   Whether side effects are delivered in population order on the ticking thread.
+     * @param timerResolution The duration of a timer wheel slot in seconds (typically the tick step), 0 for per-tick mode.
+     * @return The new FactoryScheduler.
+     * @throws IllegalArgumentException if parallelism or chunkSize is not positive, or timerResolution is negative.
+     */
+    public FactoryScheduler scheduler(int parallelism, int chunkSize, boolean deterministic, double timerResolution) {
+        return new FactoryScheduler(data, parallelism, chunkSize, deterministic, timerResolution);
+    }
+
+    /**
+     * Planner with the registry epoch it was built at.
+     *
+     * @param epoch   the registry epoch
+     * @param planner the planner
+     */
+    private record PlannerCache(long epoch, CraftPlanner planner) {
+    }
 }
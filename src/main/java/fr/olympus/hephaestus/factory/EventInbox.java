@@ -0,0 +1,203 @@
+package fr.olympus.hephaestus.factory;
+
+import fr.olympus.hephaestus.processing.FactoryEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free event inbox of a factory: any thread may post, the thread updating the factory drains
+ * the events in posting order at the start of {@link Factory#update}.
+ * <p>
+ * Ring buffer with one sequence number per slot: posting claims a slot with a CAS on the tail, and the slot
+ * sequence publishes the event to the consumer. Posting and draining allocate nothing.
+ * When the inbox is full, the {@link InboxOverflowPolicy} decides which event is lost.
+ */
+public final class EventInbox {
+
+    /**
+     * Default capacity of an inbox.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * Queued events, by slot.
+     */
+    private final AtomicReferenceArray<FactoryEvent> events;
+
+    /**
+     * Sequence of each slot: equal to the position of the next write when free, to that position + 1 once written.
+     */
+    private final AtomicLongArray sequences;
+
+    /**
+     * Capacity - 1 (the capacity is a power of two).
+     */
+    private final int mask;
+
+    /**
+     * Overflow policy.
+     */
+    private final InboxOverflowPolicy policy;
+
+    /**
+     * Position of the next event to read.
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * Position of the next event to write.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Number of events lost on overflow.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Constructs an inbox.
+     *
+     * @param capacity the maximum number of queued events, rounded up to a power of two
+     * @param policy   the overflow policy
+     * @throws IllegalArgumentException if capacity is not positive or too large, or policy is null
+     */
+    public EventInbox(int capacity, InboxOverflowPolicy policy) {
+        if (capacity <= 0 || capacity > 1 << 30) throw new IllegalArgumentException("capacity must be in [1, 2^30].");
+        if (policy == null) throw new IllegalArgumentException("policy cannot be null.");
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        this.events = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+        this.mask = size - 1;
+        this.policy = policy;
+    }
+
+    /**
+     * Posts an event. Safe from any thread.
+     *
+     * @param event the event
+     * @return true if the event was queued, false if it was dropped ({@link InboxOverflowPolicy#DROP_NEWEST})
+     * @throws IllegalArgumentException if event is null
+     * @throws IllegalStateException    if the inbox is full and the policy is {@link InboxOverflowPolicy#REJECT}
+     */
+    public boolean offer(FactoryEvent event) {
+        if (event == null) throw new IllegalArgumentException("event cannot be null.");
+        while (!tryOffer(event)) {
+            switch (policy) {
+                case DROP_NEWEST -> {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                case DROP_OLDEST -> {
+                    // Le producteur consomme l'événement le plus ancien puis réessaie
+                    if (poll() != null) dropped.incrementAndGet();
+                }
+                case REJECT -> {
+                    dropped.incrementAndGet();
+                    throw new IllegalStateException("Event inbox is full (capacity " + capacity() + ").");
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Takes the oldest queued event. Meant for the thread updating the factory.
+     *
+     * @return the event, or null if the inbox is empty
+     */
+    public FactoryEvent poll() {
+        long pos = head.get();
+        while (true) {
+            int slot = (int) (pos & mask);
+            long dif = sequences.get(slot) - (pos + 1);
+            if (dif == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    FactoryEvent e = events.get(slot);
+                    events.set(slot, null);
+                    // Libère la case pour le tour suivant de l'anneau
+                    sequences.set(slot, pos + mask + 1);
+                    return e;
+                }
+                pos = head.get();
+            } else if (dif < 0) {
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of queued events (a snapshot while producers are posting).
+     *
+     * @return the queue depth
+     */
+    public int depth() {
+        long h = head.get();
+        long d = tail.get() - h;
+        return (int) Math.max(0, Math.min(d, mask + 1L));
+    }
+
+    /**
+     * Checks whether no event is queued.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return depth() == 0;
+    }
+
+    /**
+     * Returns the number of events lost on overflow since the inbox was created.
+     *
+     * @return the number of dropped events
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns the capacity of the inbox.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Returns the overflow policy of the inbox.
+     *
+     * @return the policy
+     */
+    public InboxOverflowPolicy policy() {
+        return policy;
+    }
+
+    /**
+     * Queues an event if a slot is free.
+     */
+    private boolean tryOffer(FactoryEvent event) {
+        long pos = tail.get();
+        while (true) {
+            int slot = (int) (pos & mask);
+            long dif = sequences.get(slot) - pos;
+            if (dif == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    events.set(slot, event);
+                    sequences.set(slot, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (dif < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+}
@@ -5,9 +5,12 @@ import fr.olympus.hephaestus.processing.*;
 import fr.olympus.hephaestus.resources.HephaestusData;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Represents a factory that processes materials based on defined recipes.
@@ -15,18 +18,94 @@ import java.util.Set;
 public abstract class Factory {
 
     /**
-     * The current contents (input materials) of the factory.
+     * The current contents (input materials) of the factory: an ArrayList, or a {@link ContentStore}
+     * if the factory was constructed with counted contents.
      */
-    protected final List<MaterialInstance> contents = new ArrayList<>();
+    protected final List<MaterialInstance> contents;
     /**
      * The current outputs (produced materials) of the factory.
      */
     protected final List<MaterialInstance> outputs = new ArrayList<>();
     /**
-     * The list of processing recipes available to this factory.
+     * The list of processing recipes available to this factory: its own modifiable list, or the immutable list
+     * resolved by the registry, shared with every other instance of the same registry factory until
+     * {@link #addRecipes(List)} copies it.
      */
+    protected List<ProcessRecipe> recipes = new ArrayList<>();
 
-    protected final List<ProcessRecipe> recipes = new ArrayList<>();
+    /**
+     * Default update step of {@link #fastForward(double, HephaestusData)} for sessions without closed form, in seconds.
+     */
+    public static final float DEFAULT_FAST_FORWARD_STEP = 1f;
+
+    /**
+     * Dirty flag: the factory was started or stopped.
+     */
+    public static final int DIRTY_OPERATING = 1;
+
+    /**
+     * Dirty flag: a session started or ended.
+     */
+    public static final int DIRTY_SESSION = 2;
+
+    /**
+     * Dirty flag: the contents may have changed (insertion, session end, {@link #wake()}).
+     */
+    public static final int DIRTY_CONTENTS = 4;
+
+    /**
+     * Dirty flag: the outputs may have changed (session end, extraction).
+     */
+    public static final int DIRTY_OUTPUTS = 8;
+
+    /**
+     * Flags raised after recipe callbacks and by the end of a session: recipes may consume and produce
+     * from any callback, and the elapsed time of the session moves on.
+     */
+    private static final int SESSION_CHANGED = DIRTY_SESSION | DIRTY_CONTENTS | DIRTY_OUTPUTS;
+
+    /**
+     * Recipe selection order: by priority, then specificity score, then input count, descending.
+     * Ties keep the attachment order.
+     */
+    public static final Comparator<ProcessRecipe> SELECTION_ORDER = Comparator
+            .comparingInt(ProcessRecipe::priority)
+            .thenComparingInt(ProcessRecipe::specificityScore)
+            .thenComparingInt(ProcessRecipe::inputCount)
+            .reversed();
+
+    /**
+     * {@link #recipes} sorted by {@link #SELECTION_ORDER}: by addRecipes and setRegistryRecipes,
+     * or on the next attempt if a subclass replaces the list directly.
+     */
+    private ProcessRecipe[] ordered = new ProcessRecipe[0];
+
+    /**
+     * The list {@link #ordered} was built from.
+     */
+    private List<ProcessRecipe> orderedFrom;
+
+    /**
+     * {@link #orderedFrom} in list order when {@link #ordered} was built, to see direct edits of a modifiable list;
+     * null for a shared registry list.
+     */
+    private ProcessRecipe[] orderedSource;
+
+    /**
+     * Registry list attached by setRegistryRecipes while {@link #recipes} still is that list, null otherwise.
+     * It is resolved again on a registry change, so that recipes registered later reach existing factories.
+     */
+    private List<ProcessRecipe> registryRecipes;
+
+    /**
+     * Registry epoch {@link #registryRecipes} was resolved at, -1 before the first attempt.
+     */
+    private long registryRecipesEpoch = -1;
+
+    /**
+     * Context handed to the recipes, reused by every update and event (the lists it wraps never change).
+     */
+    private final ProcessContext context;
 
     /**
      * Indicates whether the factory is currently operating.
@@ -38,12 +117,114 @@ public abstract class Factory {
      */
     private ProcessSession session;
 
+    /**
+     * Ended session kept for reuse by the next one.
+     */
+    private ProcessSession spare;
+
+    /**
+     * Whether no recipe could start at the last attempt: the factory sleeps until woken (see {@link #wake()}).
+     */
+    private boolean dormant;
+
+    /**
+     * Registry epoch of the last failed attempt; a registry change also wakes the factory.
+     */
+    private long dormantEpoch;
+
+    // --- Memo of the last recipe selection ---
+    /**
+     * Recipe order the memo was computed with, null if there is no memo.
+     */
+    private ProcessRecipe[] memoOrder;
+
+    /**
+     * Registry epoch of the memo.
+     */
+    private long memoEpoch;
+
+    /**
+     * Multiset signature of the contents at the memo (see {@link #signature(List)}).
+     */
+    private long memoContents;
+
+    /**
+     * Multiset signature of the outputs at the memo.
+     */
+    private long memoOutputs;
+
+    /**
+     * Recipe selected at the memo, null if none could start.
+     */
+    private ProcessRecipe memoResult;
+
+    /**
+     * Event inbox, created on the first post (see {@link #post(FactoryEvent)}).
+     */
+    private volatile EventInbox inbox;
+
+    /**
+     * Dirty flags raised since the last {@link #clearDirty(int)} (see {@link #DIRTY_OPERATING}...).
+     */
+    private int dirty;
+
+    /**
+     * Atomic access to {@link #inbox}, for the creation race between posting threads.
+     */
+    private static final AtomicReferenceFieldUpdater<Factory, EventInbox> INBOX =
+            AtomicReferenceFieldUpdater.newUpdater(Factory.class, EventInbox.class, "inbox");
+
+    // --- Timer-driven mode (set by a FactoryScheduler using a timer wheel) ---
+    /**
+     * The scheduler driving the sessions of this factory with its timer wheel, null in per-tick mode.
+     */
+    private FactoryScheduler timedBy;
+
+    /**
+     * The timer of this factory in the wheel of {@link #timedBy}, reused for every session.
+     */
+    private TimerWheel.Timer timer;
+
+    /**
+     * Deadline of the next transition, computed during a parallel tick and scheduled by the scheduler after it
+     * ({@link #CANCEL_TIMER} to cancel the timer instead).
+     */
+    private double pendingDeadline = Double.NaN;
+
+    /**
+     * Pending deadline asking the scheduler to cancel the timer.
+     */
+    private static final double CANCEL_TIMER = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Whether an update is running: the timer wheel is only touched by the scheduler after the tick.
+     */
+    private boolean deferTimers;
+
+    // --- Sweep of a scheduler (see FactoryScheduler) ---
+    /**
+     * The slot of the scheduler that took this factory out of its sweep (dormant or parked), null while swept.
+     * The first thread waking the factory clears it and hands the slot back to its scheduler.
+     */
+    private volatile FactoryScheduler.Sleeper sleep;
+
+    /**
+     * Atomic access to {@link #sleep}.
+     */
+    private static final AtomicReferenceFieldUpdater<Factory, FactoryScheduler.Sleeper> SLEEP =
+            AtomicReferenceFieldUpdater.newUpdater(Factory.class, FactoryScheduler.Sleeper.class, "sleep");
+
     // --- Registry meta (set by HephaestusData.createFactory) ---*
     /**
      * The unique identifier for this factory in the registry.
      */
     private String registryId;
 
+    /**
+     * The handle of this factory in the registry (-1 if created outside the registry).
+     */
+    private int registryHandle = -1;
+
     /**
      * The groups associated with this factory in the registry.
      */
@@ -58,6 +239,19 @@ public abstract class Factory {
      * Constructs a new Factory instance.
      */
     protected Factory() {
+        this(false);
+    }
+
+    /**
+     * Constructs a new Factory instance, choosing how its contents are stored.
+     * Counted contents ({@link ContentStore}) let recipes match inputs by per-material counts and remove them in O(1),
+     * but do not keep the insertion order.
+     *
+     * @param countedContents true to store the contents in a {@link ContentStore}.
+     */
+    protected Factory(boolean countedContents) {
+        this.contents = countedContents ? new ContentStore() : new ArrayList<>();
+        this.context = new ProcessContext(contents, outputs);
         this.isOperating = false;
         this.session = null;
     }
@@ -71,6 +265,15 @@ public abstract class Factory {
         return registryId;
     }
 
+    /**
+     * Gets the registry handle of the factory (see {@link HephaestusData#factoryHandle(String)}).
+     *
+     * @return The registry handle, or -1 if the factory was not created by the registry.
+     */
+    public final int getRegistryHandle() {
+        return registryHandle;
+    }
+
     /**
      * Gets the registry groups of the factory.
      *
@@ -94,15 +297,29 @@ public abstract class Factory {
      * Starts the factory's operation.
      */
     public void startFactory() {
+        if (!isOperating) dirty |= DIRTY_OPERATING;
         isOperating = true;
+        dormant = false;
+        rouse();
     }
 
     /**
      * Stops the factory's operation.
      */
     public void stopFactory() {
+        if (isOperating) dirty |= DIRTY_OPERATING;
         isOperating = false;
-        session = null;
+        endSession();
+        rouse();
+    }
+
+    /**
+     * Checks whether the factory is operating.
+     *
+     * @return true if started and not stopped since.
+     */
+    public final boolean isOperating() {
+        return isOperating;
     }
 
     /**
@@ -111,11 +328,20 @@ public abstract class Factory {
      * @param list The list of ProcessRecipe to add.
      */
     public void addRecipes(List<ProcessRecipe> list) {
-        if (list != null) recipes.addAll(list);
+        if (list == null || list.isEmpty()) return;
+        // Liste partagée du registre : copiée avant d'être modifiée
+        if (recipes == registryRecipes) recipes = new ArrayList<>(recipes);
+        recipes.addAll(list);
+        order();
+        dormant = false;
+        rouse();
     }
 
     /**
      * Gets the list of processing recipes available to the factory.
+     * The list of a factory created by the registry is the immutable list shared by its registry factory until
+     * {@link #addRecipes(List)} gives it its own; other lists are modifiable, and their changes are seen by
+     * the next recipe selection (call {@link #wake()} if the factory is dormant).
      *
      * @return The list of ProcessRecipe.
      */
@@ -123,17 +349,41 @@ public abstract class Factory {
         return recipes;
     }
 
+    /**
+     * Checks whether the factory has produced outputs not extracted yet.
+     *
+     * @return true if there are outputs to extract.
+     */
+    public boolean hasOutputs() {
+        return !outputs.isEmpty();
+    }
+
     /**
      * Extracts and clears all output materials from the factory.
+     * Always allocates a new list; check {@link #hasOutputs()} first on allocation-free paths.
      *
-     * @return A list of MaterialInstance representing the outputs.
+     * @return A new list of MaterialInstance representing the outputs.
      */
     public List<MaterialInstance> extractAllOutputs() {
+        if (outputs.isEmpty()) return new ArrayList<>(0);
         List<MaterialInstance> out = new ArrayList<>(outputs);
         outputs.clear();
+        // Des recettes peuvent attendre que la sortie soit vidée
+        dormant = false;
+        dirty |= DIRTY_OUTPUTS;
+        rouse();
         return out;
     }
 
+    /**
+     * Gets the contents of the factory.
+     *
+     * @return The unmodifiable view of the contents.
+     */
+    public final List<MaterialInstance> getContents() {
+        return Collections.unmodifiableList(contents);
+    }
+
     /**
      * Inserts a material instance into the factory's contents.
      *
@@ -141,26 +391,144 @@ public abstract class Factory {
      */
     public void insert(MaterialInstance mat) {
         contents.add(mat);
+        dormant = false;
+        dirty |= DIRTY_CONTENTS;
+        rouse();
+    }
+
+    /**
+     * Wakes the factory up: the next update or event looks for a startable recipe again, calling {@code canStart}
+     * even if the contents and outputs are unchanged.
+     * Insertions, recipe changes, output extraction and {@link #startFactory()} already wake the factory;
+     * call it after changing what {@code canStart} depends on by other means (e.g. editing {@link #contents} or the
+     * recipe list directly, or the voxels of a material instance).
+     */
+    public void wake() {
+        dormant = false;
+        memoOrder = null;
+        dirty |= DIRTY_CONTENTS;
+        rouse();
+    }
+
+    /**
+     * Checks whether the factory is dormant: operating, without session, and no recipe could start
+     * at the last attempt. Updates and events cost nothing until the factory is woken.
+     * A registry change since that attempt is not seen here (see {@link #isDormant(HephaestusData)}).
+     *
+     * @return true if the factory is dormant.
+     */
+    public final boolean isDormant() {
+        return dormant && isOperating && session == null;
+    }
+
+    /**
+     * Checks whether the factory is dormant against a registry: as {@link #isDormant()}, but a registry
+     * change since the last attempt wakes the factory, as the next update would.
+     *
+     * @param data The HephaestusData context.
+     * @return true if the next update would not look for a recipe.
+     */
+    public final boolean isDormant(HephaestusData data) {
+        return dormant && isOperating && session == null && dormantEpoch == data.epoch();
+    }
+
+    /**
+     * Posts an event to the inbox of the factory. Safe from any thread: the event is handled by
+     * {@link #pushEvent} at the start of the next {@link #update}, in posting order.
+     *
+     * @param event The FactoryEvent to post.
+     * @return true if the event was queued, false if the full inbox dropped it.
+     * @throws IllegalStateException if the inbox is full and its policy is {@link InboxOverflowPolicy#REJECT}.
+     */
+    public final boolean post(FactoryEvent event) {
+        boolean queued = getInbox().offer(event);
+        rouse();
+        return queued;
+    }
+
+    /**
+     * Gets the event inbox of the factory (depth and dropped counters), creating it with
+     * {@link EventInbox#DEFAULT_CAPACITY} and {@link InboxOverflowPolicy#DROP_NEWEST} if needed. Safe from any thread.
+     *
+     * @return The event inbox.
+     */
+    public final EventInbox getInbox() {
+        EventInbox box = inbox;
+        if (box == null) {
+            box = new EventInbox(EventInbox.DEFAULT_CAPACITY, InboxOverflowPolicy.DROP_NEWEST);
+            // Plusieurs threads peuvent poster le premier événement en même temps
+            if (!INBOX.compareAndSet(this, null, box)) box = inbox;
+        }
+        return box;
+    }
+
+    /**
+     * Replaces the event inbox of the factory with an empty one. Call it before sharing the factory with posting threads.
+     *
+     * @param capacity The maximum number of queued events.
+     * @param policy   The overflow policy.
+     * @throws IllegalStateException if the current inbox still holds events.
+     */
+    public final void openInbox(int capacity, InboxOverflowPolicy policy) {
+        EventInbox box = inbox;
+        if (box != null && !box.isEmpty()) throw new IllegalStateException("Event inbox is not empty.");
+        inbox = new EventInbox(capacity, policy);
+    }
+
+    /**
+     * Checks whether posted events wait in the inbox.
+     *
+     * @return true if the inbox holds events.
+     */
+    final boolean hasPendingEvents() {
+        EventInbox box = inbox;
+        return box != null && !box.isEmpty();
+    }
+
+    /**
+     * Hands the events queued in the inbox to {@link #pushEvent}, up to the depth seen on entry
+     * (events posted meanwhile wait for the next update).
+     *
+     * @param box  The inbox.
+     * @param data The HephaestusData context.
+     */
+    private void drainInbox(EventInbox box, HephaestusData data) {
+        for (int n = box.depth(); n > 0; n--) {
+            FactoryEvent e = box.poll();
+            if (e == null) return;
+            pushEvent(e, data);
+        }
     }
 
     /**
      * Pushes an event to the factory's processing session.
+     * Must be called from the thread updating the factory; other threads use {@link #post(FactoryEvent)}.
      *
      * @param event The FactoryEvent to push.
      * @param data  The HephaestusData context.
      */
     public void pushEvent(FactoryEvent event, HephaestusData data) {
+        rouse();
         if (!isOperating) return;
 
         ensureSession(data);
         if (session == null) return;
 
-        ProcessContext ctx = new ProcessContext(contents, outputs);
+        if (!session.parked && isTimerDriven()) park(session.elapsed);
+        if (session.parked) session.elapsed = (float) (timedBy.time() - session.start);
+
+        ProcessContext ctx = context;
         ProcessingPhase phase = session.phase();
         session.recipe.onEvent(ctx, data, event, session.elapsed, phase);
+        boolean done = session.recipe.tryComplete(ctx, data, session.elapsed, phase);
+        // Les rappels ont pu consommer ou produire : le journal le voit sans attendre la fin de session
+        dirty |= SESSION_CHANGED;
 
-        if (session.recipe.tryComplete(ctx, data, session.elapsed, phase)) {
-            session = null;
+        if (done) {
+            endSession();
+        } else if (session.parked) {
+            session.lastPhase = phase;
+            armTimer();
         }
     }
 
@@ -171,17 +539,42 @@ public abstract class Factory {
      * @param data The HephaestusData context.
      */
     public final void update(float dt, HephaestusData data) {
+        deferTimers = true;
+        try {
+            EventInbox box = inbox;
+            if (box != null && !box.isEmpty()) drainInbox(box, data);
+            tick(dt, data);
+        } finally {
+            deferTimers = false;
+        }
+    }
+
+    /**
+     * Advances the processing session by one update.
+     *
+     * @param dt   The delta time since the last update.
+     * @param data The HephaestusData context.
+     */
+    private void tick(float dt, HephaestusData data) {
         if (!isOperating) return;
 
         ensureSession(data);
         if (session == null) return;
 
+        // Session pilotée par la roue de timers : seuls les transitions et les événements la touchent
+        if (session.parked) return;
+        if (isTimerDriven()) {
+            park(session.elapsed + dt);
+            if (evaluateParked(data)) armTimer();
+            return;
+        }
+
         session.elapsed += dt;
 
         TimeWindow w = session.recipe.timeWindowOrNull();
         ProcessingPhase phase = session.phase();
 
-        ProcessContext ctx = new ProcessContext(contents, outputs);
+        ProcessContext ctx = context;
 
         if (w != null) {
             session.recipe.onTick(ctx, data, session.elapsed, phase);
@@ -191,32 +584,426 @@ public abstract class Factory {
             }
         }
 
-        if (session.recipe.tryComplete(ctx, data, session.elapsed, phase)) {
+        boolean done = session.recipe.tryComplete(ctx, data, session.elapsed, phase);
+        dirty |= SESSION_CHANGED;
+        if (done) {
+            spare = session;
             session = null;
         }
     }
 
+    /**
+     * Catches up on offline time in one call (see {@link #fastForward(double, HephaestusData, float)}),
+     * stepping by {@link #DEFAULT_FAST_FORWARD_STEP} when a recipe has no closed form.
+     *
+     * @param seconds The time to catch up on.
+     * @param data    The HephaestusData context.
+     * @return The number of sessions completed.
+     */
+    public final int fastForward(double seconds, HephaestusData data) {
+        return fastForward(seconds, data, DEFAULT_FAST_FORWARD_STEP);
+    }
+
+    /**
+     * Catches up on offline time in one call, as if the factory had run that long with back-to-back sessions.
+     * Sessions of recipes with a closed form ({@link ProcessRecipe#autoCompleteSeconds()} and
+     * {@link ProcessRecipe#fastForward}, no per-tick callbacks) are counted from their duration and applied in
+     * one step per recipe; other sessions are advanced with updates of {@code coarseStep} seconds.
+     * Durations are exact (no tick rounding). Events waiting in the inbox are handled by the next update.
+     *
+     * @param seconds    The time to catch up on.
+     * @param data       The HephaestusData context.
+     * @param coarseStep The update step of sessions without closed form, in seconds.
+     * @return The number of sessions completed, saturated at {@link Integer#MAX_VALUE}.
+     * @throws IllegalArgumentException if seconds is negative or not finite, or coarseStep is not positive.
+     * @throws IllegalStateException    if the factory is driven by the timer wheel of a scheduler.
+     */
+    public final int fastForward(double seconds, HephaestusData data, float coarseStep) {
+        if (!(seconds >= 0) || seconds == Double.POSITIVE_INFINITY) {
+            throw new IllegalArgumentException("seconds must be finite and >= 0.");
+        }
+        if (!(coarseStep > 0)) throw new IllegalArgumentException("coarseStep must be > 0.");
+        if (timedBy != null) throw new IllegalStateException("Factory is driven by a scheduler timer wheel.");
+        rouse();
+        if (!isOperating) return 0;
+
+        int completed = 0;
+        double left = seconds;
+        while (left > 0) {
+            ensureSession(data);
+            if (session == null) break;
+
+            ProcessRecipe r = session.recipe;
+            float d = session.needsTicks ? Float.NaN : r.autoCompleteSeconds();
+            if (d > 0) {
+                double toFirst = Math.max(0, d - session.elapsed);
+                if (toFirst > left) {
+                    session.elapsed += (float) left;
+                    break;
+                }
+                // Nombre de sessions qui tiennent dans le temps restant, bornées ensuite par le contenu
+                double byTime = 1 + Math.floor((left - toFirst) / d);
+                int done = r.fastForward(context, data, (int) Math.min(byTime, Integer.MAX_VALUE));
+                if (done > 0) {
+                    completed = (int) Math.min(Integer.MAX_VALUE, (long) completed + done);
+                    left -= toFirst + (done - 1) * (double) d;
+                    endSession();
+                    continue;
+                }
+            }
+
+            // Repli : un pas grossier, puis on réévalue (la session peut changer de recette)
+            float dt = (float) Math.min(coarseStep, left);
+            // Reste trop petit pour un float : plus rien ne peut avancer
+            if (dt == 0) break;
+            tick(dt, data);
+            left -= dt;
+            if (session == null && completed < Integer.MAX_VALUE) completed++;
+        }
+        return completed;
+    }
+
+    /**
+     * Checks whether the current session must be driven by the timer wheel of the scheduler.
+     */
+    private boolean isTimerDriven() {
+        return timedBy != null && !session.needsTicks;
+    }
+
+    /**
+     * Hands the current session over to the timer wheel.
+     *
+     * @param elapsed The elapsed time of the session at the current scheduler time.
+     */
+    private void park(float elapsed) {
+        session.start = timedBy.time() - elapsed;
+        session.elapsed = elapsed;
+        session.parked = true;
+    }
+
+    /**
+     * Evaluates a parked session at the current scheduler time: over-processing on entering AFTER_MAX, then completion.
+     *
+     * @param data The HephaestusData context.
+     * @return true if the session is still running.
+     */
+    private boolean evaluateParked(HephaestusData data) {
+        ProcessSession s = session;
+        s.elapsed = (float) (timedBy.time() - s.start);
+        ProcessingPhase phase = s.phase();
+        ProcessContext ctx = context;
+
+        if (phase == ProcessingPhase.AFTER_MAX && s.lastPhase != ProcessingPhase.AFTER_MAX) {
+            s.recipe.onOverProcessed(ctx, data, s.elapsed);
+        }
+        s.lastPhase = phase;
+
+        boolean done = s.recipe.tryComplete(ctx, data, s.elapsed, phase);
+        dirty |= SESSION_CHANGED;
+        if (done) {
+            endSession();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Schedules the timer of the next time window transition of the parked session, if any.
+     * During an update, the scheduler applies it after the tick.
+     */
+    private void armTimer() {
+        TimeWindow w = session.recipe.timeWindowOrNull();
+        double deadline = Double.NaN;
+        if (w != null) {
+            if (session.lastPhase == ProcessingPhase.BEFORE_MIN) deadline = session.start + w.minSeconds();
+            else if (session.lastPhase == ProcessingPhase.IN_WINDOW) deadline = session.start + w.maxSeconds();
+        }
+        if (Double.isNaN(deadline)) {
+            // Plus de transition : seuls les événements feront avancer la session
+            cancelTimer();
+            return;
+        }
+        double now = timedBy.time();
+        if (deadline <= now) deadline = Math.nextUp(now);
+
+        if (deferTimers) pendingDeadline = deadline;
+        else timedBy.scheduleTimer(timer, deadline);
+    }
+
+    /**
+     * Cancels the timer of the factory, after the tick during an update.
+     */
+    private void cancelTimer() {
+        if (deferTimers) {
+            pendingDeadline = timer.isScheduled() ? CANCEL_TIMER : Double.NaN;
+        } else {
+            pendingDeadline = Double.NaN;
+            if (timer.isScheduled()) timedBy.cancelTimer(timer);
+        }
+    }
+
+    /**
+     * Ends the current session, cancelling its timer.
+     */
+    private void endSession() {
+        if (session != null) {
+            spare = session;
+            dirty |= SESSION_CHANGED;
+        }
+        session = null;
+        if (timedBy != null) cancelTimer();
+        else pendingDeadline = Double.NaN;
+    }
+
+    /**
+     * Called by the scheduler when the timer of the parked session fires.
+     *
+     * @param data The HephaestusData context.
+     */
+    final void onTimer(HephaestusData data) {
+        if (session == null || !session.parked) return;
+        if (evaluateParked(data)) armTimer();
+    }
+
+    /**
+     * Called by a timer-driven scheduler when the factory joins its population.
+     *
+     * @param scheduler The scheduler.
+     */
+    final void attachTimed(FactoryScheduler scheduler) {
+        if (timedBy != null && timedBy != scheduler) {
+            throw new IllegalStateException("Factory already driven by another scheduler.");
+        }
+        timedBy = scheduler;
+        if (timer == null) timer = new TimerWheel.Timer(this);
+    }
+
+    /**
+     * Called by a timer-driven scheduler when the factory leaves its population: the session goes back to per-tick mode.
+     */
+    final void detachTimed() {
+        if (timedBy == null) return;
+        if (session != null && session.parked) {
+            session.elapsed = (float) (timedBy.time() - session.start);
+            session.parked = false;
+        }
+        if (timer.isScheduled()) timedBy.cancelTimer(timer);
+        pendingDeadline = Double.NaN;
+        timedBy = null;
+    }
+
+    /**
+     * Takes the factory out of the sweep of a scheduler, unless it sleeps elsewhere.
+     * An event posted meanwhile keeps it in the sweep.
+     *
+     * @param slot The slot of the factory in the scheduler.
+     * @return true if the factory sleeps in that slot: it will only be visited again once woken.
+     */
+    final boolean sleepIn(FactoryScheduler.Sleeper slot) {
+        FactoryScheduler.Sleeper s = sleep;
+        if (s != null) return s == slot;
+        if (!SLEEP.compareAndSet(this, null, slot)) return false;
+        // Un événement posté avant la mise en sommeil n'a réveillé personne
+        return !hasPendingEvents() || !SLEEP.compareAndSet(this, slot, null);
+    }
+
+    /**
+     * Hands the factory back to the scheduler it sleeps in, if any (from any thread, once per sleep).
+     */
+    final void rouse() {
+        FactoryScheduler.Sleeper s = sleep;
+        if (s != null && SLEEP.compareAndSet(this, s, null)) s.scheduler.rouse(s);
+    }
+
+    /**
+     * Called by a scheduler dropping a slot: the factory no longer sleeps there.
+     *
+     * @param slot The slot.
+     */
+    final void leaveSleep(FactoryScheduler.Sleeper slot) {
+        SLEEP.compareAndSet(this, slot, null);
+    }
+
+    /**
+     * Checks whether the session is parked on the timer wheel (updates do nothing).
+     *
+     * @return true if parked.
+     */
+    final boolean isParked() {
+        return session != null && session.parked;
+    }
+
+    /**
+     * Checks whether the last update left a timer change to be applied by the scheduler.
+     *
+     * @return true if a deadline is pending.
+     */
+    final boolean hasPendingDeadline() {
+        return !Double.isNaN(pendingDeadline);
+    }
+
+    /**
+     * Applies to the wheel of the scheduler the timer change computed during the last update (schedule or cancel).
+     */
+    final void applyPendingTimer() {
+        double d = pendingDeadline;
+        pendingDeadline = Double.NaN;
+        if (Double.isNaN(d) || timedBy == null) return;
+        if (d == CANCEL_TIMER) {
+            if (timer.isScheduled()) timedBy.cancelTimer(timer);
+        } else {
+            timedBy.scheduleTimer(timer, d);
+        }
+    }
+
+    /**
+     * Returns the timer of the factory in the wheel of its scheduler.
+     *
+     * @return the timer, null if the factory was never timer-driven.
+     */
+    final TimerWheel.Timer timer() {
+        return timer;
+    }
+
     /**
      * Ensures that there is an active processing session.
+     * The first recipe in selection order whose {@code canStart} succeeds is chosen; the choice is memoized
+     * against the signatures of the contents and outputs, so an attempt with unchanged materials,
+     * recipes and registry only checks the memoized recipe again. Signatures can collide: if that recipe
+     * can no longer start, every recipe is evaluated again.
      *
      * @param data The HephaestusData context.
      */
     private void ensureSession(HephaestusData data) {
         if (session != null) return;
+        // Rien n'a changé depuis le dernier échec : inutile de réévaluer les recettes
+        if (dormant && dormantEpoch == data.epoch()) return;
+
+        long epoch = data.epoch();
+        if (registryRecipes != null && registryRecipesEpoch != epoch) refreshRegistryRecipes(data, epoch);
 
-        ProcessContext ctx = new ProcessContext(contents, outputs);
+        // La liste peut être remplacée ou modifiée directement : on retrie seulement dans ce cas
+        if (orderedFrom != recipes || (orderedSource != null && recipesEdited())) order();
 
-        ProcessRecipe best = recipes.stream()
-                .filter(r -> r.canStart(ctx, data))
-                .max(Comparator
-                        .comparingInt(ProcessRecipe::priority)
-                        .thenComparingInt(ProcessRecipe::specificityScore)
-                        .thenComparingInt(ProcessRecipe::inputCount))
-                .orElse(null);
+        long contentsSignature = signature(contents, data);
+        long outputsSignature = signature(outputs, data);
+
+        ProcessRecipe best;
+        if (memoOrder == ordered && memoEpoch == epoch
+                && memoContents == contentsSignature && memoOutputs == outputsSignature
+                && (memoResult == null || memoResult.canStart(context, data))) {
+            // Même contenu, mêmes recettes : même résultat, seule la recette retenue est revérifiée
+            best = memoResult;
+        } else {
+            best = null;
+            for (ProcessRecipe r : ordered) {
+                if (r.canStart(context, data)) {
+                    best = r;
+                    break;
+                }
+            }
+            memoOrder = ordered;
+            memoEpoch = epoch;
+            memoContents = contentsSignature;
+            memoOutputs = outputsSignature;
+            memoResult = best;
+        }
 
         if (best != null) {
-            session = new ProcessSession(best);
+            session = newSession(best);
+            dormant = false;
+        } else {
+            dormant = true;
+            dormantEpoch = epoch;
+        }
+    }
+
+    /**
+     * Resolves the registry recipes again after a registry change, unless the list was replaced since
+     * (by addRecipes or a subclass).
+     *
+     * @param data  The HephaestusData context.
+     * @param epoch The current registry epoch.
+     */
+    private void refreshRegistryRecipes(HephaestusData data, long epoch) {
+        registryRecipesEpoch = epoch;
+        if (recipes != registryRecipes) {
+            registryRecipes = null;
+            return;
+        }
+        if (registryHandle < 0) return;
+        List<ProcessRecipe> fresh = data.recipesOf(registryHandle);
+        if (fresh != null && fresh != recipes) {
+            recipes = fresh;
+            registryRecipes = fresh;
+        }
+    }
+
+    /**
+     * Computes an order-independent signature of a list of material instances: the count plus the sum of
+     * the mixed handles of their materials. Equal multisets of materials give equal signatures, and distinct
+     * registered materials never share a handle; only materials unknown to the registry fall back to their ID hash.
+     *
+     * @param list The list.
+     * @param data The HephaestusData context.
+     * @return the signature.
+     */
+    private static long signature(List<MaterialInstance> list, HephaestusData data) {
+        int n = list.size();
+        long sum = n;
+        for (int i = 0; i < n; i++) {
+            MaterialInstance instance = list.get(i);
+            int h = data.materialHandle(instance);
+            // Matériau inconnu : hash de l'ID, décalé hors de la plage des handles
+            long z = h != HephaestusData.NO_HANDLE ? h : 0x100000000L + instance.materialId().hashCode();
+            z = (z + 1) * 0x9E3779B97F4A7C15L;
+            z = (z ^ (z >>> 32)) * 0xD6E8FEB86659FD93L;
+            sum += z ^ (z >>> 32);
         }
+        return sum;
+    }
+
+    /**
+     * Rebuilds {@link #ordered} from {@link #recipes}.
+     */
+    private void order() {
+        List<ProcessRecipe> from = recipes;
+        ProcessRecipe[] source = from.toArray(new ProcessRecipe[0]);
+        ProcessRecipe[] next = source.clone();
+        // Tri stable : à égalité, la première recette attachée l'emporte
+        Arrays.sort(next, SELECTION_ORDER);
+        ordered = next;
+        orderedFrom = from;
+        orderedSource = from == registryRecipes ? null : source;
+    }
+
+    /**
+     * Checks whether the modifiable recipe list was edited in place since {@link #ordered} was built.
+     */
+    private boolean recipesEdited() {
+        List<ProcessRecipe> list = recipes;
+        ProcessRecipe[] seen = orderedSource;
+        int n = list.size();
+        if (n != seen.length) return true;
+        for (int i = 0; i < n; i++) {
+            if (list.get(i) != seen[i]) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Starts a session on the given recipe, reusing the last ended session if any.
+     *
+     * @param recipe The recipe of the session.
+     * @return the session.
+     */
+    private ProcessSession newSession(ProcessRecipe recipe) {
+        dirty |= DIRTY_SESSION;
+        ProcessSession s = spare;
+        spare = null;
+        if (s == null) return new ProcessSession(recipe);
+        s.reset(recipe);
+        return s;
     }
 
     /**
@@ -227,21 +1014,78 @@ public abstract class Factory {
      * @param level  The registry level to set.
      */
     public final void setRegistryMeta(String id, Set<String> groups, int level) {
+        setRegistryMeta(-1, id, groups, level);
+    }
+
+    /**
+     * Called by the library (HephaestusData) at the time of creating the runtime instance.
+     *
+     * @param handle The registry handle to set.
+     * @param id     The registry ID to set.
+     * @param groups The registry groups to set.
+     * @param level  The registry level to set.
+     */
+    public final void setRegistryMeta(int handle, String id, Set<String> groups, int level) {
         if (id == null || id.isBlank()) throw new IllegalArgumentException("id cannot be null/blank.");
         if (groups == null) throw new IllegalArgumentException("groups cannot be null.");
+        this.registryHandle = handle;
         this.registryId = id;
         this.registryGroups = Set.copyOf(groups);
         this.registryLevel = level;
     }
 
 
+    /**
+     * Called by the library (HephaestusData) at the time of creating the runtime instance.
+     * Attaches the registry-resolved recipes without copying them when the factory has none yet.
+     *
+     * @param shared The immutable list of recipes resolved for this factory in the registry.
+     */
+    public final void setRegistryRecipes(List<ProcessRecipe> shared) {
+        setRegistryRecipes(shared, null);
+    }
+
+    /**
+     * Called by the library (HephaestusData) at the time of creating the runtime instance.
+     * Attaches the registry-resolved recipes and their selection order, both shared by every instance
+     * of the registry factory, without copying them when the factory has none yet.
+     *
+     * @param shared The immutable list of recipes resolved for this factory in the registry.
+     * @param order  The recipes of {@code shared} sorted by {@link #SELECTION_ORDER}, never modified;
+     *               null to sort them here.
+     */
+    public final void setRegistryRecipes(List<ProcessRecipe> shared, ProcessRecipe[] order) {
+        if (shared == null) throw new IllegalArgumentException("shared cannot be null.");
+        if (order != null && order.length != shared.size())
+            throw new IllegalArgumentException("order must hold the recipes of shared.");
+        if (recipes.isEmpty()) {
+            recipes = shared;
+            registryRecipes = shared;
+            if (order != null) {
+                // Ordre pré-calculé par le registre pour cette fabrique
+                ordered = order;
+                orderedFrom = shared;
+                orderedSource = null;
+            } else {
+                order();
+            }
+            dormant = false;
+            rouse();
+        } else {
+            addRecipes(shared);
+        }
+    }
+
     /**
      * Sets the current processing session for the factory.
      *
      * @param recipe The ProcessRecipe to set for the session.
      */
     public final void setSession(ProcessRecipe recipe) {
-        this.session = new ProcessSession(recipe);
+        endSession();
+        this.session = newSession(recipe);
+        this.dormant = false;
+        rouse();
     }
 
     /**
@@ -253,6 +1097,77 @@ public abstract class Factory {
         return this.session != null;
     }
 
+    /**
+     * Gets the recipe of the current processing session.
+     *
+     * @return The recipe, or null without session.
+     */
+    public final ProcessRecipe getSessionRecipe() {
+        return session == null ? null : session.recipe;
+    }
+
+    /**
+     * Gets the elapsed time of the current processing session.
+     *
+     * @return The elapsed time, 0 without session.
+     */
+    public final float getElapsed() {
+        ProcessSession s = session;
+        if (s == null) return 0f;
+        return s.parked ? (float) (timedBy.time() - s.start) : s.elapsed;
+    }
+
+    /**
+     * Restores the saved state of a factory just created by the registry (see {@link FactorySnapshotCodec}).
+     *
+     * @param operating Whether the factory was operating.
+     * @param recipe    The recipe of the saved session, or null without session.
+     * @param elapsed   The elapsed time of the saved session.
+     */
+    final void restore(boolean operating, ProcessRecipe recipe, float elapsed) {
+        isOperating = operating;
+        endSession();
+        if (recipe != null) {
+            session = newSession(recipe);
+            session.elapsed = elapsed;
+        }
+        dormant = false;
+        memoOrder = null;
+        dirty = 0;
+        rouse();
+    }
+
+    /**
+     * Gets the dirty flags raised since they were last cleared: {@link #DIRTY_OPERATING}, {@link #DIRTY_SESSION},
+     * {@link #DIRTY_CONTENTS}, {@link #DIRTY_OUTPUTS}.
+     * Every recipe callback of a session raises {@link #DIRTY_SESSION}, {@link #DIRTY_CONTENTS} and
+     * {@link #DIRTY_OUTPUTS}, whether or not it changed anything.
+     *
+     * @return The dirty flags, 0 if the factory did not change.
+     */
+    public final int getDirtyFlags() {
+        return dirty;
+    }
+
+    /**
+     * Raises dirty flags, e.g. after editing {@link #contents} or {@link #outputs} directly in a subclass.
+     *
+     * @param flags The flags to raise.
+     */
+    public final void markDirty(int flags) {
+        dirty |= flags;
+    }
+
+    /**
+     * Clears dirty flags once the changes they stand for are saved.
+     * Like updates, must not run concurrently with an update of the factory.
+     *
+     * @param flags The flags to clear.
+     */
+    public final void clearDirty(int flags) {
+        dirty &= ~flags;
+    }
+
     /**
      * Represents a processing session within the factory.
      */
@@ -261,19 +1176,51 @@ public abstract class Factory {
         /**
          * The processing recipe associated with the session.
          */
-        final ProcessRecipe recipe;
+        ProcessRecipe recipe;
 
         /**
          * The elapsed time since the session started.
+         * Only updated when the session is touched while parked on the timer wheel.
          */
         float elapsed;
 
+        /**
+         * Whether the recipe needs per-tick calls (see {@link ProcessRecipe#needsTicks()}).
+         */
+        boolean needsTicks;
+
+        /**
+         * Whether the session is driven by the timer wheel of the scheduler.
+         */
+        boolean parked;
+
+        /**
+         * Scheduler time at which the session started (parked sessions only).
+         */
+        double start;
+
+        /**
+         * Phase at the last evaluation of a parked session.
+         */
+        ProcessingPhase lastPhase;
+
         /**
          * Constructs a ProcessSession with the specified recipe.
          */
         ProcessSession(ProcessRecipe recipe) {
+            reset(recipe);
+        }
+
+        /**
+         * Restarts the session on the specified recipe.
+         */
+        void reset(ProcessRecipe recipe) {
             this.recipe = recipe;
             this.elapsed = 0f;
+            this.needsTicks = recipe.needsTicks();
+            this.parked = false;
+            this.start = 0d;
+            this.lastPhase = null;
         }
 
         /**
@@ -0,0 +1,551 @@
+package fr.olympus.hephaestus.factory;
+
+import fr.olympus.hephaestus.resources.HephaestusData;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Incremental persistence of factories: a base snapshot plus an append-only write-ahead journal of changes.
+ * <p>
+ * Factories are added under a key. {@link #flush()} appends one batch of changes to the journal (see
+ * {@link FactorySnapshotCodec}): the factories added and removed since the last flush, and for the others only the
+ * dirty ones (see {@link Factory#getDirtyFlags()}), with their operating flag and session plus their contents or
+ * outputs when those are dirty. {@link #compact()} writes every factory to a new base snapshot and empties the journal.
+ * {@link #open(Path, HephaestusData)} recovers the last flushed state: base snapshot, then replay of the journal.
+ * <p>
+ * Batches are framed by their length and CRC32 and forced to disk; a batch torn by a crash is cut off at recovery.
+ * A batch whose force fails is cut off too, and its changes are written again by the next flush; should it reach the
+ * disk anyway, replaying it before that next batch gives the same factories.
+ * Both files carry a generation: a journal older than the base (crash during a compaction) is discarded, its changes
+ * being in the base. The elapsed time of a session is saved with the changes of its factory, so a recovered session
+ * resumes from the last time its factory was written.
+ * <p>
+ * Not thread-safe. Flush and compact between updates: updates raise the dirty flags.
+ */
+public final class FactoryJournal implements Closeable {
+
+    /**
+     * Magic number of base snapshot files.
+     */
+    private static final int BASE_MAGIC = 0x48504253;
+
+    /**
+     * Magic number of journal files.
+     */
+    private static final int JOURNAL_MAGIC = 0x48504A4C;
+
+    /**
+     * Version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Size of the file header: magic, version, generation.
+     */
+    private static final int FILE_HEADER = 16;
+
+    /**
+     * Size of the frame header of a batch: length, CRC32.
+     */
+    private static final int FRAME_HEADER = 8;
+
+    /**
+     * All the dirty flags.
+     */
+    private static final int ALL_DIRTY = Factory.DIRTY_OPERATING | Factory.DIRTY_SESSION
+            | Factory.DIRTY_CONTENTS | Factory.DIRTY_OUTPUTS;
+
+    /**
+     * Codec of the batches.
+     */
+    private final FactorySnapshotCodec codec;
+
+    /**
+     * Directory of the files.
+     */
+    private final Path directory;
+
+    /**
+     * Base snapshot file.
+     */
+    private final Path basePath;
+
+    /**
+     * Journal file.
+     */
+    private final Path journalPath;
+
+    /**
+     * Factories by key, in insertion order.
+     */
+    private final Map<Long, Factory> factories = new LinkedHashMap<>();
+
+    /**
+     * Keys added since the last flush.
+     */
+    private final Set<Long> added = new LinkedHashSet<>();
+
+    /**
+     * Keys removed since the last flush (added before it).
+     */
+    private final List<Long> removed = new ArrayList<>();
+
+    /**
+     * Keys added since the last flush and put by a batch whose force failed: that batch may still be replayed,
+     * so their removal must be written.
+     */
+    private final Set<Long> unconfirmed = new HashSet<>();
+
+    /**
+     * Checksum of the frames.
+     */
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Frame or file header being written.
+     */
+    private final ByteBuffer header = ByteBuffer.allocate(FILE_HEADER).order(ByteOrder.BIG_ENDIAN);
+
+    /**
+     * Reused batch buffer.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Factories written by the flush in progress, with the flags written.
+     */
+    private Factory[] written = new Factory[16];
+
+    /**
+     * Dirty flags written for each factory of {@link #written}.
+     */
+    private int[] writtenFlags = new int[16];
+
+    /**
+     * Open journal file.
+     */
+    private FileChannel journal;
+
+    /**
+     * Generation of the base snapshot, and of the journal that follows it.
+     */
+    private long generation;
+
+    /**
+     * Next key to assign.
+     */
+    private long nextKey;
+
+    /**
+     * Forces the journal file to disk after each batch (replaced by tests to simulate a failing device).
+     */
+    Force force = channel -> channel.force(false);
+
+    /**
+     * Constructs a journal on a directory, without reading it.
+     */
+    private FactoryJournal(Path directory, HephaestusData data) {
+        this.codec = new FactorySnapshotCodec(data);
+        this.directory = directory;
+        this.basePath = directory.resolve("factories.base");
+        this.journalPath = directory.resolve("factories.journal");
+    }
+
+    /**
+     * Opens the journal of a directory, creating it if needed, and recovers its factories: base snapshot, then the
+     * batches of the journal up to the last complete one. A torn batch at the end of the journal is cut off.
+     *
+     * @param directory The directory of the files.
+     * @param data      The registry the factories are created with.
+     * @return The journal holding the recovered factories.
+     * @throws IllegalArgumentException if directory or data is null.
+     * @throws IOException              if the files cannot be read or written, are not journal files, or cannot be replayed.
+     */
+    public static FactoryJournal open(Path directory, HephaestusData data) throws IOException {
+        if (directory == null) throw new IllegalArgumentException("directory cannot be null.");
+        if (data == null) throw new IllegalArgumentException("data cannot be null.");
+        Files.createDirectories(directory);
+        FactoryJournal j = new FactoryJournal(directory, data);
+        try {
+            j.recover();
+        } catch (IOException | RuntimeException e) {
+            j.close();
+            throw e;
+        }
+        return j;
+    }
+
+    /**
+     * Adds a factory; it is written in full by the next flush.
+     *
+     * @param factory The factory, created by the registry of the journal.
+     * @return The key of the factory.
+     * @throws IllegalArgumentException if factory is null or was not created by the registry.
+     * @throws IllegalStateException    if the journal is closed.
+     */
+    public long add(Factory factory) {
+        checkOpen();
+        if (factory == null) throw new IllegalArgumentException("factory cannot be null.");
+        if (factory.getRegistryHandle() < 0) {
+            throw new IllegalArgumentException("Factory was not created by the registry: " + factory.getClass().getName());
+        }
+        long key = nextKey++;
+        factories.put(key, factory);
+        added.add(key);
+        return key;
+    }
+
+    /**
+     * Removes a factory; the removal is written by the next flush.
+     *
+     * @param key The key of the factory.
+     * @return true if the factory was known.
+     * @throws IllegalStateException if the journal is closed.
+     */
+    public boolean remove(long key) {
+        checkOpen();
+        if (factories.remove(key) == null) return false;
+        // Jamais écrite : rien à retirer du disque, sauf si un lot non confirmé a pu l'y mettre
+        boolean written = !added.remove(key);
+        if (unconfirmed.remove(key) || written) removed.add(key);
+        return true;
+    }
+
+    /**
+     * Gets a factory.
+     *
+     * @param key The key of the factory.
+     * @return The factory, or null if unknown.
+     */
+    public Factory get(long key) {
+        return factories.get(key);
+    }
+
+    /**
+     * Gets the factories by key.
+     *
+     * @return The unmodifiable view of the factories, in insertion order.
+     */
+    public Map<Long, Factory> factories() {
+        return Collections.unmodifiableMap(factories);
+    }
+
+    /**
+     * Gets the size of the journal file, to decide when to {@link #compact()}.
+     *
+     * @return The size in bytes.
+     * @throws IOException if the size cannot be read.
+     */
+    public long journalSize() throws IOException {
+        checkOpen();
+        return journal.size();
+    }
+
+    /**
+     * Appends the changes since the last flush to the journal as one batch, forced to disk, then clears the dirty
+     * flags written (all of them for the factories written in full). Nothing is written when nothing changed.
+     *
+     * @return The number of changes written (factories added, updated and removed).
+     * @throws IOException if the batch cannot be written or forced; the batch is cut off and the changes stay
+     *                     pending for the next flush.
+     * @throws IllegalStateException if the journal is closed.
+     */
+    public int flush() throws IOException {
+        checkOpen();
+        int n = 0;
+        int w = 0;
+        codec.beginBatch(buffer);
+        for (Long key : removed) {
+            codec.writeRemove(key);
+            n++;
+        }
+        for (Map.Entry<Long, Factory> e : factories.entrySet()) {
+            Factory f = e.getValue();
+            int flags = f.getDirtyFlags();
+            if (added.contains(e.getKey())) {
+                codec.writePut(e.getKey(), f);
+                // Écrite en entier : plus rien n'est en attente
+                flags = ALL_DIRTY;
+            } else if (flags != 0) {
+                codec.writeUpdate(e.getKey(), f, flags);
+            } else {
+                continue;
+            }
+            if (w == written.length) {
+                written = Arrays.copyOf(written, 2 * w);
+                writtenFlags = Arrays.copyOf(writtenFlags, 2 * w);
+            }
+            written[w] = f;
+            writtenFlags[w++] = flags;
+            n++;
+        }
+        buffer = codec.endBatch(n);
+        if (n == 0) return 0;
+
+        long at = journal.position();
+        append(journal, buffer);
+        try {
+            force.force(journal);
+        } catch (IOException e) {
+            // Le lot a pu atteindre le disque malgré l'échec : ses ajouts devront être retirés explicitement
+            cutOff(journal, at);
+            unconfirmed.addAll(added);
+            Arrays.fill(written, 0, w, null);
+            throw e;
+        }
+
+        // Écrit : les drapeaux peuvent retomber
+        for (int i = 0; i < w; i++) {
+            written[i].clearDirty(writtenFlags[i]);
+            written[i] = null;
+        }
+        added.clear();
+        removed.clear();
+        unconfirmed.clear();
+        return n;
+    }
+
+    /**
+     * Writes every factory to a new base snapshot, replacing the previous one atomically when the file system
+     * allows it, then empties the journal. Pending changes are included in the snapshot.
+     *
+     * @throws IOException if the snapshot or the journal cannot be written.
+     * @throws IllegalStateException if the journal is closed.
+     */
+    public void compact() throws IOException {
+        checkOpen();
+        codec.beginBatch(buffer);
+        for (Map.Entry<Long, Factory> e : factories.entrySet()) codec.writePut(e.getKey(), e.getValue());
+        buffer = codec.endBatch(factories.size());
+
+        long next = generation + 1;
+        Path tmp = Files.createTempFile(directory, basePath.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                writeFileHeader(out, BASE_MAGIC, next);
+                append(out, buffer);
+                out.force(true);
+            }
+            try {
+                Files.move(tmp, basePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, basePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+
+        // Un crash ici laisse un journal plus ancien que la base : il sera ignoré
+        generation = next;
+        resetJournal();
+        for (Factory f : factories.values()) f.clearDirty(ALL_DIRTY);
+        added.clear();
+        removed.clear();
+        unconfirmed.clear();
+    }
+
+    /**
+     * Closes the journal file. Changes not flushed are not written.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (journal != null) journal.close();
+    }
+
+    /**
+     * Loads the base snapshot, then replays the journal if it follows the base.
+     */
+    private void recover() throws IOException {
+        Replay changes = new Replay();
+        generation = 0;
+        if (Files.exists(basePath)) {
+            try (FileChannel in = FileChannel.open(basePath, StandardOpenOption.READ)) {
+                ByteBuffer b = readAll(in, basePath);
+                generation = readFileHeader(b, BASE_MAGIC, basePath);
+                // La base est renommée une fois complète : une trame invalide est une vraie corruption
+                if (replay(b, changes) != b.limit()) throw new IOException("Corrupted base snapshot: " + basePath);
+            }
+        }
+
+        journal = FileChannel.open(journalPath, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        boolean follows = false;
+        if (journal.size() >= FILE_HEADER) {
+            ByteBuffer b = readAll(journal, journalPath);
+            if (readFileHeader(b, JOURNAL_MAGIC, journalPath) == generation) {
+                follows = true;
+                int end = replay(b, changes);
+                // Lot déchiré par un crash : on le coupe pour que les suivants restent lisibles
+                if (end < journal.size()) journal.truncate(end);
+            }
+        }
+        if (follows) journal.position(journal.size());
+        else resetJournal();
+
+        // Les factories rechargées sont propres : tout ce qu'elles portent est sur disque
+        for (Factory f : factories.values()) f.clearDirty(ALL_DIRTY);
+    }
+
+    /**
+     * Replays the valid frames from the position of a buffer.
+     *
+     * @return The offset after the last valid frame.
+     */
+    private int replay(ByteBuffer b, Replay changes) throws IOException {
+        while (b.remaining() >= FRAME_HEADER) {
+            int start = b.position();
+            int length = b.getInt();
+            int sum = b.getInt();
+            if (length < 0 || length > b.remaining()) return start;
+            ByteBuffer frame = b.slice(b.position(), length);
+            crc.reset();
+            crc.update(frame.duplicate());
+            if ((int) crc.getValue() != sum) return start;
+            try {
+                codec.decodeBatch(frame, changes);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Cannot replay factory batch at offset " + start + ": " + e.getMessage(), e);
+            }
+            b.position(start + FRAME_HEADER + length);
+        }
+        return b.position();
+    }
+
+    /**
+     * Empties the journal, leaving only its header with the current generation.
+     */
+    private void resetJournal() throws IOException {
+        journal.truncate(0);
+        journal.position(0);
+        writeFileHeader(journal, JOURNAL_MAGIC, generation);
+        journal.force(true);
+    }
+
+    /**
+     * Appends a frame holding a batch at the position of a channel. A partially written frame is cut off.
+     */
+    private void append(FileChannel out, ByteBuffer batch) throws IOException {
+        long at = out.position();
+        crc.reset();
+        crc.update(batch.duplicate());
+        header.clear();
+        header.putInt(batch.remaining()).putInt((int) crc.getValue()).flip();
+        try {
+            while (header.hasRemaining()) out.write(header);
+            while (batch.hasRemaining()) out.write(batch);
+        } catch (IOException e) {
+            cutOff(out, at);
+            throw e;
+        }
+    }
+
+    /**
+     * Cuts a channel back to an offset after a failed write, as far as possible.
+     */
+    private static void cutOff(FileChannel out, long at) {
+        try {
+            out.truncate(at);
+            out.position(at);
+        } catch (IOException ignored) {
+            // la récupération coupera une trame incomplète ; une trame complète sera rejouée sans dommage
+        }
+    }
+
+    /**
+     * Writes a file header at the position of a channel.
+     */
+    private void writeFileHeader(FileChannel out, int magic, long gen) throws IOException {
+        header.clear();
+        header.putInt(magic).putInt(VERSION).putLong(gen).flip();
+        while (header.hasRemaining()) out.write(header);
+    }
+
+    /**
+     * Reads and checks a file header.
+     *
+     * @return The generation of the file.
+     */
+    private static long readFileHeader(ByteBuffer b, int magic, Path file) throws IOException {
+        if (b.remaining() < FILE_HEADER || b.getInt() != magic) throw new IOException("Not a factory journal file: " + file);
+        int version = b.getInt();
+        if (version != VERSION) throw new IOException("Unsupported journal version " + version + ": " + file);
+        return b.getLong();
+    }
+
+    /**
+     * Reads a whole file.
+     */
+    private static ByteBuffer readAll(FileChannel in, Path file) throws IOException {
+        long size = in.size();
+        if (size > Integer.MAX_VALUE - 8) throw new IOException("File too large: " + file);
+        ByteBuffer b = ByteBuffer.allocate((int) size).order(ByteOrder.BIG_ENDIAN);
+        while (b.hasRemaining()) {
+            if (in.read(b, b.position()) < 0) break;
+        }
+        return b.flip();
+    }
+
+    /**
+     * Fails if the journal is closed.
+     */
+    private void checkOpen() {
+        if (journal == null || !journal.isOpen()) throw new IllegalStateException("Journal is closed.");
+    }
+
+    /**
+     * Forcing of the journal file to disk.
+     */
+    @FunctionalInterface
+    interface Force {
+
+        /**
+         * Forces a channel to disk.
+         *
+         * @param channel The channel.
+         * @throws IOException if the device fails.
+         */
+        void force(FileChannel channel) throws IOException;
+    }
+
+    /**
+     * Applies the replayed batches to {@link #factories}.
+     */
+    private final class Replay implements FactorySnapshotCodec.Changes {
+
+        @Override
+        public Factory get(long key) {
+            return factories.get(key);
+        }
+
+        @Override
+        public void put(long key, Factory factory) {
+            factories.put(key, factory);
+            nextKey = Math.max(nextKey, key + 1);
+        }
+
+        @Override
+        public void remove(long key) {
+            factories.remove(key);
+        }
+    }
+}
@@ -0,0 +1,795 @@
+package fr.olympus.hephaestus.factory;
+
+import fr.olympus.hephaestus.materials.MaterialInstance;
+import fr.olympus.hephaestus.resources.HephaestusData;
+
+import java.io.Serial;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Ticks a population of factories, split into fixed-size chunks updated in parallel on a work-stealing pool.
+ * <p>
+ * Chunk boundaries only depend on the population order and the chunk size. Each factory is updated exactly
+ * once per tick with the same delta time, and {@link Factory#update(float, HephaestusData)} only touches its own
+ * factory, so the factory states after a tick are the same as after a sequential tick.
+ * What differs is the delivery of side effects:
+ * - in deterministic mode, outputs collected by the tick and the reported failure are delivered on the ticking
+ * thread, in population order, exactly as a sequential tick would deliver them
+ * - otherwise, outputs are delivered from the worker threads as chunks complete (the sink must be thread-safe)
+ * <p>
+ * Dormant factories (see {@link Factory#isDormant(HephaestusData)}) and parked sessions leave the sweep of their chunk
+ * and are not visited again until woken: by an event posted to their inbox (see {@link Factory#post}), an insertion or
+ * any other change made through the factory, a fired timer, or a registry change. The cost of a tick follows the
+ * number of active factories, not the population size.
+ * <p>
+ * With a timer resolution, the scheduler also drives sessions with a hierarchical timer wheel: a session whose
+ * recipe does not need per-tick calls (see {@link fr.olympus.hephaestus.processing.ProcessRecipe#needsTicks()})
+ * is parked on its first update and only touched again when its BEFORE_MIN to IN_WINDOW or IN_WINDOW to AFTER_MAX
+ * transition fires, or when an event is pushed to the factory. Timers fire on the ticking thread after the
+ * chunks, at the first tick at or after their deadline (as the per-tick mode would see them).
+ * Past AFTER_MAX, a parked session is only touched by events. Recipes needing ticks keep per-tick updates.
+ * <p>
+ * The population must not be modified, and its factories must not be used, while a tick is running.
+ * <pre>
+ * try (FactoryScheduler scheduler = new FactoryScheduler(data, 8, 1024, true)) {
+ *     scheduler.addAll(factories);
+ *     scheduler.setOutputSink((factory, outputs) -&gt; inventory.addAll(outputs));
+ *     FactoryScheduler.TickStats stats = scheduler.tick(0.05f);
+ * }
+ * </pre>
+ */
+public final class FactoryScheduler implements AutoCloseable {
+
+    /**
+     * Default number of factories per chunk.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 512;
+
+    /**
+     * Registry given to the factories on update.
+     */
+    private final HephaestusData data;
+
+    /**
+     * Number of factories per chunk.
+     */
+    private final int chunkSize;
+
+    /**
+     * Whether side effects are delivered in population order on the ticking thread.
+     */
+    private final boolean deterministic;
+
+    /**
+     * Pool updating the chunks, null when the scheduler ticks on the calling thread (parallelism 1).
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Population, in tick order (first {@code size} slots used).
+     */
+    private Factory[] factories = new Factory[16];
+
+    /**
+     * Number of factories in the population.
+     */
+    private int size;
+
+    /**
+     * Chunk tasks, rebuilt when the population changes (reused across ticks otherwise).
+     */
+    private Chunk[] chunks = new Chunk[0];
+
+    /**
+     * Whether the chunks must be rebuilt before the next tick.
+     */
+    private boolean chunksStale;
+
+    /**
+     * Receives the outputs extracted after each update, or null to leave them in the factories.
+     */
+    private BiConsumer<Factory, List<MaterialInstance>> outputSink;
+
+    /**
+     * Delta time of the running tick.
+     */
+    private float tickDt;
+
+    /**
+     * Statistics of the last tick.
+     */
+    private TickStats lastTick = TickStats.NONE;
+
+    /**
+     * Timer wheel driving parked sessions, null in per-tick mode.
+     */
+    private final TimerWheel wheel;
+
+    /**
+     * Callback of the wheel, bound once so that advancing it allocates nothing.
+     */
+    private final Consumer<TimerWheel.Timer> fireTimer = this::fire;
+
+    /**
+     * Scheduler clock: the sum of the delta times of all ticks, in seconds.
+     */
+    private double time;
+
+    /**
+     * First failure of a fired timer in the running tick.
+     */
+    private RuntimeException timerFailure;
+
+    /**
+     * Whether the scheduler is closed.
+     */
+    private boolean closed;
+
+    /**
+     * Sleep slots of the population, parallel to {@link #factories}, created on first sleep.
+     */
+    private Sleeper[] sleepers = new Sleeper[0];
+
+    /**
+     * Slots of the factories woken since the last tick, linked by {@link Sleeper#next} (pushed from any thread).
+     */
+    private final AtomicReference<Sleeper> woken = new AtomicReference<>();
+
+    /**
+     * Registry epoch of the last tick: a change wakes every sleeping factory.
+     */
+    private long sweepEpoch = -1;
+
+    /**
+     * Constructs a scheduler with one thread per available processor, the default chunk size, in deterministic mode.
+     *
+     * @param data The registry given to the factories on update.
+     * @throws IllegalArgumentException if data is null.
+     */
+    public FactoryScheduler(HephaestusData data) {
+        this(data, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE, true);
+    }
+
+    /**
+     * Constructs a scheduler.
+     *
+     * @param data          The registry given to the factories on update.
+     * @param parallelism   The number of threads ticking chunks (1 ticks on the calling thread, without pool).
+     * @param chunkSize     The number of factories per chunk.
+     * @param deterministic Whether side effects are delivered in population order on the ticking thread.
+     * @throws IllegalArgumentException if data is null, or parallelism or chunkSize is not positive.
+     */
+    public FactoryScheduler(HephaestusData data, int parallelism, int chunkSize, boolean deterministic) {
+        this(data, parallelism, chunkSize, deterministic, 0d);
+    }
+
+    /**
+     * Constructs a scheduler, driving sessions with a timer wheel when a resolution is given.
+     *
+     * @param data            The registry given to the factories on update.
+     * @param parallelism     The number of threads ticking chunks (1 ticks on the calling thread, without pool).
+     * @param chunkSize       The number of factories per chunk.
+     * @param deterministic   Whether side effects are delivered in population order on the ticking thread.
+     * @param timerResolution The duration of a timer wheel slot in seconds (typically the tick step), 0 for per-tick mode.
+     * @throws IllegalArgumentException if data is null, parallelism or chunkSize is not positive, or timerResolution is negative.
+     */
+    public FactoryScheduler(HephaestusData data, int parallelism, int chunkSize, boolean deterministic, double timerResolution) {
+        if (data == null) throw new IllegalArgumentException("data cannot be null.");
+        if (parallelism <= 0) throw new IllegalArgumentException("parallelism must be > 0.");
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be > 0.");
+        if (!(timerResolution >= 0)) throw new IllegalArgumentException("timerResolution must be >= 0.");
+        this.wheel = timerResolution == 0 ? null : new TimerWheel(timerResolution);
+        this.data = data;
+        this.chunkSize = chunkSize;
+        this.deterministic = deterministic;
+        this.pool = parallelism == 1 ? null : new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("hephaestus-tick-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+    }
+
+    /**
+     * Adds a factory at the end of the population.
+     *
+     * @param factory The factory to add.
+     * @throws IllegalArgumentException if factory is null.
+     * @throws IllegalStateException    if the factory is already driven by another timer-driven scheduler.
+     */
+    public void add(Factory factory) {
+        if (factory == null) throw new IllegalArgumentException("factory cannot be null.");
+        if (wheel != null) factory.attachTimed(this);
+        if (size == factories.length) factories = Arrays.copyOf(factories, size * 2);
+        factories[size++] = factory;
+        chunksStale = true;
+    }
+
+    /**
+     * Adds factories at the end of the population, in order.
+     *
+     * @param list The factories to add.
+     * @throws IllegalArgumentException if list or any factory is null.
+     * @throws IllegalStateException    if a factory is already driven by another timer-driven scheduler.
+     */
+    public void addAll(Collection<? extends Factory> list) {
+        if (list == null) throw new IllegalArgumentException("list cannot be null.");
+        for (Factory f : list) {
+            if (f == null) throw new IllegalArgumentException("factory cannot be null.");
+        }
+        if (wheel != null) {
+            for (Factory f : list) f.attachTimed(this);
+        }
+        if (size + list.size() > factories.length) {
+            factories = Arrays.copyOf(factories, Math.max(size + list.size(), size * 2));
+        }
+        for (Factory f : list) factories[size++] = f;
+        chunksStale = true;
+    }
+
+    /**
+     * Removes a factory from the population, keeping the order of the others.
+     * A parked session goes back to per-tick mode.
+     *
+     * @param factory The factory to remove.
+     * @return true if the factory was in the population.
+     */
+    public boolean remove(Factory factory) {
+        for (int i = 0; i < size; i++) {
+            if (factories[i] == factory) {
+                if (i < sleepers.length && sleepers[i] != null) factory.leaveSleep(sleepers[i]);
+                factory.detachTimed();
+                System.arraycopy(factories, i + 1, factories, i, size - i - 1);
+                factories[--size] = null;
+                chunksStale = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes every factory from the population.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            if (i < sleepers.length && sleepers[i] != null) factories[i].leaveSleep(sleepers[i]);
+            factories[i].detachTimed();
+        }
+        Arrays.fill(factories, 0, size, null);
+        size = 0;
+        chunksStale = true;
+    }
+
+    /**
+     * Returns the number of factories in the population.
+     *
+     * @return the population size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a copy of the population, in tick order.
+     *
+     * @return the unmodifiable list of factories
+     */
+    public List<Factory> factories() {
+        return List.of(Arrays.copyOf(factories, size));
+    }
+
+    /**
+     * Sets the sink receiving the outputs produced by each factory, extracted right after its update.
+     * Factories without outputs are not reported. In non-deterministic mode, the sink is called from the
+     * worker threads and must be thread-safe.
+     *
+     * @param sink The output sink, or null to leave the outputs in the factories.
+     */
+    public void setOutputSink(BiConsumer<Factory, List<MaterialInstance>> sink) {
+        this.outputSink = sink;
+    }
+
+    /**
+     * Checks whether the scheduler runs in deterministic mode.
+     *
+     * @return true if side effects are delivered in population order
+     */
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    /**
+     * Updates every factory of the population once.
+     * Every factory is updated even if another one fails; the failure is rethrown after the tick
+     * (in deterministic mode, the one of the first failing chunk in population order).
+     *
+     * @param dt The delta time given to each factory.
+     * @return The statistics of the tick.
+     * @throws IllegalStateException if the scheduler is closed.
+     * @throws RuntimeException      the first exception thrown by a factory update or the output sink.
+     */
+    public TickStats tick(float dt) {
+        if (closed) throw new IllegalStateException("Scheduler is closed.");
+        if (chunksStale) rebuildChunks();
+        long epoch = data.epoch();
+        if (epoch != sweepEpoch) {
+            // Le registre a changé : tout le monde est revisité une fois
+            sweepEpoch = epoch;
+            for (Chunk c : chunks) c.activateAll();
+        }
+        drainWoken();
+
+        tickDt = dt;
+        time += dt;
+        long start = System.nanoTime();
+        if (pool == null) {
+            for (Chunk c : chunks) c.compute();
+        } else {
+            pool.invoke(new TickAll(chunks));
+        }
+
+        long busy = 0;
+        long max = 0;
+        int dormant = 0;
+        int parked = 0;
+        RuntimeException failure = null;
+        for (Chunk c : chunks) {
+            busy += c.nanos;
+            max = Math.max(max, c.nanos);
+            dormant += c.dormant + c.sleepingDormant;
+            parked += c.parked + c.sleepingParked;
+            // Timers modifiés pendant le tick, appliqués dans l'ordre de la population
+            for (Factory f : c.parking) f.applyPendingTimer();
+            c.parking.clear();
+            if (deterministic) c.deliver();
+            if (failure == null && c.failure != null) failure = c.failure;
+            c.failure = null;
+        }
+
+        int fired = 0;
+        if (wheel != null) {
+            fired = wheel.advance(time, fireTimer);
+            if (failure == null) failure = timerFailure;
+            timerFailure = null;
+        }
+        long wall = System.nanoTime() - start;
+        lastTick = new TickStats(wall, busy, max, size, dormant, parked, fired, chunks.length);
+        if (failure != null) throw failure;
+        return lastTick;
+    }
+
+    /**
+     * Returns the statistics of the last tick.
+     *
+     * @return the last tick statistics, {@link TickStats#NONE} before the first tick
+     */
+    public TickStats lastTick() {
+        return lastTick;
+    }
+
+    /**
+     * Returns the scheduler clock: the sum of the delta times of all ticks.
+     *
+     * @return the time, in seconds
+     */
+    public double time() {
+        return time;
+    }
+
+    /**
+     * Checks whether sessions are driven by a timer wheel.
+     *
+     * @return true if a timer resolution was given
+     */
+    public boolean isTimerDriven() {
+        return wheel != null;
+    }
+
+    /**
+     * Returns the number of timers scheduled in the timer wheel.
+     *
+     * @return the number of parked sessions waiting for a transition, 0 in per-tick mode
+     */
+    public int scheduledTimers() {
+        return wheel == null ? 0 : wheel.size();
+    }
+
+    /**
+     * Schedules the timer of a factory (called by the factory on the owning thread).
+     *
+     * @param timer    the timer
+     * @param deadline the scheduler time at which it fires
+     */
+    void scheduleTimer(TimerWheel.Timer timer, double deadline) {
+        wheel.schedule(timer, deadline);
+    }
+
+    /**
+     * Notifies the factory of a fired timer; a failure does not prevent the other timers from firing.
+     *
+     * @param timer the fired timer
+     */
+    private void fire(TimerWheel.Timer timer) {
+        try {
+            Factory f = timer.owner;
+            f.onTimer(data);
+            // Session terminée : la fabrique revient dans le balayage au prochain tick
+            if (!f.isParked()) f.rouse();
+        } catch (RuntimeException e) {
+            if (timerFailure == null) timerFailure = e;
+        }
+    }
+
+    /**
+     * Hands the slot of a woken factory back to the scheduler (called by the factory, from any thread).
+     * The factory rejoins the sweep at the start of the next tick.
+     *
+     * @param slot the slot
+     */
+    void rouse(Sleeper slot) {
+        Sleeper head;
+        do {
+            head = woken.get();
+            slot.next = head;
+        } while (!woken.compareAndSet(head, slot));
+    }
+
+    /**
+     * Puts the factories woken since the last tick back into the sweep of their chunk.
+     * Slots dropped by a population change are ignored: the whole population is swept again anyway.
+     */
+    private void drainWoken() {
+        Sleeper slot = woken.getAndSet(null);
+        while (slot != null) {
+            Sleeper next = slot.next;
+            slot.next = null;
+            int i = slot.index;
+            if (i < sleepers.length && sleepers[i] == slot) chunks[i / chunkSize].activate(slot);
+            slot = next;
+        }
+    }
+
+    /**
+     * Cancels the timer of a factory (called by the factory on the owning thread).
+     *
+     * @param timer the timer
+     */
+    void cancelTimer(TimerWheel.Timer timer) {
+        wheel.cancel(timer);
+    }
+
+    /**
+     * Shuts the pool down. The scheduler cannot tick afterward.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (pool != null) pool.shutdown();
+    }
+
+    /**
+     * Splits the population into chunks of {@code chunkSize} factories.
+     */
+    private void rebuildChunks() {
+        int n = (size + chunkSize - 1) / chunkSize;
+        Chunk[] next = new Chunk[n];
+        for (int i = 0; i < n; i++) {
+            next[i] = new Chunk(i * chunkSize, Math.min(size, (i + 1) * chunkSize));
+        }
+        // Les emplacements de sommeil suivent les index : tout le monde revient dans le balayage
+        for (Sleeper slot : sleepers) {
+            if (slot != null) slot.factory.leaveSleep(slot);
+        }
+        sleepers = new Sleeper[size];
+        chunks = next;
+        chunksStale = false;
+    }
+
+    /**
+     * Timing statistics of a tick.
+     *
+     * @param wallNanos     the time the tick took, from start to the last fired timer
+     * @param busyNanos     the time spent updating factories, summed over all chunks
+     * @param maxChunkNanos the time of the slowest chunk
+     * @param factories     the number of factories in the population
+     * @param dormant       the number of dormant factories skipped
+     * @param parked        the number of factories skipped because their session is parked on the timer wheel
+     * @param timersFired   the number of timer wheel transitions fired
+     * @param chunks        the number of chunks
+     */
+    public record TickStats(long wallNanos, long busyNanos, long maxChunkNanos, int factories, int dormant,
+                            int parked, int timersFired, int chunks) {
+
+        /**
+         * Statistics of no tick.
+         */
+        public static final TickStats NONE = new TickStats(0L, 0L, 0L, 0, 0, 0, 0, 0);
+
+        /**
+         * Returns the average update time per factory.
+         *
+         * @return the nanoseconds per factory, 0 if no factory was updated
+         */
+        public double nanosPerFactory() {
+            return factories == 0 ? 0d : (double) busyNanos / factories;
+        }
+    }
+
+    /**
+     * Root task of a parallel tick: forks every chunk and waits for them.
+     */
+    private static final class TickAll extends RecursiveAction {
+
+        /**
+         * Tick tasks are never serialized.
+         */
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The chunks to tick.
+         */
+        private final Chunk[] chunks;
+
+        /**
+         * Constructs the root task.
+         */
+        TickAll(Chunk[] chunks) {
+            this.chunks = chunks;
+        }
+
+        /**
+         * Ticks the chunks.
+         */
+        @Override
+        protected void compute() {
+            for (Chunk c : chunks) c.reinitialize();
+            ForkJoinTask.invokeAll(chunks);
+        }
+    }
+
+    /**
+     * A fixed range of the population, updated by one task.
+     * Chunks never throw: failures are kept and rethrown by {@link #tick(float)}.
+     */
+    private final class Chunk extends RecursiveAction {
+
+        /**
+         * Chunks are never serialized: their working lists are transient.
+         */
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * First population index of the chunk.
+         */
+        final int from;
+
+        /**
+         * Population index after the last factory of the chunk.
+         */
+        final int to;
+
+        /**
+         * Factories whose outputs were collected in deterministic mode, delivered after the tick.
+         */
+        transient final List<Factory> pendingFactories = new ArrayList<>();
+
+        /**
+         * Outputs collected in deterministic mode, parallel to {@link #pendingFactories}.
+         */
+        transient final List<List<MaterialInstance>> pendingOutputs = new ArrayList<>();
+
+        /**
+         * Time spent in the last tick.
+         */
+        long nanos;
+
+        /**
+         * Number of dormant factories skipped in the last tick.
+         */
+        int dormant;
+
+        /**
+         * Number of parked factories skipped in the last tick.
+         */
+        int parked;
+
+        /**
+         * Factories of the chunk still in its sweep, one bit per factory from {@link #from}.
+         */
+        final long[] active;
+
+        /**
+         * Number of dormant factories out of the sweep.
+         */
+        int sleepingDormant;
+
+        /**
+         * Number of parked factories out of the sweep.
+         */
+        int sleepingParked;
+
+        /**
+         * Factories whose timer changed in the last tick (to schedule or cancel).
+         */
+        transient final List<Factory> parking = new ArrayList<>();
+
+        /**
+         * First failure of the last tick, if any.
+         */
+        RuntimeException failure;
+
+        /**
+         * Constructs a chunk.
+         */
+        Chunk(int from, int to) {
+            this.from = from;
+            this.to = to;
+            this.active = new long[(to - from + 63) >>> 6];
+            activateAll();
+        }
+
+        /**
+         * Puts every factory of the chunk back into the sweep.
+         */
+        void activateAll() {
+            Arrays.fill(active, -1L);
+            int tail = (to - from) & 63;
+            if (tail != 0) active[active.length - 1] = (1L << tail) - 1;
+            sleepingDormant = 0;
+            sleepingParked = 0;
+        }
+
+        /**
+         * Puts a woken factory back into the sweep.
+         *
+         * @param slot the slot of the factory
+         */
+        void activate(Sleeper slot) {
+            int k = slot.index - from;
+            long bit = 1L << k;
+            if ((active[k >>> 6] & bit) != 0) return;
+            active[k >>> 6] |= bit;
+            if (slot.parked) sleepingParked--;
+            else sleepingDormant--;
+        }
+
+        /**
+         * Updates the factories of the chunk, in order.
+         */
+        @Override
+        protected void compute() {
+            long start = System.nanoTime();
+            Factory[] fs = factories;
+            float dt = tickDt;
+            BiConsumer<Factory, List<MaterialInstance>> sink = outputSink;
+            int asleep = 0;
+            int waiting = 0;
+            long[] bits = active;
+            for (int w = 0; w < bits.length; w++) {
+                long word = bits[w];
+                while (word != 0) {
+                    int b = Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    Factory f = fs[from + (w << 6) + b];
+                    // Des événements postés réveillent la fabrique pour cette mise à jour
+                    if (!f.hasPendingEvents()) {
+                        boolean idle = f.isDormant(data);
+                        if (idle || f.isParked()) {
+                            if (!sleep(f, w, b, idle)) {
+                                if (idle) asleep++;
+                                else waiting++;
+                            }
+                            continue;
+                        }
+                    }
+                    try {
+                        f.update(dt, data);
+                        if (f.hasPendingDeadline()) parking.add(f);
+                        if (sink != null && f.hasOutputs()) {
+                            if (deterministic) {
+                                pendingFactories.add(f);
+                                pendingOutputs.add(f.extractAllOutputs());
+                            } else {
+                                sink.accept(f, f.extractAllOutputs());
+                            }
+                        }
+                    } catch (RuntimeException e) {
+                        if (failure == null) failure = e;
+                    }
+                }
+            }
+            dormant = asleep;
+            parked = waiting;
+            nanos = System.nanoTime() - start;
+        }
+
+        /**
+         * Takes a dormant or parked factory out of the sweep until it is woken.
+         *
+         * @param f    the factory
+         * @param w    the word of its bit in {@link #active}
+         * @param b    its bit in the word
+         * @param idle whether the factory is dormant rather than parked
+         * @return false if the factory stays in the sweep (an event was posted meanwhile, or it sleeps elsewhere)
+         */
+        private boolean sleep(Factory f, int w, int b, boolean idle) {
+            int i = from + (w << 6) + b;
+            Sleeper slot = sleepers[i];
+            if (slot == null) sleepers[i] = slot = new Sleeper(FactoryScheduler.this, f, i);
+            if (!f.sleepIn(slot)) return false;
+            // Hors du balayage jusqu'à son réveil
+            active[w] &= ~(1L << b);
+            slot.parked = !idle;
+            if (idle) sleepingDormant++;
+            else sleepingParked++;
+            return true;
+        }
+
+        /**
+         * Delivers the collected outputs to the sink, in population order.
+         */
+        void deliver() {
+            BiConsumer<Factory, List<MaterialInstance>> sink = outputSink;
+            for (int i = 0; i < pendingFactories.size(); i++) {
+                try {
+                    sink.accept(pendingFactories.get(i), pendingOutputs.get(i));
+                } catch (RuntimeException e) {
+                    if (failure == null) failure = e;
+                }
+            }
+            pendingFactories.clear();
+            pendingOutputs.clear();
+        }
+    }
+
+    /**
+     * Sleep slot of a factory in the population: taken by the factory when it leaves the sweep,
+     * handed back when it is woken. Created once per population index, reused for every sleep.
+     */
+    static final class Sleeper {
+
+        /**
+         * The scheduler owning the slot.
+         */
+        final FactoryScheduler scheduler;
+
+        /**
+         * The sleeping factory.
+         */
+        final Factory factory;
+
+        /**
+         * Population index of the factory.
+         */
+        final int index;
+
+        /**
+         * Whether the factory left the sweep with a parked session rather than dormant.
+         */
+        boolean parked;
+
+        /**
+         * Next slot in the stack of woken factories.
+         */
+        Sleeper next;
+
+        /**
+         * Constructs a slot.
+         */
+        Sleeper(FactoryScheduler scheduler, Factory factory, int index) {
+            this.scheduler = scheduler;
+            this.factory = factory;
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,914 @@
+package fr.olympus.hephaestus.factory;
+
+import fr.olympus.hephaestus.materials.MaterialInstance;
+import fr.olympus.hephaestus.processing.ProcessRecipe;
+import fr.olympus.hephaestus.resources.HephaestusData;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+import static fr.olympus.hephaestus.resources.HephaestusData.NO_HANDLE;
+
+/**
+ * Versioned binary codec of factory state: registry type, operating flag, session (recipe and elapsed time),
+ * contents and outputs.
+ * <p>
+ * Records refer to factories, recipes and materials by registry handle; a palette written after the records maps
+ * the handles used to their IDs, so a snapshot still loads after registrations were added or reordered.
+ * Voxel arrays are stored as runs of equal bytes over the flattened array (jagged arrays included), counts and
+ * handles as variable-length integers. Layout (big-endian): magic, version, factory count, palette offset,
+ * records, palette.
+ * <p>
+ * The same records, keyed and written as puts, updates and removals, form the batches of {@link FactoryJournal}.
+ * <p>
+ * A codec keeps scratch state between calls and is not thread-safe: use one per saving thread.
+ */
+public final class FactorySnapshotCodec {
+
+    /**
+     * Magic number of factory snapshots.
+     */
+    private static final int MAGIC = 0x48504653;
+
+    /**
+     * Magic number of change batches.
+     */
+    private static final int BATCH_MAGIC = 0x48504642;
+
+    /**
+     * Version of the snapshot format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Size of the header: magic, version, factory count, palette offset.
+     */
+    private static final int HEADER = 16;
+
+    /**
+     * Capacity of the buffer allocated when none is given.
+     */
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * Largest registry handle accepted when reading a palette.
+     */
+    private static final int MAX_HANDLE = 1 << 24;
+
+    /**
+     * Largest number of rows ({@code x * y}) of a voxel array, written or read.
+     */
+    static final int MAX_VOXEL_ROWS = 1 << 20;
+
+    /**
+     * Largest number of voxels of a voxel array, written or read.
+     */
+    static final int MAX_VOXELS = 1 << 24;
+
+    /**
+     * Record flag: the factory was operating.
+     */
+    private static final int OPERATING = 1;
+
+    /**
+     * Record flag: a session follows.
+     */
+    private static final int SESSION = 2;
+
+    /**
+     * Voxel shape: rectangular array, three dimensions follow.
+     */
+    private static final int RECT = 0;
+
+    /**
+     * Voxel shape: jagged array, the length of each row follows.
+     */
+    private static final int JAGGED = 1;
+
+    /**
+     * Batch operation: a new factory, full record.
+     */
+    private static final int PUT = 0;
+
+    /**
+     * Batch operation: operating flag and session of a known factory, then the dirty sections.
+     */
+    private static final int UPDATE = 1;
+
+    /**
+     * Batch operation: a removed factory.
+     */
+    private static final int REMOVE = 2;
+
+    /**
+     * Update section: the contents follow.
+     */
+    private static final int WITH_CONTENTS = 1;
+
+    /**
+     * Update section: the outputs follow.
+     */
+    private static final int WITH_OUTPUTS = 2;
+
+    /**
+     * The registry whose handles are written.
+     */
+    private final HephaestusData data;
+
+    /**
+     * Factory handles used by the snapshot being written.
+     */
+    private final Palette factories;
+
+    /**
+     * Recipe handles used by the snapshot being written.
+     */
+    private final Palette recipes;
+
+    /**
+     * Material handles used by the snapshot being written.
+     */
+    private final Palette materials;
+
+    /**
+     * Buffer being written.
+     */
+    private ByteBuffer out;
+
+    /**
+     * Constructs a codec for the handles of a registry.
+     *
+     * @param data The registry.
+     * @throws IllegalArgumentException if data is null.
+     */
+    public FactorySnapshotCodec(HephaestusData data) {
+        if (data == null) throw new IllegalArgumentException("data cannot be null.");
+        this.data = data;
+        this.factories = new Palette(data::factoryId);
+        this.recipes = new Palette(h -> data.getProcessRecipeByHandle(h).recipe().id());
+        this.materials = new Palette(data::materialId);
+    }
+
+    /**
+     * Writes the snapshot of one factory (see {@link #encode(Collection, ByteBuffer)}).
+     *
+     * @param factory The factory.
+     * @param buffer  The buffer to reuse, or null to allocate one.
+     * @return The buffer holding the snapshot, flipped for reading.
+     * @throws IllegalArgumentException if factory is null or was not created by the registry.
+     */
+    public ByteBuffer encode(Factory factory, ByteBuffer buffer) {
+        if (factory == null) throw new IllegalArgumentException("factory cannot be null.");
+        return encode(List.of(factory), buffer);
+    }
+
+    /**
+     * Writes the snapshot of factories into a buffer, from its start.
+     * The buffer is cleared and switched to big-endian; when too small, the snapshot continues in a larger
+     * buffer of the same kind (heap or direct), which is returned and can be reused by the next call.
+     * Sessions of recipes outside the registry are not saved: such factories select a recipe again once loaded.
+     *
+     * @param list   The factories, all created by the registry of the codec.
+     * @param buffer The buffer to reuse, or null to allocate one.
+     * @return The buffer holding the snapshot, flipped for reading.
+     * @throws IllegalArgumentException if list is null or holds a factory not created by the registry.
+     */
+    public ByteBuffer encode(Collection<? extends Factory> list, ByteBuffer buffer) {
+        if (list == null) throw new IllegalArgumentException("factories cannot be null.");
+        begin(MAGIC, buffer);
+        try {
+            for (Factory f : list) writeFactory(f);
+            return end(list.size());
+        } finally {
+            out = null;
+        }
+    }
+
+    /**
+     * Reads a snapshot written by {@link #encode(Collection, ByteBuffer)}, from the position of the buffer,
+     * and creates the factories through the registry. The position ends after the snapshot.
+     * Materials unknown to the registry are restored without handle; a session whose recipe is unknown or no
+     * longer attached to the factory is dropped.
+     *
+     * @param buffer The buffer.
+     * @return The factories, in saved order.
+     * @throws IllegalArgumentException if buffer is null, is not a snapshot of a supported version, is corrupted,
+     *                                  or names a factory unknown to the registry.
+     */
+    public List<Factory> decode(ByteBuffer buffer) {
+        if (buffer == null) throw new IllegalArgumentException("buffer cannot be null.");
+        try {
+            Reader r = new Reader(buffer, MAGIC);
+            List<Factory> list = new ArrayList<>(Math.min(r.count, r.paletteAt));
+            for (int i = 0; i < r.count; i++) list.add(r.readFactory());
+            r.finish(buffer);
+            return list;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw corrupted(e);
+        }
+    }
+
+    // ---- lots de changements (journal) ----
+
+    /**
+     * Starts a batch of changes in a buffer (see {@link #encode(Collection, ByteBuffer)} for the buffer reuse).
+     *
+     * @param buffer The buffer to reuse, or null to allocate one.
+     */
+    void beginBatch(ByteBuffer buffer) {
+        begin(BATCH_MAGIC, buffer);
+    }
+
+    /**
+     * Writes a new factory to the batch.
+     *
+     * @param key     The key of the factory.
+     * @param factory The factory.
+     */
+    void writePut(long key, Factory factory) {
+        ensure(1);
+        out.put((byte) PUT);
+        varlong(key);
+        writeFactory(factory);
+    }
+
+    /**
+     * Writes the operating flag and session of a factory to the batch, with its contents and outputs if dirty.
+     *
+     * @param key     The key of the factory.
+     * @param factory The factory.
+     * @param dirty   The dirty flags of the factory.
+     */
+    void writeUpdate(long key, Factory factory, int dirty) {
+        int sections = ((dirty & Factory.DIRTY_CONTENTS) != 0 ? WITH_CONTENTS : 0)
+                | ((dirty & Factory.DIRTY_OUTPUTS) != 0 ? WITH_OUTPUTS : 0);
+        ensure(1);
+        out.put((byte) UPDATE);
+        varlong(key);
+        ensure(1);
+        out.put((byte) sections);
+        writeState(factory, (sections & WITH_CONTENTS) != 0, (sections & WITH_OUTPUTS) != 0);
+    }
+
+    /**
+     * Writes the removal of a factory to the batch.
+     *
+     * @param key The key of the factory.
+     */
+    void writeRemove(long key) {
+        ensure(1);
+        out.put((byte) REMOVE);
+        varlong(key);
+    }
+
+    /**
+     * Ends the batch.
+     *
+     * @param count The number of changes written.
+     * @return The buffer holding the batch, flipped for reading.
+     */
+    ByteBuffer endBatch(int count) {
+        try {
+            return end(count);
+        } finally {
+            out = null;
+        }
+    }
+
+    /**
+     * Reads a batch of changes and applies it, in order. Factories of puts are created through the registry,
+     * updates are applied to the factories already known under their key.
+     *
+     * @param buffer  The buffer, read from its position to the end of the batch.
+     * @param changes The factories by key.
+     * @throws IllegalArgumentException if the batch is corrupted, names a factory unknown to the registry, or updates
+     *                                  an unknown key.
+     */
+    void decodeBatch(ByteBuffer buffer, Changes changes) {
+        try {
+            Reader r = new Reader(buffer, BATCH_MAGIC);
+            for (int i = 0; i < r.count; i++) {
+                int op = r.in.get();
+                long key = varlong(r.in);
+                switch (op) {
+                    case PUT -> changes.put(key, r.readFactory());
+                    case UPDATE -> {
+                        Factory f = changes.get(key);
+                        if (f == null) throw corrupted(null);
+                        int sections = r.in.get();
+                        r.readState(f, (sections & WITH_CONTENTS) != 0, (sections & WITH_OUTPUTS) != 0);
+                    }
+                    case REMOVE -> changes.remove(key);
+                    default -> throw corrupted(null);
+                }
+            }
+            r.finish(buffer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw corrupted(e);
+        }
+    }
+
+    // ---- écriture ----
+
+    /**
+     * Starts a snapshot or batch: header with the count and palette offset left to {@link #end(int)}.
+     */
+    private void begin(int magic, ByteBuffer buffer) {
+        out = (buffer == null ? ByteBuffer.allocate(DEFAULT_CAPACITY) : buffer.clear()).order(ByteOrder.BIG_ENDIAN);
+        factories.clear();
+        recipes.clear();
+        materials.clear();
+        ensure(HEADER);
+        out.putInt(magic).putInt(VERSION).putInt(0).putInt(0);
+    }
+
+    /**
+     * Ends a snapshot or batch: fills the header and writes the palette.
+     */
+    private ByteBuffer end(int count) {
+        // La palette suit les enregistrements : on connaît alors les handles utilisés
+        out.putInt(8, count);
+        out.putInt(12, out.position());
+        writePalette(factories);
+        writePalette(recipes);
+        writePalette(materials);
+        return out.flip();
+    }
+
+    /**
+     * Writes the record of a factory.
+     */
+    private void writeFactory(Factory f) {
+        if (f == null) throw new IllegalArgumentException("factories cannot contain null.");
+        int h = f.getRegistryHandle();
+        if (h < 0) throw new IllegalArgumentException("Factory was not created by the registry: " + f.getClass().getName());
+        factories.mark(h);
+        varint(h);
+        writeState(f, true, true);
+    }
+
+    /**
+     * Writes the operating flag and session of a factory, then its contents and outputs if asked.
+     */
+    private void writeState(Factory f, boolean withContents, boolean withOutputs) {
+        ProcessRecipe r = f.getSessionRecipe();
+        int rh = r == null ? NO_HANDLE : data.recipeHandle(r.id());
+        int flags = (f.isOperating ? OPERATING : 0) | (rh != NO_HANDLE ? SESSION : 0);
+        ensure(5);
+        out.put((byte) flags);
+        if (rh != NO_HANDLE) {
+            recipes.mark(rh);
+            varint(rh);
+            ensure(4);
+            out.putFloat(f.getElapsed());
+        }
+
+        if (withContents) writeInstances(f.contents);
+        if (withOutputs) writeInstances(f.outputs);
+    }
+
+    /**
+     * Writes a list of material instances.
+     */
+    private void writeInstances(List<MaterialInstance> list) {
+        int n = list.size();
+        varint(n);
+        for (int i = 0; i < n; i++) {
+            MaterialInstance m = list.get(i);
+            int h = data.materialHandle(m);
+            if (h == NO_HANDLE) {
+                // Matériau hors registre : l'ID est écrit en clair
+                varint(0);
+                string(m.materialId().getBytes(StandardCharsets.UTF_8));
+            } else {
+                materials.mark(h);
+                varint(h + 1);
+            }
+            writeVoxels(m.voxels());
+        }
+    }
+
+    /**
+     * Writes the shape of a voxel array, then its bytes as runs (length, value) in x, y, z order.
+     */
+    private void writeVoxels(byte[][][] v) {
+        int sx = v.length;
+        // Refusé à l'écriture plutôt qu'à la relecture
+        long rows = 0;
+        long voxels = 0;
+        for (byte[][] plane : v) {
+            rows += row(plane).length;
+            for (byte[] row : plane) voxels += row(row).length;
+        }
+        if (rows > MAX_VOXEL_ROWS || voxels > MAX_VOXELS) throw new IllegalStateException("Voxel array too large.");
+        boolean rect = isRectangular(v);
+        ensure(1);
+        out.put((byte) (rect ? RECT : JAGGED));
+        varint(sx);
+        if (rect) {
+            int sy = sx == 0 ? 0 : v[0].length;
+            varint(sy);
+            varint(sy == 0 ? 0 : v[0][0].length);
+        } else {
+            for (byte[][] plane : v) {
+                varint(plane.length);
+                for (byte[] row : plane) varint(row.length);
+            }
+        }
+
+        int run = 0;
+        byte value = 0;
+        for (byte[][] plane : v) {
+            for (byte[] row : plane) {
+                for (byte b : row) {
+                    if (run > 0 && b == value) {
+                        run++;
+                    } else {
+                        if (run > 0) writeRun(run, value);
+                        value = b;
+                        run = 1;
+                    }
+                }
+            }
+        }
+        if (run > 0) writeRun(run, value);
+    }
+
+    /**
+     * Checks that all the planes and rows of a voxel array have the same lengths.
+     */
+    private static boolean isRectangular(byte[][][] v) {
+        if (v.length == 0) return true;
+        int sy = row(v[0]).length;
+        int sz = sy == 0 ? 0 : row(v[0][0]).length;
+        for (byte[][] plane : v) {
+            if (row(plane).length != sy) return false;
+            for (byte[] r : plane) {
+                if (row(r).length != sz) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rejects null planes and rows of voxel arrays.
+     */
+    private static <T> T row(T r) {
+        if (r == null) throw new IllegalArgumentException("voxels cannot contain null rows.");
+        return r;
+    }
+
+    /**
+     * Writes a run of equal voxel bytes.
+     */
+    private void writeRun(int length, byte value) {
+        varint(length);
+        ensure(1);
+        out.put(value);
+    }
+
+    /**
+     * Writes the handles of a palette with their IDs.
+     */
+    private void writePalette(Palette p) {
+        varint(p.size);
+        for (int i = 0; i < p.size; i++) {
+            int h = p.used[i];
+            varint(h);
+            string(p.idBytes(h));
+        }
+    }
+
+    /**
+     * Writes UTF-8 bytes prefixed by their length.
+     */
+    private void string(byte[] bytes) {
+        varint(bytes.length);
+        ensure(bytes.length);
+        out.put(bytes);
+    }
+
+    /**
+     * Writes a non-negative int on 1 to 5 bytes, 7 bits per byte.
+     */
+    private void varint(int v) {
+        ensure(5);
+        while ((v & ~0x7F) != 0) {
+            out.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.put((byte) v);
+    }
+
+    /**
+     * Writes a non-negative long on 1 to 10 bytes, 7 bits per byte.
+     */
+    private void varlong(long v) {
+        ensure(10);
+        while ((v & ~0x7FL) != 0) {
+            out.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.put((byte) v);
+    }
+
+    /**
+     * Makes room for n more bytes, moving the snapshot to a larger buffer if needed.
+     */
+    private void ensure(int n) {
+        if (out.remaining() >= n) return;
+        long needed = (long) out.position() + n;
+        if (needed > Integer.MAX_VALUE - 8) throw new IllegalStateException("Snapshot too large.");
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, 2L * out.capacity()));
+        ByteBuffer next = out.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        next.order(ByteOrder.BIG_ENDIAN).put(out.flip());
+        out = next;
+    }
+
+    // ---- lecture ----
+
+    /**
+     * Reads a voxel array written by {@link #writeVoxels(byte[][][])}.
+     */
+    private static byte[][][] readVoxels(ByteBuffer in) {
+        int shape = in.get();
+        int sx = varint(in);
+        byte[][][] v;
+        // Chaque dimension est bornée séparément : une dimension nulle n'annule pas les autres
+        if (sx > MAX_VOXEL_ROWS) throw corrupted(null);
+        if (shape == RECT) {
+            int sy = varint(in);
+            int sz = varint(in);
+            if ((long) sx * sy > MAX_VOXEL_ROWS || (long) sx * sy * sz > MAX_VOXELS) throw corrupted(null);
+            v = new byte[sx][sy][sz];
+        } else if (shape == JAGGED) {
+            if (sx > in.remaining()) throw corrupted(null);
+            v = new byte[sx][][];
+            long rows = 0;
+            long voxels = 0;
+            for (int x = 0; x < sx; x++) {
+                int sy = varint(in);
+                rows += sy;
+                if (sy > in.remaining() || rows > MAX_VOXEL_ROWS) throw corrupted(null);
+                v[x] = new byte[sy][];
+                for (int y = 0; y < sy; y++) {
+                    int sz = varint(in);
+                    voxels += sz;
+                    if (voxels > MAX_VOXELS) throw corrupted(null);
+                    v[x][y] = new byte[sz];
+                }
+            }
+        } else {
+            throw corrupted(null);
+        }
+
+        int run = 0;
+        byte value = 0;
+        for (byte[][] plane : v) {
+            for (byte[] row : plane) {
+                int z = 0;
+                while (z < row.length) {
+                    if (run == 0) {
+                        run = varint(in);
+                        value = in.get();
+                        if (run == 0) throw corrupted(null);
+                    }
+                    int k = Math.min(run, row.length - z);
+                    if (value != 0) Arrays.fill(row, z, z + k, value);
+                    z += k;
+                    run -= k;
+                }
+            }
+        }
+        if (run != 0) throw corrupted(null);
+        return v;
+    }
+
+    /**
+     * Reads a palette and resolves its IDs against the registry.
+     */
+    private static Remap readPalette(ByteBuffer in, ToIntFunction<String> resolve) {
+        int n = varint(in);
+        if (n > in.remaining()) throw corrupted(null);
+        int[] saved = new int[n];
+        String[] ids = new String[n];
+        int max = -1;
+        for (int i = 0; i < n; i++) {
+            saved[i] = varint(in);
+            if (saved[i] > MAX_HANDLE) throw corrupted(null);
+            ids[i] = string(in);
+            max = Math.max(max, saved[i]);
+        }
+
+        int[] handles = new int[max + 1];
+        String[] byHandle = new String[max + 1];
+        Arrays.fill(handles, NO_HANDLE);
+        for (int i = 0; i < n; i++) {
+            handles[saved[i]] = resolve.applyAsInt(ids[i]);
+            byHandle[saved[i]] = ids[i];
+        }
+        return new Remap(handles, byHandle);
+    }
+
+    /**
+     * Reads UTF-8 bytes prefixed by their length.
+     */
+    private static String string(ByteBuffer in) {
+        int n = varint(in);
+        if (n > in.remaining()) throw corrupted(null);
+        byte[] bytes = new byte[n];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a long written by {@link #varlong(long)}.
+     */
+    private static long varlong(ByteBuffer in) {
+        long v = 0;
+        for (int shift = 0; shift < 63; shift += 7) {
+            byte b = in.get();
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return v;
+        }
+        throw corrupted(null);
+    }
+
+    /**
+     * Reads an int written by {@link #varint(int)}.
+     */
+    private static int varint(ByteBuffer in) {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            v |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (v < 0) throw corrupted(null);
+                return v;
+            }
+        }
+        throw corrupted(null);
+    }
+
+    /**
+     * Builds the exception of a corrupted snapshot.
+     */
+    private static IllegalArgumentException corrupted(RuntimeException cause) {
+        return new IllegalArgumentException("Corrupted factory snapshot.", cause);
+    }
+
+    /**
+     * Factories of a journal by key, as changed by the batches read.
+     */
+    interface Changes {
+
+        /**
+         * Gets a factory.
+         *
+         * @param key The key.
+         * @return The factory, or null if unknown.
+         */
+        Factory get(long key);
+
+        /**
+         * Adds or replaces a factory.
+         *
+         * @param key     The key.
+         * @param factory The factory.
+         */
+        void put(long key, Factory factory);
+
+        /**
+         * Removes a factory.
+         *
+         * @param key The key.
+         */
+        void remove(long key);
+    }
+
+    /**
+     * Reading of a snapshot or batch: header and palette, then the records from {@link #HEADER}.
+     */
+    private final class Reader {
+
+        /**
+         * The snapshot or batch, starting at index 0.
+         */
+        final ByteBuffer in;
+
+        /**
+         * Number of records.
+         */
+        final int count;
+
+        /**
+         * Offset of the palette, where the records end.
+         */
+        final int paletteAt;
+
+        /**
+         * Offset of the end of the palette.
+         */
+        final int end;
+
+        /**
+         * Saved factory handles mapped to the registry.
+         */
+        final Remap factoryMap;
+
+        /**
+         * Saved recipe handles mapped to the registry.
+         */
+        final Remap recipeMap;
+
+        /**
+         * Saved material handles mapped to the registry.
+         */
+        final Remap materialMap;
+
+        /**
+         * Reads the header and palette of the snapshot or batch starting at the position of the buffer.
+         */
+        Reader(ByteBuffer buffer, int magic) {
+            in = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+            if (in.remaining() < HEADER || in.getInt() != magic) {
+                throw new IllegalArgumentException(magic == MAGIC ? "Not a factory snapshot." : "Not a factory change batch.");
+            }
+            int version = in.getInt();
+            if (version != VERSION) throw new IllegalArgumentException("Unsupported snapshot version: " + version);
+            count = in.getInt();
+            paletteAt = in.getInt();
+            if (count < 0 || paletteAt < HEADER || paletteAt > in.limit()) throw corrupted(null);
+
+            in.position(paletteAt);
+            factoryMap = readPalette(in, data::factoryHandle);
+            recipeMap = readPalette(in, data::recipeHandle);
+            materialMap = readPalette(in, data::materialHandle);
+            end = in.position();
+            in.position(HEADER);
+        }
+
+        /**
+         * Checks that the records ended at the palette and moves the buffer after the palette.
+         */
+        void finish(ByteBuffer buffer) {
+            if (in.position() != paletteAt) throw corrupted(null);
+            buffer.position(buffer.position() + end);
+        }
+
+        /**
+         * Reads the record of a factory and creates it.
+         */
+        Factory readFactory() {
+            int saved = varint(in);
+            int h = factoryMap.handle(saved);
+            if (h == NO_HANDLE) throw new IllegalArgumentException("Unknown factory id in snapshot: " + factoryMap.id(saved));
+            Factory f = data.createFactory(h);
+            readState(f, true, true);
+            return f;
+        }
+
+        /**
+         * Reads the operating flag and session of a factory, then its contents and outputs if present, and
+         * restores them.
+         */
+        void readState(Factory f, boolean withContents, boolean withOutputs) {
+            int flags = in.get();
+            ProcessRecipe recipe = null;
+            float elapsed = 0f;
+            if ((flags & SESSION) != 0) {
+                int rh = recipeMap.handle(varint(in));
+                elapsed = in.getFloat();
+                if (rh != NO_HANDLE) recipe = data.getProcessRecipeByHandle(rh).recipe();
+                // La recette a pu être détachée de cette usine depuis la sauvegarde
+                if (recipe != null && !f.getRecipes().contains(recipe)) recipe = null;
+            }
+
+            if (withContents) readInstances(f.contents);
+            if (withOutputs) readInstances(f.outputs);
+            f.restore((flags & OPERATING) != 0, recipe, elapsed);
+        }
+
+        /**
+         * Reads a list of material instances, replacing the elements of a list.
+         */
+        private void readInstances(List<MaterialInstance> into) {
+            int n = varint(in);
+            if (n > in.remaining()) throw corrupted(null);
+            into.clear();
+            for (int i = 0; i < n; i++) {
+                int code = varint(in);
+                String id;
+                int h;
+                if (code == 0) {
+                    id = string(in);
+                    h = data.materialHandle(id);
+                } else {
+                    h = materialMap.handle(code - 1);
+                    id = h == NO_HANDLE ? materialMap.id(code - 1) : null;
+                }
+                byte[][][] voxels = readVoxels(in);
+                into.add(h == NO_HANDLE ? new MaterialInstance(id, voxels) : data.newMaterialInstance(h, voxels));
+            }
+        }
+    }
+
+    /**
+     * Registry handles used by the snapshot being written, in first use order.
+     */
+    private static final class Palette {
+
+        /**
+         * ID of a handle in the registry.
+         */
+        private final IntFunction<String> idOf;
+
+        /**
+         * Whether each handle is used.
+         */
+        private boolean[] seen = new boolean[0];
+
+        /**
+         * UTF-8 ID of each handle, cached (the ID of a handle never changes).
+         */
+        private byte[][] ids = new byte[0][];
+
+        /**
+         * Used handles.
+         */
+        private int[] used = new int[16];
+
+        /**
+         * Number of used handles.
+         */
+        private int size;
+
+        Palette(IntFunction<String> idOf) {
+            this.idOf = idOf;
+        }
+
+        /**
+         * Records the use of a handle.
+         */
+        void mark(int h) {
+            if (h >= seen.length) {
+                int n = Math.max(h + 1, 2 * seen.length);
+                seen = Arrays.copyOf(seen, n);
+                ids = Arrays.copyOf(ids, n);
+            }
+            if (seen[h]) return;
+            seen[h] = true;
+            if (size == used.length) used = Arrays.copyOf(used, 2 * size);
+            used[size++] = h;
+        }
+
+        /**
+         * Returns the UTF-8 ID of a handle.
+         */
+        byte[] idBytes(int h) {
+            byte[] b = ids[h];
+            if (b == null) ids[h] = b = idOf.apply(h).getBytes(StandardCharsets.UTF_8);
+            return b;
+        }
+
+        /**
+         * Forgets the used handles.
+         */
+        void clear() {
+            for (int i = 0; i < size; i++) seen[used[i]] = false;
+            size = 0;
+        }
+    }
+
+    /**
+     * Saved handles of a palette mapped to the current registry.
+     *
+     * @param handles current handle of each saved handle, {@link HephaestusData#NO_HANDLE} if unknown
+     * @param ids     saved ID of each saved handle
+     */
+    private record Remap(int[] handles, String[] ids) {
+
+        /**
+         * Maps a saved handle to the current registry.
+         */
+        int handle(int saved) {
+            if (saved >= handles.length || ids[saved] == null) throw corrupted(null);
+            return handles[saved];
+        }
+
+        /**
+         * Returns the saved ID of a saved handle.
+         */
+        String id(int saved) {
+            return ids[saved];
+        }
+    }
+}
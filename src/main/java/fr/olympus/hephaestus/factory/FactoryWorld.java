@@ -0,0 +1,631 @@
+package fr.olympus.hephaestus.factory;
+
+import fr.olympus.hephaestus.materials.MaterialInstance;
+import fr.olympus.hephaestus.processing.FactoryEvent;
+import fr.olympus.hephaestus.processing.ProcessContext;
+import fr.olympus.hephaestus.processing.ProcessRecipe;
+import fr.olympus.hephaestus.processing.ProcessingPhase;
+import fr.olympus.hephaestus.processing.TimeWindow;
+import fr.olympus.hephaestus.resources.HephaestusData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Struct-of-arrays container of registry factories, for populations too large for one {@link Factory} object each.
+ * <p>
+ * A factory of the world is an int handle. Its hot state lives in parallel primitive arrays indexed by that handle
+ * (operating flag, registry type, current recipe index, elapsed time, phase); its contents and outputs are cold
+ * state, allocated on first use. No Factory subclass is instantiated: the world runs the registry recipes of
+ * each type with the behavior of {@link Factory} (overrides of a Factory subclass do not apply).
+ * <p>
+ * {@link #tick(float)} is a linear sweep: start sessions on idle factories, advance every elapsed time and
+ * compute every phase (branch-free loops over the arrays), then call the recipes of the sessions that need it.
+ * Like sessions driven by a timer wheel (see {@link FactoryScheduler}), a session whose recipe does not need
+ * per-tick calls ({@link ProcessRecipe#needsTicks()}) is only evaluated when it starts, when its phase changes
+ * and on events; other sessions are evaluated on every tick, as by {@link Factory#update}.
+ * <p>
+ * Handles of despawned factories are reused by later spawns. Not thread-safe: the owner serializes every call.
+ */
+public final class FactoryWorld {
+
+    /**
+     * Phases by ordinal.
+     */
+    private static final ProcessingPhase[] PHASES = ProcessingPhase.values();
+
+    /**
+     * Phase of a session not evaluated yet.
+     */
+    private static final byte NO_PHASE = -1;
+
+    /**
+     * Context of the factories without cold state (canStart only reads it).
+     */
+    private static final ProcessContext EMPTY = new ProcessContext(List.of(), List.of());
+
+    /**
+     * The registry of the factories.
+     */
+    private final HephaestusData data;
+
+    // --- Hot state, by factory handle ---
+    /**
+     * Registry handle of the factory type, -1 for a free handle.
+     */
+    private int[] type = new int[0];
+
+    /**
+     * Whether the factory is operating.
+     */
+    private boolean[] operating = new boolean[0];
+
+    /**
+     * Whether no recipe could start at the last attempt (see {@link Factory#isDormant(HephaestusData)}).
+     */
+    private boolean[] dormant = new boolean[0];
+
+    /**
+     * Index of the session recipe in the recipes of the type, -1 without session.
+     */
+    private int[] recipe = new int[0];
+
+    /**
+     * Elapsed time of the session.
+     */
+    private float[] elapsed = new float[0];
+
+    /**
+     * 1 while a session runs, 0 otherwise: the sweep advances {@code elapsed += rate * dt} without branching.
+     */
+    private float[] rate = new float[0];
+
+    /**
+     * Minimum of the session time window (-infinity without window).
+     */
+    private float[] min = new float[0];
+
+    /**
+     * Maximum of the session time window (+infinity without window).
+     */
+    private float[] max = new float[0];
+
+    /**
+     * Phase ordinal computed by the last sweep.
+     */
+    private byte[] phase = new byte[0];
+
+    /**
+     * Phase ordinal at the last evaluation of the session ({@link #NO_PHASE} before the first one).
+     */
+    private byte[] seen = new byte[0];
+
+    /**
+     * Whether the session recipe needs per-tick calls.
+     */
+    private boolean[] ticked = new boolean[0];
+
+    // --- Cold state ---
+    /**
+     * Contents and outputs, by factory handle (null until needed).
+     */
+    private Cold[] cold = new Cold[0];
+
+    /**
+     * Empty cold state handed to the recipes of a factory without one; kept by the factory as soon as
+     * a recipe writes to it.
+     */
+    private Cold spare = new Cold();
+
+    /**
+     * Handles after the last one ever used: the sweeps stop there.
+     */
+    private int highWater;
+
+    /**
+     * Number of live factories.
+     */
+    private int live;
+
+    /**
+     * Free handles, reused by spawn.
+     */
+    private int[] free = new int[0];
+
+    /**
+     * Number of free handles.
+     */
+    private int freeCount;
+
+    /**
+     * Recipes of each factory type in selection order, loaded on first use.
+     */
+    private ProcessRecipe[][] typeRecipes = new ProcessRecipe[0][];
+
+    /**
+     * Registry epoch {@link #typeRecipes} was loaded at.
+     */
+    private long typesEpoch;
+
+    /**
+     * Constructs an empty world.
+     *
+     * @param data The registry of the factories.
+     * @throws IllegalArgumentException if data is null.
+     */
+    public FactoryWorld(HephaestusData data) {
+        if (data == null) throw new IllegalArgumentException("data cannot be null.");
+        this.data = data;
+        this.typesEpoch = data.epoch();
+        grow(16);
+    }
+
+    /**
+     * Spawns a stopped factory of a registry type.
+     *
+     * @param factoryHandle The registry handle of the factory type (see {@link HephaestusData#factoryHandle(String)}).
+     * @return The handle of the factory in this world.
+     * @throws IllegalArgumentException if the factory handle is unknown.
+     */
+    public int spawn(int factoryHandle) {
+        data.factoryId(factoryHandle);
+        int f;
+        if (freeCount > 0) {
+            f = free[--freeCount];
+        } else {
+            if (highWater == type.length) grow(type.length * 2);
+            f = highWater++;
+        }
+        type[f] = factoryHandle;
+        live++;
+        return f;
+    }
+
+    /**
+     * Spawns a stopped factory of a registry type.
+     *
+     * @param factoryId The registry ID of the factory type.
+     * @return The handle of the factory in this world.
+     * @throws IllegalArgumentException if the factory ID is unknown.
+     */
+    public int spawn(String factoryId) {
+        int h = data.factoryHandle(factoryId);
+        if (h == HephaestusData.NO_HANDLE) throw new IllegalArgumentException("Unknown factory id: " + factoryId);
+        return spawn(h);
+    }
+
+    /**
+     * Removes a factory, dropping its contents and outputs. Its handle may be reused by a later spawn.
+     *
+     * @param factory The handle of the factory.
+     * @throws IllegalArgumentException if the factory is not alive.
+     */
+    public void despawn(int factory) {
+        check(factory);
+        endSession(factory);
+        type[factory] = -1;
+        operating[factory] = false;
+        dormant[factory] = false;
+        cold[factory] = null;
+        if (freeCount == free.length) free = Arrays.copyOf(free, Math.max(16, freeCount * 2));
+        free[freeCount++] = factory;
+        live--;
+    }
+
+    /**
+     * Checks whether a handle designates a live factory.
+     *
+     * @param factory The handle.
+     * @return true if the factory is alive.
+     */
+    public boolean isAlive(int factory) {
+        return factory >= 0 && factory < highWater && type[factory] >= 0;
+    }
+
+    /**
+     * Returns the number of live factories.
+     *
+     * @return The number of factories.
+     */
+    public int size() {
+        return live;
+    }
+
+    /**
+     * Gets the registry handle of the type of a factory.
+     *
+     * @param factory The handle of the factory.
+     * @return The registry factory handle.
+     */
+    public int getRegistryHandle(int factory) {
+        check(factory);
+        return type[factory];
+    }
+
+    /**
+     * Starts the operation of a factory.
+     *
+     * @param factory The handle of the factory.
+     */
+    public void startFactory(int factory) {
+        check(factory);
+        operating[factory] = true;
+        dormant[factory] = false;
+    }
+
+    /**
+     * Stops the operation of a factory, ending its session.
+     *
+     * @param factory The handle of the factory.
+     */
+    public void stopFactory(int factory) {
+        check(factory);
+        operating[factory] = false;
+        endSession(factory);
+    }
+
+    /**
+     * Checks whether a factory is operating.
+     *
+     * @param factory The handle of the factory.
+     * @return true if operating.
+     */
+    public boolean isOperating(int factory) {
+        check(factory);
+        return operating[factory];
+    }
+
+    /**
+     * Checks whether a factory is dormant (see {@link Factory#isDormant(HephaestusData)}): a registry change
+     * since the last attempt wakes it.
+     *
+     * @param factory The handle of the factory.
+     * @return true if dormant.
+     */
+    public boolean isDormant(int factory) {
+        check(factory);
+        return dormant[factory] && operating[factory] && recipe[factory] < 0 && typesEpoch == data.epoch();
+    }
+
+    /**
+     * Wakes a factory up (see {@link Factory#wake()}).
+     *
+     * @param factory The handle of the factory.
+     */
+    public void wake(int factory) {
+        check(factory);
+        dormant[factory] = false;
+    }
+
+    /**
+     * Inserts a material instance into the contents of a factory.
+     *
+     * @param factory The handle of the factory.
+     * @param mat     The MaterialInstance to insert.
+     */
+    public void insert(int factory, MaterialInstance mat) {
+        check(factory);
+        if (mat == null) throw new IllegalArgumentException("mat cannot be null.");
+        cold(factory).contents.add(mat);
+        dormant[factory] = false;
+    }
+
+    /**
+     * Gets the contents of a factory.
+     *
+     * @param factory The handle of the factory.
+     * @return The unmodifiable view of the contents.
+     */
+    public List<MaterialInstance> getContents(int factory) {
+        check(factory);
+        Cold c = cold[factory];
+        return c == null ? List.of() : Collections.unmodifiableList(c.contents);
+    }
+
+    /**
+     * Checks whether a factory has produced outputs not extracted yet.
+     *
+     * @param factory The handle of the factory.
+     * @return true if there are outputs to extract.
+     */
+    public boolean hasOutputs(int factory) {
+        check(factory);
+        Cold c = cold[factory];
+        return c != null && !c.outputs.isEmpty();
+    }
+
+    /**
+     * Extracts and clears the outputs of a factory.
+     *
+     * @param factory The handle of the factory.
+     * @return A new list of MaterialInstance representing the outputs.
+     */
+    public List<MaterialInstance> extractAllOutputs(int factory) {
+        check(factory);
+        Cold c = cold[factory];
+        if (c == null || c.outputs.isEmpty()) return new ArrayList<>();
+        List<MaterialInstance> out = new ArrayList<>(c.outputs);
+        c.outputs.clear();
+        dormant[factory] = false;
+        return out;
+    }
+
+    /**
+     * Checks whether a factory has a running session.
+     *
+     * @param factory The handle of the factory.
+     * @return true if a session runs.
+     */
+    public boolean hasSession(int factory) {
+        check(factory);
+        return recipe[factory] >= 0;
+    }
+
+    /**
+     * Gets the recipe of the session of a factory.
+     *
+     * @param factory The handle of the factory.
+     * @return The recipe, or null without session.
+     */
+    public ProcessRecipe getSessionRecipe(int factory) {
+        check(factory);
+        refreshTypes();
+        int r = recipe[factory];
+        return r < 0 ? null : recipesOf(type[factory])[r];
+    }
+
+    /**
+     * Gets the elapsed time of the session of a factory.
+     *
+     * @param factory The handle of the factory.
+     * @return The elapsed time, 0 without session.
+     */
+    public float getElapsed(int factory) {
+        check(factory);
+        return recipe[factory] < 0 ? 0f : elapsed[factory];
+    }
+
+    /**
+     * Pushes an event to the session of a factory, starting one if possible (see {@link Factory#pushEvent}).
+     *
+     * @param factory The handle of the factory.
+     * @param event   The FactoryEvent to push.
+     */
+    public void pushEvent(int factory, FactoryEvent event) {
+        check(factory);
+        if (!operating[factory]) return;
+        refreshTypes();
+        if (recipe[factory] < 0 && !dormant[factory]) start(factory);
+        if (recipe[factory] < 0) return;
+
+        ProcessRecipe r = recipesOf(type[factory])[recipe[factory]];
+        float e = elapsed[factory];
+        byte p = phaseOf(e, min[factory], max[factory]);
+        ProcessContext ctx = context(factory);
+        r.onEvent(ctx, data, event, e, PHASES[p]);
+        boolean done = r.tryComplete(ctx, data, e, PHASES[p]);
+        keep(factory);
+        if (done) {
+            endSession(factory);
+        } else {
+            phase[factory] = p;
+            seen[factory] = p;
+        }
+    }
+
+    /**
+     * Advances every operating factory by one tick.
+     *
+     * @param dt The delta time since the last tick.
+     */
+    public void tick(float dt) {
+        refreshTypes();
+        int n = highWater;
+        int[] rec = recipe;
+
+        // Démarrage des sessions des fabriques au repos
+        boolean[] op = operating;
+        boolean[] asleep = dormant;
+        for (int i = 0; i < n; i++) {
+            if (rec[i] < 0 && op[i] && !asleep[i]) start(i);
+        }
+
+        // Balayage sans branchement : temps écoulé puis phase de chaque session
+        float[] el = elapsed;
+        float[] rt = rate;
+        for (int i = 0; i < n; i++) el[i] += rt[i] * dt;
+        float[] lo = min;
+        float[] hi = max;
+        byte[] ph = phase;
+        for (int i = 0; i < n; i++) ph[i] = phaseOf(el[i], lo[i], hi[i]);
+
+        // Seules les sessions à chaque tick et les changements de phase appellent les recettes
+        byte[] sn = seen;
+        boolean[] tk = ticked;
+        for (int i = 0; i < n; i++) {
+            if (rec[i] >= 0 && (tk[i] || ph[i] != sn[i])) evaluate(i);
+        }
+    }
+
+    /**
+     * Looks for a recipe to start on an idle factory (see {@link Factory#ensureSession}).
+     */
+    private void start(int f) {
+        ProcessRecipe[] rs = recipesOf(type[f]);
+        Cold c = cold[f];
+        ProcessContext ctx = c == null ? EMPTY : c.context;
+        for (int k = 0; k < rs.length; k++) {
+            if (rs[k].canStart(ctx, data)) {
+                begin(f, k, rs[k]);
+                return;
+            }
+        }
+        dormant[f] = true;
+    }
+
+    /**
+     * Starts a session.
+     */
+    private void begin(int f, int k, ProcessRecipe r) {
+        TimeWindow w = r.timeWindowOrNull();
+        recipe[f] = k;
+        elapsed[f] = 0f;
+        rate[f] = 1f;
+        min[f] = w == null ? Float.NEGATIVE_INFINITY : w.minSeconds();
+        max[f] = w == null ? Float.POSITIVE_INFINITY : w.maxSeconds();
+        seen[f] = NO_PHASE;
+        ticked[f] = r.needsTicks();
+        dormant[f] = false;
+    }
+
+    /**
+     * Evaluates a session after the sweep (see {@link Factory#update}).
+     */
+    private void evaluate(int f) {
+        ProcessRecipe r = recipesOf(type[f])[recipe[f]];
+        ProcessContext ctx = context(f);
+        float e = elapsed[f];
+        ProcessingPhase p = PHASES[phase[f]];
+        if (ticked[f] && min[f] != Float.NEGATIVE_INFINITY) {
+            r.onTick(ctx, data, e, p);
+            if (p == ProcessingPhase.AFTER_MAX) r.onOverProcessed(ctx, data, e);
+        } else if (p == ProcessingPhase.AFTER_MAX && seen[f] != ProcessingPhase.AFTER_MAX.ordinal()) {
+            r.onOverProcessed(ctx, data, e);
+        }
+        seen[f] = phase[f];
+        boolean done = r.tryComplete(ctx, data, e, p);
+        keep(f);
+        if (done) endSession(f);
+    }
+
+    /**
+     * Ends the session of a factory.
+     */
+    private void endSession(int f) {
+        recipe[f] = -1;
+        rate[f] = 0f;
+        ticked[f] = false;
+    }
+
+    /**
+     * Computes the phase ordinal of an elapsed time (see {@link TimeWindow}).
+     */
+    private static byte phaseOf(float e, float lo, float hi) {
+        return (byte) (e < lo ? 0 : (e > hi ? 2 : 1));
+    }
+
+    /**
+     * Returns the recipes of a factory type in selection order.
+     */
+    private ProcessRecipe[] recipesOf(int factoryHandle) {
+        if (factoryHandle >= typeRecipes.length) {
+            typeRecipes = Arrays.copyOf(typeRecipes, Math.max(factoryHandle + 1, typeRecipes.length * 2));
+        }
+        ProcessRecipe[] rs = typeRecipes[factoryHandle];
+        if (rs == null) {
+            rs = data.recipesOf(factoryHandle).toArray(new ProcessRecipe[0]);
+            Arrays.sort(rs, Factory.SELECTION_ORDER);
+            typeRecipes[factoryHandle] = rs;
+        }
+        return rs;
+    }
+
+    /**
+     * Reloads the recipes of the types after a registry change: running sessions keep their recipe
+     * (or end if it is no longer attached), and every factory is woken.
+     */
+    private void refreshTypes() {
+        long epoch = data.epoch();
+        if (epoch == typesEpoch) return;
+        ProcessRecipe[][] old = typeRecipes;
+        typeRecipes = new ProcessRecipe[old.length][];
+        typesEpoch = epoch;
+        for (int f = 0; f < highWater; f++) {
+            dormant[f] = false;
+            if (recipe[f] < 0) continue;
+            ProcessRecipe r = old[type[f]][recipe[f]];
+            int k = Arrays.asList(recipesOf(type[f])).indexOf(r);
+            if (k < 0) endSession(f);
+            else recipe[f] = k;
+        }
+    }
+
+    /**
+     * Returns the cold state of a factory, creating it if needed.
+     */
+    private Cold cold(int f) {
+        Cold c = cold[f];
+        if (c == null) cold[f] = c = new Cold();
+        return c;
+    }
+
+    /**
+     * Returns the context handed to the recipes of a factory: its own, or the spare one without cold state.
+     */
+    private ProcessContext context(int f) {
+        Cold c = cold[f];
+        return c == null ? spare.context : c.context;
+    }
+
+    /**
+     * After the recipes ran on the spare context, gives it to the factory if they wrote to it.
+     */
+    private void keep(int f) {
+        if (cold[f] != null) return;
+        Cold c = spare;
+        if (c.contents.isEmpty() && c.outputs.isEmpty()) return;
+        cold[f] = c;
+        spare = new Cold();
+    }
+
+    /**
+     * Grows the per-factory arrays.
+     */
+    private void grow(int cap) {
+        int old = type.length;
+        type = Arrays.copyOf(type, cap);
+        Arrays.fill(type, old, cap, -1);
+        operating = Arrays.copyOf(operating, cap);
+        dormant = Arrays.copyOf(dormant, cap);
+        recipe = Arrays.copyOf(recipe, cap);
+        Arrays.fill(recipe, old, cap, -1);
+        elapsed = Arrays.copyOf(elapsed, cap);
+        rate = Arrays.copyOf(rate, cap);
+        min = Arrays.copyOf(min, cap);
+        max = Arrays.copyOf(max, cap);
+        phase = Arrays.copyOf(phase, cap);
+        seen = Arrays.copyOf(seen, cap);
+        ticked = Arrays.copyOf(ticked, cap);
+        cold = Arrays.copyOf(cold, cap);
+    }
+
+    /**
+     * Checks that a handle designates a live factory.
+     */
+    private void check(int factory) {
+        if (!isAlive(factory)) throw new IllegalArgumentException("Unknown factory handle: " + factory);
+    }
+
+    /**
+     * Cold state of a factory: contents and outputs.
+     */
+    private static final class Cold {
+
+        /**
+         * The contents of the factory.
+         */
+        final List<MaterialInstance> contents = new ArrayList<>();
+
+        /**
+         * The outputs of the factory.
+         */
+        final List<MaterialInstance> outputs = new ArrayList<>();
+
+        /**
+         * The context handed to the recipes.
+         */
+        final ProcessContext context = new ProcessContext(contents, outputs);
+    }
+}
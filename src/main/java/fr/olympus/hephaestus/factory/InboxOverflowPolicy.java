@@ -0,0 +1,19 @@
+package fr.olympus.hephaestus.factory;
+
+/**
+ * What an {@link EventInbox} does with an event posted while it is full.
+ */
+public enum InboxOverflowPolicy {
+    /**
+     * The posted event is dropped (and counted).
+     */
+    DROP_NEWEST,
+    /**
+     * The oldest queued event is dropped (and counted) to make room for the posted one.
+     */
+    DROP_OLDEST,
+    /**
+     * The posted event is counted as dropped and the poster gets an IllegalStateException.
+     */
+    REJECT
+}
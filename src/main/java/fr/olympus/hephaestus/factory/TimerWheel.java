@@ -0,0 +1,316 @@
+package fr.olympus.hephaestus.factory;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timer wheel over a clock in seconds.
+ * <p>
+ * Time is cut into wheel ticks of {@code resolution} seconds. Level 0 has one slot per wheel tick, and each
+ * following level has slots 64 times wider. A timer is stored at the lowest level whose slots still
+ * separate it from the current tick, and moved down (cascaded) when the wheel enters its slot.
+ * Scheduling and cancelling are O(1), and advancing costs O(1) per wheel tick plus the timers moved.
+ * Timers beyond the last level wait in an overflow list.
+ * <p>
+ * A timer fires at the first {@link #advance} whose time is at or after its exact deadline; the wheel
+ * tick only chooses where it waits. Not thread-safe: the owner serializes every call.
+ */
+final class TimerWheel {
+
+    /**
+     * Bits of slot index per level (64 slots).
+     */
+    private static final int BITS = 6;
+
+    /**
+     * Number of slots per level.
+     */
+    private static final int SLOTS = 1 << BITS;
+
+    /**
+     * Number of levels (horizon of 64^4 wheel ticks before the overflow list).
+     */
+    private static final int LEVELS = 4;
+
+    /**
+     * Duration of a wheel tick, in seconds.
+     */
+    private final double resolution;
+
+    /**
+     * Slots, by level then slot index.
+     */
+    private final Bucket[][] wheels = new Bucket[LEVELS][SLOTS];
+
+    /**
+     * Timers beyond the last level.
+     */
+    private final Bucket overflow = new Bucket();
+
+    /**
+     * Timers whose wheel tick is reached, waiting for their exact deadline.
+     */
+    private final Bucket due = new Bucket();
+
+    /**
+     * Current wheel tick.
+     */
+    private long current;
+
+    /**
+     * Number of scheduled timers.
+     */
+    private int size;
+
+    /**
+     * Constructs an empty wheel at time 0.
+     *
+     * @param resolution the duration of a wheel tick, in seconds
+     * @throws IllegalArgumentException if resolution is not positive
+     */
+    TimerWheel(double resolution) {
+        if (!(resolution > 0)) throw new IllegalArgumentException("resolution must be > 0.");
+        this.resolution = resolution;
+        for (Bucket[] level : wheels) {
+            for (int i = 0; i < SLOTS; i++) level[i] = new Bucket();
+        }
+    }
+
+    /**
+     * Schedules a timer, or reschedules it if it is already scheduled.
+     *
+     * @param timer    the timer
+     * @param deadline the time at which the timer fires, in seconds
+     */
+    void schedule(Timer timer, double deadline) {
+        if (timer.bucket != null) cancel(timer);
+        timer.deadline = deadline;
+        place(timer);
+        size++;
+    }
+
+    /**
+     * Cancels a timer. Does nothing if it is not scheduled.
+     *
+     * @param timer the timer
+     */
+    void cancel(Timer timer) {
+        if (timer.bucket == null) return;
+        timer.bucket.unlink(timer);
+        size--;
+    }
+
+    /**
+     * Advances the wheel to the given time and fires the timers whose deadline is reached,
+     * in wheel order (earlier wheel ticks first, then scheduling order).
+     * The callback may schedule or cancel timers.
+     *
+     * @param now    the current time, in seconds (never decreasing)
+     * @param onFire receives the fired timers, already unscheduled
+     * @return the number of fired timers
+     */
+    int advance(double now, Consumer<Timer> onFire) {
+        long target = (long) Math.floor(now / resolution);
+        while (current < target) {
+            current++;
+            cascade();
+            due.appendAll(wheels[0][(int) (current & (SLOTS - 1))]);
+        }
+
+        int fired = 0;
+        Timer t = due.head;
+        while (t != null) {
+            Timer next = t.next;
+            if (t.deadline <= now) {
+                due.unlink(t);
+                size--;
+                fired++;
+                onFire.accept(t);
+            }
+            t = next;
+        }
+        return fired;
+    }
+
+    /**
+     * Returns the number of scheduled timers.
+     *
+     * @return the number of timers
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns where a timer waits.
+     *
+     * @param timer the timer
+     * @return its level (0 to 3), 4 in the overflow list, -1 if due at the next advance or not scheduled
+     */
+    int levelOf(Timer timer) {
+        if (timer.bucket == overflow) return LEVELS;
+        for (int level = 0; level < LEVELS; level++) {
+            for (Bucket b : wheels[level]) {
+                if (timer.bucket == b) return level;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Moves down the timers of the higher-level slots the current wheel tick just entered.
+     */
+    private void cascade() {
+        if ((current & mask(LEVELS)) == 0) replace(overflow);
+        for (int level = LEVELS - 1; level > 0; level--) {
+            if ((current & mask(level)) == 0) {
+                replace(wheels[level][(int) ((current >>> (BITS * level)) & (SLOTS - 1))]);
+            }
+        }
+    }
+
+    /**
+     * Places again every timer of a bucket.
+     */
+    private void replace(Bucket bucket) {
+        Timer t = bucket.head;
+        bucket.head = null;
+        bucket.tail = null;
+        while (t != null) {
+            Timer next = t.next;
+            t.prev = null;
+            t.next = null;
+            t.bucket = null;
+            place(t);
+            t = next;
+        }
+    }
+
+    /**
+     * Stores a timer in the bucket matching its deadline.
+     */
+    private void place(Timer timer) {
+        long tick = (long) Math.floor(timer.deadline / resolution);
+        if (tick <= current) {
+            due.append(timer);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            // Niveau le plus bas dont le bloc supérieur contient à la fois current et tick
+            int shift = BITS * (level + 1);
+            if ((tick >>> shift) == (current >>> shift)) {
+                wheels[level][(int) ((tick >>> (BITS * level)) & (SLOTS - 1))].append(timer);
+                return;
+            }
+        }
+        overflow.append(timer);
+    }
+
+    /**
+     * Returns the mask of the wheel ticks inside a slot of the given level.
+     */
+    private static long mask(int level) {
+        return (1L << (BITS * level)) - 1;
+    }
+
+    /**
+     * A timer, owned by a factory. Each factory reuses its own timer.
+     */
+    static final class Timer {
+
+        /**
+         * The factory notified when the timer fires.
+         */
+        final Factory owner;
+
+        /**
+         * The time at which the timer fires, in seconds.
+         */
+        double deadline;
+
+        /**
+         * The bucket holding the timer, null if not scheduled.
+         */
+        Bucket bucket;
+
+        /**
+         * Previous timer in the bucket.
+         */
+        Timer prev;
+
+        /**
+         * Next timer in the bucket.
+         */
+        Timer next;
+
+        /**
+         * Constructs a timer.
+         */
+        Timer(Factory owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * Checks whether the timer is scheduled.
+         */
+        boolean isScheduled() {
+            return bucket != null;
+        }
+    }
+
+    /**
+     * Intrusive doubly linked list of timers.
+     */
+    private static final class Bucket {
+
+        /**
+         * First timer.
+         */
+        Timer head;
+
+        /**
+         * Last timer.
+         */
+        Timer tail;
+
+        /**
+         * Appends a timer.
+         */
+        void append(Timer t) {
+            t.bucket = this;
+            t.prev = tail;
+            t.next = null;
+            if (tail == null) head = t;
+            else tail.next = t;
+            tail = t;
+        }
+
+        /**
+         * Appends every timer of another bucket, which is left empty.
+         */
+        void appendAll(Bucket other) {
+            if (other.head == null) return;
+            for (Timer t = other.head; t != null; t = t.next) t.bucket = this;
+            if (tail == null) head = other.head;
+            else {
+                tail.next = other.head;
+                other.head.prev = tail;
+            }
+            tail = other.tail;
+            other.head = null;
+            other.tail = null;
+        }
+
+        /**
+         * Removes a timer.
+         */
+        void unlink(Timer t) {
+            if (t.prev == null) head = t.next;
+            else t.prev.next = t.next;
+            if (t.next == null) tail = t.prev;
+            else t.next.prev = t.prev;
+            t.prev = null;
+            t.next = null;
+            t.bucket = null;
+        }
+    }
+}
@@ -18,4 +18,23 @@ public @interface MaterialAnnotation {
      */
     String id();
 
+    /**
+     * Whether the material is registered as a lazy descriptor, instantiated on first use
+     * (see {@link MaterialDescriptor#lazy}). A lazy material must declare its categories.
+     * @return true if lazy
+     */
+    boolean lazy() default false;
+
+    /**
+     * Type name (enum name) of a lazy material, checked on instantiation (empty = not declared)
+     * @return type name
+     */
+    String type() default "";
+
+    /**
+     * Category keys (enum names) of a lazy material, indexed without instantiating it
+     * @return array of category keys
+     */
+    String[] categories() default {};
+
 }
@@ -0,0 +1,197 @@
+package fr.olympus.hephaestus.materials;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Registry descriptor of a material: its id, type and category metadata, and its definition.
+ * <p>
+ * An eager descriptor ({@link #of(String, Material)}) wraps an existing definition. A lazy descriptor
+ * ({@link #lazy(String, String, Collection, Supplier)}) declares the metadata up front and instantiates the
+ * {@link Material} on the first {@link #get()}: the registry indexes its categories without instantiating it.
+ * The first instance is checked against the declared metadata.
+ */
+public final class MaterialDescriptor {
+
+    /**
+     * The unique identifier of the material.
+     */
+    private final String id;
+
+    /**
+     * The declared type name (enum name), empty if not declared.
+     */
+    private final String typeName;
+
+    /**
+     * The category keys (enum names), in declaration order.
+     */
+    private final Set<String> categoryKeys;
+
+    /**
+     * Creates the definition of a lazy material (null once instantiated).
+     */
+    private Supplier<? extends Material> factory;
+
+    /**
+     * The material definition, null until instantiated.
+     */
+    private volatile Material material;
+
+    /**
+     * Constructs a descriptor.
+     */
+    private MaterialDescriptor(String id, String typeName, Set<String> categoryKeys,
+                               Supplier<? extends Material> factory, Material material) {
+        this.id = id;
+        this.typeName = typeName;
+        this.categoryKeys = categoryKeys;
+        this.factory = factory;
+        this.material = material;
+    }
+
+    /**
+     * Creates the descriptor of an already instantiated material.
+     *
+     * @param id       the unique identifier of the material
+     * @param material the material definition
+     * @return the descriptor
+     * @throws IllegalArgumentException if id is null/blank or material is null
+     */
+    public static MaterialDescriptor of(String id, Material material) {
+        checkId(id);
+        if (material == null) throw new IllegalArgumentException("material cannot be null.");
+        return new MaterialDescriptor(id, nameOf(material.getType()), keysOf(material), null, material);
+    }
+
+    /**
+     * Creates the descriptor of a material instantiated on first use.
+     *
+     * @param id           the unique identifier of the material
+     * @param typeName     the type name (enum name) of the material, empty or null if not declared
+     * @param categoryKeys the category keys (enum names) of the material
+     * @param factory      creates the material definition
+     * @return the descriptor
+     * @throws IllegalArgumentException if id is null/blank, categoryKeys or factory is null, or a key is null/blank
+     */
+    public static MaterialDescriptor lazy(String id, String typeName, Collection<String> categoryKeys,
+                                          Supplier<? extends Material> factory) {
+        checkId(id);
+        if (categoryKeys == null) throw new IllegalArgumentException("categoryKeys cannot be null.");
+        if (factory == null) throw new IllegalArgumentException("factory cannot be null.");
+        Set<String> keys = new LinkedHashSet<>();
+        for (String k : categoryKeys) {
+            if (k == null || k.isBlank()) throw new IllegalArgumentException("category key cannot be null/blank.");
+            keys.add(k);
+        }
+        return new MaterialDescriptor(id, typeName == null ? "" : typeName,
+                Collections.unmodifiableSet(keys), factory, null);
+    }
+
+    /**
+     * Returns the unique identifier of the material.
+     *
+     * @return the material id
+     */
+    public String id() {
+        return id;
+    }
+
+    /**
+     * Returns the type name (enum name) of the material.
+     *
+     * @return the type name, empty if a lazy descriptor did not declare it
+     */
+    public String typeName() {
+        return typeName;
+    }
+
+    /**
+     * Returns the category keys (enum names) of the material, without instantiating it.
+     *
+     * @return the unmodifiable set of category keys, in declaration order
+     */
+    public Set<String> categoryKeys() {
+        return categoryKeys;
+    }
+
+    /**
+     * Checks whether the material definition is instantiated.
+     *
+     * @return true if {@link #get()} would not instantiate it
+     */
+    public boolean isLoaded() {
+        return material != null;
+    }
+
+    /**
+     * Returns the material definition, instantiating it on the first call.
+     *
+     * @return the material definition
+     * @throws IllegalStateException if the factory fails, returns null, or a material not matching the declared metadata
+     */
+    public Material get() {
+        Material m = material;
+        if (m != null) return m;
+        synchronized (this) {
+            m = material;
+            if (m != null) return m;
+            try {
+                m = factory.get();
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("Cannot instantiate material: " + id, e);
+            }
+            if (m == null) throw new IllegalStateException("Material factory returned null: " + id);
+            // Les index ont été construits sur les métadonnées déclarées : elles doivent rester vraies
+            if (!keysOf(m).equals(categoryKeys)) {
+                throw new IllegalStateException("Material " + id + ": categories " + keysOf(m)
+                        + " do not match the declared categories " + categoryKeys);
+            }
+            if (!typeName.isEmpty() && !typeName.equals(nameOf(m.getType()))) {
+                throw new IllegalStateException("Material " + id + ": type " + nameOf(m.getType())
+                        + " does not match the declared type " + typeName);
+            }
+            material = m;
+            factory = null;
+            return m;
+        }
+    }
+
+    /**
+     * Returns the string representation of the descriptor.
+     *
+     * @return the id and the loading state
+     */
+    @Override
+    public String toString() {
+        return "MaterialDescriptor{" +
+                "id='" + id + '\'' +
+                ", loaded=" + isLoaded() +
+                '}';
+    }
+
+    /**
+     * Checks a material id.
+     */
+    private static void checkId(String id) {
+        if (id == null || id.isBlank()) throw new IllegalArgumentException("id cannot be null/blank.");
+    }
+
+    /**
+     * Returns the enum name of a type or category.
+     */
+    private static String nameOf(Object o) {
+        return o instanceof Enum<?> e ? e.name() : String.valueOf(o);
+    }
+
+    /**
+     * Returns the category keys of a material, in declaration order.
+     */
+    private static Set<String> keysOf(Material m) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (MaterialCategory c : m.getCategories()) {
+            if (c instanceof Enum<?> e) keys.add(e.name());
+        }
+        return Collections.unmodifiableSet(keys);
+    }
+}
@@ -6,27 +6,43 @@ import java.util.Objects;
  * :
  * Represents an instance of a material with its unique identifier and voxel data.
  *
- * @param materialId the unique identifier of the material
- * @param voxels     the 3D array representing voxel data of the material
+ * @param materialId     the unique identifier of the material
+ * @param materialHandle the registry handle of the material, or -1 if not resolved
+ * @param voxels         the 3D array representing voxel data of the material
  */
-public record MaterialInstance(String materialId, byte[][][] voxels) {
+public record MaterialInstance(String materialId, int materialHandle, byte[][][] voxels) {
 
     /**
-     * Constructs a MaterialInstance with the specified materialId and voxel data.
+     * Constructs a MaterialInstance with the specified materialId, registry handle and voxel data.
+     * The handle is only a hint: registries check it against the materialId before using it.
      *
-     * @param materialId the unique identifier of the material
-     * @param voxels     the 3D array representing voxel data of the material
+     * @param materialId     the unique identifier of the material
+     * @param materialHandle the registry handle of the material, or -1 if not resolved
+     * @param voxels         the 3D array representing voxel data of the material
      * @throws IllegalArgumentException if materialId is null/blank
      * @throws NullPointerException     if voxels is null
      */
-    public MaterialInstance(String materialId, byte[][][] voxels) {
+    public MaterialInstance(String materialId, int materialHandle, byte[][][] voxels) {
         if (materialId == null || materialId.isBlank()) {
             throw new IllegalArgumentException("materialId cannot be null/blank.");
         }
         this.materialId = materialId;
+        this.materialHandle = materialHandle;
         this.voxels = Objects.requireNonNull(voxels, "voxels");
     }
 
+    /**
+     * Constructs a MaterialInstance with the specified materialId and voxel data, without registry handle.
+     *
+     * @param materialId the unique identifier of the material
+     * @param voxels     the 3D array representing voxel data of the material
+     * @throws IllegalArgumentException if materialId is null/blank
+     * @throws NullPointerException     if voxels is null
+     */
+    public MaterialInstance(String materialId, byte[][][] voxels) {
+        this(materialId, -1, voxels);
+    }
+
     /**
      * Computes the hash code for this MaterialInstance based on its materialId.
      *
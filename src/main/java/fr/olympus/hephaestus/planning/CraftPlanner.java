@@ -103,9 +103,9 @@ public final class CraftPlanner {
     }
 
     /**
-     * Planning mode
+     * Reverse index from outputs to the recipes producing them
      */
-    private final List<ProcessRecipe> recipes;
+    private final ProducerIndex producers;
 
     /**
      * Creates a CraftPlanner with the given list of process recipes.
@@ -113,7 +113,16 @@ public final class CraftPlanner {
      * @param recipes the list of available process recipes
      */
     public CraftPlanner(List<ProcessRecipe> recipes) {
-        this.recipes = List.copyOf(recipes);
+        this(ProducerIndex.of(List.copyOf(recipes)));
+    }
+
+    /**
+     * Creates a CraftPlanner over a shared producer index (see {@link fr.olympus.hephaestus.resources.HephaestusData#getProducerIndex()}).
+     *
+     * @param producers the reverse index of the available process recipes
+     */
+    public CraftPlanner(ProducerIndex producers) {
+        this.producers = Objects.requireNonNull(producers, "producers");
     }
 
     /**
@@ -183,9 +192,9 @@ public final class CraftPlanner {
         Objects.requireNonNull(mode, "mode");
         Objects.requireNonNull(options, "options");
 
-        // memo: targetKey -> (mode,k)-> plans
-        Map<String, List<CraftPlan>> memo = new HashMap<>();
-        Set<String> visiting = new HashSet<>();
+        // memo: (target, depth) -> plans (mode et k sont fixes pour un appel)
+        Map<MemoKey, List<CraftPlan>> memo = new HashMap<>();
+        Set<MaterialMatcher> visiting = new HashSet<>();
         PlanBudget budget = new PlanBudget(options.maxPlans);
 
         List<CraftPlan> result = solve(target, available, mode, k, options, 0, memo, visiting, budget);
@@ -225,8 +234,8 @@ public final class CraftPlanner {
                                   int k,
                                   PlanOptions options,
                                   int depth,
-                                  Map<String, List<CraftPlan>> memo,
-                                  Set<String> visiting,
+                                  Map<MemoKey, List<CraftPlan>> memo,
+                                  Set<MaterialMatcher> visiting,
                                   PlanBudget budget) {
 
         if (budget.exhausted()) return List.of();
@@ -237,12 +246,12 @@ public final class CraftPlanner {
             return List.of(new CraftPlan(0, List.of()));
         }
 
-        String memoKey = target.key() + "|mode=" + mode + "|k=" + (mode == Mode.TOP_K ? k : 0) + "|depth=" + depth;
+        MemoKey memoKey = new MemoKey(target, depth);
         List<CraftPlan> cached = memo.get(memoKey);
         if (cached != null) return cached;
 
         // cycle
-        if (!visiting.add(target.key())) {
+        if (!visiting.add(target)) {
             return List.of();
         }
 
@@ -302,7 +311,7 @@ public final class CraftPlanner {
             }
         }
 
-        visiting.remove(target.key());
+        visiting.remove(target);
 
         // Dedup
         if (options.deduplicate && allCandidates.size() > 1) {
@@ -331,43 +340,19 @@ public final class CraftPlanner {
         // - même key => dispo
         for (MaterialMatcher a : available) {
             if (a.getKind() == MaterialMatcher.Kind.ANY) return true;
-            if (a.key().equals(target.key())) return true;
+            if (a.equals(target)) return true;
         }
         return false;
     }
 
     /**
-     * Finds all recipes that can produce the target material.
+     * Finds all recipes that can produce the target material ("out cover target": same key, or ANY output).
      *
      * @param target desired output material
      * @return list of process recipes that can produce the target
      */
     private List<ProcessRecipe> recipesThatCanProduce(MaterialMatcher target) {
-        List<ProcessRecipe> list = new ArrayList<>();
-        for (ProcessRecipe r : recipes) {
-            for (MaterialMatcher out : r.outputs()) {
-                if (covers(out, target)) {
-                    list.add(r);
-                    break;
-                }
-            }
-        }
-        return list;
-    }
-
-    /**
-     * "out cover target" :
-     * - exact ID cover ID
-     * - TYPE cover TYPE
-     * - CATEGORY cover CATEGORY
-     * - ANY cover All
-     *
-     * @param out    output material matcher from recipe
-     * @param target desired target material matcher
-     */
-    private boolean covers(MaterialMatcher out, MaterialMatcher target) {
-        if (out.getKind() == MaterialMatcher.Kind.ANY) return true;
-        return out.key().equals(target.key());
+        return producers.producersOf(target);
     }
 
 
@@ -422,6 +407,15 @@ public final class CraftPlanner {
     }
 
 
+    /**
+     * Memoization key of the recursive solver.
+     *
+     * @param target the target matcher
+     * @param depth  the recursion depth
+     */
+    private record MemoKey(MaterialMatcher target, int depth) {
+    }
+
     /**
      * Plan Budget tracker
      */
@@ -5,7 +5,6 @@ import fr.olympus.hephaestus.resources.HephaestusData;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 /**
  * Utils for expanding material targets.
@@ -23,6 +22,7 @@ public final class MaterialTargetExpander {
     /**
      * Transforms a "category" target into multiple "ID" targets (all compatible materials).
      * If the target is already ID/ANY, returns it as is.
+     * Concrete IDs are returned sorted by material ID, so the limit cut is deterministic.
      *
      * @param target the target to expand
      * @param data   the HephaestusData instance to query materials
@@ -38,37 +38,11 @@ public final class MaterialTargetExpander {
             case ANY -> List.of(MaterialMatcher.any());
             case ID -> List.of(target);
 
-            case ANY_OF_CATEGORIES -> {
-                List<MaterialMatcher> out = new ArrayList<>();
-                Set<String> wanted = target.getCategoryKeys();
-
-                for (String id : data.getAllMaterialIds()) {
-                    Set<String> cats = data.getMaterialCategoryKeys(id);
-                    boolean ok = false;
-                    for (String w : wanted) {
-                        if (cats.contains(w)) {
-                            ok = true;
-                            break;
-                        }
-                    }
-                    if (ok) {
-                        out.add(MaterialMatcher.id(id));
-                        if (out.size() >= limit) break;
-                    }
-                }
-                yield out;
-            }
-
-            case ALL_OF_CATEGORIES -> {
-                List<MaterialMatcher> out = new ArrayList<>();
-                Set<String> wanted = target.getCategoryKeys();
-
-                for (String id : data.getAllMaterialIds()) {
-                    Set<String> cats = data.getMaterialCategoryKeys(id);
-                    if (cats.containsAll(wanted)) {
-                        out.add(MaterialMatcher.id(id));
-                        if (out.size() >= limit) break;
-                    }
+            case ANY_OF_CATEGORIES, ALL_OF_CATEGORIES -> {
+                int[] handles = data.materialHandlesMatching(target, limit);
+                List<MaterialMatcher> out = new ArrayList<>(handles.length);
+                for (int h : handles) {
+                    out.add(MaterialMatcher.id(data.materialId(h)));
                 }
                 yield out;
             }
@@ -21,13 +21,24 @@ public final class PlannerFacade {
     private final HephaestusData data;
 
     /**
-     * Constructs a PlannerFacade with the specified CraftPlanner and HephaestusData.
+     * Constructs a PlannerFacade with the specified CraftPlanner, on the data of the default Hephaestus instance.
      *
      * @param planner The CraftPlanner instance to use for planning.
+     * @throws IllegalStateException if Hephaestus is not initialized.
      */
     public PlannerFacade(CraftPlanner planner) {
+        this(planner, Hephaestus.getData());
+    }
+
+    /**
+     * Constructs a PlannerFacade with the specified CraftPlanner and HephaestusData.
+     *
+     * @param planner The CraftPlanner instance to use for planning.
+     * @param data    The HephaestusData instance used for material data expansion.
+     */
+    public PlannerFacade(CraftPlanner planner, HephaestusData data) {
         this.planner = Objects.requireNonNull(planner, "planner");
-        this.data = Objects.requireNonNull(Hephaestus.getData(), "data");
+        this.data = Objects.requireNonNull(data, "data");
     }
 
     /**
@@ -0,0 +1,207 @@
+package fr.olympus.hephaestus.planning;
+
+import fr.olympus.hephaestus.processing.MaterialMatcher;
+import fr.olympus.hephaestus.processing.ProcessRecipe;
+
+import java.util.*;
+
+/**
+ * Immutable reverse index from recipe outputs to the recipes producing them.
+ * <p>
+ * - exact outputs (ID / category matchers) are indexed by matcher
+ * - wildcard producers (an ANY output) are kept in a separate list, as they cover every target
+ * <p>
+ * The registry maintains one index for all registered recipes (see
+ * {@link fr.olympus.hephaestus.resources.HephaestusData#getProducerIndex()}); planners share it.
+ */
+public final class ProducerIndex {
+
+    /**
+     * Empty index.
+     */
+    public static final ProducerIndex EMPTY = new ProducerIndex(Map.of(), Bucket.EMPTY, 0);
+
+    /**
+     * Producers of each exact output matcher, in registration order.
+     */
+    private final Map<MaterialMatcher, Bucket> byOutput;
+
+    /**
+     * Producers having an ANY output, in registration order.
+     */
+    private final Bucket wildcard;
+
+    /**
+     * Registration ordinal of the next recipe.
+     */
+    private final int nextOrdinal;
+
+    /**
+     * Constructs an index from already immutable parts.
+     */
+    private ProducerIndex(Map<MaterialMatcher, Bucket> byOutput, Bucket wildcard, int nextOrdinal) {
+        this.byOutput = byOutput;
+        this.wildcard = wildcard;
+        this.nextOrdinal = nextOrdinal;
+    }
+
+    /**
+     * Builds an index of the given recipes.
+     *
+     * @param recipes the recipes, in order
+     * @return the index
+     */
+    public static ProducerIndex of(Collection<? extends ProcessRecipe> recipes) {
+        return EMPTY.with(recipes);
+    }
+
+    /**
+     * Derives a new index with the given recipes added after the already indexed ones.
+     *
+     * @param recipes the recipes to add, in order
+     * @return the new index
+     */
+    public ProducerIndex with(Collection<? extends ProcessRecipe> recipes) {
+        if (recipes.isEmpty()) return this;
+
+        Map<MaterialMatcher, Bucket.Builder> touched = new HashMap<>();
+        Bucket.Builder any = new Bucket.Builder(wildcard);
+        int ordinal = nextOrdinal;
+
+        for (ProcessRecipe r : recipes) {
+            int o = ordinal++;
+            boolean isWildcard = false;
+            Set<MaterialMatcher> seen = new HashSet<>();
+            for (MaterialMatcher m : r.outputs()) {
+                if (m.getKind() == MaterialMatcher.Kind.ANY) {
+                    isWildcard = true;
+                } else if (seen.add(m)) {
+                    touched.computeIfAbsent(m, k -> new Bucket.Builder(byOutput.getOrDefault(k, Bucket.EMPTY))).add(o, r);
+                }
+            }
+            if (isWildcard) any.add(o, r);
+        }
+
+        Map<MaterialMatcher, Bucket> out = new HashMap<>(byOutput);
+        touched.forEach((m, b) -> out.put(m, b.build()));
+        return new ProducerIndex(Map.copyOf(out), any.build(), ordinal);
+    }
+
+    /**
+     * Finds all recipes having an output covering the target, in registration order:
+     * recipes with an output equal to the target, and wildcard producers.
+     * Without wildcard producers this is a single map lookup returning a shared immutable list.
+     *
+     * @param target the desired output
+     * @return the producing recipes
+     */
+    public List<ProcessRecipe> producersOf(MaterialMatcher target) {
+        Bucket exact = byOutput.getOrDefault(target, Bucket.EMPTY);
+        if (wildcard.isEmpty()) return exact.recipes;
+        if (exact.isEmpty()) return wildcard.recipes;
+
+        // fusion par ordre d'enregistrement (un recipe peut être dans les deux listes)
+        int[] ea = exact.ordinals;
+        int[] wa = wildcard.ordinals;
+        List<ProcessRecipe> list = new ArrayList<>(ea.length + wa.length);
+        int i = 0;
+        int j = 0;
+        while (i < ea.length || j < wa.length) {
+            if (j == wa.length || (i < ea.length && ea[i] < wa[j])) {
+                list.add(exact.recipes.get(i++));
+            } else if (i == ea.length || wa[j] < ea[i]) {
+                list.add(wildcard.recipes.get(j++));
+            } else {
+                list.add(exact.recipes.get(i++));
+                j++;
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Finds the recipes having exactly the given output (wildcard producers excluded).
+     *
+     * @param output the output matcher
+     * @return the producing recipes, in registration order
+     */
+    public List<ProcessRecipe> exactProducersOf(MaterialMatcher output) {
+        return byOutput.getOrDefault(output, Bucket.EMPTY).recipes;
+    }
+
+    /**
+     * Returns the recipes having an ANY output.
+     *
+     * @return the wildcard producers, in registration order
+     */
+    public List<ProcessRecipe> wildcardProducers() {
+        return wildcard.recipes;
+    }
+
+    /**
+     * Immutable list of producers with their registration ordinals.
+     *
+     * @param ordinals registration order of each recipe (ascending)
+     * @param recipes  the recipes
+     */
+    private record Bucket(int[] ordinals, List<ProcessRecipe> recipes) {
+
+        /**
+         * Empty bucket.
+         */
+        static final Bucket EMPTY = new Bucket(new int[0], List.of());
+
+        /**
+         * Checks whether the bucket is empty.
+         */
+        boolean isEmpty() {
+            return ordinals.length == 0;
+        }
+
+        /**
+         * Builder appending producers to an existing bucket.
+         */
+        static final class Builder {
+
+            /**
+             * Ordinals of the producers (with spare capacity).
+             */
+            private int[] ordinals;
+
+            /**
+             * Number of producers.
+             */
+            private int size;
+
+            /**
+             * The producing recipes.
+             */
+            private final List<ProcessRecipe> recipes;
+
+            /**
+             * Creates a builder starting from an existing bucket.
+             */
+            Builder(Bucket from) {
+                this.ordinals = Arrays.copyOf(from.ordinals, from.ordinals.length + 4);
+                this.size = from.ordinals.length;
+                this.recipes = new ArrayList<>(from.recipes);
+            }
+
+            /**
+             * Appends a producer.
+             */
+            void add(int ordinal, ProcessRecipe recipe) {
+                if (size == ordinals.length) ordinals = Arrays.copyOf(ordinals, size * 2);
+                ordinals[size++] = ordinal;
+                recipes.add(recipe);
+            }
+
+            /**
+             * Builds the immutable bucket.
+             */
+            Bucket build() {
+                return new Bucket(Arrays.copyOf(ordinals, size), List.copyOf(recipes));
+            }
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package fr.olympus.hephaestus.processing;
+
+import fr.olympus.hephaestus.materials.MaterialInstance;
+import fr.olympus.hephaestus.resources.CategoryBits;
+import fr.olympus.hephaestus.resources.HephaestusData;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Counted content store of a factory: the material instances (which carry the voxel data), plus per-material
+ * counts indexed by registry handle and per-category counts indexed by category bit.
+ * <p>
+ * Recipes query counts instead of scanning the instances: {@link #count(MaterialMatcher, HephaestusData)} and
+ * {@link #containsAll(List, HephaestusData)} cost O(inputs) for ID matchers (category matchers also walk the
+ * distinct materials present), and {@link #take(MaterialMatcher, HephaestusData)} removes an instance in O(1).
+ * <p>
+ * The store is a {@link List}, but does not keep the insertion order: removing an instance moves the last one
+ * into its place (so {@code remove(int)} is O(1)), and inserting at an index is not supported.
+ * Recipes with {@link ProcessRecipe#ordered()} inputs must not run on factories using it.
+ * <p>
+ * The index is bound to a registry by the first query and rebuilt if another registry is used, or if
+ * instances of unknown materials are present when the registry epoch changes. Not thread-safe.
+ */
+public final class ContentStore extends AbstractList<MaterialInstance> implements RandomAccess {
+
+    /**
+     * The instances, in store order.
+     */
+    private MaterialInstance[] items = new MaterialInstance[8];
+
+    /**
+     * Material handle of each instance ({@link HephaestusData#NO_HANDLE} if unknown or not bound yet).
+     */
+    private int[] itemHandle = new int[8];
+
+    /**
+     * Index of each instance in the position stack of its material.
+     */
+    private int[] itemSlot = new int[8];
+
+    /**
+     * Number of instances.
+     */
+    private int size;
+
+    // --- Index, bound to a registry ---
+    /**
+     * The registry the index is bound to, null before the first query.
+     */
+    private HephaestusData data;
+
+    /**
+     * Registry epoch at binding time.
+     */
+    private long epoch;
+
+    /**
+     * Number of instances per material handle.
+     */
+    private int[] counts = new int[0];
+
+    /**
+     * Positions of the instances of each material handle (the first {@code counts[h]} entries are used).
+     */
+    private int[][] positions = new int[0][];
+
+    /**
+     * Handles of the materials present (count &gt; 0), in order of arrival.
+     */
+    private int[] present = new int[0];
+
+    /**
+     * Index of each material handle in {@link #present}.
+     */
+    private int[] presentIndex = new int[0];
+
+    /**
+     * Number of materials present.
+     */
+    private int presentCount;
+
+    /**
+     * Number of instances per category bit.
+     */
+    private int[] categoryCounts = new int[0];
+
+    /**
+     * Number of instances whose material is unknown to the registry.
+     */
+    private int unknown;
+
+    /**
+     * Scratch reservations per material handle, used by {@link #containsAll} (always zero between calls).
+     */
+    private int[] reserved = new int[0];
+
+    /**
+     * Constructs an empty store.
+     */
+    public ContentStore() {
+    }
+
+    /**
+     * Returns the instance at the given position.
+     *
+     * @param index the position
+     * @return the instance
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    @Override
+    public MaterialInstance get(int index) {
+        Objects.checkIndex(index, size);
+        return items[index];
+    }
+
+    /**
+     * Returns the number of instances.
+     *
+     * @return the number of instances
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Appends an instance.
+     *
+     * @param instance the instance
+     * @return true
+     * @throws IllegalArgumentException if instance is null
+     */
+    @Override
+    public boolean add(MaterialInstance instance) {
+        if (instance == null) throw new IllegalArgumentException("instance cannot be null.");
+        if (size == items.length) {
+            int cap = size * 2;
+            items = Arrays.copyOf(items, cap);
+            itemHandle = Arrays.copyOf(itemHandle, cap);
+            itemSlot = Arrays.copyOf(itemSlot, cap);
+        }
+        items[size] = instance;
+        itemHandle[size] = HephaestusData.NO_HANDLE;
+        if (data != null) index(size);
+        size++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Replaces the instance at the given position.
+     *
+     * @param index    the position
+     * @param instance the new instance
+     * @return the replaced instance
+     * @throws IndexOutOfBoundsException if the position is out of range
+     * @throws IllegalArgumentException  if instance is null
+     */
+    @Override
+    public MaterialInstance set(int index, MaterialInstance instance) {
+        Objects.checkIndex(index, size);
+        if (instance == null) throw new IllegalArgumentException("instance cannot be null.");
+        MaterialInstance old = items[index];
+        if (data != null) unindex(index);
+        items[index] = instance;
+        if (data != null) index(index);
+        return old;
+    }
+
+    /**
+     * Removes the instance at the given position in O(1): the last instance takes its place.
+     *
+     * @param index the position
+     * @return the removed instance
+     * @throws IndexOutOfBoundsException if the position is out of range
+     */
+    @Override
+    public MaterialInstance remove(int index) {
+        Objects.checkIndex(index, size);
+        MaterialInstance old = items[index];
+        if (data != null) unindex(index);
+        int last = --size;
+        if (index != last) move(last, index);
+        items[last] = null;
+        modCount++;
+        return old;
+    }
+
+    /**
+     * Removes every instance.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(items, 0, size, null);
+        size = 0;
+        if (data != null) {
+            for (int i = 0; i < presentCount; i++) {
+                counts[present[i]] = 0;
+                presentIndex[present[i]] = -1;
+            }
+            presentCount = 0;
+            Arrays.fill(categoryCounts, 0);
+            unknown = 0;
+        }
+        modCount++;
+    }
+
+    /**
+     * Returns the number of instances of a material.
+     *
+     * @param materialHandle the material handle
+     * @param data           the registry owning the handle
+     * @return the number of instances
+     */
+    public int count(int materialHandle, HephaestusData data) {
+        bind(data);
+        return materialHandle < 0 || materialHandle >= counts.length ? 0 : counts[materialHandle];
+    }
+
+    /**
+     * Returns the number of instances matched by a matcher.
+     * O(1) for ID, ANY and single-category matchers, otherwise O(distinct materials present).
+     *
+     * @param matcher the matcher
+     * @param data    the registry
+     * @return the number of matching instances
+     */
+    public int count(MaterialMatcher matcher, HephaestusData data) {
+        bind(data);
+        switch (matcher.getKind()) {
+            case ANY:
+                return size;
+            case ID:
+                return count(matcher.materialHandle(data), data);
+            default:
+                break;
+        }
+        CategoryBits bits = matcher.categoryBits(data);
+        if (matcher.getCategoryKeys().size() == 1 && bits.cardinality() == 1) {
+            // Une seule catégorie connue : le compteur de la catégorie suffit
+            int bit = bits.nextSetBit(0);
+            return bit < categoryCounts.length ? categoryCounts[bit] : 0;
+        }
+        int n = 0;
+        for (int i = 0; i < presentCount; i++) {
+            int h = present[i];
+            if (matcher.matches(h, data)) n += counts[h];
+        }
+        return n;
+    }
+
+    /**
+     * Checks whether distinct instances can be assigned to every input matcher.
+     * ID matchers are served first, then ALL_OF, ANY_OF and ANY matchers, each taking the first material
+     * present with instances left. Costs O(inputs) for ID and ANY matchers, plus O(distinct materials present)
+     * per category matcher; allocates nothing.
+     *
+     * @param inputs the input matchers (one instance each)
+     * @param data   the registry
+     * @return true if every input can be matched
+     */
+    public boolean containsAll(List<MaterialMatcher> inputs, HephaestusData data) {
+        bind(data);
+        if (inputs.size() > size) return false;
+        if (reserved.length < counts.length) reserved = new int[counts.length];
+
+        int taken = 0;
+        int any = 0;
+        boolean ok = true;
+        // Des matchers les plus spécifiques aux plus larges
+        for (int pass = 0; pass < 3 && ok; pass++) {
+            for (int i = 0, n = inputs.size(); i < n && ok; i++) {
+                MaterialMatcher m = inputs.get(i);
+                MaterialMatcher.Kind kind = m.getKind();
+                if (pass == 0 && kind == MaterialMatcher.Kind.ANY) {
+                    any++;
+                } else if (pass == 0 && kind == MaterialMatcher.Kind.ID) {
+                    int h = m.materialHandle(data);
+                    ok = h >= 0 && h < counts.length && reserved[h] < counts[h];
+                    if (ok) reserved[h]++;
+                } else if ((pass == 1 && kind == MaterialMatcher.Kind.ALL_OF_CATEGORIES)
+                        || (pass == 2 && kind == MaterialMatcher.Kind.ANY_OF_CATEGORIES)) {
+                    ok = reserveFirst(m, data);
+                } else {
+                    continue;
+                }
+                if (ok && kind != MaterialMatcher.Kind.ANY) taken++;
+            }
+        }
+        ok = ok && any <= size - taken;
+
+        for (int i = 0; i < presentCount; i++) reserved[present[i]] = 0;
+        return ok;
+    }
+
+    /**
+     * Removes and returns an instance matched by a matcher: O(1) for ID and ANY matchers,
+     * O(distinct materials present) for category matchers.
+     *
+     * @param matcher the matcher
+     * @param data    the registry
+     * @return the removed instance, or null if none matches
+     */
+    public MaterialInstance take(MaterialMatcher matcher, HephaestusData data) {
+        bind(data);
+        if (size == 0) return null;
+        int h;
+        switch (matcher.getKind()) {
+            case ANY:
+                return remove(size - 1);
+            case ID:
+                h = matcher.materialHandle(data);
+                if (h < 0 || h >= counts.length || counts[h] == 0) return null;
+                break;
+            default:
+                h = HephaestusData.NO_HANDLE;
+                for (int i = 0; i < presentCount; i++) {
+                    if (matcher.matches(present[i], data)) {
+                        h = present[i];
+                        break;
+                    }
+                }
+                if (h == HephaestusData.NO_HANDLE) return null;
+        }
+        return remove(positions[h][counts[h] - 1]);
+    }
+
+    /**
+     * Reserves an instance of the first material present matched by a category matcher.
+     */
+    private boolean reserveFirst(MaterialMatcher m, HephaestusData data) {
+        for (int i = 0; i < presentCount; i++) {
+            int h = present[i];
+            if (reserved[h] < counts[h] && m.matches(h, data)) {
+                reserved[h]++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Binds the index to a registry, rebuilding it if needed.
+     */
+    private void bind(HephaestusData data) {
+        if (data == null) throw new IllegalArgumentException("data cannot be null.");
+        if (this.data == data && (unknown == 0 || epoch == data.epoch())) return;
+
+        this.data = data;
+        this.epoch = data.epoch();
+        int materials = data.materialCount();
+        counts = new int[materials];
+        positions = new int[materials][];
+        present = new int[Math.min(materials, 8)];
+        presentIndex = new int[materials];
+        Arrays.fill(presentIndex, -1);
+        presentCount = 0;
+        categoryCounts = new int[0];
+        unknown = 0;
+        for (int p = 0; p < size; p++) index(p);
+    }
+
+    /**
+     * Adds the instance at a position to the index.
+     */
+    private void index(int p) {
+        int h = data.materialHandle(items[p]);
+        itemHandle[p] = h;
+        if (h == HephaestusData.NO_HANDLE) {
+            unknown++;
+            return;
+        }
+        if (h >= counts.length) growHandles(h + 1);
+
+        int c = counts[h];
+        int[] stack = positions[h];
+        if (stack == null) positions[h] = stack = new int[4];
+        else if (c == stack.length) positions[h] = stack = Arrays.copyOf(stack, c * 2);
+        stack[c] = p;
+        itemSlot[p] = c;
+        counts[h] = c + 1;
+
+        if (c == 0) {
+            if (presentCount == present.length) present = Arrays.copyOf(present, Math.max(8, presentCount * 2));
+            presentIndex[h] = presentCount;
+            present[presentCount++] = h;
+        }
+        addCategories(h, 1);
+    }
+
+    /**
+     * Removes the instance at a position from the index.
+     */
+    private void unindex(int p) {
+        int h = itemHandle[p];
+        if (h == HephaestusData.NO_HANDLE) {
+            unknown--;
+            return;
+        }
+        int c = --counts[h];
+        int[] stack = positions[h];
+        int slot = itemSlot[p];
+        int moved = stack[c];
+        stack[slot] = moved;
+        itemSlot[moved] = slot;
+
+        if (c == 0) {
+            // Retrait par échange avec le dernier matériau présent
+            int i = presentIndex[h];
+            int last = present[--presentCount];
+            present[i] = last;
+            presentIndex[last] = i;
+            presentIndex[h] = -1;
+        }
+        addCategories(h, -1);
+    }
+
+    /**
+     * Moves the instance at a position to another position, keeping the index up to date.
+     */
+    private void move(int from, int to) {
+        items[to] = items[from];
+        itemHandle[to] = itemHandle[from];
+        itemSlot[to] = itemSlot[from];
+        int h = itemHandle[to];
+        if (data != null && h != HephaestusData.NO_HANDLE) positions[h][itemSlot[to]] = to;
+    }
+
+    /**
+     * Adds a delta to the counts of the categories of a material.
+     */
+    private void addCategories(int handle, int delta) {
+        CategoryBits bits = data.getMaterialCategoryBits(handle);
+        for (int bit = bits.nextSetBit(0); bit >= 0; bit = bits.nextSetBit(bit + 1)) {
+            if (bit >= categoryCounts.length) {
+                categoryCounts = Arrays.copyOf(categoryCounts, Math.max(bit + 1, categoryCounts.length * 2));
+            }
+            categoryCounts[bit] += delta;
+        }
+    }
+
+    /**
+     * Grows the per-handle arrays (materials registered after binding).
+     */
+    private void growHandles(int min) {
+        int cap = Math.max(min, counts.length * 2);
+        counts = Arrays.copyOf(counts, cap);
+        positions = Arrays.copyOf(positions, cap);
+        int old = presentIndex.length;
+        presentIndex = Arrays.copyOf(presentIndex, cap);
+        Arrays.fill(presentIndex, old, cap, -1);
+    }
+}
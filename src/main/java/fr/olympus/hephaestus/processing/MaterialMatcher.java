@@ -1,7 +1,11 @@
 package fr.olympus.hephaestus.processing;
 
 import fr.olympus.hephaestus.materials.MaterialCategory;
+import fr.olympus.hephaestus.resources.CategoryBits;
+import fr.olympus.hephaestus.resources.HephaestusData;
 
+import java.lang.ref.WeakReference;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
@@ -46,6 +50,15 @@ public final class MaterialMatcher {
      * The set of category keys for category-based matching.
      */
     private final Set<String> categoryKeys;   // enum.name() triés
+    /**
+     * The unique key of the matcher, computed once (matchers are immutable).
+     */
+    private final String key;
+    /**
+     * Binding to the first registry using the matcher (resolved material handle and category bits), held until
+     * that registry is collected. Other registries keep their bindings in their own cache.
+     */
+    private volatile Binding binding;
 
     // Constructor
 
@@ -56,6 +69,12 @@ public final class MaterialMatcher {
         this.kind = Objects.requireNonNull(kind, "kind");
         this.materialId = materialId;
         this.categoryKeys = categoryKeys == null ? null : Set.copyOf(categoryKeys);
+        this.key = switch (kind) {
+            case ANY -> "ANY";
+            case ID -> "ID:" + materialId;
+            case ANY_OF_CATEGORIES -> "CAT_ANY:" + categoryKeys;
+            case ALL_OF_CATEGORIES -> "CAT_ALL:" + categoryKeys;
+        };
     }
 
     // Static factory methods
@@ -174,13 +193,110 @@ public final class MaterialMatcher {
      * @return the unique key for the matcher
      */
     public String key() {
+        return key;
+    }
+
+    /**
+     * Returns the registry handle of the matched material for ID-based matching.
+     * The resolution is cached per registry.
+     *
+     * @param data the registry to resolve the material ID against
+     * @return the material handle, or {@link HephaestusData#NO_HANDLE} if not an ID matcher or the ID is unknown
+     */
+    public int materialHandle(HephaestusData data) {
+        if (kind != Kind.ID) return HephaestusData.NO_HANDLE;
+        return bind(data).handle;
+    }
+
+    /**
+     * Returns the category bitset of this matcher for category-based matching.
+     * Categories no registered material uses yet have no bit and are left out.
+     * The resolution is cached per registry.
+     *
+     * @param data the registry to resolve the category keys against
+     * @return the category bitset (empty if not a category matcher)
+     */
+    public CategoryBits categoryBits(HephaestusData data) {
+        return bind(data).bits;
+    }
+
+    /**
+     * Checks whether a registered material matches this matcher.
+     *
+     * @param materialHandle the registry handle of the material
+     * @param data           the registry owning the handle
+     * @return true if the material matches, false otherwise
+     */
+    public boolean matches(int materialHandle, HephaestusData data) {
         return switch (kind) {
-            case ANY -> "ANY";
-            case ID -> "ID:" + materialId;
-            case ANY_OF_CATEGORIES -> "CAT_ANY:" + categoryKeys;
-            case ALL_OF_CATEGORIES -> "CAT_ALL:" + categoryKeys;
+            case ANY -> true;
+            case ID -> materialHandle != HephaestusData.NO_HANDLE && bind(data).handle == materialHandle;
+            case ANY_OF_CATEGORIES -> materialHandle != HephaestusData.NO_HANDLE
+                    && data.getMaterialCategoryBits(materialHandle).intersects(bind(data).bits);
+            case ALL_OF_CATEGORIES -> {
+                if (materialHandle == HephaestusData.NO_HANDLE) yield false;
+                Binding b = bind(data);
+                // une catégorie inconnue du registre ne peut être portée par aucun matériau
+                yield b.complete && data.getMaterialCategoryBits(materialHandle).containsAll(b.bits);
+            }
         };
     }
+
+    /**
+     * Returns the binding of this matcher to the given registry, resolving it if needed.
+     * A complete binding never changes (handles and bits are append-only); an incomplete one
+     * is resolved again when the registry epoch changes.
+     *
+     * @param data the registry
+     * @return the binding
+     */
+    private Binding bind(HephaestusData data) {
+        Binding b = binding;
+        HephaestusData owner = b == null ? null : b.data.get();
+        if (owner == data) {
+            if (b.complete || b.epoch == data.epoch()) return b;
+        } else if (owner != null) {
+            // Emplacement pris par un autre registre vivant : les liaisons de celui-ci restent chez lui
+            Map<MaterialMatcher, Binding> cache = data.matcherBindings();
+            Binding c = cache.get(this);
+            if (c != null && (c.complete || c.epoch == data.epoch())) return c;
+            c = resolve(data);
+            cache.put(this, c);
+            return c;
+        }
+        b = resolve(data);
+        binding = b;
+        return b;
+    }
+
+    /**
+     * Resolves this matcher against a registry.
+     *
+     * @param data the registry
+     * @return the new binding
+     */
+    private Binding resolve(HephaestusData data) {
+        long epoch = data.epoch();
+        int handle = HephaestusData.NO_HANDLE;
+        CategoryBits bits = CategoryBits.EMPTY;
+        boolean complete = true;
+
+        if (kind == Kind.ID) {
+            handle = data.materialHandle(materialId);
+            complete = handle != HephaestusData.NO_HANDLE;
+        } else if (categoryKeys != null) {
+            int[] resolved = new int[categoryKeys.size()];
+            int i = 0;
+            for (String k : categoryKeys) {
+                int bit = data.categoryBit(k);
+                if (bit == HephaestusData.NO_HANDLE) complete = false;
+                resolved[i++] = bit;
+            }
+            bits = CategoryBits.of(resolved);
+        }
+
+        return new Binding(new WeakReference<>(data), epoch, handle, bits, complete);
+    }
     // Overrides
 
     /**
@@ -200,7 +316,7 @@ public final class MaterialMatcher {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(key());
+        return key.hashCode();
     }
 
     /**
@@ -211,6 +327,46 @@ public final class MaterialMatcher {
      */
     @Override
     public boolean equals(Object o) {
-        return (o instanceof MaterialMatcher other) && Objects.equals(this.key(), other.key());
+        return (o instanceof MaterialMatcher other) && this.key.equals(other.key);
+    }
+
+    /**
+     * Resolution of a matcher against a registry, opaque outside this class (cached by the registry,
+     * see {@link HephaestusData#matcherBindings()}).
+     */
+    public static final class Binding {
+
+        /**
+         * The registry, weakly held: a matcher must not keep a discarded registry reachable.
+         */
+        private final WeakReference<HephaestusData> data;
+
+        /**
+         * The registry epoch at resolution time.
+         */
+        private final long epoch;
+
+        /**
+         * The resolved material handle (ID matchers).
+         */
+        private final int handle;
+
+        /**
+         * The resolved category bits (category matchers).
+         */
+        private final CategoryBits bits;
+
+        /**
+         * Whether every referenced id/category was known to the registry.
+         */
+        private final boolean complete;
+
+        private Binding(WeakReference<HephaestusData> data, long epoch, int handle, CategoryBits bits, boolean complete) {
+            this.data = data;
+            this.epoch = epoch;
+            this.handle = handle;
+            this.bits = bits;
+            this.complete = complete;
+        }
     }
 }
@@ -1,6 +1,7 @@
 package fr.olympus.hephaestus.processing;
 
 import fr.olympus.hephaestus.materials.MaterialInstance;
+import fr.olympus.hephaestus.resources.HephaestusData;
 
 import java.util.List;
 
@@ -24,10 +25,73 @@ public record ProcessContext(List<MaterialInstance> contents, List<MaterialInsta
 
     /**
      * Removes a material from the contents list at the specified index.
+     * With a {@link ContentStore}, the removal is O(1) and the last material takes the freed index.
      *
      * @param idx the index of the material to remove from contents
      */
     public void removeContentAt(int idx) {
         contents.remove(idx);
     }
+
+    /**
+     * Returns the counted content store of the factory, if it uses one.
+     *
+     * @return the content store, or null if the contents are a plain list
+     */
+    public ContentStore contentStoreOrNull() {
+        return contents instanceof ContentStore store ? store : null;
+    }
+
+    /**
+     * Checks whether distinct contents can be assigned to every input matcher.
+     * As with {@link ContentStore#containsAll}, ID matchers are served first, then ALL_OF, ANY_OF and ANY
+     * matchers, each taking the first unused material it matches. With a {@link ContentStore}, delegates to it.
+     * Allocates nothing for up to 64 contents.
+     *
+     * @param inputs the input matchers (one material each)
+     * @param data   the registry
+     * @return true if every input can be matched
+     */
+    public boolean containsAll(List<MaterialMatcher> inputs, HephaestusData data) {
+        ContentStore store = contentStoreOrNull();
+        if (store != null) return store.containsAll(inputs, data);
+
+        int n = contents.size();
+        if (inputs.size() > n) return false;
+        // Un bit par matière déjà prise : un mot suffit dans l'immense majorité des cas
+        long[] used = n > 64 ? new long[(n + 63) >>> 6] : null;
+        long bits = 0;
+        // Des matchers les plus spécifiques aux plus larges, comme le ContentStore
+        for (int pass = 0; pass < 4; pass++) {
+            for (int k = 0, m = inputs.size(); k < m; k++) {
+                MaterialMatcher need = inputs.get(k);
+                if (pass(need.getKind()) != pass) continue;
+                int found = -1;
+                for (int i = 0; i < n; i++) {
+                    boolean taken = used == null ? (bits & (1L << i)) != 0 : (used[i >>> 6] & (1L << i)) != 0;
+                    if (taken) continue;
+                    if (need.matches(data.materialHandle(contents.get(i)), data)) {
+                        found = i;
+                        break;
+                    }
+                }
+                if (found == -1) return false;
+                if (used == null) bits |= 1L << found;
+                else used[found >>> 6] |= 1L << found;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the pass serving a matcher kind in {@link #containsAll}.
+     */
+    private static int pass(MaterialMatcher.Kind kind) {
+        return switch (kind) {
+            case ID -> 0;
+            case ALL_OF_CATEGORIES -> 1;
+            case ANY_OF_CATEGORIES -> 2;
+            case ANY -> 3;
+        };
+    }
 }
@@ -90,6 +90,43 @@ public interface ProcessRecipe {
      */
     TimeWindow timeWindowOrNull();
 
+    /**
+     * Whether the process needs a call on every tick. When false, a timer-driven scheduler only touches
+     * the session on its time window transitions and on events (see {@link fr.olympus.hephaestus.factory.FactoryScheduler}):
+     * {@link #tryComplete} must then only change its answer on a phase change or an event.
+     * Defaults to true if the recipe overrides {@link #onTick} or {@link #onOverProcessed}.
+     *
+     * @return true if the process needs per-tick calls
+     */
+    default boolean needsTicks() {
+        return TickHooks.overridesTickHooks(getClass());
+    }
+
+    /**
+     * Seconds after its start at which a session of this recipe completes on its own (no event),
+     * if known in closed form. Together with {@link #fastForward}, lets a factory catch up on offline time
+     * without stepping (see {@code Factory#fastForward}).
+     *
+     * @return the session duration, or NaN (default) if the recipe does not complete on a known schedule
+     */
+    default float autoCompleteSeconds() {
+        return Float.NaN;
+    }
+
+    /**
+     * Applies in one step the effects of up to {@code runs} sessions completed back to back (consumed inputs,
+     * produced outputs), as that many successful {@link #tryComplete} calls would, stopping when the contents
+     * no longer allow another session. Only called for recipes with a positive {@link #autoCompleteSeconds()}.
+     *
+     * @param ctx  Process context
+     * @param data Hephaestus data
+     * @param runs Maximum number of sessions that fit in the time to catch up (at least 1)
+     * @return the number of sessions applied (0 to runs), or -1 (default) if the recipe cannot fast-forward
+     */
+    default int fastForward(ProcessContext ctx, fr.olympus.hephaestus.resources.HephaestusData data, int runs) {
+        return -1;
+    }
+
     /**
      * Check if the process can start
      *
@@ -0,0 +1,45 @@
+package fr.olympus.hephaestus.processing;
+
+import fr.olympus.hephaestus.resources.HephaestusData;
+
+/**
+ * Detects, once per recipe class, whether a recipe overrides the per-tick hooks of {@link ProcessRecipe}.
+ */
+final class TickHooks {
+
+    /**
+     * Whether each recipe class overrides {@code onTick} or {@code onOverProcessed}.
+     */
+    private static final ClassValue<Boolean> OVERRIDES = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return overrides(type, "onTick", ProcessContext.class, HephaestusData.class, float.class, ProcessingPhase.class)
+                    || overrides(type, "onOverProcessed", ProcessContext.class, HephaestusData.class, float.class);
+        }
+    };
+
+    // Prevent instantiation
+    private TickHooks() {
+    }
+
+    /**
+     * Checks whether a recipe class overrides {@code onTick} or {@code onOverProcessed}.
+     *
+     * @param type the recipe class
+     * @return true if a per-tick hook is overridden
+     */
+    static boolean overridesTickHooks(Class<? extends ProcessRecipe> type) {
+        return OVERRIDES.get(type);
+    }
+
+    /**
+     * Checks whether a public method of a class is declared elsewhere than in ProcessRecipe.
+     */
+    private static boolean overrides(Class<?> type, String name, Class<?>... params) {
+        try {
+            return type.getMethod(name, params).getDeclaringClass() != ProcessRecipe.class;
+        } catch (NoSuchMethodException e) {
+            return true;
+        }
+    }
+}
@@ -1,25 +1,18 @@
 package fr.olympus.hephaestus.register;
 
 import fr.olympus.hephaestus.Hephaestus;
-import fr.olympus.hephaestus.factory.Factory;
-import fr.olympus.hephaestus.factory.FactoryAnnotation;
-import fr.olympus.hephaestus.materials.Material;
-import fr.olympus.hephaestus.materials.MaterialAnnotation;
-import fr.olympus.hephaestus.processing.ProcessRecipe;
-import fr.olympus.hephaestus.processing.RecipeAnnotation;
 import fr.olympus.hephaestus.resources.HephaestusData;
-import io.github.classgraph.ClassGraph;
-import io.github.classgraph.ClassInfo;
-import io.github.classgraph.ScanResult;
 
-import java.lang.reflect.Constructor;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Predicate;
 
 /**
  * Utility class for automatically registering materials, factories, and process recipes
  * by scanning specified base packages for annotated classes.
+ * <p>
+ * Each {@code register} call scans the packages once; use a {@link ScanSession} to reuse one scan
+ * for several registration passes.
  */
 public final class AutoRegistrar {
 
@@ -29,109 +22,119 @@ public final class AutoRegistrar {
 
 
     /**
-     * Registers components based on the specified type and base packages.
+     * Registers components in the default Hephaestus instance based on the specified type and base packages.
      *
      * @param type         The type of components to register. see {@link RegisterType}.
      * @param basePackages The base packages to scan for components.
      * @throws IllegalArgumentException if type is null or basePackages is null/empty.
-     * @throws IllegalStateException    if any annotated class is invalid or cannot be instantiated.
+     * @throws IllegalStateException    if Hephaestus is not initialized, or if any annotated class is invalid or cannot be instantiated.
      */
     public static void register(RegisterType type, String... basePackages) {
-        if (type == null) throw new IllegalArgumentException("type cannot be null.");
-        if (basePackages == null || basePackages.length == 0)
-            throw new IllegalArgumentException("basePackages required.");
-
-        HephaestusData data = Hephaestus.getData();
-
-        try (ScanResult scan = new ClassGraph()
-                .enableClassInfo()
-                .enableAnnotationInfo()
-                .acceptPackages(basePackages)
-                .scan()) {
-
-            if (type == RegisterType.ALL || type == RegisterType.MATERIAL) {
-                for (ClassInfo ci : scan.getClassesWithAnnotation(MaterialAnnotation.class.getName())) {
-                    Class<?> raw = ci.loadClass();
-                    if (!Material.class.isAssignableFrom(raw)) {
-                        throw new IllegalStateException("@MaterialAnnotation on non-Material: " + raw.getName());
-                    }
-                    @SuppressWarnings("unchecked")
-                    Class<? extends Material> clazz = (Class<? extends Material>) raw;
-
-                    MaterialAnnotation ann = clazz.getAnnotation(MaterialAnnotation.class);
-                    data.registerMaterial(ann.id(), newInstance(clazz));
-                }
-            }
-
-            if (type == RegisterType.ALL || type == RegisterType.FACTORY) {
-                for (ClassInfo ci : scan.getClassesWithAnnotation(FactoryAnnotation.class.getName())) {
-                    Class<?> raw = ci.loadClass();
-                    if (!Factory.class.isAssignableFrom(raw)) {
-                        throw new IllegalStateException("@FactoryAnnotation on non-Factory: " + raw.getName());
-                    }
-                    @SuppressWarnings("unchecked")
-                    Class<? extends Factory> clazz = (Class<? extends Factory>) raw;
+        register(Hephaestus.getData(), type, basePackages);
+    }
 
-                    FactoryAnnotation ann = clazz.getAnnotation(FactoryAnnotation.class);
+    /**
+     * Registers components in the given registry based on the specified type and base packages.
+     * The components are published in a single snapshot.
+     *
+     * @param data         The registry to register components in.
+     * @param type         The type of components to register. see {@link RegisterType}.
+     * @param basePackages The base packages to scan for components.
+     * @throws IllegalArgumentException if data or type is null or basePackages is null/empty.
+     * @throws IllegalStateException    if any annotated class is invalid or cannot be instantiated.
+     */
+    public static void register(HephaestusData data, RegisterType type, String... basePackages) {
+        if (data == null) throw new IllegalArgumentException("data cannot be null.");
+        if (type == null) throw new IllegalArgumentException("type cannot be null.");
 
-                    Set<String> groups = new HashSet<>(Arrays.asList(ann.groups()));
-                    FactoryRegistryEntry entry = new FactoryRegistryEntry(
-                            ann.id(),
-                            groups,
-                            ann.level(),
-                            () -> newInstance(clazz)
-                    );
+        try (ScanSession scan = ScanSession.open(basePackages)) {
+            scan.register(data, type);
+        }
+    }
 
-                    data.registerFactory(entry);
-                }
-            }
+    /**
+     * Registers components in the given registry, reusing the scan result cached in a file.
+     * The classpath is not scanned when the cache matches the current classpath fingerprint;
+     * otherwise it is scanned and the cache is rewritten (see {@link ScanSession#open(Path, String...)}).
+     *
+     * @param data         The registry to register components in.
+     * @param type         The type of components to register. see {@link RegisterType}.
+     * @param cacheFile    The scan cache file.
+     * @param basePackages The base packages to scan for components.
+     * @throws IllegalArgumentException if data, type or cacheFile is null or basePackages is null/empty.
+     * @throws IllegalStateException    if any annotated class is invalid or cannot be instantiated.
+     */
+    public static void register(HephaestusData data, RegisterType type, Path cacheFile, String... basePackages) {
+        if (data == null) throw new IllegalArgumentException("data cannot be null.");
+        if (type == null) throw new IllegalArgumentException("type cannot be null.");
 
-            if (type == RegisterType.ALL || type == RegisterType.RECIPE) {
-                for (ClassInfo ci : scan.getClassesWithAnnotation(RecipeAnnotation.class.getName())) {
-                    Class<?> raw = ci.loadClass();
-                    if (!ProcessRecipe.class.isAssignableFrom(raw)) {
-                        throw new IllegalStateException("@RecipeAnnotation on non-ProcessRecipe: " + raw.getName());
-                    }
-                    @SuppressWarnings("unchecked")
-                    Class<? extends ProcessRecipe> clazz = (Class<? extends ProcessRecipe>) raw;
+        try (ScanSession scan = ScanSession.open(cacheFile, basePackages)) {
+            scan.register(data, type);
+        }
+    }
 
-                    RecipeAnnotation ann = clazz.getAnnotation(RecipeAnnotation.class);
+    /**
+     * Registers components in the default Hephaestus instance from the compile-time registry indexes.
+     *
+     * @param type         The type of components to register. see {@link RegisterType}.
+     * @param basePackages The base packages of the components to register (none means every indexed component).
+     * @throws IllegalArgumentException if type is null.
+     * @throws IllegalStateException    if Hephaestus is not initialized, or if no registry index is found.
+     * @see #registerIndexed(HephaestusData, RegisterType, String...)
+     */
+    public static void registerIndexed(RegisterType type, String... basePackages) {
+        registerIndexed(Hephaestus.getData(), type, basePackages);
+    }
 
-                    RecipeSelector selector = new RecipeSelector(
-                            Set.of(ann.factoryIds()),
-                            Set.of(ann.factoryGroups()),
-                            ann.minFactoryLevel()
-                    );
+    /**
+     * Registers components in the given registry from the compile-time registry indexes.
+     * <p>
+     * Indexes are generated by the Hephaestus annotation processor ({@code annotationProcessor project(':processor')})
+     * and found with {@link ServiceLoader}. Unlike {@link #register(HephaestusData, RegisterType, String...)},
+     * nothing is scanned and components are instantiated with direct constructor calls.
+     *
+     * @param data         The registry to register components in.
+     * @param type         The type of components to register. see {@link RegisterType}.
+     * @param basePackages The base packages of the components to register (none means every indexed component).
+     * @throws IllegalArgumentException if data or type is null.
+     * @throws IllegalStateException    if no registry index is found.
+     */
+    public static void registerIndexed(HephaestusData data, RegisterType type, String... basePackages) {
+        if (data == null) throw new IllegalArgumentException("data cannot be null.");
+        if (type == null) throw new IllegalArgumentException("type cannot be null.");
 
-                    ProcessRecipeRegistryEntry entry = new ProcessRecipeRegistryEntry(
-                            ann.id(),
-                            selector,
-                            newInstance(clazz)
-                    );
+        List<RegistryIndex> indexes = new ArrayList<>();
+        ServiceLoader.load(RegistryIndex.class).forEach(indexes::add);
+        if (indexes.isEmpty()) {
+            throw new IllegalStateException("No RegistryIndex found: is the Hephaestus annotation processor enabled?");
+        }
 
-                    data.registerProcessRecipe(entry);
-                }
-            }
+        Predicate<String> filter = packageFilter(basePackages);
+        if (type == RegisterType.ALL || type == RegisterType.MATERIAL) {
+            for (RegistryIndex index : indexes) index.registerMaterials(data, filter);
+        }
+        if (type == RegisterType.ALL || type == RegisterType.FACTORY) {
+            for (RegistryIndex index : indexes) index.registerFactories(data, filter);
+        }
+        if (type == RegisterType.ALL || type == RegisterType.RECIPE) {
+            for (RegistryIndex index : indexes) index.registerRecipes(data, filter);
         }
     }
 
     /**
-     * Creates a new instance of the specified class using its no-argument constructor.
+     * Creates a filter accepting the given packages and their sub-packages.
      *
-     * @param clazz The class to instantiate.
-     * @param <T>   The type of the class.
-     * @return A new instance of the specified class.
-     * @throws IllegalStateException if the class cannot be instantiated.
+     * @param basePackages The base packages (none means every package).
+     * @return The package name filter.
      */
-    private static <T> T newInstance(Class<T> clazz) {
-        try {
-            Constructor<T> c = clazz.getDeclaredConstructor();
-            c.setAccessible(true);
-            return c.newInstance();
-        } catch (NoSuchMethodException e) {
-            throw new IllegalStateException("No-arg constructor required for auto-register: " + clazz.getName(), e);
-        } catch (Exception e) {
-            throw new IllegalStateException("Cannot instantiate: " + clazz.getName(), e);
-        }
+    private static Predicate<String> packageFilter(String... basePackages) {
+        if (basePackages == null || basePackages.length == 0) return p -> true;
+        String[] bases = basePackages.clone();
+        return p -> {
+            for (String b : bases) {
+                if (p.equals(b) || p.startsWith(b + ".")) return true;
+            }
+            return false;
+        };
     }
 }
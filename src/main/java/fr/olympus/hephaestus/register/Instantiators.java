@@ -0,0 +1,85 @@
+package fr.olympus.hephaestus.register;
+
+import java.lang.invoke.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.function.Supplier;
+
+/**
+ * Builds suppliers calling the no-argument constructor of a class, resolved once.
+ * <p>
+ * The supplier is spun by {@link LambdaMetafactory} from a private lookup in the class, so calling it
+ * costs about the same as a direct {@code new}. When the class is not accessible that way (other module
+ * or class loader), it falls back to a cached {@link MethodHandle}; errors (linkage, initialization, memory) are
+ * thrown as they are.
+ */
+final class Instantiators {
+
+    // Prevent instantiation
+    private Instantiators() {
+    }
+
+    /**
+     * Creates a supplier of new instances of a class.
+     *
+     * @param clazz the class to instantiate
+     * @param <T>   the type of the class
+     * @return the supplier
+     * @throws IllegalStateException if the class has no no-argument constructor or is abstract.
+     */
+    static <T> Supplier<T> supplierOf(Class<T> clazz) {
+        if (Modifier.isAbstract(clazz.getModifiers())) {
+            throw new IllegalStateException("Cannot instantiate abstract class: " + clazz.getName());
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+            MethodHandle ctor = lookup.findConstructor(clazz, MethodType.methodType(void.class));
+            CallSite site = LambdaMetafactory.metafactory(
+                    lookup,
+                    "get",
+                    MethodType.methodType(Supplier.class),
+                    MethodType.methodType(Object.class),
+                    ctor,
+                    MethodType.methodType(clazz));
+            @SuppressWarnings("unchecked")
+            Supplier<T> supplier = (Supplier<T>) site.getTarget().invoke();
+            return supplier;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("No-arg constructor required for auto-register: " + clazz.getName(), e);
+        } catch (IllegalAccessException | LambdaConversionException | SecurityException e) {
+            // Lookup privé refusé (module / class loader) : handle mis en cache
+            return handleSupplier(clazz);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot instantiate: " + clazz.getName(), e);
+        }
+    }
+
+    /**
+     * Creates a supplier invoking a cached constructor handle.
+     *
+     * @throws IllegalStateException if the class has no accessible no-argument constructor.
+     */
+    private static <T> Supplier<T> handleSupplier(Class<T> clazz) {
+        MethodHandle handle;
+        try {
+            Constructor<T> c = clazz.getDeclaredConstructor();
+            c.setAccessible(true);
+            handle = MethodHandles.lookup().unreflectConstructor(c).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("No-arg constructor required for auto-register: " + clazz.getName(), e);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException("Cannot instantiate: " + clazz.getName(), e);
+        }
+        return () -> {
+            try {
+                return clazz.cast(handle.invokeExact());
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("Cannot instantiate: " + clazz.getName(), e);
+            }
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package fr.olympus.hephaestus.register;
+
+import fr.olympus.hephaestus.resources.HephaestusData;
+
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Registry index generated at compile time by the Hephaestus annotation processor.
+ * <p>
+ * The generated implementation lists every class annotated with
+ * {@link fr.olympus.hephaestus.materials.MaterialAnnotation},
+ * {@link fr.olympus.hephaestus.factory.FactoryAnnotation} or
+ * {@link fr.olympus.hephaestus.processing.RecipeAnnotation} of its compilation unit, and registers
+ * them with direct constructor calls: no classpath scan and no reflection at runtime.
+ * Implementations are found with {@link java.util.ServiceLoader} (see {@link AutoRegistrar#registerIndexed}).
+ * Classes that generated code cannot instantiate directly go through {@link #reflectiveSupplier}.
+ */
+public interface RegistryIndex {
+
+    /**
+     * Registers the indexed materials.
+     *
+     * @param data          the registry to register in
+     * @param packageFilter accepts the package names of the classes to register
+     */
+    void registerMaterials(HephaestusData data, Predicate<String> packageFilter);
+
+    /**
+     * Registers the indexed factories.
+     *
+     * @param data          the registry to register in
+     * @param packageFilter accepts the package names of the classes to register
+     */
+    void registerFactories(HephaestusData data, Predicate<String> packageFilter);
+
+    /**
+     * Registers the indexed process recipes, in a single snapshot.
+     *
+     * @param data          the registry to register in
+     * @param packageFilter accepts the package names of the classes to register
+     */
+    void registerRecipes(HephaestusData data, Predicate<String> packageFilter);
+
+    /**
+     * Called by generated indexes for the annotated classes they cannot instantiate directly (not public, or without
+     * a public no-arg constructor): loads the class with the class loader of the index and resolves its no-arg
+     * constructor, as the classpath scan does.
+     *
+     * @param index      the generated index
+     * @param binaryName the binary name of the class
+     * @param type       the type the class extends or implements
+     * @param <T>        the type
+     * @return the supplier of new instances
+     * @throws IllegalStateException if the class cannot be loaded or instantiated.
+     */
+    static <T> Supplier<T> reflectiveSupplier(RegistryIndex index, String binaryName, Class<T> type) {
+        Class<?> raw;
+        try {
+            raw = Class.forName(binaryName, true, index.getClass().getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            throw new IllegalStateException("Cannot load: " + binaryName, e);
+        }
+        if (!type.isAssignableFrom(raw)) throw new IllegalStateException("Not a " + type.getSimpleName() + ": " + binaryName);
+        @SuppressWarnings("unchecked")
+        Supplier<T> supplier = (Supplier<T>) Instantiators.supplierOf(raw.asSubclass(type));
+        return supplier;
+    }
+}
@@ -0,0 +1,200 @@
+package fr.olympus.hephaestus.register;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of scan results, keyed by a fingerprint of the classpath.
+ * <p>
+ * The fingerprint covers the scanned packages and every classpath / module path entry: path, size and
+ * modification time of each jar, and of each file under each directory. While it is unchanged, the
+ * cached components are used and the classpath is not scanned. The file is a small binary stream:
+ * magic, version, fingerprint, then the components.
+ */
+final class ScanCache {
+
+    /**
+     * Magic number of cache files.
+     */
+    private static final int MAGIC = 0x48505343;
+
+    /**
+     * Version of the file format.
+     */
+    private static final int VERSION = 2;
+
+    // Prevent instantiation
+    private ScanCache() {
+    }
+
+    /**
+     * Computes the fingerprint of the current classpath for the given packages.
+     *
+     * @param basePackages the scanned packages
+     * @return the fingerprint (SHA-256, hex)
+     */
+    static String fingerprint(String... basePackages) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available.", e);
+        }
+
+        String[] packages = basePackages.clone();
+        Arrays.sort(packages);
+        for (String p : packages) update(md, "pkg:" + p);
+
+        for (String property : new String[]{"java.class.path", "jdk.module.path"}) {
+            String value = System.getProperty(property);
+            if (value == null || value.isEmpty()) continue;
+            for (String entry : value.split(File.pathSeparator)) {
+                if (!entry.isEmpty()) fingerprintEntry(md, Paths.get(entry));
+            }
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    /**
+     * Adds a classpath entry to the fingerprint.
+     */
+    private static void fingerprintEntry(MessageDigest md, Path entry) {
+        update(md, "entry:" + entry.toAbsolutePath());
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+            if (!attrs.isDirectory()) {
+                update(md, attrs.size() + ":" + attrs.lastModifiedTime().toMillis());
+                return;
+            }
+            List<String> files = new ArrayList<>();
+            try (Stream<Path> walk = Files.walk(entry)) {
+                walk.forEach(f -> {
+                    try {
+                        BasicFileAttributes a = Files.readAttributes(f, BasicFileAttributes.class);
+                        if (a.isRegularFile()) {
+                            files.add(entry.relativize(f) + ":" + a.size() + ":" + a.lastModifiedTime().toMillis());
+                        }
+                    } catch (IOException e) {
+                        files.add(entry.relativize(f) + ":unreadable");
+                    }
+                });
+            }
+            // L'ordre de parcours n'est pas garanti
+            Collections.sort(files);
+            for (String f : files) update(md, f);
+        } catch (IOException | UncheckedIOException e) {
+            update(md, "missing");
+        }
+    }
+
+    /**
+     * Adds a string to the digest.
+     */
+    private static void update(MessageDigest md, String s) {
+        md.update(s.getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+    }
+
+    /**
+     * Reads the cached components if the cache matches the fingerprint.
+     *
+     * @param file        the cache file
+     * @param fingerprint the current fingerprint
+     * @return the cached components, or null if the cache is missing, stale or unreadable
+     */
+    static List<ScannedComponent> read(Path file, String fingerprint) {
+        if (!Files.isRegularFile(file)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+            if (!in.readUTF().equals(fingerprint)) return null;
+
+            int n = in.readInt();
+            List<ScannedComponent> out = new ArrayList<>(Math.min(n, 1024));
+            for (int i = 0; i < n; i++) {
+                RegisterType type = RegisterType.valueOf(in.readUTF());
+                String className = in.readUTF();
+                String id = in.readUTF();
+                List<String> factoryIds = readList(in);
+                List<String> groups = readList(in);
+                int level = in.readInt();
+                boolean lazy = in.readBoolean();
+                String typeName = in.readUTF();
+                List<String> categories = readList(in);
+                out.add(new ScannedComponent(type, className, id, factoryIds, groups, level, lazy, typeName, categories));
+            }
+            return out;
+        } catch (IOException | IllegalArgumentException e) {
+            // Cache corrompu : on rescanne
+            return null;
+        }
+    }
+
+    /**
+     * Writes the components to the cache file, replacing it atomically when the file system allows it.
+     * A cache that cannot be written is ignored: it only costs a scan on the next start.
+     *
+     * @param file        the cache file
+     * @param fingerprint the fingerprint the components were scanned with
+     * @param components  the scanned components
+     */
+    static void write(Path file, String fingerprint, List<ScannedComponent> components) {
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            if (dir != null) Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeUTF(fingerprint);
+                    out.writeInt(components.size());
+                    for (ScannedComponent c : components) {
+                        out.writeUTF(c.type().name());
+                        out.writeUTF(c.className());
+                        out.writeUTF(c.id());
+                        writeList(out, c.factoryIds());
+                        writeList(out, c.groups());
+                        out.writeInt(c.level());
+                        out.writeBoolean(c.lazy());
+                        out.writeUTF(c.typeName());
+                        writeList(out, c.categories());
+                    }
+                }
+                try {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException ignored) {
+            // le cache n'est qu'une optimisation
+        }
+    }
+
+    /**
+     * Reads a string list.
+     */
+    private static List<String> readList(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0) throw new IOException("Corrupted cache.");
+        List<String> list = new ArrayList<>(Math.min(n, 16));
+        for (int i = 0; i < n; i++) list.add(in.readUTF());
+        return list;
+    }
+
+    /**
+     * Writes a string list.
+     */
+    private static void writeList(DataOutputStream out, List<String> list) throws IOException {
+        out.writeInt(list.size());
+        for (String s : list) out.writeUTF(s);
+    }
+}
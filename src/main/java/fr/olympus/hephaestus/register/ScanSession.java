@@ -0,0 +1,403 @@
+package fr.olympus.hephaestus.register;
+
+import fr.olympus.hephaestus.factory.Factory;
+import fr.olympus.hephaestus.factory.FactoryAnnotation;
+import fr.olympus.hephaestus.materials.Material;
+import fr.olympus.hephaestus.materials.MaterialAnnotation;
+import fr.olympus.hephaestus.materials.MaterialDescriptor;
+import fr.olympus.hephaestus.processing.ProcessRecipe;
+import fr.olympus.hephaestus.processing.RecipeAnnotation;
+import fr.olympus.hephaestus.resources.HephaestusData;
+import io.github.classgraph.AnnotationParameterValueList;
+import io.github.classgraph.ClassGraph;
+import io.github.classgraph.ClassInfo;
+import io.github.classgraph.ScanResult;
+
+import java.lang.reflect.Constructor;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Result of a single classpath scan, reusable for any number of registration passes.
+ * <p>
+ * The base packages are scanned once when the session is opened; only the names and annotation attributes
+ * of the annotated classes are kept. With a cache file ({@link #open(Path, String...)}), the result is also
+ * written to disk, and later sessions skip the scan while the classpath fingerprint is unchanged.
+ * Each {@link #register(HephaestusData, RegisterType)} pass loads and instantiates
+ * the classes in parallel on a bounded pool owned by the session, then publishes everything in the
+ * registry at once (see {@link HephaestusData#registerAll}). Materials declared {@code lazy} are registered as
+ * descriptors and only loaded and instantiated on their first use.
+ * <pre>
+ * try (ScanSession scan = ScanSession.open("my.materials", "my.factories", "my.recipes")) {
+ *     scan.register(worldA, RegisterType.ALL);
+ *     scan.register(worldB, RegisterType.ALL);
+ * }
+ * </pre>
+ */
+public final class ScanSession implements AutoCloseable {
+
+    /**
+     * Classes annotated with {@link MaterialAnnotation}, sorted by name.
+     */
+    private final List<ScannedComponent> materialClasses;
+
+    /**
+     * Classes annotated with {@link FactoryAnnotation}, sorted by name.
+     */
+    private final List<ScannedComponent> factoryClasses;
+
+    /**
+     * Classes annotated with {@link RecipeAnnotation}, sorted by name.
+     */
+    private final List<ScannedComponent> recipeClasses;
+
+    /**
+     * Whether the components were read from the cache file instead of scanned.
+     */
+    private final boolean fromCache;
+
+    /**
+     * Maximum number of threads loading and instantiating classes.
+     */
+    private final int parallelism;
+
+    /**
+     * Pool loading and instantiating classes, created on first use.
+     */
+    private ExecutorService pool;
+
+    /**
+     * Whether the session is closed.
+     */
+    private boolean closed;
+
+    /**
+     * Constructs a session from the discovered components.
+     */
+    private ScanSession(List<ScannedComponent> components, boolean fromCache, int parallelism) {
+        this.materialClasses = ofType(components, RegisterType.MATERIAL);
+        this.factoryClasses = ofType(components, RegisterType.FACTORY);
+        this.recipeClasses = ofType(components, RegisterType.RECIPE);
+        this.fromCache = fromCache;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Scans the given packages, with a pool of up to one thread per available processor.
+     *
+     * @param basePackages The base packages to scan for components.
+     * @return The scan session.
+     * @throws IllegalArgumentException if basePackages is null/empty.
+     */
+    public static ScanSession open(String... basePackages) {
+        return open(Runtime.getRuntime().availableProcessors(), basePackages);
+    }
+
+    /**
+     * Scans the given packages.
+     *
+     * @param parallelism  The maximum number of threads loading and instantiating classes.
+     * @param basePackages The base packages to scan for components.
+     * @return The scan session.
+     * @throws IllegalArgumentException if parallelism is not positive or basePackages is null/empty.
+     */
+    public static ScanSession open(int parallelism, String... basePackages) {
+        if (parallelism <= 0) throw new IllegalArgumentException("parallelism must be > 0.");
+        if (basePackages == null || basePackages.length == 0)
+            throw new IllegalArgumentException("basePackages required.");
+
+        return new ScanSession(scan(basePackages), false, parallelism);
+    }
+
+    /**
+     * Opens a session from a cache file, with a pool of up to one thread per available processor.
+     *
+     * @param cacheFile    The scan cache file (created or replaced when stale).
+     * @param basePackages The base packages to scan for components.
+     * @return The scan session.
+     * @throws IllegalArgumentException if cacheFile is null or basePackages is null/empty.
+     * @see #open(int, Path, String...)
+     */
+    public static ScanSession open(Path cacheFile, String... basePackages) {
+        return open(Runtime.getRuntime().availableProcessors(), cacheFile, basePackages);
+    }
+
+    /**
+     * Opens a session from a cache file.
+     * <p>
+     * If the file was written for the same packages and an unchanged classpath (same entries, sizes and
+     * modification times), the components are read from it and nothing is scanned. Otherwise the packages
+     * are scanned and the file is rewritten.
+     *
+     * @param parallelism  The maximum number of threads loading and instantiating classes.
+     * @param cacheFile    The scan cache file (created or replaced when stale).
+     * @param basePackages The base packages to scan for components.
+     * @return The scan session.
+     * @throws IllegalArgumentException if parallelism is not positive, cacheFile is null or basePackages is null/empty.
+     */
+    public static ScanSession open(int parallelism, Path cacheFile, String... basePackages) {
+        if (parallelism <= 0) throw new IllegalArgumentException("parallelism must be > 0.");
+        if (cacheFile == null) throw new IllegalArgumentException("cacheFile cannot be null.");
+        if (basePackages == null || basePackages.length == 0)
+            throw new IllegalArgumentException("basePackages required.");
+
+        String fingerprint = ScanCache.fingerprint(basePackages);
+        List<ScannedComponent> cached = ScanCache.read(cacheFile, fingerprint);
+        if (cached != null) return new ScanSession(cached, true, parallelism);
+
+        List<ScannedComponent> scanned = scan(basePackages);
+        ScanCache.write(cacheFile, fingerprint, scanned);
+        return new ScanSession(scanned, false, parallelism);
+    }
+
+    /**
+     * Registers the scanned components of the given type in a registry, in a single publish.
+     *
+     * @param data The registry to register components in.
+     * @param type The type of components to register. see {@link RegisterType}.
+     * @throws IllegalArgumentException if data or type is null, or an ID is already registered.
+     * @throws IllegalStateException    if the session is closed, or if any annotated class is invalid or cannot be instantiated.
+     */
+    public void register(HephaestusData data, RegisterType type) {
+        if (data == null) throw new IllegalArgumentException("data cannot be null.");
+        if (type == null) throw new IllegalArgumentException("type cannot be null.");
+
+        boolean all = type == RegisterType.ALL;
+        List<ScannedComponent> mats = all || type == RegisterType.MATERIAL ? materialClasses : List.of();
+        List<ScannedComponent> facs = all || type == RegisterType.FACTORY ? factoryClasses : List.of();
+        List<ScannedComponent> recs = all || type == RegisterType.RECIPE ? recipeClasses : List.of();
+
+        // Toutes les tâches sont soumises avant d'attendre : les trois listes se chargent en parallèle
+        List<Future<MaterialDescriptor>> matTasks = submitAll(mats, ScanSession::loadMaterial);
+        List<Future<FactoryRegistryEntry>> facTasks = submitAll(facs, ScanSession::loadFactory);
+        List<Future<ProcessRecipeRegistryEntry>> recTasks = submitAll(recs, ScanSession::loadRecipe);
+
+        data.registerAll(join(matTasks), join(facTasks), join(recTasks));
+    }
+
+    /**
+     * Checks whether the components were read from the cache file (no scan).
+     *
+     * @return true if the cache was used
+     */
+    public boolean fromCache() {
+        return fromCache;
+    }
+
+    /**
+     * Returns the number of annotated classes found by the scan.
+     *
+     * @return the number of materials, factories and recipes
+     */
+    public int size() {
+        return materialClasses.size() + factoryClasses.size() + recipeClasses.size();
+    }
+
+    /**
+     * Shuts the loading pool down. The session cannot be used afterward.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (pool != null) pool.shutdown();
+    }
+
+    /**
+     * Submits a loading task per component, in order.
+     */
+    private <T> List<Future<T>> submitAll(List<ScannedComponent> components, Function<ScannedComponent, T> loader) {
+        ExecutorService p = pool();
+        List<Future<T>> tasks = new ArrayList<>(components.size());
+        for (ScannedComponent c : components) {
+            tasks.add(p.submit(() -> loader.apply(c)));
+        }
+        return tasks;
+    }
+
+    /**
+     * Waits for the tasks and returns their results, in submission order.
+     */
+    private static <T> List<T> join(List<Future<T>> tasks) {
+        List<T> out = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> f : tasks) out.add(f.get());
+        } catch (ExecutionException e) {
+            for (Future<T> f : tasks) f.cancel(false);
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException("Cannot load component.", e.getCause());
+        } catch (InterruptedException e) {
+            for (Future<T> f : tasks) f.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading components.", e);
+        }
+        return out;
+    }
+
+    /**
+     * Returns the loading pool, creating it on first use.
+     */
+    private synchronized ExecutorService pool() {
+        if (closed) throw new IllegalStateException("Scan session is closed.");
+        if (pool == null) {
+            pool = Executors.newFixedThreadPool(parallelism, r -> {
+                Thread t = new Thread(r, "hephaestus-scan");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return pool;
+    }
+
+    /**
+     * Scans the packages for annotated classes, reading their annotation attributes without loading them.
+     */
+    private static List<ScannedComponent> scan(String... basePackages) {
+        try (ScanResult scan = new ClassGraph()
+                .enableClassInfo()
+                .enableAnnotationInfo()
+                .acceptPackages(basePackages)
+                .scan()) {
+            List<ScannedComponent> out = new ArrayList<>();
+            for (ClassInfo ci : scan.getClassesWithAnnotation(MaterialAnnotation.class.getName())) {
+                AnnotationParameterValueList v = parametersOf(ci, MaterialAnnotation.class);
+                out.add(new ScannedComponent(RegisterType.MATERIAL, ci.getName(), (String) v.getValue("id"),
+                        List.of(), List.of(), 0, Boolean.TRUE.equals(v.getValue("lazy")),
+                        v.getValue("type") == null ? "" : (String) v.getValue("type"), strings(v.getValue("categories"))));
+            }
+            for (ClassInfo ci : scan.getClassesWithAnnotation(FactoryAnnotation.class.getName())) {
+                AnnotationParameterValueList v = parametersOf(ci, FactoryAnnotation.class);
+                out.add(new ScannedComponent(RegisterType.FACTORY, ci.getName(), (String) v.getValue("id"),
+                        List.of(), strings(v.getValue("groups")), intValue(v.getValue("level"))));
+            }
+            for (ClassInfo ci : scan.getClassesWithAnnotation(RecipeAnnotation.class.getName())) {
+                AnnotationParameterValueList v = parametersOf(ci, RecipeAnnotation.class);
+                out.add(new ScannedComponent(RegisterType.RECIPE, ci.getName(), (String) v.getValue("id"),
+                        strings(v.getValue("factoryIds")), strings(v.getValue("factoryGroups")),
+                        intValue(v.getValue("minFactoryLevel"))));
+            }
+            return out;
+        }
+    }
+
+    /**
+     * Reads the annotation attributes of a scanned class, defaults included.
+     */
+    private static AnnotationParameterValueList parametersOf(ClassInfo ci, Class<?> annotation) {
+        return ci.getAnnotationInfo(annotation.getName()).getParameterValues(true);
+    }
+
+    /**
+     * Converts a scanned int attribute. ClassGraph only knows the defaults of scanned annotation
+     * classes: a missing attribute takes the annotation default (0).
+     */
+    private static int intValue(Object value) {
+        return value == null ? 0 : (Integer) value;
+    }
+
+    /**
+     * Converts a scanned array attribute to a string list (a missing attribute is the default, empty).
+     */
+    private static List<String> strings(Object value) {
+        if (value == null) return List.of();
+        Object[] array = (Object[]) value;
+        List<String> out = new ArrayList<>(array.length);
+        for (Object o : array) out.add((String) o);
+        return out;
+    }
+
+    /**
+     * Selects the components of a type, sorted by class name.
+     */
+    private static List<ScannedComponent> ofType(List<ScannedComponent> components, RegisterType type) {
+        List<ScannedComponent> out = new ArrayList<>();
+        for (ScannedComponent c : components) {
+            if (c.type() == type) out.add(c);
+        }
+        out.sort(Comparator.comparing(ScannedComponent::className));
+        return List.copyOf(out);
+    }
+
+    /**
+     * Loads and instantiates a material class, or describes a lazy material without loading its class.
+     */
+    private static MaterialDescriptor loadMaterial(ScannedComponent c) {
+        if (c.lazy()) {
+            // Classe chargée au premier getMaterialDef seulement
+            return MaterialDescriptor.lazy(c.id(), c.typeName(), c.categories(), () -> newInstance(constructorOf(
+                    loadClass(c.className(), Material.class, MaterialAnnotation.class))));
+        }
+        Class<? extends Material> clazz = loadClass(c.className(), Material.class, MaterialAnnotation.class);
+        return MaterialDescriptor.of(c.id(), newInstance(constructorOf(clazz)));
+    }
+
+    /**
+     * Loads a factory class and builds its registry entry.
+     */
+    private static FactoryRegistryEntry loadFactory(ScannedComponent c) {
+        Class<? extends Factory> clazz = loadClass(c.className(), Factory.class, FactoryAnnotation.class);
+        // Constructeur résolu une seule fois : chaque createFactory coûte un simple new
+        return FactoryRegistryEntry.of(c.id(), new HashSet<>(c.groups()), c.level(), clazz);
+    }
+
+    /**
+     * Loads and instantiates a recipe class and builds its registry entry.
+     */
+    private static ProcessRecipeRegistryEntry loadRecipe(ScannedComponent c) {
+        Class<? extends ProcessRecipe> clazz = loadClass(c.className(), ProcessRecipe.class, RecipeAnnotation.class);
+        RecipeSelector selector = new RecipeSelector(
+                Set.copyOf(c.factoryIds()),
+                Set.copyOf(c.groups()),
+                c.level()
+        );
+        return new ProcessRecipeRegistryEntry(c.id(), selector, newInstance(constructorOf(clazz)));
+    }
+
+    /**
+     * Loads an annotated class and checks its type.
+     *
+     * @throws IllegalStateException if the class cannot be loaded or has the wrong type.
+     */
+    private static <T> Class<? extends T> loadClass(String className, Class<T> type, Class<?> annotation) {
+        Class<?> raw;
+        try {
+            ClassLoader cl = Thread.currentThread().getContextClassLoader();
+            raw = Class.forName(className, true, cl != null ? cl : ScanSession.class.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            throw new IllegalStateException("Cannot load: " + className, e);
+        }
+        if (!type.isAssignableFrom(raw)) {
+            throw new IllegalStateException("@" + annotation.getSimpleName() + " on non-" + type.getSimpleName() + ": " + raw.getName());
+        }
+        return raw.asSubclass(type);
+    }
+
+    /**
+     * Resolves the no-argument constructor of a class.
+     *
+     * @throws IllegalStateException if the class has no no-argument constructor.
+     */
+    private static <T> Constructor<T> constructorOf(Class<T> clazz) {
+        try {
+            Constructor<T> c = clazz.getDeclaredConstructor();
+            c.setAccessible(true);
+            return c;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("No-arg constructor required for auto-register: " + clazz.getName(), e);
+        }
+    }
+
+    /**
+     * Creates a new instance with a resolved constructor.
+     *
+     * @throws IllegalStateException if the class cannot be instantiated.
+     */
+    private static <T> T newInstance(Constructor<T> ctor) {
+        try {
+            return ctor.newInstance();
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot instantiate: " + ctor.getDeclaringClass().getName(), e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package fr.olympus.hephaestus.register;
+
+import java.util.List;
+
+/**
+ * Annotated class found by a scan, with its annotation attributes.
+ *
+ * @param type       the kind of component (MATERIAL, FACTORY or RECIPE)
+ * @param className  the binary name of the class
+ * @param id         the id of the component
+ * @param factoryIds the target factory ids (recipes only)
+ * @param groups     the factory groups (factories) or target factory groups (recipes)
+ * @param level      the factory level (factories) or minimum factory level (recipes)
+ * @param lazy       whether the material is registered as a lazy descriptor (materials only)
+ * @param typeName   the declared type name of a lazy material, empty if none (materials only)
+ * @param categories the declared category keys of a lazy material (materials only)
+ */
+record ScannedComponent(RegisterType type, String className, String id,
+                        List<String> factoryIds, List<String> groups, int level,
+                        boolean lazy, String typeName, List<String> categories) {
+
+    /**
+     * Constructs a scanned component, copying the lists.
+     */
+    ScannedComponent {
+        factoryIds = List.copyOf(factoryIds);
+        groups = List.copyOf(groups);
+        categories = List.copyOf(categories);
+    }
+
+    /**
+     * Constructs a scanned component without lazy material metadata.
+     */
+    ScannedComponent(RegisterType type, String className, String id,
+                     List<String> factoryIds, List<String> groups, int level) {
+        this(type, className, id, factoryIds, groups, level, false, "", List.of());
+    }
+}
@@ -0,0 +1,165 @@
+package fr.olympus.hephaestus.resources;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of material categories, stored as a bitset of registry category bits.
+ * <p>
+ * Each category key (enum name) gets a dense bit index when a material using it is registered
+ * (see {@link HephaestusData#categoryBit(String)}). Bits are only meaningful for the registry
+ * that assigned them. Membership tests are word-wise AND operations and never allocate.
+ */
+public final class CategoryBits {
+
+    /**
+     * Empty set of categories.
+     */
+    public static final CategoryBits EMPTY = new CategoryBits(new long[0]);
+
+    /**
+     * Bit words (bit i is in word i >>> 6), without trailing zero words.
+     */
+    private final long[] words;
+
+    /**
+     * Constructs a bitset from its words (not copied).
+     */
+    private CategoryBits(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * Creates a bitset with the given bits set.
+     *
+     * @param bits the category bits (negative values are ignored)
+     * @return the bitset
+     */
+    public static CategoryBits of(int... bits) {
+        int max = -1;
+        for (int b : bits) max = Math.max(max, b);
+        if (max < 0) return EMPTY;
+
+        long[] w = new long[(max >>> 6) + 1];
+        for (int b : bits) {
+            if (b >= 0) w[b >>> 6] |= 1L << b;
+        }
+        return new CategoryBits(w);
+    }
+
+    /**
+     * Checks whether the given bit is set.
+     *
+     * @param bit the category bit
+     * @return true if set
+     */
+    public boolean get(int bit) {
+        int w = bit >>> 6;
+        return bit >= 0 && w < words.length && (words[w] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Checks whether no bit is set.
+     *
+     * @return true if empty
+     */
+    public boolean isEmpty() {
+        return words.length == 0;
+    }
+
+    /**
+     * Checks whether at least one bit is set in both bitsets.
+     *
+     * @param other the other bitset
+     * @return true if the bitsets share a category
+     */
+    public boolean intersects(CategoryBits other) {
+        long[] a = words;
+        long[] b = other.words;
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            if ((a[i] & b[i]) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether every bit of the other bitset is set in this one.
+     *
+     * @param other the other bitset
+     * @return true if this bitset contains all categories of other
+     */
+    public boolean containsAll(CategoryBits other) {
+        long[] a = words;
+        long[] b = other.words;
+        if (b.length > a.length) return false;
+        for (int i = 0; i < b.length; i++) {
+            if ((a[i] & b[i]) != b[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of set bits.
+     *
+     * @return the number of categories
+     */
+    public int cardinality() {
+        int c = 0;
+        for (long w : words) c += Long.bitCount(w);
+        return c;
+    }
+
+    /**
+     * Returns the index of the next set bit at or after the given index.
+     *
+     * @param from the index to start from
+     * @return the next set bit, or -1 if none
+     */
+    public int nextSetBit(int from) {
+        if (from < 0) from = 0;
+        int w = from >>> 6;
+        if (w >= words.length) return -1;
+        long word = words[w] & (-1L << from);
+        while (true) {
+            if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+            if (++w == words.length) return -1;
+            word = words[w];
+        }
+    }
+
+    /**
+     * Computes the hash code of the bitset.
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    /**
+     * Checks equality with another bitset.
+     *
+     * @param o the object to compare with
+     * @return true if both bitsets have the same bits
+     */
+    @Override
+    public boolean equals(Object o) {
+        return (o instanceof CategoryBits other) && Arrays.equals(words, other.words);
+    }
+
+    /**
+     * Returns the string representation of the bitset.
+     *
+     * @return the set bits
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int b = nextSetBit(0); b >= 0; b = nextSetBit(b + 1)) {
+            if (sb.length() > 1) sb.append(',');
+            sb.append(b);
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,344 @@
+package fr.olympus.hephaestus.resources;
+
+import fr.olympus.hephaestus.materials.Material;
+import fr.olympus.hephaestus.planning.ProducerIndex;
+import fr.olympus.hephaestus.processing.ProcessRecipe;
+import fr.olympus.hephaestus.register.FactoryRegistryEntry;
+import fr.olympus.hephaestus.register.ProcessRecipeRegistryEntry;
+
+import java.util.*;
+
+/**
+ * Immutable runtime tables of a frozen registry (see {@link HephaestusData#freeze()}).
+ * <p>
+ * Every table is a plain array indexed by handle (material, category bit, factory, recipe),
+ * with immutable maps from ids to handles. Nothing changes after construction, so readers
+ * (factory runtime, matchers, planner) never synchronize.
+ */
+public final class CompiledRegistry {
+
+    /**
+     * Epoch of the registry when it was frozen.
+     */
+    private final long epoch;
+
+    /**
+     * Material ids, by material handle.
+     */
+    private final String[] materialIds;
+
+    /**
+     * Precomputed material data, by material handle.
+     */
+    private final MaterialSlot[] materials;
+
+    /**
+     * Material handles, by material id.
+     */
+    private final Map<String, Integer> materialHandles;
+
+    /**
+     * Category keys, by category bit.
+     */
+    private final String[] categoryKeys;
+
+    /**
+     * Factory entries, by factory handle.
+     */
+    private final FactoryRegistryEntry[] factories;
+
+    /**
+     * Shared immutable list of compatible recipes, by factory handle.
+     */
+    private final List<List<ProcessRecipe>> factoryRecipes;
+
+    /**
+     * Shared selection order of the compatible recipes, by factory handle (never modified).
+     */
+    private final ProcessRecipe[][] factoryOrders;
+
+    /**
+     * Factory handles, by factory id.
+     */
+    private final Map<String, Integer> factoryHandles;
+
+    /**
+     * Recipe entries, by recipe handle.
+     */
+    private final ProcessRecipeRegistryEntry[] recipes;
+
+    /**
+     * Recipe handles, by recipe id.
+     */
+    private final Map<String, Integer> recipeHandles;
+
+    /**
+     * Reverse index from recipe outputs to producing recipes.
+     */
+    private final ProducerIndex producerIndex;
+
+    /**
+     * Compiles the runtime tables from the registry content.
+     * Must be called under the registry write lock.
+     *
+     * @param snapshot         the registry snapshot
+     * @param materialHandles  the material handle table
+     * @param categoryHandles  the category bit table
+     * @param factoryHandles   the factory handle table
+     * @param recipeHandles    the recipe handle table
+     */
+    CompiledRegistry(RegistrySnapshot snapshot,
+                     HandleTable<MaterialSlot> materialHandles,
+                     HandleTable<String> categoryHandles,
+                     HandleTable<FactoryRegistryEntry> factoryHandles,
+                     HandleTable<ProcessRecipeRegistryEntry> recipeHandles) {
+        this.epoch = snapshot.epoch();
+
+        int m = materialHandles.size();
+        this.materialIds = new String[m];
+        this.materials = new MaterialSlot[m];
+        Map<String, Integer> mh = new HashMap<>();
+        for (int h = 0; h < m; h++) {
+            materialIds[h] = materialHandles.idOf(h);
+            materials[h] = materialHandles.get(h);
+            mh.put(materialIds[h], h);
+        }
+        this.materialHandles = Map.copyOf(mh);
+
+        int c = categoryHandles.size();
+        this.categoryKeys = new String[c];
+        for (int b = 0; b < c; b++) {
+            categoryKeys[b] = categoryHandles.idOf(b);
+        }
+
+        int f = factoryHandles.size();
+        this.factories = new FactoryRegistryEntry[f];
+        List<List<ProcessRecipe>> fr = new ArrayList<>(f);
+        this.factoryOrders = new ProcessRecipe[f][];
+        Map<String, Integer> fh = new HashMap<>();
+        for (int h = 0; h < f; h++) {
+            factories[h] = factoryHandles.get(h);
+            fr.add(snapshot.factoryIndex().recipesOf(factories[h].id()));
+            factoryOrders[h] = snapshot.factoryIndex().selectionOrderOf(factories[h].id());
+            fh.put(factories[h].id(), h);
+        }
+        this.factoryRecipes = List.copyOf(fr);
+        this.factoryHandles = Map.copyOf(fh);
+
+        int r = recipeHandles.size();
+        this.recipes = new ProcessRecipeRegistryEntry[r];
+        Map<String, Integer> rh = new HashMap<>();
+        for (int h = 0; h < r; h++) {
+            recipes[h] = recipeHandles.get(h);
+            rh.put(recipeHandles.idOf(h), h);
+        }
+        this.recipeHandles = Map.copyOf(rh);
+
+        this.producerIndex = snapshot.producerIndex();
+    }
+
+    /**
+     * Returns the epoch of the registry when it was frozen.
+     *
+     * @return the epoch
+     */
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns the number of materials (handles are in [0, count)).
+     *
+     * @return the number of materials
+     */
+    public int materialCount() {
+        return materialIds.length;
+    }
+
+    /**
+     * Returns the handle of a material.
+     *
+     * @param materialId the material id
+     * @return the handle, or {@link HephaestusData#NO_HANDLE} if unknown
+     */
+    public int materialHandle(String materialId) {
+        if (materialId == null) return HephaestusData.NO_HANDLE;
+        Integer h = materialHandles.get(materialId);
+        return h == null ? HephaestusData.NO_HANDLE : h;
+    }
+
+    /**
+     * Returns the id of a material.
+     *
+     * @param handle the material handle
+     * @return the material id
+     * @throws IllegalArgumentException if the handle is unknown
+     */
+    public String materialId(int handle) {
+        check(handle, materialIds.length);
+        return materialIds[handle];
+    }
+
+    /**
+     * Returns the definition of a material.
+     *
+     * @param handle the material handle
+     * @return the material definition
+     * @throws IllegalArgumentException if the handle is unknown
+     */
+    public Material material(int handle) {
+        check(handle, materials.length);
+        return materials[handle].material();
+    }
+
+    /**
+     * Returns the category bitset of a material.
+     *
+     * @param handle the material handle
+     * @return the category bitset
+     * @throws IllegalArgumentException if the handle is unknown
+     */
+    public CategoryBits categoryBits(int handle) {
+        check(handle, materials.length);
+        return materials[handle].categoryBits();
+    }
+
+    /**
+     * Returns the category keys of a material.
+     *
+     * @param handle the material handle
+     * @return the immutable set of category keys
+     * @throws IllegalArgumentException if the handle is unknown
+     */
+    public Set<String> categoryKeys(int handle) {
+        check(handle, materials.length);
+        return materials[handle].categoryKeys();
+    }
+
+    /**
+     * Returns the number of category bits.
+     *
+     * @return the number of categories used by materials
+     */
+    public int categoryCount() {
+        return categoryKeys.length;
+    }
+
+    /**
+     * Returns the category key of a category bit.
+     *
+     * @param bit the category bit
+     * @return the category key (enum name)
+     * @throws IllegalArgumentException if the bit is unknown
+     */
+    public String categoryKey(int bit) {
+        check(bit, categoryKeys.length);
+        return categoryKeys[bit];
+    }
+
+    /**
+     * Returns the number of factories (handles are in [0, count)).
+     *
+     * @return the number of factories
+     */
+    public int factoryCount() {
+        return factories.length;
+    }
+
+    /**
+     * Returns the handle of a factory.
+     *
+     * @param factoryId the factory id
+     * @return the handle, or {@link HephaestusData#NO_HANDLE} if unknown
+     */
+    public int factoryHandle(String factoryId) {
+        if (factoryId == null) return HephaestusData.NO_HANDLE;
+        Integer h = factoryHandles.get(factoryId);
+        return h == null ? HephaestusData.NO_HANDLE : h;
+    }
+
+    /**
+     * Returns the registry entry of a factory.
+     *
+     * @param handle the factory handle
+     * @return the factory entry
+     * @throws IllegalArgumentException if the handle is unknown
+     */
+    public FactoryRegistryEntry factory(int handle) {
+        check(handle, factories.length);
+        return factories[handle];
+    }
+
+    /**
+     * Returns the recipes compatible with a factory.
+     *
+     * @param handle the factory handle
+     * @return the shared immutable list of recipes, in registration order
+     * @throws IllegalArgumentException if the handle is unknown
+     */
+    public List<ProcessRecipe> recipesOf(int handle) {
+        check(handle, factories.length);
+        return factoryRecipes.get(handle);
+    }
+
+    /**
+     * Returns the recipes compatible with a factory, in selection order.
+     *
+     * @param handle the factory handle
+     * @return the shared array of recipes, which must not be modified
+     * @throws IllegalArgumentException if the handle is unknown
+     */
+    ProcessRecipe[] selectionOrderOf(int handle) {
+        check(handle, factories.length);
+        return factoryOrders[handle];
+    }
+
+    /**
+     * Returns the number of recipes (handles are in [0, count)).
+     *
+     * @return the number of recipes
+     */
+    public int recipeCount() {
+        return recipes.length;
+    }
+
+    /**
+     * Returns the handle of a recipe.
+     *
+     * @param recipeId the recipe id
+     * @return the handle, or {@link HephaestusData#NO_HANDLE} if unknown
+     */
+    public int recipeHandle(String recipeId) {
+        if (recipeId == null) return HephaestusData.NO_HANDLE;
+        Integer h = recipeHandles.get(recipeId);
+        return h == null ? HephaestusData.NO_HANDLE : h;
+    }
+
+    /**
+     * Returns the registry entry of a recipe.
+     *
+     * @param handle the recipe handle
+     * @return the recipe entry
+     * @throws IllegalArgumentException if the handle is unknown
+     */
+    public ProcessRecipeRegistryEntry recipe(int handle) {
+        check(handle, recipes.length);
+        return recipes[handle];
+    }
+
+    /**
+     * Returns the reverse index from recipe outputs to producing recipes.
+     *
+     * @return the producer index
+     */
+    public ProducerIndex producerIndex() {
+        return producerIndex;
+    }
+
+    /**
+     * Checks that a handle is in [0, size).
+     */
+    private static void check(int handle, int size) {
+        if (handle < 0 || handle >= size) throw new IllegalArgumentException("Unknown handle: " + handle);
+    }
+}
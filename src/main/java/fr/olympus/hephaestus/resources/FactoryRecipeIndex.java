@@ -0,0 +1,267 @@
+package fr.olympus.hephaestus.resources;
+
+import fr.olympus.hephaestus.factory.Factory;
+import fr.olympus.hephaestus.processing.ProcessRecipe;
+import fr.olympus.hephaestus.register.FactoryRegistryEntry;
+import fr.olympus.hephaestus.register.ProcessRecipeRegistryEntry;
+import fr.olympus.hephaestus.register.RecipeSelector;
+
+import java.util.*;
+
+/**
+ * Immutable index of process recipes by factory id, factory group and level.
+ * <p>
+ * Recipes are bucketed once at registration time:
+ * - recipes targeting factory ids are stored under each id
+ * - recipes targeting only groups are stored under each group
+ * - recipes without id/group constraint are stored in a shared bucket
+ * <p>
+ * The recipes compatible with each registered factory are resolved eagerly into an
+ * immutable list shared by every instance of that factory, together with its selection order.
+ * Writers derive a new index with {@link #withRecipes(Collection)} / {@link #withFactory(FactoryRegistryEntry)}.
+ */
+final class FactoryRecipeIndex {
+
+    /**
+     * Empty index.
+     */
+    static final FactoryRecipeIndex EMPTY = new FactoryRecipeIndex(Map.of(), Map.of(), List.of(), Map.of(), Map.of(), Map.of(), 0);
+
+    /**
+     * Recipe entries whose selector lists factory ids, by factory id.
+     */
+    private final Map<String, List<Indexed>> byFactoryId;
+
+    /**
+     * Recipe entries whose selector only lists factory groups, by group.
+     */
+    private final Map<String, List<Indexed>> byGroup;
+
+    /**
+     * Recipe entries without any id/group constraint.
+     */
+    private final List<Indexed> unrestricted;
+
+    /**
+     * Resolved recipes for each registered factory, by factory id.
+     */
+    private final Map<String, List<ProcessRecipe>> resolved;
+
+    /**
+     * Resolved recipes sorted by {@link Factory#SELECTION_ORDER}, by factory id (never modified).
+     */
+    private final Map<String, ProcessRecipe[]> orders;
+
+    /**
+     * Registered factory entries, by factory id.
+     */
+    private final Map<String, FactoryRegistryEntry> factories;
+
+    /**
+     * Registration ordinal of the next recipe entry.
+     */
+    private final int nextOrdinal;
+
+    /**
+     * Constructs an index from already immutable parts.
+     */
+    private FactoryRecipeIndex(Map<String, List<Indexed>> byFactoryId,
+                               Map<String, List<Indexed>> byGroup,
+                               List<Indexed> unrestricted,
+                               Map<String, List<ProcessRecipe>> resolved,
+                               Map<String, ProcessRecipe[]> orders,
+                               Map<String, FactoryRegistryEntry> factories,
+                               int nextOrdinal) {
+        this.byFactoryId = byFactoryId;
+        this.byGroup = byGroup;
+        this.unrestricted = unrestricted;
+        this.resolved = resolved;
+        this.orders = orders;
+        this.factories = factories;
+        this.nextOrdinal = nextOrdinal;
+    }
+
+    /**
+     * Derives a new index with the given recipe entries added and attached to every compatible registered factory.
+     *
+     * @param entries the recipe entries to add, in registration order
+     * @return the new index
+     */
+    FactoryRecipeIndex withRecipes(Collection<ProcessRecipeRegistryEntry> entries) {
+        if (entries.isEmpty()) return this;
+
+        Map<String, List<Indexed>> ids = mutableCopy(byFactoryId);
+        Map<String, List<Indexed>> groups = mutableCopy(byGroup);
+        List<Indexed> any = new ArrayList<>(unrestricted);
+        Map<String, List<ProcessRecipe>> res = new HashMap<>();
+        int ordinal = nextOrdinal;
+
+        for (ProcessRecipeRegistryEntry entry : entries) {
+            Indexed indexed = new Indexed(ordinal++, entry);
+            RecipeSelector selector = entry.selector();
+
+            if (!selector.factoryIds().isEmpty()) {
+                for (String id : selector.factoryIds()) {
+                    ids.computeIfAbsent(id, k -> new ArrayList<>()).add(indexed);
+                }
+            } else if (!selector.factoryGroups().isEmpty()) {
+                for (String group : selector.factoryGroups()) {
+                    groups.computeIfAbsent(group, k -> new ArrayList<>()).add(indexed);
+                }
+            } else {
+                any.add(indexed);
+            }
+
+            for (FactoryRegistryEntry f : factories.values()) {
+                if (selector.matchesFactory(f.id(), f.groups(), f.level())) {
+                    res.computeIfAbsent(f.id(), k -> new ArrayList<>(resolved.get(k))).add(entry.recipe());
+                }
+            }
+        }
+
+        Map<String, List<ProcessRecipe>> nextResolved = new HashMap<>(resolved);
+        Map<String, ProcessRecipe[]> nextOrders = new HashMap<>(orders);
+        res.forEach((k, v) -> {
+            nextResolved.put(k, List.copyOf(v));
+            nextOrders.put(k, selectionOrder(v));
+        });
+
+        return new FactoryRecipeIndex(immutableCopy(ids), immutableCopy(groups), List.copyOf(any),
+                Map.copyOf(nextResolved), Map.copyOf(nextOrders), factories, ordinal);
+    }
+
+    /**
+     * Derives a new index with the given factory registered and its compatible recipes resolved.
+     *
+     * @param entry the factory entry to add
+     * @return the new index
+     */
+    FactoryRecipeIndex withFactory(FactoryRegistryEntry entry) {
+        List<ProcessRecipeRegistryEntry> matching = select(entry.id(), entry.groups(), entry.level());
+        List<ProcessRecipe> recipes = new ArrayList<>(matching.size());
+        for (ProcessRecipeRegistryEntry re : matching) {
+            recipes.add(re.recipe());
+        }
+
+        Map<String, FactoryRegistryEntry> nextFactories = new HashMap<>(factories);
+        nextFactories.put(entry.id(), entry);
+        Map<String, List<ProcessRecipe>> nextResolved = new HashMap<>(resolved);
+        nextResolved.put(entry.id(), List.copyOf(recipes));
+        Map<String, ProcessRecipe[]> nextOrders = new HashMap<>(orders);
+        nextOrders.put(entry.id(), selectionOrder(recipes));
+
+        return new FactoryRecipeIndex(byFactoryId, byGroup, unrestricted,
+                Map.copyOf(nextResolved), Map.copyOf(nextOrders), Map.copyOf(nextFactories), nextOrdinal);
+    }
+
+    /**
+     * Returns the registered factory entry with the given id.
+     *
+     * @param factoryId the factory id
+     * @return the factory entry, or null if unknown
+     */
+    FactoryRegistryEntry factory(String factoryId) {
+        return factories.get(factoryId);
+    }
+
+    /**
+     * Returns the registered factory entries, by factory id.
+     *
+     * @return the immutable map of factory entries
+     */
+    Map<String, FactoryRegistryEntry> factories() {
+        return factories;
+    }
+
+    /**
+     * Returns the shared immutable list of recipes resolved for a registered factory.
+     *
+     * @param factoryId the registered factory id
+     * @return the resolved recipes, or null if the factory is not indexed
+     */
+    List<ProcessRecipe> recipesOf(String factoryId) {
+        return resolved.get(factoryId);
+    }
+
+    /**
+     * Returns the recipes resolved for a registered factory, sorted by {@link Factory#SELECTION_ORDER}.
+     * The array is shared by every instance of that factory and must not be modified.
+     *
+     * @param factoryId the registered factory id
+     * @return the selection order, or null if the factory is not indexed
+     */
+    ProcessRecipe[] selectionOrderOf(String factoryId) {
+        return orders.get(factoryId);
+    }
+
+    /**
+     * Selects every recipe entry compatible with the given factory criteria, in registration order.
+     *
+     * @param factoryId    the factory id
+     * @param groups       the factory groups
+     * @param factoryLevel the factory level
+     * @return the compatible recipe entries
+     */
+    List<ProcessRecipeRegistryEntry> select(String factoryId, Set<String> groups, int factoryLevel) {
+        List<Indexed> candidates = new ArrayList<>();
+
+        List<Indexed> ids = byFactoryId.get(factoryId);
+        if (ids != null) candidates.addAll(ids);
+        for (String g : groups) {
+            List<Indexed> inGroup = byGroup.get(g);
+            if (inGroup != null) candidates.addAll(inGroup);
+        }
+        candidates.addAll(unrestricted);
+
+        // Un recipe multi-groupes peut apparaître plusieurs fois
+        candidates.sort(Comparator.comparingInt(Indexed::ordinal));
+
+        List<ProcessRecipeRegistryEntry> out = new ArrayList<>();
+        int last = -1;
+        for (Indexed c : candidates) {
+            if (c.ordinal == last) continue;
+            last = c.ordinal;
+            if (c.entry.selector().matchesFactory(factoryId, groups, factoryLevel)) {
+                out.add(c.entry);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Sorts resolved recipes by {@link Factory#SELECTION_ORDER}.
+     */
+    private static ProcessRecipe[] selectionOrder(List<ProcessRecipe> recipes) {
+        ProcessRecipe[] ordered = recipes.toArray(new ProcessRecipe[0]);
+        // Tri stable : à égalité, la première recette enregistrée l'emporte
+        Arrays.sort(ordered, Factory.SELECTION_ORDER);
+        return ordered;
+    }
+
+    /**
+     * Copies a bucket map into a map of mutable buckets.
+     */
+    private static Map<String, List<Indexed>> mutableCopy(Map<String, List<Indexed>> buckets) {
+        Map<String, List<Indexed>> copy = new HashMap<>();
+        buckets.forEach((k, v) -> copy.put(k, new ArrayList<>(v)));
+        return copy;
+    }
+
+    /**
+     * Copies a bucket map into an immutable map of immutable buckets.
+     */
+    private static Map<String, List<Indexed>> immutableCopy(Map<String, List<Indexed>> buckets) {
+        Map<String, List<Indexed>> copy = new HashMap<>();
+        buckets.forEach((k, v) -> copy.put(k, List.copyOf(v)));
+        return Map.copyOf(copy);
+    }
+
+    /**
+     * A recipe entry with its registration ordinal.
+     *
+     * @param ordinal registration order of the entry
+     * @param entry   the recipe entry
+     */
+    private record Indexed(int ordinal, ProcessRecipeRegistryEntry entry) {
+    }
+}
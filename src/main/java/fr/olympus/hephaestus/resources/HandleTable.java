@@ -0,0 +1,134 @@
+package fr.olympus.hephaestus.resources;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only table assigning a dense int handle to each registered string id.
+ * <p>
+ * Handles are assigned in registration order starting at 0 and never change.
+ * Writers must be serialized by the owner (HephaestusData write lock); readers never lock.
+ *
+ * @param <T> the type of value stored for each handle
+ */
+final class HandleTable<T> {
+
+    /**
+     * Handle of each registered id.
+     */
+    private final Map<String, Integer> handles = new ConcurrentHashMap<>();
+
+    /**
+     * Registered ids, indexed by handle.
+     */
+    private volatile String[] ids = new String[16];
+
+    /**
+     * Registered values, indexed by handle.
+     */
+    private volatile Object[] values = new Object[16];
+
+    /**
+     * Number of assigned handles.
+     */
+    private volatile int size;
+
+    /**
+     * Constructs an empty table.
+     */
+    HandleTable() {
+    }
+
+    /**
+     * Assigns the next handle to the given id.
+     * Must be called by a single writer at a time.
+     *
+     * @param id    the id to register
+     * @param value the value associated with the id
+     * @return the assigned handle
+     * @throws IllegalArgumentException if the id already has a handle
+     */
+    int add(String id, T value) {
+        if (handles.containsKey(id)) throw new IllegalArgumentException("Handle already assigned: " + id);
+        int h = size;
+        String[] i = ids;
+        Object[] v = values;
+        if (h == i.length) {
+            i = Arrays.copyOf(i, h * 2);
+            v = Arrays.copyOf(v, h * 2);
+        }
+        i[h] = id;
+        v[h] = value;
+        ids = i;
+        values = v;
+        size = h + 1;
+        // Publié en dernier : un lecteur qui obtient le handle voit aussi les tableaux
+        handles.put(id, h);
+        return h;
+    }
+
+    /**
+     * Returns the handle of the given id.
+     *
+     * @param id the id
+     * @return the handle, or {@link HephaestusData#NO_HANDLE} if the id is unknown
+     */
+    int handleOf(String id) {
+        if (id == null) return HephaestusData.NO_HANDLE;
+        Integer h = handles.get(id);
+        return h == null ? HephaestusData.NO_HANDLE : h;
+    }
+
+    /**
+     * Returns the id registered for the given handle.
+     *
+     * @param handle the handle
+     * @return the id
+     * @throws IllegalArgumentException if the handle is unknown
+     */
+    String idOf(int handle) {
+        check(handle);
+        return ids[handle];
+    }
+
+    /**
+     * Returns the value registered for the given handle.
+     *
+     * @param handle the handle
+     * @return the value
+     * @throws IllegalArgumentException if the handle is unknown
+     */
+    @SuppressWarnings("unchecked")
+    T get(int handle) {
+        check(handle);
+        return (T) values[handle];
+    }
+
+    /**
+     * Checks whether the given handle is assigned to exactly this id instance or an equal one.
+     *
+     * @param handle the handle
+     * @param id     the id
+     * @return true if the handle is assigned to the id
+     */
+    boolean isHandleOf(int handle, String id) {
+        return handle >= 0 && handle < size && ids[handle].equals(id);
+    }
+
+    /**
+     * Returns the number of assigned handles.
+     *
+     * @return the number of handles
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Checks that the handle is assigned.
+     */
+    private void check(int handle) {
+        if (handle < 0 || handle >= size) throw new IllegalArgumentException("Unknown handle: " + handle);
+    }
+}
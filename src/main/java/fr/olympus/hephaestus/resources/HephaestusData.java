@@ -2,7 +2,10 @@ package fr.olympus.hephaestus.resources;
 
 import fr.olympus.hephaestus.factory.Factory;
 import fr.olympus.hephaestus.materials.Material;
-import fr.olympus.hephaestus.materials.MaterialCategory;
+import fr.olympus.hephaestus.materials.MaterialDescriptor;
+import fr.olympus.hephaestus.materials.MaterialInstance;
+import fr.olympus.hephaestus.planning.ProducerIndex;
+import fr.olympus.hephaestus.processing.MaterialMatcher;
 import fr.olympus.hephaestus.processing.ProcessRecipe;
 import fr.olympus.hephaestus.register.FactoryRegistryEntry;
 import fr.olympus.hephaestus.register.ProcessRecipeRegistryEntry;
@@ -12,22 +15,73 @@ import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Central registry for materials, factories, and process recipes in the Hephaestus system.
+ * <p>
+ * Content is registered first, then the registry can be frozen ({@link #freeze()}): the content is
+ * validated and compiled into immutable array tables ({@link CompiledRegistry}) that read paths use
+ * from then on. A frozen registry rejects any further registration.
  */
 public final class HephaestusData {
 
     /**
-     * Map of registered materials by their unique IDs.
+     * Value returned by handle lookups for unknown ids.
      */
-    private final Map<String, Material> materials = new ConcurrentHashMap<>();
+    public static final int NO_HANDLE = -1;
 
     /**
-     * Map of registered factory entries by their unique IDs.
+     * Map of registered material descriptors by their unique IDs.
      */
-    private final Map<String, FactoryRegistryEntry> factories = new ConcurrentHashMap<>();
+    private final Map<String, MaterialDescriptor> materials = new ConcurrentHashMap<>();
+
+    /**
+     * Unmodifiable live view of {@link #materials}, instantiating lazy materials only when read.
+     */
+    private final Map<String, Material> materialView = new MaterialView();
+
+    /**
+     * Dense handles of registered materials, with their precomputed registry data.
+     */
+    private final HandleTable<MaterialSlot> materialHandles = new HandleTable<>();
+
+    /**
+     * Dense bit indexes of category keys used by registered materials.
+     */
+    private final HandleTable<String> categoryHandles = new HandleTable<>();
+
+    /**
+     * Inverted index: for each category bit, the handles of the materials having the category,
+     * sorted by material ID. Posting arrays are replaced, never modified, once published.
+     */
+    private volatile int[][] categoryPostings = new int[0][];
+
+    /**
+     * Dense handles of registered factories, with their entries.
+     */
+    private final HandleTable<FactoryRegistryEntry> factoryHandles = new HandleTable<>();
+
+    /**
+     * Dense handles of registered process recipes, with their entries.
+     */
+    private final HandleTable<ProcessRecipeRegistryEntry> recipeHandles = new HandleTable<>();
+
     /**
-     * List of registered process recipe entries.
+     * Current immutable registry snapshot (recipes, factories, indexes), read without locking.
      */
-    private final List<ProcessRecipeRegistryEntry> recipeEntries = Collections.synchronizedList(new ArrayList<>());
+    private volatile RegistrySnapshot snapshot = RegistrySnapshot.EMPTY;
+
+    /**
+     * Lock serializing writers; readers never take it.
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * Compiled runtime tables, set once by {@link #freeze()} (null while the registry is open).
+     */
+    private volatile CompiledRegistry compiled;
+
+    /**
+     * Bindings of the material matchers used with this registry while another registry holds their own slot.
+     */
+    private final Map<MaterialMatcher, MaterialMatcher.Binding> matcherBindings = new ConcurrentHashMap<>();
 
     /**
      * Constructs a new HephaestusData instance.
@@ -37,11 +91,13 @@ public final class HephaestusData {
 
     /**
      * Retrieves an unmodifiable view of the registered materials.
+     * A lazy material is instantiated when the view reads its value (get, values, entries);
+     * use {@link #getMaterialDescriptor(String)} to avoid it.
      *
      * @return Map of material IDs to Material instances.
      */
     public Map<String, Material> getMaterials() {
-        return Collections.unmodifiableMap(materials);
+        return materialView;
     }
 
     /**
@@ -49,11 +105,31 @@ public final class HephaestusData {
      *
      * @param id       Unique identifier for the material.
      * @param material Material instance to register.
-     * @throws IllegalArgumentException if the material ID is already registered.
+     * @throws IllegalArgumentException if the material is null or the material ID is already registered.
+     * @throws IllegalStateException    if the registry is frozen.
      */
     public void registerMaterial(String id, Material material) {
-        if (materials.putIfAbsent(id, material) != null) {
-            throw new IllegalArgumentException("Material already registered: " + id);
+        registerMaterial(MaterialDescriptor.of(id, material));
+    }
+
+    /**
+     * Registers a material descriptor.
+     * A lazy descriptor ({@link MaterialDescriptor#lazy}) is indexed from its declared categories
+     * and only instantiated by the first {@link #getMaterialDef} call.
+     *
+     * @param descriptor MaterialDescriptor to register.
+     * @throws IllegalArgumentException if the descriptor is null or the material ID is already registered.
+     * @throws IllegalStateException    if the registry is frozen.
+     */
+    public void registerMaterial(MaterialDescriptor descriptor) {
+        if (descriptor == null) throw new IllegalArgumentException("descriptor cannot be null.");
+        synchronized (writeLock) {
+            ensureOpen();
+            if (materials.putIfAbsent(descriptor.id(), descriptor) != null) {
+                throw new IllegalArgumentException("Material already registered: " + descriptor.id());
+            }
+            addMaterialSlot(descriptor);
+            snapshot = snapshot.touch();
         }
     }
 
@@ -62,11 +138,19 @@ public final class HephaestusData {
      *
      * @param entry FactoryRegistryEntry to register.
      * @throws IllegalArgumentException if the entry is null or the factory ID is already registered.
+     * @throws IllegalStateException    if the registry is frozen.
      */
     public void registerFactory(FactoryRegistryEntry entry) {
         if (entry == null) throw new IllegalArgumentException("entry cannot be null.");
-        if (factories.putIfAbsent(entry.id(), entry) != null) {
-            throw new IllegalArgumentException("Factory already registered: " + entry.id());
+        synchronized (writeLock) {
+            ensureOpen();
+            RegistrySnapshot current = snapshot;
+            if (current.factoryIndex().factory(entry.id()) != null) {
+                throw new IllegalArgumentException("Factory already registered: " + entry.id());
+            }
+            RegistrySnapshot next = current.withFactory(entry);
+            factoryHandles.add(entry.id(), entry);
+            snapshot = next;
         }
     }
 
@@ -74,11 +158,263 @@ public final class HephaestusData {
      * Registers a new process recipe entry.
      *
      * @param entry ProcessRecipeRegistryEntry to register.
-     * @throws IllegalArgumentException if the entry is null.
+     * @throws IllegalArgumentException if the entry is null or the recipe ID is already registered.
+     * @throws IllegalStateException    if the registry is frozen.
      */
     public void registerProcessRecipe(ProcessRecipeRegistryEntry entry) {
         if (entry == null) throw new IllegalArgumentException("entry cannot be null.");
-        recipeEntries.add(entry);
+        registerProcessRecipes(List.of(entry));
+    }
+
+    /**
+     * Registers several process recipe entries and publishes them in a single snapshot.
+     * Nothing is registered if any entry is rejected.
+     *
+     * @param entries ProcessRecipeRegistryEntry list to register, in order.
+     * @throws IllegalArgumentException if the list or any entry is null, or a recipe ID is already registered.
+     * @throws IllegalStateException    if the registry is frozen.
+     */
+    public void registerProcessRecipes(Collection<ProcessRecipeRegistryEntry> entries) {
+        if (entries == null) throw new IllegalArgumentException("entries cannot be null.");
+        for (ProcessRecipeRegistryEntry e : entries) {
+            if (e == null) throw new IllegalArgumentException("entry cannot be null.");
+        }
+        if (entries.isEmpty()) return;
+        synchronized (writeLock) {
+            ensureOpen();
+            RegistrySnapshot next = snapshot.withRecipes(entries);
+            for (ProcessRecipeRegistryEntry e : entries) {
+                recipeHandles.add(e.recipe().id(), e);
+            }
+            snapshot = next;
+        }
+    }
+
+    /**
+     * Registers materials, factories and process recipes together, and publishes them in a single snapshot.
+     * Everything is validated before anything is registered: nothing is registered if any entry is rejected.
+     *
+     * @param materials Materials to register by ID, in registration order.
+     * @param factories FactoryRegistryEntry list to register, in order.
+     * @param recipes   ProcessRecipeRegistryEntry list to register, in order.
+     * @throws IllegalArgumentException if an argument or entry is null, or an ID is already registered (or repeated).
+     * @throws IllegalStateException    if the registry is frozen.
+     */
+    public void registerAll(Map<String, ? extends Material> materials,
+                            Collection<FactoryRegistryEntry> factories,
+                            Collection<ProcessRecipeRegistryEntry> recipes) {
+        if (materials == null) throw new IllegalArgumentException("materials cannot be null.");
+        List<MaterialDescriptor> descriptors = new ArrayList<>(materials.size());
+        materials.forEach((id, m) -> {
+            if (id == null || m == null) throw new IllegalArgumentException("material cannot be null.");
+            descriptors.add(MaterialDescriptor.of(id, m));
+        });
+        registerAll(descriptors, factories, recipes);
+    }
+
+    /**
+     * Registers material descriptors, factories and process recipes together, and publishes them in a single snapshot.
+     * Everything is validated before anything is registered: nothing is registered if any entry is rejected.
+     * Lazy descriptors are not instantiated.
+     *
+     * @param materials MaterialDescriptor list to register, in order.
+     * @param factories FactoryRegistryEntry list to register, in order.
+     * @param recipes   ProcessRecipeRegistryEntry list to register, in order.
+     * @throws IllegalArgumentException if an argument or entry is null, or an ID is already registered (or repeated).
+     * @throws IllegalStateException    if the registry is frozen.
+     */
+    public void registerAll(Collection<MaterialDescriptor> materials,
+                            Collection<FactoryRegistryEntry> factories,
+                            Collection<ProcessRecipeRegistryEntry> recipes) {
+        if (materials == null || factories == null || recipes == null) {
+            throw new IllegalArgumentException("materials, factories and recipes cannot be null.");
+        }
+        Set<String> ids = new HashSet<>();
+        for (MaterialDescriptor d : materials) {
+            if (d == null) throw new IllegalArgumentException("material cannot be null.");
+            if (!ids.add(d.id())) throw new IllegalArgumentException("Material already registered: " + d.id());
+        }
+        for (FactoryRegistryEntry e : factories) {
+            if (e == null) throw new IllegalArgumentException("entry cannot be null.");
+        }
+        for (ProcessRecipeRegistryEntry e : recipes) {
+            if (e == null) throw new IllegalArgumentException("entry cannot be null.");
+        }
+
+        synchronized (writeLock) {
+            ensureOpen();
+            for (String id : ids) {
+                if (this.materials.containsKey(id)) throw new IllegalArgumentException("Material already registered: " + id);
+            }
+
+            // Snapshot suivant calculé sans effet de bord : une erreur ne laisse rien d'enregistré
+            RegistrySnapshot next = snapshot;
+            for (FactoryRegistryEntry e : factories) {
+                if (next.factoryIndex().factory(e.id()) != null) {
+                    throw new IllegalArgumentException("Factory already registered: " + e.id());
+                }
+                next = next.withFactory(e);
+            }
+            if (!recipes.isEmpty()) next = next.withRecipes(recipes);
+
+            for (MaterialDescriptor d : materials) {
+                this.materials.put(d.id(), d);
+                addMaterialSlot(d);
+            }
+            for (FactoryRegistryEntry e : factories) factoryHandles.add(e.id(), e);
+            for (ProcessRecipeRegistryEntry e : recipes) recipeHandles.add(e.recipe().id(), e);
+            snapshot = next.touch();
+        }
+    }
+
+    /**
+     * Validates the registered content and compiles it into immutable runtime tables.
+     * Once frozen, the registry rejects registrations and its read paths use the compiled tables.
+     * Calling it again returns the same tables.
+     * <p>
+     * Validation reports, all at once:
+     * - recipe ID matchers referencing unknown materials
+     * - recipe category matchers matching no registered material
+     * - recipes that no registered factory can run
+     * - factories that no registered recipe can run on
+     *
+     * @return The compiled runtime tables.
+     * @throws IllegalStateException if the content is invalid (the registry stays open).
+     */
+    public CompiledRegistry freeze() {
+        synchronized (writeLock) {
+            CompiledRegistry c = compiled;
+            if (c != null) return c;
+
+            List<String> problems = validate();
+            if (!problems.isEmpty()) {
+                throw new IllegalStateException("Invalid registry content:\n - " + String.join("\n - ", problems));
+            }
+
+            c = new CompiledRegistry(snapshot, materialHandles, categoryHandles, factoryHandles, recipeHandles);
+            compiled = c;
+            return c;
+        }
+    }
+
+    /**
+     * Checks whether the registry is frozen.
+     *
+     * @return true if {@link #freeze()} succeeded.
+     */
+    public boolean isFrozen() {
+        return compiled != null;
+    }
+
+    /**
+     * Retrieves the compiled runtime tables of the frozen registry.
+     *
+     * @return The CompiledRegistry.
+     * @throws IllegalStateException if the registry is not frozen.
+     */
+    public CompiledRegistry compiled() {
+        CompiledRegistry c = compiled;
+        if (c == null) throw new IllegalStateException("Registry is not frozen.");
+        return c;
+    }
+
+    /**
+     * Checks that the registry still accepts registrations.
+     * Must be called under the write lock.
+     *
+     * @throws IllegalStateException if the registry is frozen.
+     */
+    private void ensureOpen() {
+        if (compiled != null) throw new IllegalStateException("Registry is frozen.");
+    }
+
+    /**
+     * Validates the registered content.
+     * Must be called under the write lock.
+     *
+     * @return The problems found, empty if the content is valid.
+     */
+    private List<String> validate() {
+        List<String> problems = new ArrayList<>();
+        RegistrySnapshot s = snapshot;
+        Collection<FactoryRegistryEntry> factories = s.factoryIndex().factories().values();
+
+        for (ProcessRecipeRegistryEntry e : s.recipeEntries()) {
+            ProcessRecipe r = e.recipe();
+            validateMatchers(r.id(), "input", r.inputs(), problems);
+            validateMatchers(r.id(), "output", r.outputs(), problems);
+
+            boolean runnable = false;
+            for (FactoryRegistryEntry f : factories) {
+                if (e.selector().matchesFactory(f.id(), f.groups(), f.level())) {
+                    runnable = true;
+                    break;
+                }
+            }
+            if (!runnable) problems.add("Recipe " + r.id() + ": no registered factory can run it");
+        }
+
+        for (String id : getFactoryIdsSnapshot()) {
+            if (s.factoryIndex().recipesOf(id).isEmpty()) {
+                problems.add("Factory " + id + ": no registered recipe can run on it");
+            }
+        }
+        return problems;
+    }
+
+    /**
+     * Validates the matchers of a recipe against the registered materials.
+     *
+     * @param recipeId The recipe ID.
+     * @param role     "input" or "output".
+     * @param matchers The matchers to validate.
+     * @param problems The list to add problems to.
+     */
+    private void validateMatchers(String recipeId, String role, List<MaterialMatcher> matchers, List<String> problems) {
+        for (MaterialMatcher m : matchers) {
+            switch (m.getKind()) {
+                case ID -> {
+                    if (materialHandles.handleOf(m.getMaterialId()) == NO_HANDLE) {
+                        problems.add("Recipe " + recipeId + ": unknown " + role + " material " + m.getMaterialId());
+                    }
+                }
+                case ANY_OF_CATEGORIES, ALL_OF_CATEGORIES -> {
+                    if (materialHandlesMatching(m, 1).length == 0) {
+                        problems.add("Recipe " + recipeId + ": " + role + " " + m + " matches no registered material");
+                    }
+                }
+                case ANY -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves the current immutable registry snapshot.
+     * The returned snapshot never changes; later registrations publish a new one.
+     *
+     * @return The current RegistrySnapshot.
+     */
+    public RegistrySnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Called by the library (MaterialMatcher): gets the cache of the matcher bindings resolved against this registry.
+     *
+     * @return The bindings, by matcher.
+     */
+    public Map<MaterialMatcher, MaterialMatcher.Binding> matcherBindings() {
+        return matcherBindings;
+    }
+
+    /**
+     * Retrieves the current registry epoch, incremented on every registration.
+     *
+     * @return The current epoch.
+     */
+    public long epoch() {
+        return snapshot.epoch();
     }
 
     /**
@@ -89,55 +425,382 @@ public final class HephaestusData {
      * @return A new Factory instance with attached compatible process recipes.
      */
     public Factory createFactory(String factoryId) {
-        FactoryRegistryEntry reg = factories.get(factoryId);
+        CompiledRegistry c = compiled;
+        if (c != null) {
+            int h = c.factoryHandle(factoryId);
+            if (h == NO_HANDLE) throw new IllegalArgumentException("Unknown factory id: " + factoryId);
+            return createFactory(h);
+        }
+
+        RegistrySnapshot s = snapshot;
+        FactoryRegistryEntry reg = s.factoryIndex().factory(factoryId);
         if (reg == null) throw new IllegalArgumentException("Unknown factory id: " + factoryId);
 
         Factory instance = reg.supplier().get();
         if (instance == null) throw new IllegalStateException("Factory supplier returned null: " + factoryId);
 
-        instance.setRegistryMeta(reg.id(), reg.groups(), reg.level());
+        instance.setRegistryMeta(factoryHandles.handleOf(reg.id()), reg.id(), reg.groups(), reg.level());
 
-        // Attacher toutes les process-recipes compatibles (id/group/level)
-        List<ProcessRecipe> attach = new ArrayList<>();
-        synchronized (recipeEntries) {
-            for (ProcessRecipeRegistryEntry re : recipeEntries) {
-                if (re.selector().matchesFactory(reg.id(), reg.groups(), reg.level())) {
-                    attach.add(re.recipe());
-                }
-            }
-        }
-        instance.addRecipes(attach);
+        // Attacher toutes les process-recipes compatibles (id/group/level), pré-calculées à l'enregistrement
+        instance.setRegistryRecipes(s.factoryIndex().recipesOf(reg.id()), s.factoryIndex().selectionOrderOf(reg.id()));
 
         return instance;
     }
 
+    /**
+     * Creates a new factory instance based on the registered factory handle.
+     *
+     * @param factoryHandle The handle of the factory to create (see {@link #factoryHandle(String)}).
+     * @return A new Factory instance with attached compatible process recipes.
+     * @throws IllegalArgumentException if the handle is unknown.
+     */
+    public Factory createFactory(int factoryHandle) {
+        CompiledRegistry c = compiled;
+        if (c != null) {
+            FactoryRegistryEntry reg = c.factory(factoryHandle);
+            Factory instance = reg.supplier().get();
+            if (instance == null) throw new IllegalStateException("Factory supplier returned null: " + reg.id());
+            instance.setRegistryMeta(factoryHandle, reg.id(), reg.groups(), reg.level());
+            instance.setRegistryRecipes(c.recipesOf(factoryHandle), c.selectionOrderOf(factoryHandle));
+            return instance;
+        }
+        return createFactory(factoryHandles.idOf(factoryHandle));
+    }
+
+    /**
+     * Retrieves the handle of a registered factory.
+     *
+     * @param factoryId Unique identifier of the factory.
+     * @return The factory handle, or {@link #NO_HANDLE} if the ID is unknown.
+     */
+    public int factoryHandle(String factoryId) {
+        return factoryHandles.handleOf(factoryId);
+    }
+
+    /**
+     * Retrieves the factory ID registered for the given handle.
+     *
+     * @param factoryHandle The factory handle.
+     * @return The factory ID.
+     * @throws IllegalArgumentException if the handle is unknown.
+     */
+    public String factoryId(int factoryHandle) {
+        return factoryHandles.idOf(factoryHandle);
+    }
+
+    /**
+     * Retrieves the process recipes attached to the instances of a registered factory.
+     *
+     * @param factoryHandle The factory handle.
+     * @return The shared immutable list of compatible recipes, in registration order.
+     * @throws IllegalArgumentException if the handle is unknown.
+     */
+    public List<ProcessRecipe> recipesOf(int factoryHandle) {
+        CompiledRegistry c = compiled;
+        if (c != null) return c.recipesOf(factoryHandle);
+        return snapshot.factoryIndex().recipesOf(factoryHandles.idOf(factoryHandle));
+    }
+
+    /**
+     * Retrieves the handle of a registered material.
+     * Handles are dense (0..n-1), assigned in registration order and never change.
+     *
+     * @param id Unique identifier of the material.
+     * @return The material handle, or {@link #NO_HANDLE} if the ID is unknown.
+     */
+    public int materialHandle(String id) {
+        CompiledRegistry c = compiled;
+        if (c != null) return c.materialHandle(id);
+        return materialHandles.handleOf(id);
+    }
+
+    /**
+     * Retrieves the handle of the material of an instance.
+     * Uses the handle carried by the instance when it belongs to this registry.
+     *
+     * @param instance The material instance.
+     * @return The material handle, or {@link #NO_HANDLE} if the material is unknown.
+     */
+    public int materialHandle(MaterialInstance instance) {
+        int h = instance.materialHandle();
+        if (materialHandles.isHandleOf(h, instance.materialId())) return h;
+        return materialHandles.handleOf(instance.materialId());
+    }
+
+    /**
+     * Retrieves the material ID registered for the given handle.
+     *
+     * @param handle The material handle.
+     * @return The material ID.
+     * @throws IllegalArgumentException if the handle is unknown.
+     */
+    public String materialId(int handle) {
+        CompiledRegistry c = compiled;
+        if (c != null) return c.materialId(handle);
+        return materialHandles.idOf(handle);
+    }
+
+    /**
+     * Retrieves the number of registered materials (handles are in [0, count)).
+     *
+     * @return The number of registered materials.
+     */
+    public int materialCount() {
+        return materialHandles.size();
+    }
+
+    /**
+     * Retrieves the number of registered factories (handles are in [0, count)).
+     *
+     * @return The number of registered factories.
+     */
+    public int factoryCount() {
+        return factoryHandles.size();
+    }
+
+    /**
+     * Retrieves the number of registered process recipes (handles are in [0, count)).
+     *
+     * @return The number of registered process recipes.
+     */
+    public int recipeCount() {
+        return recipeHandles.size();
+    }
+
+    /**
+     * Creates a material instance carrying its registry handle.
+     *
+     * @param handle The material handle.
+     * @param voxels The voxel data of the instance.
+     * @return A new MaterialInstance.
+     * @throws IllegalArgumentException if the handle is unknown.
+     */
+    public MaterialInstance newMaterialInstance(int handle, byte[][][] voxels) {
+        return new MaterialInstance(materialHandles.idOf(handle), handle, voxels);
+    }
+
+    /**
+     * Retrieves the material definition for the given material handle.
+     * A lazy material is instantiated by the first call.
+     *
+     * @param handle The material handle.
+     * @return Material instance associated with the given handle.
+     * @throws IllegalArgumentException if the handle is unknown.
+     */
+    public Material getMaterialDef(int handle) {
+        CompiledRegistry c = compiled;
+        if (c != null) return c.material(handle);
+        return materialHandles.get(handle).material();
+    }
+
+    /**
+     * Retrieves the category bitset of the given material handle, precomputed at registration.
+     *
+     * @param handle The material handle.
+     * @return The category bitset of the material.
+     * @throws IllegalArgumentException if the handle is unknown.
+     */
+    public CategoryBits getMaterialCategoryBits(int handle) {
+        CompiledRegistry c = compiled;
+        if (c != null) return c.categoryBits(handle);
+        return materialHandles.get(handle).categoryBits();
+    }
+
+    /**
+     * Retrieves the bit index of a category key in category bitsets.
+     * Bits are assigned when the first material using the category is registered.
+     *
+     * @param categoryKey The category key (enum name).
+     * @return The category bit, or {@link #NO_HANDLE} if no registered material uses the category.
+     */
+    public int categoryBit(String categoryKey) {
+        return categoryHandles.handleOf(categoryKey);
+    }
+
     /**
      * Retrieves the material definition for the given material ID.
+     * A lazy material is instantiated by the first call.
      *
      * @param id Unique identifier of the material.
      * @return Material instance associated with the given ID.
      * @throws IllegalArgumentException if the material ID is unknown.
      */
     public Material getMaterialDef(String id) {
-        Material m = materials.get(id);
-        if (m == null) throw new IllegalArgumentException("Unknown material id: " + id);
-        return m;
+        return getMaterialDescriptor(id).get();
+    }
+
+    /**
+     * Retrieves the descriptor of a registered material, without instantiating a lazy material.
+     *
+     * @param id Unique identifier of the material.
+     * @return MaterialDescriptor associated with the given ID.
+     * @throws IllegalArgumentException if the material ID is unknown.
+     */
+    public MaterialDescriptor getMaterialDescriptor(String id) {
+        MaterialDescriptor d = id == null ? null : materials.get(id);
+        if (d == null) throw new IllegalArgumentException("Unknown material id: " + id);
+        return d;
     }
 
     /**
      * Retrieves the set of material category keys for the given material ID.
      *
      * @param id Unique identifier of the material.
-     * @return Set of category keys associated with the material.
+     * @return Immutable set of category keys associated with the material.
      * @throws IllegalArgumentException if the material ID is unknown.
      */
     public Set<String> getMaterialCategoryKeys(String id) {
-        Material m = getMaterialDef(id);
-        Set<String> keys = new HashSet<>();
-        for (MaterialCategory c : m.getCategories()) {
-            if (c instanceof Enum<?> e) keys.add(e.name());
+        int h = materialHandles.handleOf(id);
+        if (h == NO_HANDLE) throw new IllegalArgumentException("Unknown material id: " + id);
+        return materialHandles.get(h).categoryKeys();
+    }
+
+    /**
+     * Retrieves the set of material category keys for the given material handle.
+     *
+     * @param handle The material handle.
+     * @return Immutable set of category keys associated with the material.
+     * @throws IllegalArgumentException if the handle is unknown.
+     */
+    public Set<String> getMaterialCategoryKeys(int handle) {
+        CompiledRegistry c = compiled;
+        if (c != null) return c.categoryKeys(handle);
+        return materialHandles.get(handle).categoryKeys();
+    }
+
+    /**
+     * Retrieves the handles of the materials matched by a category matcher, using the inverted category index.
+     * Results are sorted by material ID, so the cut at {@code limit} is deterministic.
+     * ANY_OF_CATEGORIES is a union of posting lists, ALL_OF_CATEGORIES an intersection driven by the shortest one.
+     *
+     * @param matcher An ANY_OF_CATEGORIES or ALL_OF_CATEGORIES matcher.
+     * @param limit   The maximum number of handles to return.
+     * @return The matching material handles, sorted by material ID.
+     * @throws IllegalArgumentException if the matcher is not a category matcher or limit is not positive.
+     */
+    public int[] materialHandlesMatching(MaterialMatcher matcher, int limit) {
+        if (limit <= 0) throw new IllegalArgumentException("limit must be > 0.");
+        if (matcher.getKind() != MaterialMatcher.Kind.ANY_OF_CATEGORIES
+                && matcher.getKind() != MaterialMatcher.Kind.ALL_OF_CATEGORIES) {
+            throw new IllegalArgumentException("Category matcher required: " + matcher);
+        }
+
+        CategoryBits wanted = matcher.categoryBits(this);
+        int[][] postings = categoryPostings;
+
+        // Listes des catégories demandées (les bits ne dépassent jamais postings.length)
+        int n = wanted.cardinality();
+        int[][] lists = new int[n][];
+        int i = 0;
+        for (int bit = wanted.nextSetBit(0); bit >= 0; bit = wanted.nextSetBit(bit + 1)) {
+            lists[i++] = bit < postings.length ? postings[bit] : new int[0];
+        }
+
+        if (matcher.getKind() == MaterialMatcher.Kind.ALL_OF_CATEGORIES) {
+            if (n == 0 || n != matcher.getCategoryKeys().size()) return new int[0];
+            int[] shortest = lists[0];
+            for (int[] l : lists) {
+                if (l.length < shortest.length) shortest = l;
+            }
+            int[] out = new int[Math.min(limit, shortest.length)];
+            int size = 0;
+            for (int h : shortest) {
+                if (size == out.length) break;
+                if (getMaterialCategoryBits(h).containsAll(wanted)) out[size++] = h;
+            }
+            return Arrays.copyOf(out, size);
+        }
+
+        // Union : fusion k-way des listes triées par ID, sans doublons
+        int[] cursors = new int[n];
+        int[] out = new int[limit];
+        int size = 0;
+        String last = null;
+        while (size < limit) {
+            int best = -1;
+            String bestId = null;
+            for (int l = 0; l < n; l++) {
+                if (cursors[l] >= lists[l].length) continue;
+                String id = materialHandles.idOf(lists[l][cursors[l]]);
+                if (bestId == null || id.compareTo(bestId) < 0) {
+                    best = l;
+                    bestId = id;
+                }
+            }
+            if (best < 0) break;
+            int h = lists[best][cursors[best]++];
+            if (bestId.equals(last)) continue;
+            last = bestId;
+            out[size++] = h;
+        }
+        return Arrays.copyOf(out, size);
+    }
+
+    /**
+     * Inserts a material into the posting list of each of its categories, keeping the ID order.
+     * Must be called under the write lock.
+     *
+     * @param handle The material handle.
+     * @param id     The material ID.
+     * @param bits   The category bits of the material.
+     */
+    private void indexCategories(int handle, String id, CategoryBits bits) {
+        int[][] postings = categoryPostings;
+        if (postings.length < categoryHandles.size()) {
+            int old = postings.length;
+            postings = Arrays.copyOf(postings, categoryHandles.size());
+            for (int b = old; b < postings.length; b++) postings[b] = new int[0];
+        } else {
+            postings = postings.clone();
+        }
+
+        for (int bit = bits.nextSetBit(0); bit >= 0; bit = bits.nextSetBit(bit + 1)) {
+            int[] list = postings[bit];
+            int lo = 0;
+            int hi = list.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (materialHandles.idOf(list[mid]).compareTo(id) < 0) lo = mid + 1;
+                else hi = mid;
+            }
+            int[] next = new int[list.length + 1];
+            System.arraycopy(list, 0, next, 0, lo);
+            next[lo] = handle;
+            System.arraycopy(list, lo, next, lo + 1, list.length - lo);
+            postings[bit] = next;
+        }
+        categoryPostings = postings;
+    }
+
+    /**
+     * Assigns a handle to a material and indexes its categories.
+     * Must be called under the write lock.
+     *
+     * @param d The material descriptor.
+     */
+    private void addMaterialSlot(MaterialDescriptor d) {
+        MaterialSlot slot = slotOf(d);
+        int handle = materialHandles.add(d.id(), slot);
+        indexCategories(handle, d.id(), slot.categoryBits());
+    }
+
+    /**
+     * Precomputes the registry data of a material from its descriptor, assigning bits to new categories.
+     * Must be called under the write lock.
+     *
+     * @param d The material descriptor.
+     * @return The material slot.
+     */
+    private MaterialSlot slotOf(MaterialDescriptor d) {
+        Set<String> keys = d.categoryKeys();
+        int[] bits = new int[keys.size()];
+        int i = 0;
+        for (String k : keys) {
+            int bit = categoryHandles.handleOf(k);
+            if (bit == NO_HANDLE) bit = categoryHandles.add(k, k);
+            bits[i++] = bit;
         }
-        return keys;
+        return new MaterialSlot(d, Set.copyOf(keys), CategoryBits.of(bits), MaterialMatcher.id(d.id()));
     }
 
     /**
@@ -152,12 +815,10 @@ public final class HephaestusData {
     /**
      * Retrieves a snapshot list of all registered process recipe entries.
      *
-     * @return List of ProcessRecipeRegistryEntry instances.
+     * @return Immutable list of ProcessRecipeRegistryEntry instances.
      */
     public List<ProcessRecipeRegistryEntry> getProcessRecipeEntriesSnapshot() {
-        synchronized (recipeEntries) {
-            return List.copyOf(recipeEntries);
-        }
+        return snapshot.recipeEntries();
     }
 
     /**
@@ -169,15 +830,49 @@ public final class HephaestusData {
      * @return List of compatible ProcessRecipeRegistryEntry instances.
      */
     public List<ProcessRecipeRegistryEntry> getProcessRecipesByFactoryId(String factoryId, Set<String> factoryGroupsOfInstance, int factoryLevel) {
-        List<ProcessRecipeRegistryEntry> results = new ArrayList<>();
-        synchronized (recipeEntries) {
-            for (ProcessRecipeRegistryEntry re : recipeEntries) {
-                if (re.selector().matchesFactory(factoryId, factoryGroupsOfInstance, factoryLevel)) {
-                    results.add(re);
-                }
-            }
-        }
-        return results;
+        return snapshot.factoryIndex().select(factoryId, factoryGroupsOfInstance, factoryLevel);
+    }
+
+    /**
+     * Retrieves the handle of a registered process recipe.
+     *
+     * @param recipeId Unique identifier of the recipe.
+     * @return The recipe handle, or {@link #NO_HANDLE} if the ID is unknown.
+     */
+    public int recipeHandle(String recipeId) {
+        return recipeHandles.handleOf(recipeId);
+    }
+
+    /**
+     * Retrieves a process recipe entry by its handle.
+     *
+     * @param recipeHandle The recipe handle.
+     * @return ProcessRecipeRegistryEntry associated with the given handle.
+     * @throws IllegalArgumentException if the handle is unknown.
+     */
+    public ProcessRecipeRegistryEntry getProcessRecipeByHandle(int recipeHandle) {
+        return recipeHandles.get(recipeHandle);
+    }
+
+    /**
+     * Retrieves the registry-maintained reverse index from recipe outputs to producing recipes.
+     * The index is immutable; later registrations publish a new one.
+     *
+     * @return The current ProducerIndex.
+     */
+    public ProducerIndex getProducerIndex() {
+        return snapshot.producerIndex();
+    }
+
+    /**
+     * Retrieves the recipes producing the given material exactly (ID output), wildcard producers excluded.
+     *
+     * @param materialHandle The material handle.
+     * @return The producing recipes, in registration order.
+     * @throws IllegalArgumentException if the handle is unknown.
+     */
+    public List<ProcessRecipe> getExactProducersOf(int materialHandle) {
+        return snapshot.producerIndex().exactProducersOf(materialHandles.get(materialHandle).idMatcher());
     }
 
     /**
@@ -188,13 +883,8 @@ public final class HephaestusData {
      * @throws IllegalArgumentException if the recipe ID is unknown.
      */
     public ProcessRecipeRegistryEntry getProcessRecipeById(String recipeId) {
-        synchronized (recipeEntries) {
-            for (ProcessRecipeRegistryEntry re : recipeEntries) {
-                if (re.recipe().id().equals(recipeId)) {
-                    return re;
-                }
-            }
-        }
+        ProcessRecipeRegistryEntry re = snapshot.recipeById(recipeId);
+        if (re != null) return re;
         throw new IllegalArgumentException("Unknown recipe id: " + recipeId);
     }
 
@@ -206,7 +896,7 @@ public final class HephaestusData {
      * @throws IllegalArgumentException if the factory ID is unknown.
      */
     public FactoryRegistryEntry getFactoryRegistryEntryById(String factoryId) {
-        FactoryRegistryEntry entry = factories.get(factoryId);
+        FactoryRegistryEntry entry = snapshot.factoryIndex().factory(factoryId);
         if (entry == null) {
             throw new IllegalArgumentException("Unknown factory id: " + factoryId);
         }
@@ -219,8 +909,73 @@ public final class HephaestusData {
      * @return List of factory IDs.
      */
     public List<String> getFactoryIdsSnapshot() {
-        ArrayList<String> ids = new ArrayList<>(factories.keySet());
+        ArrayList<String> ids = new ArrayList<>(snapshot.factoryIndex().factories().keySet());
         Collections.sort(ids);
         return ids;
     }
+
+    /**
+     * Unmodifiable view of the registered materials by ID: keys and sizes come from the descriptors,
+     * values are instantiated on access.
+     */
+    private final class MaterialView extends AbstractMap<String, Material> {
+
+        /**
+         * Entries of the view, created on first use.
+         */
+        private Set<Entry<String, Material>> entries;
+
+        @Override
+        public int size() {
+            return materials.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return materials.containsKey(key);
+        }
+
+        @Override
+        public Material get(Object key) {
+            MaterialDescriptor d = materials.get(key);
+            return d == null ? null : d.get();
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return Collections.unmodifiableSet(materials.keySet());
+        }
+
+        @Override
+        public Set<Entry<String, Material>> entrySet() {
+            Set<Entry<String, Material>> e = entries;
+            if (e == null) {
+                e = new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<String, Material>> iterator() {
+                        Iterator<MaterialDescriptor> it = materials.values().iterator();
+                        return new Iterator<>() {
+                            @Override
+                            public boolean hasNext() {
+                                return it.hasNext();
+                            }
+
+                            @Override
+                            public Entry<String, Material> next() {
+                                MaterialDescriptor d = it.next();
+                                return new SimpleImmutableEntry<>(d.id(), d.get());
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return materials.size();
+                    }
+                };
+                entries = e;
+            }
+            return e;
+        }
+    }
 }
@@ -0,0 +1,28 @@
+package fr.olympus.hephaestus.resources;
+
+import fr.olympus.hephaestus.materials.Material;
+import fr.olympus.hephaestus.materials.MaterialDescriptor;
+import fr.olympus.hephaestus.processing.MaterialMatcher;
+
+import java.util.Set;
+
+/**
+ * Registry data precomputed for a material at registration time.
+ * Only the descriptor is needed to build it: lazy materials stay uninstantiated.
+ *
+ * @param descriptor   the material descriptor
+ * @param categoryKeys the immutable set of category keys (enum names)
+ * @param categoryBits the category bitset
+ * @param idMatcher    the shared ID matcher of the material
+ */
+record MaterialSlot(MaterialDescriptor descriptor, Set<String> categoryKeys, CategoryBits categoryBits, MaterialMatcher idMatcher) {
+
+    /**
+     * Returns the material definition, instantiating a lazy material on first use.
+     *
+     * @return the material definition
+     */
+    Material material() {
+        return descriptor.get();
+    }
+}
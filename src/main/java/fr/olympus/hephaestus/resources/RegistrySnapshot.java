@@ -0,0 +1,154 @@
+package fr.olympus.hephaestus.resources;
+
+import fr.olympus.hephaestus.planning.ProducerIndex;
+import fr.olympus.hephaestus.processing.ProcessRecipe;
+import fr.olympus.hephaestus.register.FactoryRegistryEntry;
+import fr.olympus.hephaestus.register.ProcessRecipeRegistryEntry;
+
+import java.util.*;
+
+/**
+ * Immutable view of the registry content at a given point in time.
+ * <p>
+ * A new snapshot is published by {@link HephaestusData} on every registration, with an
+ * incremented epoch. Readers never lock: they read the current snapshot once and work on it.
+ * Downstream caches can store the epoch they were built from and compare it with
+ * {@link HephaestusData#epoch()} to validate themselves.
+ */
+public final class RegistrySnapshot {
+
+    /**
+     * Empty snapshot (epoch 0).
+     */
+    static final RegistrySnapshot EMPTY = new RegistrySnapshot(0L, List.of(), Map.of(), FactoryRecipeIndex.EMPTY, ProducerIndex.EMPTY);
+
+    /**
+     * Epoch of the snapshot, incremented on every registry change.
+     */
+    private final long epoch;
+
+    /**
+     * Registered process recipe entries, in registration order.
+     */
+    private final List<ProcessRecipeRegistryEntry> recipeEntries;
+
+    /**
+     * Registered process recipe entries, by recipe id.
+     */
+    private final Map<String, ProcessRecipeRegistryEntry> recipesById;
+
+    /**
+     * Index of recipes by factory id, group and level (also holds the factory entries).
+     */
+    private final FactoryRecipeIndex factoryIndex;
+
+    /**
+     * Reverse index from recipe outputs to producing recipes.
+     */
+    private final ProducerIndex producerIndex;
+
+    /**
+     * Constructs a snapshot from already immutable parts.
+     */
+    private RegistrySnapshot(long epoch,
+                             List<ProcessRecipeRegistryEntry> recipeEntries,
+                             Map<String, ProcessRecipeRegistryEntry> recipesById,
+                             FactoryRecipeIndex factoryIndex,
+                             ProducerIndex producerIndex) {
+        this.epoch = epoch;
+        this.recipeEntries = recipeEntries;
+        this.recipesById = recipesById;
+        this.factoryIndex = factoryIndex;
+        this.producerIndex = producerIndex;
+    }
+
+    /**
+     * Returns the epoch of the snapshot.
+     *
+     * @return the epoch
+     */
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns the registered process recipe entries, in registration order.
+     *
+     * @return the immutable list of recipe entries
+     */
+    public List<ProcessRecipeRegistryEntry> recipeEntries() {
+        return recipeEntries;
+    }
+
+    /**
+     * Returns the process recipe entry registered with the given recipe id.
+     *
+     * @param recipeId the recipe id
+     * @return the recipe entry, or null if unknown
+     */
+    public ProcessRecipeRegistryEntry recipeById(String recipeId) {
+        return recipesById.get(recipeId);
+    }
+
+    /**
+     * Returns the reverse index from recipe outputs to producing recipes.
+     *
+     * @return the producer index
+     */
+    public ProducerIndex producerIndex() {
+        return producerIndex;
+    }
+
+    /**
+     * Returns the index of recipes by factory.
+     *
+     * @return the factory recipe index
+     */
+    FactoryRecipeIndex factoryIndex() {
+        return factoryIndex;
+    }
+
+    /**
+     * Derives the next snapshot without content change (epoch bump only).
+     *
+     * @return the new snapshot
+     */
+    RegistrySnapshot touch() {
+        return new RegistrySnapshot(epoch + 1, recipeEntries, recipesById, factoryIndex, producerIndex);
+    }
+
+    /**
+     * Derives the next snapshot with the given factory entry registered.
+     *
+     * @param entry the factory entry
+     * @return the new snapshot
+     */
+    RegistrySnapshot withFactory(FactoryRegistryEntry entry) {
+        return new RegistrySnapshot(epoch + 1, recipeEntries, recipesById, factoryIndex.withFactory(entry), producerIndex);
+    }
+
+    /**
+     * Derives the next snapshot with the given recipe entries registered.
+     *
+     * @param entries the recipe entries, in registration order
+     * @return the new snapshot
+     * @throws IllegalArgumentException if a recipe id is already registered (or repeated in entries).
+     */
+    RegistrySnapshot withRecipes(Collection<ProcessRecipeRegistryEntry> entries) {
+        Map<String, ProcessRecipeRegistryEntry> byId = new HashMap<>(recipesById);
+        for (ProcessRecipeRegistryEntry e : entries) {
+            if (byId.putIfAbsent(e.recipe().id(), e) != null) {
+                throw new IllegalArgumentException("Process recipe already registered: " + e.recipe().id());
+            }
+        }
+
+        List<ProcessRecipeRegistryEntry> next = new ArrayList<>(recipeEntries.size() + entries.size());
+        next.addAll(recipeEntries);
+        next.addAll(entries);
+        List<ProcessRecipe> recipes = new ArrayList<>(entries.size());
+        for (ProcessRecipeRegistryEntry e : entries) recipes.add(e.recipe());
+
+        return new RegistrySnapshot(epoch + 1, List.copyOf(next), Map.copyOf(byId),
+                factoryIndex.withRecipes(entries), producerIndex.with(recipes));
+    }
+}
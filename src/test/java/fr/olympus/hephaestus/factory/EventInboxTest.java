@@ -0,0 +1,148 @@
+package fr.olympus.hephaestus.factory;
+
+import fr.olympus.hephaestus.processing.FactoryEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventInboxTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int EVENTS = 50_000;
+
+    @Test
+    void dropOldestKeepsEveryProducerInOrderUnderContention() throws InterruptedException {
+        EventInbox inbox = new EventInbox(64, InboxOverflowPolicy.DROP_OLDEST);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger refused = new AtomicInteger();
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            producers.add(Thread.ofPlatform().start(() -> {
+                await(start);
+                // DROP_OLDEST accepte toujours : chaque événement finit reçu ou compté comme perdu
+                for (int i = 0; i < EVENTS; i++) {
+                    if (!inbox.offer(new FactoryEvent.VoxelPress(producer, i, 0, 0, 0))) refused.incrementAndGet();
+                }
+            }));
+        }
+
+        int[] last = new int[PRODUCERS];
+        Arrays.fill(last, -1);
+        int received = 0;
+        start.countDown();
+        while (producers.stream().anyMatch(Thread::isAlive) || !inbox.isEmpty()) {
+            FactoryEvent e = inbox.poll();
+            if (e == null) continue;
+            FactoryEvent.VoxelPress press = (FactoryEvent.VoxelPress) e;
+            // Une seule fois chacun, dans l'ordre de son producteur
+            assertTrue(press.y() > last[press.x()], "event received twice or out of order");
+            last[press.x()] = press.y();
+            received++;
+        }
+        for (Thread t : producers) t.join();
+
+        assertEquals(0, refused.get());
+        assertNull(inbox.poll());
+        assertEquals((long) PRODUCERS * EVENTS, received + inbox.dropped());
+        assertTrue(inbox.dropped() > 0);
+    }
+
+    @Test
+    void dropOldestKeepsTheNewestEventsWithoutConsumer() throws InterruptedException {
+        EventInbox inbox = new EventInbox(64, InboxOverflowPolicy.DROP_OLDEST);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            producers.add(Thread.ofPlatform().start(() -> {
+                await(start);
+                for (int i = 0; i < EVENTS; i++) inbox.offer(new FactoryEvent.VoxelPress(producer, i, 0, 0, 0));
+            }));
+        }
+        start.countDown();
+        for (Thread t : producers) t.join();
+
+        assertEquals(64, inbox.depth());
+        assertEquals((long) PRODUCERS * EVENTS - 64, inbox.dropped());
+
+        // Seuls les plus récents restent : pour chaque producteur, une suite continue finissant par son dernier
+        int[] first = new int[PRODUCERS];
+        int[] last = new int[PRODUCERS];
+        Arrays.fill(first, -1);
+        Arrays.fill(last, -1);
+        for (FactoryEvent e = inbox.poll(); e != null; e = inbox.poll()) {
+            FactoryEvent.VoxelPress press = (FactoryEvent.VoxelPress) e;
+            if (first[press.x()] < 0) first[press.x()] = press.y();
+            else assertEquals(last[press.x()] + 1, press.y());
+            last[press.x()] = press.y();
+        }
+        int kept = 0;
+        for (int p = 0; p < PRODUCERS; p++) {
+            if (first[p] < 0) continue;
+            assertEquals(EVENTS - 1, last[p]);
+            kept += last[p] - first[p] + 1;
+        }
+        assertEquals(64, kept);
+    }
+
+    @Test
+    void rejectAcceptsExactlyTheCapacityUnderContention() throws InterruptedException {
+        EventInbox inbox = new EventInbox(100, InboxOverflowPolicy.REJECT);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p;
+            producers.add(Thread.ofPlatform().start(() -> {
+                await(start);
+                for (int i = 0; i < 1_000; i++) {
+                    try {
+                        if (inbox.offer(new FactoryEvent.VoxelPress(producer, i, 0, 0, 0))) accepted.incrementAndGet();
+                    } catch (IllegalStateException full) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread t : producers) t.join();
+
+        // Capacité arrondie à 128 ; sans consommateur, seuls les 128 premiers passent
+        assertEquals(128, inbox.capacity());
+        assertEquals(128, accepted.get());
+        assertEquals(PRODUCERS * 1_000 - 128, rejected.get());
+        assertEquals(rejected.get(), inbox.dropped());
+        assertEquals(128, inbox.depth());
+
+        // Les acceptés sont tous là, une seule fois, chacun dans l'ordre de son producteur
+        int[] last = new int[PRODUCERS];
+        Arrays.fill(last, -1);
+        int drained = 0;
+        for (FactoryEvent e = inbox.poll(); e != null; e = inbox.poll()) {
+            FactoryEvent.VoxelPress press = (FactoryEvent.VoxelPress) e;
+            assertTrue(press.y() > last[press.x()]);
+            last[press.x()] = press.y();
+            drained++;
+        }
+        assertEquals(128, drained);
+        assertTrue(inbox.isEmpty());
+        assertTrue(inbox.offer(new FactoryEvent.VoxelPress(0, 0, 0, 0, 0)));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
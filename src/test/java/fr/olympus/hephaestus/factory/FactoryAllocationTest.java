@@ -0,0 +1,117 @@
+package fr.olympus.hephaestus.factory;
+
+import fr.olympus.hephaestus.materials.MaterialInstance;
+import fr.olympus.hephaestus.processing.FactoryEvent;
+import fr.olympus.hephaestus.processing.ProcessContext;
+import fr.olympus.hephaestus.processing.ProcessingPhase;
+import fr.olympus.hephaestus.resources.HephaestusData;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static fr.olympus.hephaestus.factory.Fixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Allocation regression test of the factory hot path, measured with the per-thread allocation counter of the JVM.
+ */
+class FactoryAllocationTest {
+
+    private static final int WARMUP = 3_000;
+    private static final int ROUNDS = 500;
+
+    /**
+     * Attempts before failing: a JIT deoptimization may allocate once in a while.
+     */
+    private static final int ATTEMPTS = 5;
+
+    @Test
+    void updateAndEventsAllocateNothing() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "thread allocation counter not supported");
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        HephaestusData data = registry();
+        register(data, new Pulse());
+        register(data, new Stir());
+        data.freeze();
+
+        // Matching par la liste simple (réservoirs) et par le ContentStore (cuves), plus des fabriques dormantes
+        List<Factory> factories = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            factories.add(tank(data, WATER, BEER));
+            factories.add(vat(data, WATER, BEER));
+            factories.add(tank(data));
+        }
+        Factory[] population = factories.toArray(new Factory[0]);
+        MaterialInstance[] refills = new MaterialInstance[population.length];
+        for (int i = 0; i < population.length; i += 3) {
+            refills[i] = instance(data, WATER);
+            refills[i + 1] = instance(data, WATER);
+        }
+        FactoryEvent event = new FactoryEvent.Action("test:stir", 1f);
+
+        for (int i = 0; i < WARMUP; i++) round(population, refills, event, data);
+
+        long best = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < ATTEMPTS && best > 0; attempt++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < ROUNDS; i++) round(population, refills, event, data);
+            best = Math.min(best, threads.getCurrentThreadAllocatedBytes() - before);
+        }
+        assertEquals(0, best, "bytes allocated over " + ROUNDS + " rounds");
+        assertTrue(population[2].isDormant(data));
+    }
+
+    private static void round(Factory[] population, MaterialInstance[] refills, FactoryEvent event, HephaestusData data) {
+        for (int i = 0; i < population.length; i++) {
+            Factory f = population[i];
+            // L'eau consommée au tour précédent revient : le contenu change et les recettes sont réévaluées
+            if (refills[i] != null && !f.getSession()) f.insert(refills[i]);
+            f.update(0.05f, data);
+            f.pushEvent(event, data);
+            f.post(event);
+            if (f.hasOutputs()) throw new IllegalStateException("unexpected output");
+        }
+    }
+
+    /**
+     * Short session consuming its water, matched by the stock helper; produces nothing.
+     */
+    private static final class Pulse extends Brew {
+        Pulse() {
+            super("test:pulse", BEER, 0.2f, 0.4f, WATER);
+        }
+
+        @Override
+        public boolean tryComplete(ProcessContext ctx, HephaestusData data, float elapsedSeconds, ProcessingPhase phase) {
+            if (timeWindowOrNull().beforeMin(elapsedSeconds)) return false;
+            consume(ctx, data);
+            return true;
+        }
+    }
+
+    /**
+     * Ticked recipe tried before Pulse but never startable: every attempt matches part of its inputs, then fails.
+     */
+    private static final class Stir extends Brew {
+        private int ticks;
+
+        Stir() {
+            super("test:stir", BEER, 1f, 2f, WATER, BEER, WORT);
+        }
+
+        @Override
+        public int priority() {
+            return 200;
+        }
+
+        @Override
+        public void onTick(ProcessContext ctx, HephaestusData data, float elapsedSeconds, ProcessingPhase phase) {
+            ticks++;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package fr.olympus.hephaestus.factory;
+
+import fr.olympus.hephaestus.processing.FactoryEvent;
+import fr.olympus.hephaestus.processing.ProcessContext;
+import fr.olympus.hephaestus.processing.ProcessingPhase;
+import fr.olympus.hephaestus.resources.HephaestusData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+import static fr.olympus.hephaestus.factory.Fixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FactoryJournalTest {
+
+    private static final String JOURNAL = "factories.journal";
+    private static final String SKIM = "test:skim";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void factoriesWrittenInFullAreLeftClean() throws IOException {
+        HephaestusData data = brewing(registry());
+        try (FactoryJournal journal = FactoryJournal.open(dir, data)) {
+            Factory f = vat(data, WATER, WORT);
+            f.update(1f, data);
+            f.stopFactory();
+            assertNotEquals(0, f.getDirtyFlags());
+            long key = journal.add(f);
+
+            assertEquals(1, journal.flush());
+            assertEquals(0, f.getDirtyFlags());
+            assertEquals(0, journal.flush());
+
+            f.startFactory();
+            assertNotEquals(0, f.getDirtyFlags());
+            assertEquals(1, journal.flush());
+            assertEquals(0, journal.get(key).getDirtyFlags());
+            assertRecovered(journal, data);
+        }
+    }
+
+    @Test
+    void changesMadeByRecipeCallbacksAreWrittenBeforeTheSessionEnds() throws IOException {
+        HephaestusData data = registry();
+        register(data, new Brew("test:brew", BEER, 6f, 12f, WATER) {
+            @Override
+            public void onEvent(ProcessContext ctx, HephaestusData data, FactoryEvent event, float elapsedSeconds, ProcessingPhase phase) {
+                super.onEvent(ctx, data, event, elapsedSeconds, phase);
+                if (event instanceof FactoryEvent.Action a && a.actionId().equals(SKIM)) consume(ctx, data);
+            }
+        });
+        try (FactoryJournal journal = FactoryJournal.open(dir, data)) {
+            Factory f = vat(data, WATER, WATER);
+            f.update(1f, data);
+            long key = journal.add(f);
+            assertEquals(1, journal.flush());
+
+            // Consommé et produit en cours de session : le journal doit le voir tout de suite
+            f.pushEvent(new FactoryEvent.Action(SKIM, 1f), data);
+            f.pushEvent(new FactoryEvent.Action(TAP, 1f), data);
+            assertTrue(f.getSession());
+            assertEquals(1, f.getContents().size());
+            int changed = Factory.DIRTY_SESSION | Factory.DIRTY_CONTENTS | Factory.DIRTY_OUTPUTS;
+            assertEquals(changed, f.getDirtyFlags() & changed);
+            assertEquals(1, journal.flush());
+            assertRecovered(journal, data);
+
+            // Le temps écoulé suit aussi, tick après tick
+            f.update(0.5f, data);
+            assertEquals(1, journal.flush());
+            try (FactoryJournal recovered = FactoryJournal.open(dir, data)) {
+                assertSameJournal(journal, recovered);
+                Factory r = recovered.get(key);
+                assertEquals(1.5f, r.getElapsed());
+                assertEquals(1, drain(r));
+            }
+        }
+    }
+
+    @Test
+    void tornBatchIsCutOff() throws IOException {
+        HephaestusData data = brewing(registry());
+        Path file = dir.resolve(JOURNAL);
+        try (FactoryJournal live = FactoryJournal.open(dir, data)) {
+            populate(live, data);
+            live.flush();
+            long size = Files.size(file);
+
+            // En-tête annonçant 16 octets, suivi de 7 seulement
+            Files.write(file, new byte[]{0, 0, 0, 16, 0, 0, 0, 0, 1, 2, 3, 4, 5, 6, 7}, StandardOpenOption.APPEND);
+            try (FactoryJournal recovered = FactoryJournal.open(dir, data)) {
+                assertSameJournal(live, recovered);
+                assertEquals(size, Files.size(file));
+
+                // Les lots suivants se relisent derrière la coupure
+                recovered.get(recovered.factories().keySet().iterator().next()).stopFactory();
+                recovered.add(tank(data, WORT));
+                assertEquals(2, recovered.flush());
+                try (FactoryJournal again = FactoryJournal.open(dir, data)) {
+                    assertSameJournal(recovered, again);
+                }
+            }
+        }
+    }
+
+    @Test
+    void staleJournalIsIgnoredAfterCompaction() throws IOException {
+        HephaestusData data = brewing(registry());
+        Path file = dir.resolve(JOURNAL);
+        Path stale = dir.resolve("stale.journal");
+        FactoryJournal live = FactoryJournal.open(dir, data);
+        long[] keys = populate(live, data);
+        live.flush();
+        live.remove(keys[0]);
+        live.get(keys[1]).stopFactory();
+        live.flush();
+
+        Files.copy(file, stale);
+        live.compact();
+        live.remove(keys[2]);
+        live.add(tank(data, BEER));
+        live.flush();
+        live.close();
+
+        // Journal d'avant le compactage remis en place : la base ne doit rien en rejouer
+        Files.move(stale, file, StandardCopyOption.REPLACE_EXISTING);
+        try (FactoryJournal recovered = FactoryJournal.open(dir, data)) {
+            Map<Long, Factory> factories = recovered.factories();
+            assertEquals(keys.length - 1, factories.size());
+            assertFalse(factories.containsKey(keys[0]));
+            assertTrue(factories.containsKey(keys[2]));
+            assertFalse(factories.get(keys[1]).isOperating());
+            // Journal remis à zéro : il ne reste que son en-tête
+            assertEquals(16, recovered.journalSize());
+
+            // Le journal repart de zéro et se relit avec la base
+            recovered.remove(keys[1]);
+            recovered.flush();
+            try (FactoryJournal again = FactoryJournal.open(dir, data)) {
+                assertSameJournal(recovered, again);
+            }
+        }
+    }
+
+    @Test
+    void batchWhoseForceFailedReplaysSafely() throws IOException {
+        HephaestusData data = brewing(registry());
+        Path file = dir.resolve(JOURNAL);
+        try (FactoryJournal live = FactoryJournal.open(dir, data)) {
+            long[] keys = populate(live, data);
+            live.flush();
+            long at = live.journalSize();
+
+            // Le lot atteint le fichier, puis le périphérique signale un échec
+            Factory stopped = live.get(keys[0]);
+            stopped.stopFactory();
+            live.remove(keys[1]);
+            long lost = live.add(tank(data, WATER));
+            long kept = live.add(tank(data, WORT));
+            byte[][] failed = new byte[1][];
+            live.force = channel -> {
+                failed[0] = Files.readAllBytes(file);
+                throw new IOException("device failure");
+            };
+            assertThrows(IOException.class, live::flush);
+            assertTrue(failed[0].length > at);
+            assertEquals(at, live.journalSize());
+            assertEquals(at, Files.size(file));
+            assertNotEquals(0, stopped.getDirtyFlags());
+
+            // Ajoutée par le lot en échec puis retirée : le retrait doit être écrit
+            live.remove(lost);
+            live.force = channel -> channel.force(false);
+            assertEquals(4, live.flush());
+            assertEquals(0, stopped.getDirtyFlags());
+            assertFalse(live.factories().containsKey(lost));
+            assertTrue(live.factories().containsKey(kept));
+            byte[] retry = Files.readAllBytes(file);
+            try (FactoryJournal recovered = FactoryJournal.open(dir, data)) {
+                assertSameJournal(live, recovered);
+            }
+
+            // Le lot en échec est quand même sur le disque, rejoué avant le suivant
+            byte[] spliced = Arrays.copyOf(failed[0], failed[0].length + retry.length - (int) at);
+            System.arraycopy(retry, (int) at, spliced, failed[0].length, retry.length - (int) at);
+            Files.write(file, spliced);
+            try (FactoryJournal recovered = FactoryJournal.open(dir, data)) {
+                assertEquals(spliced.length, recovered.journalSize());
+                assertSameJournal(live, recovered);
+            }
+        }
+    }
+
+    /**
+     * Registers the brew recipe.
+     */
+    private static HephaestusData brewing(HephaestusData data) {
+        register(data, new Brew("test:brew", BEER, 6f, 12f, WATER));
+        return data;
+    }
+
+    /**
+     * Adds brewing, idle and stocked factories.
+     */
+    private static long[] populate(FactoryJournal journal, HephaestusData data) {
+        Factory brewing = vat(data, WATER, WATER);
+        brewing.update(2f, data);
+        return new long[]{
+                journal.add(brewing),
+                journal.add(tank(data, WORT, BEER)),
+                journal.add(data.createFactory(VAT)),
+                journal.add(tank(data, WATER))};
+    }
+
+    private void assertRecovered(FactoryJournal live, HephaestusData data) throws IOException {
+        try (FactoryJournal recovered = FactoryJournal.open(dir, data)) {
+            assertSameJournal(live, recovered);
+        }
+    }
+
+    private static void assertSameJournal(FactoryJournal expected, FactoryJournal actual) {
+        Map<Long, Factory> e = expected.factories();
+        Map<Long, Factory> a = actual.factories();
+        assertEquals(e.keySet(), a.keySet());
+        for (Map.Entry<Long, Factory> entry : e.entrySet()) {
+            Factory x = entry.getValue();
+            Factory y = a.get(entry.getKey());
+            assertEquals(x.getRegistryId(), y.getRegistryId());
+            assertEquals(x.isOperating(), y.isOperating());
+            assertEquals(x.getSession(), y.getSession());
+            if (x.getSession()) {
+                assertEquals(x.getSessionRecipe().id(), y.getSessionRecipe().id());
+                assertEquals(x.getElapsed(), y.getElapsed());
+            }
+            assertEquals(x.getContents().size(), y.getContents().size());
+            for (int i = 0; i < x.getContents().size(); i++) {
+                assertEquals(x.getContents().get(i).materialId(), y.getContents().get(i).materialId());
+                assertTrue(Arrays.deepEquals(x.getContents().get(i).voxels(), y.getContents().get(i).voxels()));
+            }
+            assertEquals(0, y.getDirtyFlags());
+        }
+    }
+}
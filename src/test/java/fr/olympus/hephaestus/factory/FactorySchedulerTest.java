@@ -0,0 +1,124 @@
+package fr.olympus.hephaestus.factory;
+
+import fr.olympus.hephaestus.resources.HephaestusData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import fr.olympus.hephaestus.processing.FactoryEvent;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static fr.olympus.hephaestus.factory.Fixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FactorySchedulerTest {
+
+    @ParameterizedTest
+    @ValueSource(doubles = {0d, 0.05d})
+    void registryChangeWakesDormantFactories(double timerResolution) {
+        HephaestusData data = registry();
+        try (FactoryScheduler scheduler = new FactoryScheduler(data, 1, 16, true, timerResolution)) {
+            Factory f = vat(data, WATER);
+            scheduler.add(f);
+
+            scheduler.tick(0.05f);
+            assertTrue(f.isDormant(data));
+            assertEquals(1, scheduler.tick(0.05f).dormant());
+
+            register(data, new Brew("test:brew", BEER, 6f, 12f, WATER));
+            assertFalse(f.isDormant(data));
+            assertTrue(f.isDormant());
+
+            FactoryScheduler.TickStats stats = scheduler.tick(0.05f);
+            assertEquals(0, stats.dormant());
+            assertTrue(f.getSession());
+            assertEquals("test:brew", f.getSessionRecipe().id());
+        }
+    }
+
+    @Test
+    void addedRecipesAreKeptOnRegistryChange() {
+        HephaestusData data = registry();
+        Factory f = vat(data, WORT);
+        f.addRecipes(List.of(new Brew("test:ferment", BEER, 1f, 2f, WORT)));
+        register(data, new Brew("test:brew", BEER, 6f, 12f, WATER));
+
+        f.update(0.05f, data);
+        assertEquals("test:ferment", f.getSessionRecipe().id());
+    }
+
+    @ParameterizedTest
+    @CsvSource({"1, 0", "4, 0", "1, 0.05", "4, 0.05"})
+    void sweepMatchesPlainUpdates(int parallelism, double timerResolution) {
+        HephaestusData data = registry();
+        register(data, new Brew("test:brew", BEER, 1.03f, 4f, WATER));
+        register(data, new Brew("test:ferment", BEER, 2.51f, 5f, WORT, WATER));
+        data.freeze();
+
+        List<Factory> plain = barrels(data, 2000);
+        List<Factory> scheduled = barrels(data, 2000);
+        int[] plainOut = new int[2000];
+        Map<Factory, Integer> scheduledOut = new IdentityHashMap<>();
+        try (FactoryScheduler scheduler = new FactoryScheduler(data, parallelism, 128, true, timerResolution)) {
+            scheduler.addAll(scheduled);
+            scheduler.setOutputSink((f, out) -> scheduledOut.merge(f, out.size(), Integer::sum));
+
+            long visited = 0;
+            for (int t = 0; t < 200; t++) {
+                for (int i = 0; i < 2000; i++) {
+                    Factory f = plain.get(i);
+                    f.update(0.05f, data);
+                    plainOut[i] += drain(f);
+                }
+                FactoryScheduler.TickStats stats = scheduler.tick(0.05f);
+                visited += 2000 - stats.dormant() - stats.parked();
+                // Les réveils : insertion, événement posté, arrêt puis redémarrage
+                for (int i = 0; i < 2000; i++) {
+                    for (Factory f : List.of(plain.get(i), scheduled.get(i))) {
+                        if (t == 60 && i % 7 == 0) f.insert(instance(data, WATER));
+                        if (t % 30 == 15 && i % 5 == 0) f.post(new FactoryEvent.Action(TAP, 1f));
+                        if (t == 120 && i % 11 == 0) f.stopFactory();
+                        if (t == 130 && i % 11 == 0) f.startFactory();
+                    }
+                }
+            }
+            // Avec la roue de timers, seule une minorité des fabriques reste en moyenne dans le balayage
+            if (timerResolution > 0) assertTrue(visited / 200 < 2000 / 10, "visited " + visited / 200 + " per tick");
+        }
+
+        int brewed = 0;
+        for (int i = 0; i < 2000; i++) {
+            Factory a = plain.get(i);
+            Factory b = scheduled.get(i);
+            assertEquals(plainOut[i], scheduledOut.getOrDefault(b, 0), "outputs of factory " + i);
+            assertEquals(a.getSession(), b.getSession(), "session of factory " + i);
+            assertEquals(recipeId(a), recipeId(b), "recipe of factory " + i);
+            assertEquals(a.getContents().size(), b.getContents().size(), "contents of factory " + i);
+            assertEquals(a.getElapsed(), b.getElapsed(), 1e-3f, "elapsed of factory " + i);
+            brewed += plainOut[i];
+        }
+        assertTrue(brewed > 1000);
+    }
+
+    private static List<Factory> barrels(HephaestusData data, int count) {
+        List<Factory> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            out.add(switch (i % 4) {
+                case 0 -> vat(data);
+                case 1 -> vat(data, WATER);
+                case 2 -> vat(data, WORT, WATER);
+                default -> vat(data, WATER, WATER, WATER);
+            });
+        }
+        return out;
+    }
+
+    private static String recipeId(Factory f) {
+        return f.getSessionRecipe() == null ? null : f.getSessionRecipe().id();
+    }
+}
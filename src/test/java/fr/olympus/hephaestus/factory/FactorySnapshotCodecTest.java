@@ -0,0 +1,331 @@
+package fr.olympus.hephaestus.factory;
+
+import fr.olympus.hephaestus.materials.MaterialInstance;
+import fr.olympus.hephaestus.register.FactoryRegistryEntry;
+import fr.olympus.hephaestus.register.RecipeSelector;
+import fr.olympus.hephaestus.resources.HephaestusData;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static fr.olympus.hephaestus.factory.Fixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FactorySnapshotCodecTest {
+
+    private static final String UNKNOWN = "test:unknown";
+    private static final String SALT = "test:salt";
+
+    @Test
+    void roundTripOnTheSameRegistry() {
+        HephaestusData data = brewing(registry());
+        List<Factory> population = population(data);
+
+        ByteBuffer buffer = new FactorySnapshotCodec(data).encode(population, null);
+        List<Factory> decoded = new FactorySnapshotCodec(data).decode(buffer);
+
+        assertFalse(buffer.hasRemaining());
+        assertSameFactories(population, decoded, data);
+        assertTrue(decoded.get(0).getSession());
+        assertTrue(decoded.get(2).hasOutputs());
+    }
+
+    @Test
+    void handlesAreRemappedToAnotherRegistry() {
+        HephaestusData data = brewing(registry());
+        List<Factory> population = population(data);
+        ByteBuffer buffer = new FactorySnapshotCodec(data).encode(population, null);
+
+        // Enregistrements ajoutés devant et ordre inversé : aucun handle ne garde sa valeur
+        HephaestusData other = new HephaestusData();
+        other.registerMaterial(SALT, new TestMaterial("salt"));
+        other.registerMaterial(BEER, new TestMaterial("beer"));
+        other.registerMaterial(WORT, new TestMaterial("wort"));
+        other.registerMaterial(WATER, new TestMaterial("water"));
+        other.registerFactory(new FactoryRegistryEntry("test:still", Set.of("test:still"), 0, Tank::new));
+        other.registerFactory(new FactoryRegistryEntry(TANK, Set.of(TANK), 0, Tank::new));
+        other.registerFactory(new FactoryRegistryEntry(VAT, Set.of(VAT), 0, Vat::new));
+        register(other, new Brew("test:distil", SALT, 1f, 2f, WORT));
+        brewing(other);
+        assertNotEquals(data.materialHandle(WATER), other.materialHandle(WATER));
+        assertNotEquals(data.factoryHandle(VAT), other.factoryHandle(VAT));
+        assertNotEquals(data.recipeHandle("test:brew"), other.recipeHandle("test:brew"));
+
+        assertSameFactories(population, new FactorySnapshotCodec(other).decode(buffer), other);
+    }
+
+    @Test
+    void materialsOutsideTheRegistryAreWrittenById() {
+        HephaestusData data = registry();
+        Factory f = tank(data);
+        byte[][][] voxels = {{{1, 2, 3}}};
+        f.insert(new MaterialInstance(UNKNOWN, voxels));
+        ByteBuffer buffer = new FactorySnapshotCodec(data).encode(f, null);
+
+        MaterialInstance unknown = new FactorySnapshotCodec(data).decode(buffer.duplicate()).get(0).getContents().get(0);
+        assertEquals(UNKNOWN, unknown.materialId());
+        assertEquals(HephaestusData.NO_HANDLE, unknown.materialHandle());
+        assertArrayEquals(voxels, unknown.voxels());
+
+        // Connue du registre qui relit : elle y prend son handle
+        HephaestusData other = registry();
+        other.registerMaterial(UNKNOWN, new TestMaterial("unknown"));
+        MaterialInstance known = new FactorySnapshotCodec(other).decode(buffer.duplicate()).get(0).getContents().get(0);
+        assertEquals(other.materialHandle(UNKNOWN), known.materialHandle());
+        assertArrayEquals(voxels, known.voxels());
+    }
+
+    @Test
+    void jaggedAndEmptyVoxelsRoundTrip() {
+        HephaestusData data = registry();
+        byte[][][][] shapes = {
+                new byte[0][][],
+                new byte[2][0][],
+                new byte[2][3][0],
+                {{{}, {1}, {}}, {}, {{-1, -1, 0, 0, 127, -128}}},
+                {{{5, 5, 5}, {5, 5, 5}}, {{5, 5, 5}, {5, 5, 6}}},
+                new byte[4][4][300]};
+        Factory f = tank(data);
+        for (byte[][][] v : shapes) f.insert(data.newMaterialInstance(data.materialHandle(WATER), v));
+
+        Factory decoded = new FactorySnapshotCodec(data).decode(new FactorySnapshotCodec(data).encode(f, null)).get(0);
+        assertEquals(shapes.length, decoded.getContents().size());
+        for (int i = 0; i < shapes.length; i++) assertTrue(Arrays.deepEquals(shapes[i], decoded.getContents().get(i).voxels()));
+
+        Factory broken = tank(data);
+        broken.insert(data.newMaterialInstance(data.materialHandle(WATER), new byte[][][]{{{1}, null}}));
+        assertThrows(IllegalArgumentException.class, () -> new FactorySnapshotCodec(data).encode(broken, null));
+    }
+
+    @Test
+    void sessionOfADetachedRecipeIsDropped() {
+        HephaestusData data = brewing(registry());
+        Factory vat = vat(data, WATER, WATER);
+        vat.update(2f, data);
+        Factory custom = tank(data, WORT);
+        custom.addRecipes(List.of(new Brew("test:custom", BEER, 3f, 4f, WORT)));
+        custom.update(1f, data);
+        assertEquals("test:brew", vat.getSessionRecipe().id());
+        assertEquals("test:custom", custom.getSessionRecipe().id());
+        ByteBuffer buffer = new FactorySnapshotCodec(data).encode(List.of(vat, custom), null);
+
+        // Même recette, désormais réservée aux réservoirs
+        HephaestusData other = registry();
+        register(other, new Brew("test:brew", BEER, 6f, 12f, WATER) {
+            @Override
+            public RecipeSelector selector() {
+                return new RecipeSelector(Set.of(TANK), Set.of(), 0);
+            }
+        });
+        List<Factory> decoded = new FactorySnapshotCodec(other).decode(buffer);
+
+        for (Factory f : decoded) {
+            assertTrue(f.isOperating());
+            assertFalse(f.getSession());
+            assertNull(f.getSessionRecipe());
+        }
+        assertEquals(2, decoded.get(0).getContents().size());
+        decoded.get(0).update(0.05f, other);
+        assertFalse(decoded.get(0).getSession());
+    }
+
+    @Test
+    void truncatedOrCorruptedInputIsRejected() {
+        HephaestusData data = brewing(registry());
+        FactorySnapshotCodec codec = new FactorySnapshotCodec(data);
+        ByteBuffer buffer = codec.encode(population(data), null);
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+
+        for (int n = 0; n < bytes.length; n++) {
+            ByteBuffer cut = ByteBuffer.wrap(bytes, 0, n).slice();
+            assertThrows(IllegalArgumentException.class, () -> codec.decode(cut), "truncated at " + n);
+        }
+
+        // Magie, version, nombre de fiches, début de la palette, handle d'usine hors de la palette
+        assertCorrupted(codec, bytes, 0, 0x7F);
+        assertCorrupted(codec, bytes, 7, 2);
+        assertCorrupted(codec, bytes, 11, bytes[11] + 1);
+        assertCorrupted(codec, bytes, 11, bytes[11] - 1);
+        assertCorrupted(codec, bytes, 12, 0x7F);
+        assertCorrupted(codec, bytes, 15, bytes[15] - 1);
+        assertCorrupted(codec, bytes, 16, 0x7F);
+
+        // Un lot de changements n'est pas un instantané
+        codec.beginBatch(null);
+        ByteBuffer batch = codec.endBatch(0);
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(batch));
+    }
+
+    @Test
+    void oversizedVoxelArraysAreRejected() {
+        HephaestusData data = registry();
+        FactorySnapshotCodec codec = new FactorySnapshotCodec(data);
+        Factory f = tank(data);
+        f.insert(data.newMaterialInstance(data.materialHandle(WATER), new byte[][][]{{{0x55, 0x55, 0x55}}}));
+        ByteBuffer buffer = codec.encode(f, null);
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        // Forme, dimensions 1 x 1 x 3, puis une plage de 3 octets 0x55
+        byte[] voxels = {0, 1, 1, 3, 3, 0x55};
+
+        // Remplacement valide relu tel quel : l'épissure ne casse rien d'autre
+        byte[][][] wider = new byte[1][1][200];
+        Arrays.fill(wider[0][0], (byte) 0x55);
+        byte[] header = {0, 1, 1, (byte) 0xC8, 1, (byte) 0xC8, 1, 0x55};
+        Factory spliced = codec.decode(splice(bytes, voxels, header)).get(0);
+        assertTrue(Arrays.deepEquals(wider, spliced.getContents().get(0).voxels()));
+
+        int rows = FactorySnapshotCodec.MAX_VOXEL_ROWS;
+        int max = FactorySnapshotCodec.MAX_VOXELS;
+        // Une dimension nulle ne doit pas lever les bornes des autres
+        assertRejected(codec, bytes, voxels, 0, rows + 1, 1, 0);
+        assertRejected(codec, bytes, voxels, 0, 1 << 11, 1 << 11, 0);
+        assertRejected(codec, bytes, voxels, 0, 1, 1, max + 1);
+        assertRejected(codec, bytes, voxels, 1, 1, 2, 1 << 23, (1 << 23) + 1);
+        int[] jagged = new int[rows + 3];
+        jagged[0] = 1;
+        jagged[1] = rows + 1;
+        assertRejected(codec, bytes, voxels, jagged);
+
+        // Refusé dès l'écriture
+        Factory wide = tank(data);
+        wide.insert(data.newMaterialInstance(data.materialHandle(WATER), new byte[1][rows + 1][0]));
+        assertThrows(IllegalStateException.class, () -> codec.encode(wide, null));
+        Factory deep = tank(data);
+        deep.insert(data.newMaterialInstance(data.materialHandle(WATER), new byte[1][1][max + 1]));
+        assertThrows(IllegalStateException.class, () -> codec.encode(deep, null));
+    }
+
+    @Test
+    void bufferGrowsFromSmallHeapAndDirectBuffers() {
+        HephaestusData data = brewing(registry());
+        List<Factory> population = population(data);
+        FactorySnapshotCodec codec = new FactorySnapshotCodec(data);
+        ByteBuffer expected = codec.encode(population, null);
+
+        for (ByteBuffer small : new ByteBuffer[]{ByteBuffer.allocate(16), ByteBuffer.allocateDirect(16)}) {
+            ByteBuffer grown = codec.encode(population, small);
+            assertNotSame(small, grown);
+            assertEquals(small.isDirect(), grown.isDirect());
+            assertEquals(ByteOrder.BIG_ENDIAN, grown.order());
+            assertEquals(expected, grown);
+            assertSameFactories(population, codec.decode(grown.duplicate()), data);
+
+            // Assez grand désormais : réutilisé tel quel
+            assertSame(grown, codec.encode(population, grown));
+            assertEquals(expected, grown);
+        }
+    }
+
+    /**
+     * Registers the brew recipe.
+     */
+    private static HephaestusData brewing(HephaestusData data) {
+        register(data, new Brew("test:brew", BEER, 6f, 12f, WATER));
+        return data;
+    }
+
+    /**
+     * Running, stopped, finished and idle vats and tanks, with an unregistered material.
+     */
+    private static List<Factory> population(HephaestusData data) {
+        List<Factory> out = new ArrayList<>();
+        Factory running = vat(data, WATER, WORT, WATER);
+        running.update(2.5f, data);
+        out.add(running);
+
+        Factory stopped = tank(data, WATER, WORT);
+        stopped.update(1f, data);
+        stopped.stopFactory();
+        out.add(stopped);
+
+        Factory finished = tank(data, WATER);
+        for (int i = 0; i < 130; i++) finished.update(0.05f, data);
+        out.add(finished);
+
+        Factory odd = tank(data, WORT);
+        odd.insert(new MaterialInstance(UNKNOWN, new byte[][][]{{{1, 1}, {2}}}));
+        out.add(odd);
+
+        out.add(data.createFactory(VAT));
+        return out;
+    }
+
+    /**
+     * Replaces the voxel array of a one-instance snapshot by a header of varints, and checks that it is rejected.
+     */
+    private static void assertRejected(FactorySnapshotCodec codec, byte[] bytes, byte[] voxels, int... header) {
+        ByteBuffer hostile = ByteBuffer.allocate(header.length * 5);
+        for (int v : header) {
+            while ((v & ~0x7F) != 0) {
+                hostile.put((byte) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            hostile.put((byte) v);
+        }
+        ByteBuffer spliced = splice(bytes, voxels, Arrays.copyOf(hostile.array(), hostile.position()));
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(spliced), Arrays.toString(Arrays.copyOf(header, 5)));
+    }
+
+    /**
+     * Replaces the only occurrence of a byte sequence in a snapshot, moving its palette offset.
+     */
+    private static ByteBuffer splice(byte[] bytes, byte[] from, byte[] to) {
+        int at = -1;
+        for (int i = 0; i + from.length <= bytes.length; i++) {
+            if (Arrays.equals(bytes, i, i + from.length, from, 0, from.length)) {
+                assertEquals(-1, at, "sequence found twice");
+                at = i;
+            }
+        }
+        assertNotEquals(-1, at, "sequence not found");
+        ByteBuffer out = ByteBuffer.allocate(bytes.length - from.length + to.length);
+        out.put(bytes, 0, at).put(to).put(bytes, at + from.length, bytes.length - at - from.length);
+        out.putInt(12, out.getInt(12) - from.length + to.length);
+        return out.flip();
+    }
+
+    private static void assertCorrupted(FactorySnapshotCodec codec, byte[] bytes, int index, int value) {
+        byte[] copy = bytes.clone();
+        copy[index] = (byte) value;
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(ByteBuffer.wrap(copy)),
+                "byte " + index + " set to " + value);
+    }
+
+    private static void assertSameFactories(List<Factory> expected, List<Factory> actual, HephaestusData target) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Factory e = expected.get(i);
+            Factory a = actual.get(i);
+            assertEquals(e.getRegistryId(), a.getRegistryId());
+            assertEquals(target.factoryHandle(e.getRegistryId()), a.getRegistryHandle());
+            assertEquals(e.isOperating(), a.isOperating());
+            assertEquals(e.getSession(), a.getSession());
+            if (e.getSession()) {
+                assertEquals(e.getSessionRecipe().id(), a.getSessionRecipe().id());
+                assertEquals(e.getElapsed(), a.getElapsed());
+            }
+            assertSameInstances(e.getContents(), a.getContents(), target);
+            assertSameInstances(e.outputs, a.outputs, target);
+            assertEquals(0, a.getDirtyFlags());
+        }
+    }
+
+    private static void assertSameInstances(List<MaterialInstance> expected, List<MaterialInstance> actual,
+                                            HephaestusData target) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            MaterialInstance e = expected.get(i);
+            MaterialInstance a = actual.get(i);
+            assertEquals(e.materialId(), a.materialId());
+            assertEquals(target.materialHandle(e.materialId()), a.materialHandle());
+            assertTrue(Arrays.deepEquals(e.voxels(), a.voxels()));
+        }
+    }
+}
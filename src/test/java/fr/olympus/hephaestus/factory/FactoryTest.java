@@ -0,0 +1,216 @@
+package fr.olympus.hephaestus.factory;
+
+import fr.olympus.hephaestus.materials.MaterialInstance;
+import fr.olympus.hephaestus.processing.ProcessContext;
+import fr.olympus.hephaestus.processing.ProcessingPhase;
+import fr.olympus.hephaestus.register.RecipeSelector;
+import fr.olympus.hephaestus.resources.HephaestusData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static fr.olympus.hephaestus.factory.Fixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FactoryTest {
+
+    @Test
+    void materialsWithTheSameIdHashAreToldApart() {
+        // "Aa" et "BB" ont le même hashCode mais pas le même handle
+        String aa = "test:Aa";
+        String bb = "test:BB";
+        assertEquals(aa.hashCode(), bb.hashCode());
+
+        HephaestusData data = registry();
+        data.registerMaterial(aa, new TestMaterial("aa"));
+        data.registerMaterial(bb, new TestMaterial("bb"));
+        register(data, new Brew("test:brew", BEER, 1f, 2f, aa));
+
+        Factory f = vat(data, aa);
+        for (int i = 0; i < 100 && !f.hasOutputs(); i++) f.update(0.05f, data);
+        assertEquals(1, drain(f));
+
+        f.insert(instance(data, bb));
+        f.update(0.05f, data);
+        assertFalse(f.getSession());
+        assertTrue(f.isDormant(data));
+    }
+
+    @Test
+    void eachRegistryFactoryUsesItsOwnSelectionOrder() {
+        HephaestusData data = registry();
+        register(data, new Brew("test:brew", BEER, 1f, 2f, WATER));
+        register(data, new Brew("test:lager", BEER, 1f, 2f, WATER) {
+            @Override
+            public RecipeSelector selector() {
+                return new RecipeSelector(Set.of(TANK), Set.of(), 0);
+            }
+
+            @Override
+            public int priority() {
+                return 200;
+            }
+        });
+
+        // Créations entrelacées : chaque type garde l'ordre calculé pour son entrée
+        for (int i = 0; i < 3; i++) {
+            Factory vat = vat(data, WATER);
+            Factory tank = tank(data, WATER);
+            vat.update(0.05f, data);
+            tank.update(0.05f, data);
+            assertEquals("test:brew", vat.getSessionRecipe().id());
+            assertEquals("test:lager", tank.getSessionRecipe().id());
+        }
+
+        // Recette ajoutée ensuite : l'ordre suit le nouveau registre
+        register(data, new Brew("test:stout", BEER, 1f, 2f, WATER) {
+            @Override
+            public int priority() {
+                return 300;
+            }
+        });
+        Factory tank = tank(data, WATER);
+        tank.update(0.05f, data);
+        assertEquals("test:stout", tank.getSessionRecipe().id());
+    }
+
+    @Test
+    void recipeListOutsideTheRegistryStaysModifiable() {
+        HephaestusData data = registry();
+        Factory f = new Tank();
+        f.getRecipes().add(new Brew("test:ferment", BEER, 1f, 2f, WORT));
+        f.insert(instance(data, WATER));
+        f.startFactory();
+        f.update(0.05f, data);
+        assertTrue(f.isDormant(data));
+
+        // Modifiée sur place : vue à la sélection suivante
+        f.getRecipes().add(new Brew("test:brew", BEER, 1f, 2f, WATER));
+        f.wake();
+        f.update(0.05f, data);
+        assertEquals("test:brew", f.getSessionRecipe().id());
+    }
+
+    @Test
+    void sharedRegistryListIsCopiedByAddRecipes() {
+        HephaestusData data = registry();
+        register(data, new Brew("test:brew", BEER, 1f, 2f, WATER));
+        Factory f = tank(data);
+        Factory other = tank(data);
+        assertSame(f.getRecipes(), other.getRecipes());
+        assertThrows(UnsupportedOperationException.class, () -> f.getRecipes().add(new Brew("test:x", BEER, 1f, 2f)));
+
+        f.addRecipes(List.of(new Brew("test:ferment", BEER, 1f, 2f, WORT)));
+        f.getRecipes().add(new Brew("test:x", BEER, 1f, 2f, BEER));
+        assertEquals(3, f.getRecipes().size());
+        assertEquals(1, other.getRecipes().size());
+    }
+
+    @Test
+    void extractedOutputsAreANewModifiableList() {
+        HephaestusData data = registry();
+        register(data, new Brew("test:brew", BEER, 0.1f, 1f, WATER));
+        Factory f = vat(data, WATER);
+        List<MaterialInstance> none = f.extractAllOutputs();
+        none.add(instance(data, WORT));
+        assertNotSame(none, f.extractAllOutputs());
+
+        for (int i = 0; i < 10 && !f.hasOutputs(); i++) f.update(0.05f, data);
+        List<MaterialInstance> out = f.extractAllOutputs();
+        assertEquals(1, out.size());
+        out.add(instance(data, WORT));
+        assertFalse(f.hasOutputs());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            // à court d'eau : les deux rattrapages s'accordent exactement
+            "10, 600",
+            "1, 7",
+            // à court de temps : 99 sessions de 6.01 s, ou de 121 pas de 0.05 s
+            "500, 600",
+            "0, 30"})
+    void fastForwardMatchesSteppedUpdates(int waters, int seconds) {
+        HephaestusData data = registry();
+        register(data, new Brew("test:brew", BEER, 6.01f, 12f, WATER));
+
+        Factory fast = filledVat(data, waters);
+        int completed = fast.fastForward(seconds, data);
+
+        Factory stepped = filledVat(data, waters);
+        for (int i = 0; i < seconds * 20; i++) stepped.update(0.05f, data);
+
+        assertEquals(Math.min(waters, (int) (seconds / 6.01)), completed);
+        assertEquals(drain(stepped), completed);
+        assertEquals(stepped.getContents().size(), fast.getContents().size());
+        assertEquals(stepped.getSession(), fast.getSession());
+        assertEquals(completed, drain(fast));
+    }
+
+    @Test
+    void fastForwardRejectsNonFiniteTime() {
+        HephaestusData data = registry();
+        Factory f = vat(data, WATER);
+        assertThrows(IllegalArgumentException.class, () -> f.fastForward(Double.NaN, data));
+        assertThrows(IllegalArgumentException.class, () -> f.fastForward(Double.POSITIVE_INFINITY, data));
+        assertThrows(IllegalArgumentException.class, () -> f.fastForward(-1, data));
+    }
+
+    @Test
+    void fastForwardStopsOnTimeTooSmallForAStep() {
+        HephaestusData data = registry();
+        register(data, new Stirred());
+        Factory f = vat(data, WATER);
+        // Le reste ne tient pas dans un float : aucun pas ne peut avancer
+        int completed = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> f.fastForward(Double.MIN_VALUE, data));
+        assertEquals(0, completed);
+        assertTrue(f.getSession());
+    }
+
+    @Test
+    void fastForwardSaturatesTheCompletedCount() {
+        HephaestusData data = registry();
+        register(data, new Blink());
+        Factory f = vat(data, WATER);
+        // 10^12 sessions de 10^-9 s, bien plus qu'un int
+        assertEquals(Integer.MAX_VALUE, f.fastForward(1000, data));
+    }
+
+    private static Factory filledVat(HephaestusData data, int waters) {
+        String[] materials = new String[waters];
+        Arrays.fill(materials, WATER);
+        return vat(data, materials);
+    }
+
+    /**
+     * Brew ticked on every update: no closed form, fast-forwarded by coarse steps.
+     */
+    private static final class Stirred extends Brew {
+        Stirred() {
+            super("test:stirred", BEER, 6f, 12f, WATER);
+        }
+
+        @Override
+        public void onTick(ProcessContext ctx, HephaestusData data, float elapsedSeconds, ProcessingPhase phase) {
+        }
+    }
+
+    /**
+     * Session of a nanosecond consuming and producing nothing: any number of runs fits.
+     */
+    private static final class Blink extends Brew {
+        Blink() {
+            super("test:blink", BEER, 1e-9f, 1f, WATER);
+        }
+
+        @Override
+        public int fastForward(ProcessContext ctx, HephaestusData data, int runs) {
+            return runs;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package fr.olympus.hephaestus.factory;
+
+import fr.olympus.hephaestus.processing.ProcessContext;
+import fr.olympus.hephaestus.processing.ProcessingPhase;
+import fr.olympus.hephaestus.register.RecipeSelector;
+import fr.olympus.hephaestus.resources.HephaestusData;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import static fr.olympus.hephaestus.factory.Fixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class FactoryWorldTest {
+
+    @Test
+    void despawnedHandlesAreReusedWithAFreshState() {
+        HephaestusData data = brewing(registry());
+        FactoryWorld world = new FactoryWorld(data);
+        int a = world.spawn(VAT);
+        int b = world.spawn(TANK);
+        int c = world.spawn(VAT);
+        world.insert(b, instance(data, WATER));
+        world.startFactory(b);
+        world.tick(0.1f);
+        assertTrue(world.hasSession(b));
+
+        world.despawn(b);
+        assertFalse(world.isAlive(b));
+        assertEquals(2, world.size());
+        assertThrows(IllegalArgumentException.class, () -> world.getRegistryHandle(b));
+        assertThrows(IllegalArgumentException.class, () -> world.despawn(b));
+
+        // Le handle libéré repart d'une fabrique arrêtée et vide, du nouveau type
+        int d = world.spawn(VAT);
+        assertEquals(b, d);
+        assertEquals(3, world.size());
+        assertEquals(data.factoryHandle(VAT), world.getRegistryHandle(d));
+        assertFalse(world.isOperating(d));
+        assertFalse(world.hasSession(d));
+        assertTrue(world.getContents(d).isEmpty());
+        assertEquals(0f, world.getElapsed(d));
+        assertTrue(world.isAlive(a) && world.isAlive(c));
+        assertThrows(IllegalArgumentException.class, () -> world.spawn("test:unknown"));
+    }
+
+    @Test
+    void registryChangesReachLiveFactories() {
+        HephaestusData data = registry();
+        FactoryWorld world = new FactoryWorld(data);
+        int f = world.spawn(TANK);
+        world.insert(f, instance(data, WATER));
+        world.startFactory(f);
+        world.tick(0.1f);
+        assertFalse(world.hasSession(f));
+        assertTrue(world.isDormant(f));
+
+        // La recette enregistrée ensuite réveille la fabrique
+        register(data, new Brew("test:brew", BEER, 1f, 2f, WATER));
+        assertFalse(world.isDormant(f));
+        world.tick(0.1f);
+        assertEquals("test:brew", world.getSessionRecipe(f).id());
+
+        // La session en cours garde sa recette, la suivante suit la nouvelle priorité
+        register(data, new Brew("test:lager", BEER, 1f, 2f, WATER) {
+            @Override
+            public int priority() {
+                return 200;
+            }
+        });
+        world.tick(1f);
+        assertFalse(world.hasSession(f));
+        assertEquals(1, world.extractAllOutputs(f).size());
+        world.insert(f, instance(data, WATER));
+        world.tick(0.1f);
+        assertEquals("test:lager", world.getSessionRecipe(f).id());
+    }
+
+    @Test
+    void onlyTickedRecipesAreEvaluatedOnEveryTick() {
+        HephaestusData data = registry();
+        Counted stir = new Counted("test:stir", VAT, true);
+        Counted brew = new Counted("test:brew", TANK, false);
+        register(data, stir);
+        register(data, brew);
+        FactoryWorld world = new FactoryWorld(data);
+        int vat = world.spawn(VAT);
+        int tank = world.spawn(TANK);
+        for (int f : new int[]{vat, tank}) {
+            world.insert(f, instance(data, WATER));
+            world.startFactory(f);
+        }
+
+        for (int i = 0; i < 5; i++) world.tick(0.1f);
+        assertEquals(5, stir.ticks);
+        assertEquals(5, stir.attempts);
+        // Hors ticks : évaluée au démarrage seulement, tant que la phase ne change pas
+        assertEquals(0, brew.ticks);
+        assertEquals(1, brew.attempts);
+
+        world.tick(0.55f);
+        assertEquals(2, brew.attempts);
+        assertFalse(world.hasSession(tank));
+        assertTrue(world.hasOutputs(tank));
+        assertTrue(world.getContents(tank).isEmpty());
+    }
+
+    @Test
+    void sessionsWithoutContentsAllocateNoColdState() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "thread allocation counter not supported");
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        HephaestusData data = registry();
+        register(data, new Brew("test:rest", BEER, 1f, 2f));
+        int population = 1_000;
+        for (int i = 0; i < 3; i++) world(data, population).tick(0.1f);
+
+        FactoryWorld world = world(data, population);
+        long before = threads.getCurrentThreadAllocatedBytes();
+        world.tick(0.1f);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        for (int f = 0; f < population; f++) assertTrue(world.hasSession(f));
+        assertTrue(allocated < population, "bytes allocated by starting " + population + " sessions: " + allocated);
+
+        // Les sorties de la recette donnent son état froid à la fabrique
+        world.tick(1f);
+        assertFalse(world.hasSession(0));
+        assertEquals(1, world.extractAllOutputs(0).size());
+    }
+
+    /**
+     * Registers the brew recipe.
+     */
+    private static HephaestusData brewing(HephaestusData data) {
+        register(data, new Brew("test:brew", BEER, 6f, 12f, WATER));
+        return data;
+    }
+
+    /**
+     * World of running empty tanks.
+     */
+    private static FactoryWorld world(HephaestusData data, int population) {
+        FactoryWorld world = new FactoryWorld(data);
+        for (int i = 0; i < population; i++) world.startFactory(world.spawn(TANK));
+        return world;
+    }
+
+    /**
+     * Brews water in a single factory type, counting its tick calls and completion attempts.
+     */
+    static final class Counted extends Brew {
+        private final String factory;
+        private final boolean ticked;
+        int ticks;
+        int attempts;
+
+        Counted(String id, String factory, boolean ticked) {
+            super(id, BEER, 1f, 2f, WATER);
+            this.factory = factory;
+            this.ticked = ticked;
+        }
+
+        @Override
+        public RecipeSelector selector() {
+            return new RecipeSelector(Set.of(factory), Set.of(), 0);
+        }
+
+        @Override
+        public boolean needsTicks() {
+            return ticked;
+        }
+
+        @Override
+        public void onTick(ProcessContext ctx, HephaestusData data, float elapsedSeconds, ProcessingPhase phase) {
+            ticks++;
+        }
+
+        @Override
+        public boolean tryComplete(ProcessContext ctx, HephaestusData data, float elapsedSeconds, ProcessingPhase phase) {
+            attempts++;
+            return super.tryComplete(ctx, data, elapsedSeconds, phase);
+        }
+    }
+}
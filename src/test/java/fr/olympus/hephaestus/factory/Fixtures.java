@@ -0,0 +1,254 @@
+package fr.olympus.hephaestus.factory;
+
+import fr.olympus.hephaestus.materials.Material;
+import fr.olympus.hephaestus.materials.MaterialCategory;
+import fr.olympus.hephaestus.materials.MaterialInstance;
+import fr.olympus.hephaestus.materials.MaterialType;
+import fr.olympus.hephaestus.processing.ContentStore;
+import fr.olympus.hephaestus.processing.FactoryEvent;
+import fr.olympus.hephaestus.processing.MaterialMatcher;
+import fr.olympus.hephaestus.processing.ProcessContext;
+import fr.olympus.hephaestus.processing.ProcessRecipe;
+import fr.olympus.hephaestus.processing.ProcessingPhase;
+import fr.olympus.hephaestus.processing.TimeWindow;
+import fr.olympus.hephaestus.register.FactoryRegistryEntry;
+import fr.olympus.hephaestus.register.ProcessRecipeRegistryEntry;
+import fr.olympus.hephaestus.register.RecipeSelector;
+import fr.olympus.hephaestus.resources.HephaestusData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Registry content shared by the factory tests: water, wort and beer, a vat with counted contents and a tank
+ * with plain contents, and a brewing recipe to register on both.
+ */
+final class Fixtures {
+
+    static final String WATER = "test:water";
+    static final String WORT = "test:wort";
+    static final String BEER = "test:beer";
+    static final String VAT = "test:vat";
+    static final String TANK = "test:tank";
+    static final String TAP = "test:tap";
+
+    private Fixtures() {
+    }
+
+    /**
+     * Registry with water, wort, beer, the vat and the tank, without recipe and not frozen.
+     */
+    static HephaestusData registry() {
+        HephaestusData data = new HephaestusData();
+        data.registerMaterial(WATER, new TestMaterial("water"));
+        data.registerMaterial(WORT, new TestMaterial("wort"));
+        data.registerMaterial(BEER, new TestMaterial("beer"));
+        data.registerFactory(new FactoryRegistryEntry(VAT, Set.of(VAT), 0, Vat::new));
+        data.registerFactory(new FactoryRegistryEntry(TANK, Set.of(TANK), 0, Tank::new));
+        return data;
+    }
+
+    /**
+     * Registers a recipe.
+     */
+    static void register(HephaestusData data, ProcessRecipe recipe) {
+        data.registerProcessRecipe(new ProcessRecipeRegistryEntry(recipe.id(), recipe.selector(), recipe));
+    }
+
+    /**
+     * Creates a running vat holding the given materials.
+     */
+    static Factory vat(HephaestusData data, String... materials) {
+        return create(data, VAT, materials);
+    }
+
+    /**
+     * Creates a running tank holding the given materials.
+     */
+    static Factory tank(HephaestusData data, String... materials) {
+        return create(data, TANK, materials);
+    }
+
+    private static Factory create(HephaestusData data, String factory, String... materials) {
+        Factory f = data.createFactory(factory);
+        for (String m : materials) f.insert(instance(data, m));
+        f.startFactory();
+        return f;
+    }
+
+    static MaterialInstance instance(HephaestusData data, String material) {
+        return data.newMaterialInstance(data.materialHandle(material), new byte[1][1][1]);
+    }
+
+    /**
+     * Number of outputs of a factory, extracted.
+     */
+    static int drain(Factory f) {
+        return f.hasOutputs() ? f.extractAllOutputs().size() : 0;
+    }
+
+    enum Type implements MaterialType {
+        LIQUID
+    }
+
+    enum Category implements MaterialCategory {
+        DRINK
+    }
+
+    static final class TestMaterial extends Material {
+        TestMaterial(String name) {
+            super(Type.LIQUID, List.of(Category.DRINK), name);
+        }
+    }
+
+    /**
+     * Vat with counted contents.
+     */
+    static final class Vat extends Factory {
+        Vat() {
+            super(true);
+        }
+    }
+
+    /**
+     * Tank with plain contents.
+     */
+    static final class Tank extends Factory {
+    }
+
+    /**
+     * Runs in the vat and the tank. Consumes its inputs and produces one output when the minimum of its window is reached.
+     * A {@link #TAP} action pours one more output at once, without consuming anything.
+     */
+    static class Brew implements ProcessRecipe {
+        private final String id;
+        private final List<MaterialMatcher> inputs;
+        private final List<MaterialMatcher> outputs;
+        private final TimeWindow window;
+
+        Brew(String id, String output, float min, float max, String... inputs) {
+            this.id = id;
+            List<MaterialMatcher> in = new ArrayList<>();
+            for (String i : inputs) in.add(MaterialMatcher.id(i));
+            this.inputs = List.copyOf(in);
+            this.outputs = List.of(MaterialMatcher.id(output));
+            this.window = new TimeWindow(min, max);
+        }
+
+        @Override
+        public String id() {
+            return id;
+        }
+
+        @Override
+        public RecipeSelector selector() {
+            return new RecipeSelector(Set.of(VAT, TANK), Set.of(), 0);
+        }
+
+        @Override
+        public boolean ordered() {
+            return false;
+        }
+
+        @Override
+        public List<MaterialMatcher> inputs() {
+            return inputs;
+        }
+
+        @Override
+        public List<MaterialMatcher> outputs() {
+            return outputs;
+        }
+
+        @Override
+        public int cost() {
+            return 1;
+        }
+
+        @Override
+        public int priority() {
+            return 100;
+        }
+
+        @Override
+        public int specificityScore() {
+            return inputs.size();
+        }
+
+        @Override
+        public int inputCount() {
+            return inputs.size();
+        }
+
+        @Override
+        public int outputCount() {
+            return 1;
+        }
+
+        @Override
+        public TimeWindow timeWindowOrNull() {
+            return window;
+        }
+
+        @Override
+        public boolean canStart(ProcessContext ctx, HephaestusData data) {
+            return ctx.containsAll(inputs, data);
+        }
+
+        @Override
+        public float autoCompleteSeconds() {
+            return window.minSeconds();
+        }
+
+        @Override
+        public int fastForward(ProcessContext ctx, HephaestusData data, int runs) {
+            int n = 0;
+            while (n < runs && canStart(ctx, data)) {
+                brew(ctx, data);
+                n++;
+            }
+            return n;
+        }
+
+        @Override
+        public void onEvent(ProcessContext ctx, HephaestusData data, FactoryEvent event, float elapsedSeconds, ProcessingPhase phase) {
+            if (event instanceof FactoryEvent.Action a && a.actionId().equals(TAP)) {
+                ctx.pushOutput(data.newMaterialInstance(outputs.get(0).materialHandle(data), new byte[1][1][1]));
+            }
+        }
+
+        @Override
+        public boolean tryComplete(ProcessContext ctx, HephaestusData data, float elapsedSeconds, ProcessingPhase phase) {
+            if (window.beforeMin(elapsedSeconds)) return false;
+            brew(ctx, data);
+            return true;
+        }
+
+        private void brew(ProcessContext ctx, HephaestusData data) {
+            consume(ctx, data);
+            ctx.pushOutput(data.newMaterialInstance(outputs.get(0).materialHandle(data), new byte[1][1][1]));
+        }
+
+        /**
+         * Removes one material per input from the contents.
+         */
+        void consume(ProcessContext ctx, HephaestusData data) {
+            ContentStore store = ctx.contentStoreOrNull();
+            // Parcours indexé : pas d'itérateur, même si l'appel n'est pas inliné
+            for (int k = 0, n = inputs.size(); k < n; k++) {
+                MaterialMatcher m = inputs.get(k);
+                if (store != null) {
+                    store.take(m, data);
+                    continue;
+                }
+                for (int i = 0; i < ctx.contents().size(); i++) {
+                    if (m.matches(data.materialHandle(ctx.contents().get(i)), data)) {
+                        ctx.removeContentAt(i);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+}
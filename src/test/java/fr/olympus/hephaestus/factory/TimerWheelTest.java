@@ -0,0 +1,93 @@
+package fr.olympus.hephaestus.factory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+
+    @Test
+    void placesTimersAtTheLowestSeparatingLevel() {
+        TimerWheel wheel = new TimerWheel(1d);
+        double[] deadlines = {0.5, 5, 63, 64, 4095, 4096, 262_143, 262_144, 16_777_215, 16_777_216, 1e12};
+        int[] levels = {-1, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4};
+        for (int i = 0; i < deadlines.length; i++) {
+            TimerWheel.Timer t = new TimerWheel.Timer(null);
+            wheel.schedule(t, deadlines[i]);
+            assertEquals(levels[i], wheel.levelOf(t), "deadline " + deadlines[i]);
+        }
+        assertEquals(deadlines.length, wheel.size());
+    }
+
+    @Test
+    void cascadesDownToTheDeadline() {
+        TimerWheel wheel = new TimerWheel(1d);
+        TimerWheel.Timer t = new TimerWheel.Timer(null);
+        double base = 16_777_216 + 262_144 + 4096 + 64;
+        wheel.schedule(t, base + 5.5);
+        List<TimerWheel.Timer> fired = new ArrayList<>();
+
+        // Chaque entrée dans un bloc fait descendre le timer d'un niveau
+        int[] levels = {4, 3, 2, 1, 0, -1};
+        double[] times = {0, 16_777_216, 16_777_216 + 262_144, 16_777_216 + 262_144 + 4096, base, base + 5};
+        for (int i = 0; i < times.length; i++) {
+            wheel.advance(times[i], fired::add);
+            assertEquals(levels[i], wheel.levelOf(t), "at " + times[i]);
+        }
+        assertTrue(fired.isEmpty());
+        assertEquals(1, wheel.size());
+        assertEquals(1, wheel.advance(base + 5.5, fired::add));
+        assertEquals(List.of(t), fired);
+        assertFalse(t.isScheduled());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void firesEveryTimerAtTheFirstAdvanceReachingItsDeadline() {
+        TimerWheel wheel = new TimerWheel(0.05);
+        Random random = new Random(3);
+        int n = 5000;
+        TimerWheel.Timer[] timers = new TimerWheel.Timer[n];
+        double[] deadlines = new double[n];
+        double[] firedAt = new double[n];
+        Map<TimerWheel.Timer, Integer> index = new IdentityHashMap<>();
+        for (int i = 0; i < n; i++) {
+            timers[i] = new TimerWheel.Timer(null);
+            index.put(timers[i], i);
+            // Jusqu'au-delà de l'horizon des niveaux (64^4 x 0.05 s)
+            deadlines[i] = random.nextInt(4) == 0 ? random.nextDouble() * 1.2e6 : random.nextDouble() * 5000;
+            wheel.schedule(timers[i], deadlines[i]);
+            firedAt[i] = Double.NaN;
+        }
+        // Un timer sur dix est annulé, un sur dix reprogrammé
+        for (int i = 0; i < n; i += 10) wheel.cancel(timers[i]);
+        for (int i = 5; i < n; i += 10) {
+            deadlines[i] = random.nextDouble() * 3000;
+            wheel.schedule(timers[i], deadlines[i]);
+        }
+
+        double now = 0;
+        double last = 0;
+        while (wheel.size() > 0) {
+            last = now;
+            now += random.nextInt(8) == 0 ? random.nextDouble() * 20_000 : random.nextDouble() * 3;
+            double at = now;
+            double before = last;
+            wheel.advance(now, t -> {
+                int i = index.get(t);
+                assertTrue(Double.isNaN(firedAt[i]), "timer " + i + " fired twice");
+                assertTrue(deadlines[i] <= at && deadlines[i] > before, "timer " + i + " fired late or early");
+                firedAt[i] = at;
+            });
+        }
+        for (int i = 0; i < n; i++) {
+            assertEquals(i % 10 == 0, Double.isNaN(firedAt[i]), "timer " + i);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package fr.olympus.hephaestus.processing;
+
+import fr.olympus.hephaestus.materials.Material;
+import fr.olympus.hephaestus.materials.MaterialCategory;
+import fr.olympus.hephaestus.materials.MaterialInstance;
+import fr.olympus.hephaestus.materials.MaterialType;
+import fr.olympus.hephaestus.resources.HephaestusData;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentStoreTest {
+
+    private static final MaterialMatcher IRON = MaterialMatcher.id("test:iron");
+    private static final MaterialMatcher SLAG = MaterialMatcher.id("test:slag");
+    private static final MaterialMatcher METAL = MaterialMatcher.anyOfCategories(Set.of(Category.METAL));
+    private static final MaterialMatcher HOT_METAL = MaterialMatcher.allOfCategories(Set.of(Category.METAL, Category.HOT));
+
+    @Test
+    void countsFollowAddsRemovalsAndTakes() {
+        HephaestusData data = registry("test:iron", "test:copper", "test:slag");
+        ContentStore store = new ContentStore();
+        for (String id : new String[]{"test:iron", "test:copper", "test:iron", "test:slag"}) store.add(instance(data, id));
+
+        assertEquals(2, store.count(data.materialHandle("test:iron"), data));
+        assertEquals(2, store.count(IRON, data));
+        assertEquals(4, store.count(METAL, data));
+        assertEquals(1, store.count(HOT_METAL, data));
+        assertTrue(store.containsAll(List.of(IRON, IRON, HOT_METAL, METAL), data));
+        assertFalse(store.containsAll(List.of(IRON, IRON, IRON), data));
+
+        assertEquals("test:slag", store.take(HOT_METAL, data).materialId());
+        assertNull(store.take(HOT_METAL, data));
+        assertEquals("test:iron", store.take(IRON, data).materialId());
+        assertEquals(1, store.count(IRON, data));
+        assertEquals(2, store.size());
+
+        store.clear();
+        assertEquals(0, store.count(METAL, data));
+        assertNull(store.take(MaterialMatcher.any(), data));
+    }
+
+    @Test
+    void removalMovesTheLastInstanceIntoTheFreedIndex() {
+        HephaestusData data = registry("test:iron", "test:copper", "test:slag");
+        ContentStore store = new ContentStore();
+        MaterialInstance iron = instance(data, "test:iron");
+        MaterialInstance copper = instance(data, "test:copper");
+        MaterialInstance slag = instance(data, "test:slag");
+        store.addAll(List.of(iron, copper, slag));
+        assertEquals(1, store.count(SLAG, data));
+
+        assertSame(iron, store.remove(0));
+        assertEquals(List.of(slag, copper), store);
+        assertEquals(1, store.count(SLAG, data));
+        assertEquals(0, store.count(IRON, data));
+        assertThrows(UnsupportedOperationException.class, () -> store.add(0, iron));
+    }
+
+    @Test
+    void indexFollowsTheRegistryItIsQueriedWith() {
+        // Ordres d'enregistrement différents : les handles diffèrent d'un registre à l'autre
+        HephaestusData first = registry("test:iron", "test:copper");
+        HephaestusData second = registry("test:copper", "test:slag");
+        ContentStore store = new ContentStore();
+        store.add(instance(first, "test:iron"));
+        store.add(instance(first, "test:copper"));
+        assertEquals(1, store.count(IRON, first));
+
+        // Le fer est inconnu du second registre jusqu'à son enregistrement
+        assertEquals(0, store.count(IRON, second));
+        assertEquals(1, store.count(METAL, second));
+        second.registerMaterial("test:iron", new TestMaterial(List.of(Category.METAL), "iron"));
+        assertEquals(1, store.count(IRON, second));
+        assertEquals(2, store.count(METAL, second));
+        assertTrue(store.containsAll(List.of(METAL, IRON), second));
+    }
+
+    private static MaterialInstance instance(HephaestusData data, String id) {
+        return data.newMaterialInstance(data.materialHandle(id), new byte[1][1][1]);
+    }
+
+    /**
+     * Registry of metals: the slag is also hot.
+     */
+    private static HephaestusData registry(String... ids) {
+        HephaestusData data = new HephaestusData();
+        for (String id : ids) {
+            List<MaterialCategory> categories = id.equals("test:slag")
+                    ? List.of(Category.METAL, Category.HOT) : List.of(Category.METAL);
+            data.registerMaterial(id, new TestMaterial(categories, id));
+        }
+        return data;
+    }
+
+    enum Type implements MaterialType {
+        SOLID
+    }
+
+    enum Category implements MaterialCategory {
+        METAL, HOT
+    }
+
+    static final class TestMaterial extends Material {
+        TestMaterial(List<MaterialCategory> categories, String name) {
+            super(Type.SOLID, categories, name);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package fr.olympus.hephaestus.processing;
+
+import fr.olympus.hephaestus.materials.Material;
+import fr.olympus.hephaestus.materials.MaterialCategory;
+import fr.olympus.hephaestus.materials.MaterialType;
+import fr.olympus.hephaestus.resources.HephaestusData;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class MaterialMatcherTest {
+
+    private static final MaterialMatcher IRON = MaterialMatcher.id("test:iron");
+    private static final MaterialMatcher METAL = MaterialMatcher.anyOfCategories(Set.of(Category.METAL));
+    private static final MaterialMatcher HOT_METAL = MaterialMatcher.allOfCategories(Set.of(Category.METAL, Category.HOT));
+
+    @Test
+    void sharedMatchersResolveAgainstEachRegistryWithoutAllocating() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "thread allocation counter not supported");
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        // Ordres d'enregistrement différents : les handles et les bits diffèrent d'un registre à l'autre
+        HephaestusData first = registry("test:iron", "test:copper", "test:slag");
+        HephaestusData second = registry("test:slag", "test:copper", "test:iron");
+        assertNotEquals(first.materialHandle("test:iron"), second.materialHandle("test:iron"));
+        assertEquals(first.materialHandle("test:iron"), IRON.materialHandle(first));
+        assertEquals(second.materialHandle("test:iron"), IRON.materialHandle(second));
+
+        for (int i = 0; i < 10_000; i++) assertEquals(4, matches(first) + matches(second));
+
+        long best = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < 5 && best > 0; attempt++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            int n = 0;
+            for (int i = 0; i < 10_000; i++) n += matches(first) + matches(second);
+            best = Math.min(best, threads.getCurrentThreadAllocatedBytes() - before);
+            assertEquals(40_000, n);
+        }
+        assertEquals(0, best, "bytes allocated by matches on two registries");
+    }
+
+    @Test
+    void matcherDoesNotKeepADiscardedRegistryReachable() throws InterruptedException {
+        HephaestusData data = registry("test:iron");
+        assertTrue(IRON.matches(data.materialHandle("test:iron"), data));
+        assertTrue(METAL.matches(data.materialHandle("test:iron"), data));
+        WeakReference<HephaestusData> ref = new WeakReference<>(data);
+        data = null;
+
+        for (int i = 0; i < 50 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get());
+
+        // L'emplacement libéré sert au registre suivant
+        HephaestusData next = registry("test:copper", "test:iron");
+        assertEquals(next.materialHandle("test:iron"), IRON.materialHandle(next));
+    }
+
+    /**
+     * Number of matches of the shared matchers on iron and copper (2 per registry).
+     */
+    private static int matches(HephaestusData data) {
+        int iron = data.materialHandle("test:iron");
+        int copper = data.materialHandle("test:copper");
+        int n = 0;
+        if (IRON.matches(iron, data)) n++;
+        if (IRON.matches(copper, data)) n += 100;
+        if (METAL.matches(copper, data)) n++;
+        if (HOT_METAL.matches(copper, data)) n += 100;
+        return n;
+    }
+
+    /**
+     * Registry of metals: iron and copper, and hot slag.
+     */
+    private static HephaestusData registry(String... ids) {
+        HephaestusData data = new HephaestusData();
+        for (String id : ids) {
+            List<MaterialCategory> categories = id.equals("test:slag")
+                    ? List.of(Category.HOT, Category.METAL) : List.of(Category.METAL);
+            data.registerMaterial(id, new TestMaterial(categories, id));
+        }
+        return data;
+    }
+
+    enum Type implements MaterialType {
+        SOLID
+    }
+
+    enum Category implements MaterialCategory {
+        METAL, HOT
+    }
+
+    static final class TestMaterial extends Material {
+        TestMaterial(List<MaterialCategory> categories, String name) {
+            super(Type.SOLID, categories, name);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package fr.olympus.hephaestus.processing;
+
+import fr.olympus.hephaestus.materials.Material;
+import fr.olympus.hephaestus.materials.MaterialCategory;
+import fr.olympus.hephaestus.materials.MaterialInstance;
+import fr.olympus.hephaestus.materials.MaterialType;
+import fr.olympus.hephaestus.resources.HephaestusData;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProcessContextTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            // Le matcher par ID est servi avant la catégorie, quel que soit l'ordre des entrées
+            "metal id:iron, iron copper, true",
+            "id:iron metal, iron copper, true",
+            "metal metal id:iron, iron copper, false",
+            "hot metal, slag iron, true",
+            "metal hot, slag iron, true",
+            "metal hot id:slag, slag iron slag, true",
+            "* id:iron, iron, false",
+            "* id:iron, copper iron, true",
+            "* metal id:wood, wood iron copper, true",
+            "id:wood metal, iron copper, false",
+            "'', '', true"
+    })
+    void listAndStoreAgree(String inputs, String contents, boolean expected) {
+        HephaestusData data = registry();
+        List<MaterialMatcher> matchers = new ArrayList<>();
+        for (String m : inputs.split(" ")) if (!m.isEmpty()) matchers.add(matcher(m));
+        List<MaterialInstance> list = new ArrayList<>();
+        ContentStore store = new ContentStore();
+        for (String c : contents.split(" ")) {
+            if (c.isEmpty()) continue;
+            list.add(instance(data, c));
+            store.add(instance(data, c));
+        }
+
+        assertEquals(expected, new ProcessContext(list, new ArrayList<>()).containsAll(matchers, data));
+        assertEquals(expected, new ProcessContext(store, new ArrayList<>()).containsAll(matchers, data));
+    }
+
+    /**
+     * Parses a matcher: {@code id:<name>}, {@code metal}, {@code hot} (metal and hot) or {@code *}.
+     */
+    private static MaterialMatcher matcher(String spec) {
+        return switch (spec) {
+            case "*" -> MaterialMatcher.any();
+            case "metal" -> MaterialMatcher.anyOfCategories(Set.of(Category.METAL));
+            case "hot" -> MaterialMatcher.allOfCategories(Set.of(Category.METAL, Category.HOT));
+            default -> MaterialMatcher.id("test:" + spec.substring(3));
+        };
+    }
+
+    private static MaterialInstance instance(HephaestusData data, String name) {
+        return data.newMaterialInstance(data.materialHandle("test:" + name), new byte[1][1][1]);
+    }
+
+    /**
+     * Registry of iron and copper (metal), hot slag (metal) and wood.
+     */
+    private static HephaestusData registry() {
+        HephaestusData data = new HephaestusData();
+        data.registerMaterial("test:iron", new TestMaterial(List.of(Category.METAL), "iron"));
+        data.registerMaterial("test:copper", new TestMaterial(List.of(Category.METAL), "copper"));
+        data.registerMaterial("test:slag", new TestMaterial(List.of(Category.METAL, Category.HOT), "slag"));
+        data.registerMaterial("test:wood", new TestMaterial(List.of(Category.WOOD), "wood"));
+        return data;
+    }
+
+    enum Type implements MaterialType {
+        SOLID
+    }
+
+    enum Category implements MaterialCategory {
+        METAL, HOT, WOOD
+    }
+
+    static final class TestMaterial extends Material {
+        TestMaterial(List<MaterialCategory> categories, String name) {
+            super(Type.SOLID, categories, name);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package fr.olympus.hephaestus.resources;
+
+import fr.olympus.hephaestus.materials.Material;
+import fr.olympus.hephaestus.materials.MaterialCategory;
+import fr.olympus.hephaestus.materials.MaterialDescriptor;
+import fr.olympus.hephaestus.materials.MaterialType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HephaestusDataTest {
+
+    @Test
+    void materialViewIsLiveAndOnlyInstantiatesWhatItReads() {
+        HephaestusData data = new HephaestusData();
+        AtomicInteger created = new AtomicInteger();
+        data.registerMaterial(MaterialDescriptor.lazy("test:ore", "SOLID", List.of("METAL"), () -> {
+            created.incrementAndGet();
+            return new TestMaterial("ore");
+        }));
+        Map<String, Material> view = data.getMaterials();
+
+        // Clés, taille et présence viennent des descripteurs
+        assertEquals(1, view.size());
+        assertEquals(Set.of("test:ore"), view.keySet());
+        assertTrue(view.containsKey("test:ore"));
+        assertNull(view.get("test:unknown"));
+        assertEquals(0, created.get());
+        assertFalse(data.getMaterialDescriptor("test:ore").isLoaded());
+
+        // Vue vivante : un enregistrement suivant y apparaît
+        data.registerMaterial("test:slag", new TestMaterial("slag"));
+        assertEquals(2, view.size());
+        assertSame(data.getMaterialDef("test:slag"), view.get("test:slag"));
+        assertEquals(0, created.get());
+
+        assertSame(data.getMaterialDef("test:ore"), view.get("test:ore"));
+        assertEquals(1, created.get());
+        assertEquals(2, view.entrySet().size());
+        assertEquals(2, view.values().stream().distinct().count());
+
+        assertThrows(UnsupportedOperationException.class, () -> view.put("test:x", new TestMaterial("x")));
+        assertThrows(UnsupportedOperationException.class, () -> view.remove("test:ore"));
+        assertThrows(UnsupportedOperationException.class, () -> view.keySet().remove("test:ore"));
+        assertThrows(UnsupportedOperationException.class, view::clear);
+        assertEquals(2, view.size());
+    }
+
+    enum Type implements MaterialType {
+        SOLID
+    }
+
+    enum Category implements MaterialCategory {
+        METAL
+    }
+
+    static final class TestMaterial extends Material {
+        TestMaterial(String name) {
+            super(Type.SOLID, List.of(Category.METAL), name);
+        }
+    }
+}